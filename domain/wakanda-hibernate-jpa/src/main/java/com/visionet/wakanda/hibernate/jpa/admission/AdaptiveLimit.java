@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * AIMD 并发上限
+ *
+ * 每个调用点(如仓库方法)以自己一段时间内的最小延迟为基线, 延迟超过基线的 tolerance 倍、连接池饱和或调用超时时按 backoff
+ * 乘性减小, 每个时间窗口最多减小一次; 否则每完成约 limit 次调用加一. 基线每 {@link #BASELINE_SAMPLES} 次采样重置一次,
+ * 以适应数据量增长带来的正常延迟变化. 慢查询只与自身的基线比较, 不会拉低其它调用的上限
+ *
+ * 上限与基线以 CAS 更新, 采样不加锁
+ *
+ * @author pangcaijie
+ * @since 2019/5/16.
+ */
+public class AdaptiveLimit {
+
+	static final int BASELINE_SAMPLES = 1000;
+
+	private static final long MIN_DECREASE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double tolerance;
+
+	private final double backoff;
+
+	/**
+	 * 当前上限, double 的位表示
+	 */
+	private final AtomicLong limit;
+
+	private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime() - TimeUnit.DAYS.toNanos(1));
+
+	private final Baseline baseline = new Baseline();
+
+	public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoff) {
+		this.limit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.backoff = backoff;
+	}
+
+	/**
+	 * @return 当前上限
+	 */
+	public int getLimit() {
+		return (int) Double.longBitsToDouble(limit.get());
+	}
+
+	/**
+	 * 记录一次调用, 与所有未区分调用点的采样共用一个基线
+	 * @param rttNanos 调用耗时
+	 * @param inflight 调用开始时的并发数
+	 * @param overloaded 调用超时或连接池已饱和
+	 */
+	public void onSample(long rttNanos, int inflight, boolean overloaded) {
+		onSample(baseline, rttNanos, inflight, overloaded);
+	}
+
+	/**
+	 * 记录一次调用
+	 * @param baseline 调用点的延迟基线
+	 * @param rttNanos 调用耗时
+	 * @param inflight 调用开始时的并发数
+	 * @param overloaded 调用超时或连接池已饱和
+	 */
+	public void onSample(Baseline baseline, long rttNanos, int inflight, boolean overloaded) {
+		long minRtt = baseline.update(rttNanos);
+		if (overloaded || rttNanos > minRtt * tolerance) {
+			long now = System.nanoTime();
+			long last = lastDecrease.get();
+			if (now - last >= Math.max(MIN_DECREASE_INTERVAL, minRtt) && lastDecrease.compareAndSet(last, now)) {
+				update(current -> Math.max(minLimit, current * backoff));
+			}
+		} else if (inflight * 2 >= Double.longBitsToDouble(limit.get())) {
+			// 只有实际用到一半以上的上限时才增加, 避免空闲时上限无限增长
+			update(current -> Math.min(maxLimit, current + 1 / current));
+		}
+	}
+
+	private void update(DoubleUnaryOperator operator) {
+		long current;
+		long next;
+		do {
+			current = limit.get();
+			next = Double.doubleToLongBits(operator.applyAsDouble(Double.longBitsToDouble(current)));
+		} while (current != next && !limit.compareAndSet(current, next));
+	}
+
+	/**
+	 * 一个调用点的延迟基线: 最近一个采样窗口内的最小延迟
+	 */
+	public static class Baseline {
+
+		private final AtomicLong minRtt = new AtomicLong(Long.MAX_VALUE);
+
+		private final AtomicLong nextMinRtt = new AtomicLong(Long.MAX_VALUE);
+
+		private final AtomicInteger samples = new AtomicInteger();
+
+		/**
+		 * @return 加入本次采样后的基线
+		 */
+		long update(long rttNanos) {
+			lower(minRtt, rttNanos);
+			lower(nextMinRtt, rttNanos);
+			if (samples.incrementAndGet() % BASELINE_SAMPLES == 0) {
+				minRtt.set(nextMinRtt.getAndSet(Long.MAX_VALUE));
+			}
+			return minRtt.get();
+		}
+
+		private static void lower(AtomicLong value, long candidate) {
+			long current = value.get();
+			while (candidate < current && !value.compareAndSet(current, candidate)) {
+				current = value.get();
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.admission;
+
+import java.lang.annotation.*;
+
+/**
+ * 标注在 {@code BaseService} 实现类、仓库接口或其方法上, 指定准入优先级; 未标注时为 {@link AdmissionPriority#NORMAL}
+ *
+ * @author pangcaijie
+ * @since 2019/5/16.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Admission {
+
+	AdmissionPriority value() default AdmissionPriority.NORMAL;
+}
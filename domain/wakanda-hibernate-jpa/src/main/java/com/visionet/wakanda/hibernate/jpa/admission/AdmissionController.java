@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 数据库调用准入控制
+ *
+ * 所有调用共享一个 {@link AdaptiveLimit}, 各优先级只能使用其中 {@link AdmissionPriority#getShare()} 的部分;
+ * 超过上限的调用立即抛出 {@link AdmissionRejectedException}, 不在连接池上排队, 从而限制尾延迟
+ *
+ * @author pangcaijie
+ * @since 2019/5/16.
+ */
+public class AdmissionController {
+
+	private final AdaptiveLimit limit;
+
+	private final DoubleSupplier saturation;
+
+	private final double saturationThreshold;
+
+	private final AtomicInteger inflight = new AtomicInteger();
+
+	private final Map<AdmissionPriority, Counter> rejected = new EnumMap<>(AdmissionPriority.class);
+
+	private final Map<AdmissionPriority, Timer> latency = new EnumMap<>(AdmissionPriority.class);
+
+	/**
+	 * @param limit 并发上限
+	 * @param saturation 连接池饱和度(0~1), 为 null 时只按延迟调整
+	 * @param saturationThreshold 饱和度达到该值时减小上限
+	 */
+	public AdmissionController(AdaptiveLimit limit, DoubleSupplier saturation, double saturationThreshold) {
+		this.limit = limit;
+		this.saturation = saturation != null ? saturation : () -> 0;
+		this.saturationThreshold = saturationThreshold;
+		for (AdmissionPriority priority : AdmissionPriority.values()) {
+			Tags tags = Tags.of("priority", priority.name());
+			rejected.put(priority, Metrics.counter("wakanda.admission.rejected", tags));
+			latency.put(priority, Metrics.timer("wakanda.admission.latency", tags));
+			Metrics.gauge("wakanda.admission.limit", tags, this, controller -> controller.getLimit(priority));
+		}
+		Metrics.gauge("wakanda.admission.inflight", inflight);
+		Metrics.gauge("wakanda.admission.pool.saturation", this, controller -> controller.saturation.getAsDouble());
+	}
+
+	/**
+	 * 申请执行一次调用, 成功后必须调用 {@link Ticket#release(boolean)}
+	 * @param priority 优先级
+	 * @return 许可
+	 * @throws AdmissionRejectedException 超过该优先级的上限
+	 */
+	public Ticket acquire(AdmissionPriority priority) {
+		return acquire(priority, null);
+	}
+
+	/**
+	 * 申请执行一次调用, 成功后必须调用 {@link Ticket#release(boolean)}
+	 * @param priority 优先级
+	 * @param baseline 调用点的延迟基线, 为 null 时使用共用的基线
+	 * @return 许可
+	 * @throws AdmissionRejectedException 超过该优先级的上限
+	 */
+	public Ticket acquire(AdmissionPriority priority, AdaptiveLimit.Baseline baseline) {
+		int max = getLimit(priority);
+		while (true) {
+			int current = inflight.get();
+			if (current >= max) {
+				rejected.get(priority).increment();
+				throw new AdmissionRejectedException(priority, current, max);
+			}
+			if (inflight.compareAndSet(current, current + 1)) {
+				return new Ticket(priority, baseline, current + 1);
+			}
+		}
+	}
+
+	/**
+	 * @return 该优先级当前可用的并发上限, 至少为 1
+	 */
+	public int getLimit(AdmissionPriority priority) {
+		return Math.max(1, (int) (limit.getLimit() * priority.getShare()));
+	}
+
+	/**
+	 * @return 当前执行中的调用数
+	 */
+	public int getInflight() {
+		return inflight.get();
+	}
+
+	/**
+	 * 一次已准入的调用
+	 */
+	public class Ticket {
+
+		private final AdmissionPriority priority;
+
+		private final AdaptiveLimit.Baseline baseline;
+
+		private final int startInflight;
+
+		private final long start = System.nanoTime();
+
+		private Ticket(AdmissionPriority priority, AdaptiveLimit.Baseline baseline, int startInflight) {
+			this.priority = priority;
+			this.baseline = baseline;
+			this.startInflight = startInflight;
+		}
+
+		/**
+		 * @param overloaded 调用因获取连接或查询超时失败
+		 */
+		public void release(boolean overloaded) {
+			long rtt = System.nanoTime() - start;
+			inflight.decrementAndGet();
+			latency.get(priority).record(rtt, TimeUnit.NANOSECONDS);
+			boolean saturated = overloaded || saturation.getAsDouble() >= saturationThreshold;
+			if (baseline != null) {
+				limit.onSample(baseline, rtt, startInflight, saturated);
+			} else {
+				limit.onSample(rtt, startInflight, saturated);
+			}
+		}
+	}
+}
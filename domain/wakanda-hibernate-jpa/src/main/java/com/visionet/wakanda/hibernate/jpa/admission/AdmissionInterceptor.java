@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.admission;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 对 {@code BaseService} 和仓库方法做准入控制; 只在最外层调用申请许可, 服务内部调用的仓库方法不重复计数
+ *
+ * @author pangcaijie
+ * @since 2019/5/16.
+ */
+public class AdmissionInterceptor implements MethodInterceptor {
+
+	private static final ThreadLocal<Boolean> ADMITTED = new ThreadLocal<>();
+
+	private final AdmissionController controller;
+
+	private final Class<?> repositoryInterface;
+
+	private final ConcurrentMap<Method, CallSite> callSites = new ConcurrentHashMap<>();
+
+	public AdmissionInterceptor(AdmissionController controller) {
+		this(controller, null);
+	}
+
+	/**
+	 * @param repositoryInterface 仓库接口, 继承自 {@code JpaRepository} 的方法按该接口上的 {@link Admission} 取优先级
+	 */
+	public AdmissionInterceptor(AdmissionController controller, Class<?> repositoryInterface) {
+		this.controller = controller;
+		this.repositoryInterface = repositoryInterface;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (ADMITTED.get() != null) {
+			return invocation.proceed();
+		}
+		CallSite callSite = callSites.computeIfAbsent(invocation.getMethod(),
+				method -> new CallSite(priority(method, invocation.getThis(), repositoryInterface)));
+		AdmissionController.Ticket ticket = controller.acquire(callSite.priority, callSite.baseline);
+		ADMITTED.set(Boolean.TRUE);
+		boolean overloaded = false;
+		try {
+			return invocation.proceed();
+		} catch (TransientDataAccessException | CannotCreateTransactionException e) {
+			overloaded = true;
+			throw e;
+		} finally {
+			ADMITTED.remove();
+			ticket.release(overloaded);
+		}
+	}
+
+	/**
+	 * 依次查找实现方法、接口方法、实现类、接口上的 {@link Admission}
+	 */
+	private static AdmissionPriority priority(Method method, Object target, Class<?> repositoryInterface) {
+		Class<?> targetClass = target != null ? AopUtils.getTargetClass(target) : method.getDeclaringClass();
+		Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+		Admission admission = AnnotatedElementUtils.findMergedAnnotation(specific, Admission.class);
+		if (admission == null) {
+			admission = AnnotatedElementUtils.findMergedAnnotation(method, Admission.class);
+		}
+		if (admission == null) {
+			admission = AnnotatedElementUtils.findMergedAnnotation(targetClass, Admission.class);
+		}
+		if (admission == null) {
+			Class<?> declaring = repositoryInterface != null ? repositoryInterface : method.getDeclaringClass();
+			admission = AnnotatedElementUtils.findMergedAnnotation(declaring, Admission.class);
+		}
+		return admission != null ? admission.value() : AdmissionPriority.NORMAL;
+	}
+
+	/**
+	 * 方法的优先级与延迟基线
+	 */
+	private static class CallSite {
+
+		private final AdmissionPriority priority;
+
+		private final AdaptiveLimit.Baseline baseline = new AdaptiveLimit.Baseline();
+
+		private CallSite(AdmissionPriority priority) {
+			this.priority = priority;
+		}
+	}
+}
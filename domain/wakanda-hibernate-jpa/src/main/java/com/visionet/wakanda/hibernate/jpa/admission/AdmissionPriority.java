@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.admission;
+
+/**
+ * 调用优先级, 低优先级只能使用并发上限的一部分, 过载时先被拒绝
+ *
+ * @author pangcaijie
+ * @since 2019/5/16.
+ */
+public enum AdmissionPriority {
+
+	CRITICAL(1.0),
+
+	NORMAL(0.8),
+
+	BATCH(0.5);
+
+	private final double share;
+
+	AdmissionPriority(double share) {
+		this.share = share;
+	}
+
+	/**
+	 * @return 可使用的并发上限比例
+	 */
+	public double getShare() {
+		return share;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.admission;
+
+/**
+ * 数据库过载, 调用在执行前被拒绝; 调用方应立即返回(如 HTTP 503)而不是重试
+ *
+ * @author pangcaijie
+ * @since 2019/5/16.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+	private final AdmissionPriority priority;
+
+	private final int inflight;
+
+	private final int limit;
+
+	public AdmissionRejectedException(AdmissionPriority priority, int inflight, int limit) {
+		super("Database overloaded, rejected " + priority + " call: " + inflight + " in flight, limit " + limit);
+		this.priority = priority;
+		this.inflight = inflight;
+		this.limit = limit;
+	}
+
+	public AdmissionPriority getPriority() {
+		return priority;
+	}
+
+	public int getInflight() {
+		return inflight;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+}
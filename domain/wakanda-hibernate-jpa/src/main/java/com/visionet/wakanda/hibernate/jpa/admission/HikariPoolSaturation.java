@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.admission;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Hikari 连接池饱和度: (使用中连接数 + 等待连接的线程数) / 最大连接数; 不是 Hikari 连接池时为 0
+ *
+ * 数据源在第一次读取时才获取, 准入控制的切面创建时不会提前初始化数据源
+ *
+ * @author pangcaijie
+ * @since 2019/5/16.
+ */
+public class HikariPoolSaturation implements DoubleSupplier {
+
+	private final ObjectProvider<DataSource> dataSourceProvider;
+
+	private volatile HikariDataSource dataSource;
+
+	private volatile boolean resolved;
+
+	public HikariPoolSaturation(ObjectProvider<DataSource> dataSourceProvider) {
+		this.dataSourceProvider = dataSourceProvider;
+	}
+
+	@Override
+	public double getAsDouble() {
+		HikariDataSource hikari = resolve();
+		// 连接池在第一次获取连接时才创建
+		HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+		if (pool == null || hikari.getMaximumPoolSize() <= 0) {
+			return 0;
+		}
+		return (double) (pool.getActiveConnections() + pool.getThreadsAwaitingConnection())
+				/ hikari.getMaximumPoolSize();
+	}
+
+	private HikariDataSource resolve() {
+		if (!resolved) {
+			DataSource source = dataSourceProvider.getIfUnique();
+			try {
+				if (source != null && source.isWrapperFor(HikariDataSource.class)) {
+					dataSource = source.unwrap(HikariDataSource.class);
+				}
+			} catch (SQLException e) {
+				dataSource = null;
+			}
+			resolved = true;
+		}
+		return dataSource;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.cache;
+
+import java.lang.annotation.*;
+
+/**
+ * 开启查询结果缓存, 标注在仓库接口上时对所有查询方法生效, 标注在方法上时只对该方法生效(方法上的配置优先)
+ *
+ * 缓存键为方法与参数(含 {@code Sort}/{@code Pageable}); 参数包含 {@code Specification}、{@code Example}
+ * 等无法比较的对象时不缓存. 通过仓库对实体的写入(save/delete/upsert/{@code @Modifying} 查询)会使相关缓存失效,
+ * 绕过仓库的写入需要调用 {@link QueryCacheManager#invalidate(Class[])}.
+ *
+ * 缓存的实体在多个调用方之间共享, 只能读取, 延迟加载的关联在缓存命中时不可用
+ *
+ * @author pangcaijie
+ * @since 2019/5/15.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryCache {
+
+	/**
+	 * @return 过期时间, 毫秒
+	 */
+	long ttl() default 60000;
+
+	/**
+	 * @return 每个仓库最多缓存的结果数, 超出时淘汰最久未使用的结果
+	 */
+	int maxEntries() default 1000;
+
+	/**
+	 * @return 查询还依赖的其它实体(关联查询), 这些实体的写入同样使缓存失效
+	 */
+	Class<?>[] tables() default {};
+}
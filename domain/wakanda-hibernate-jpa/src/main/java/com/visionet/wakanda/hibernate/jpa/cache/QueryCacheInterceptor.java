@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.cache;
+
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeFilters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * 仓库方法拦截: 写方法记录表修改, 标注 {@link QueryCache} 的查询方法读写缓存
+ *
+ * @author pangcaijie
+ * @since 2019/5/15.
+ */
+public class QueryCacheInterceptor implements MethodInterceptor {
+
+	private static final String[] WRITE_PREFIXES = {"save", "delete", "upsert", "remove"};
+
+	private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	private final QueryCacheManager manager;
+
+	private final Class<?> repositoryInterface;
+
+	private final Class<?> domainType;
+
+	private final ConcurrentMap<Method, Policy> policies = new ConcurrentHashMap<>();
+
+	private final Map<Key, CachedResult> entries;
+
+	public QueryCacheInterceptor(QueryCacheManager manager, Class<?> repositoryInterface, Class<?> domainType) {
+		this.manager = manager;
+		this.repositoryInterface = repositoryInterface;
+		this.domainType = domainType;
+		// 容量按仓库接口上的配置, 方法上的 maxEntries 不单独生效
+		QueryCache config = AnnotatedElementUtils.findMergedAnnotation(repositoryInterface, QueryCache.class);
+		int maxEntries = config != null ? config.maxEntries() : DEFAULT_MAX_ENTRIES;
+		this.entries = Collections.synchronizedMap(new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+				return size() > maxEntries;
+			}
+		});
+		Metrics.gauge("wakanda.querycache.size", Tags.of("repository", repositoryInterface.getSimpleName()),
+				entries, Map::size);
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Method method = invocation.getMethod();
+		Policy policy = policies.computeIfAbsent(method, this::policy);
+		if (policy.write) {
+			Object result = invocation.proceed();
+			for (Class<?> table : policy.tables) {
+				manager.modified(table);
+			}
+			return result;
+		}
+		// 受数据范围限制的结果因调用者而异, 不读写缓存
+		if (policy.ttl <= 0 || DataScopeFilters.current() != null || manager.isDirty(policy.tables)) {
+			return invocation.proceed();
+		}
+		Key key = Key.of(method, invocation.getArguments());
+		if (key == null) {
+			return invocation.proceed();
+		}
+		CachedResult entry = entries.get(key);
+		if (entry != null && entry.isValid(manager.snapshot(policy.tables), System.currentTimeMillis())) {
+			policy.hits.increment();
+			return copy(entry.value);
+		}
+		policy.misses.increment();
+		long[] snapshot = manager.snapshot(policy.tables);
+		Object result = invocation.proceed();
+		if (result instanceof Stream || result instanceof Iterator) {
+			return result;
+		}
+		entries.put(key, new CachedResult(copy(result), snapshot, System.currentTimeMillis() + policy.ttl));
+		return result;
+	}
+
+	private Policy policy(Method method) {
+		Policy policy = new Policy();
+		boolean write = AnnotatedElementUtils.hasAnnotation(method, Modifying.class);
+		for (String prefix : WRITE_PREFIXES) {
+			write = write || method.getName().startsWith(prefix);
+		}
+		policy.write = write;
+		QueryCache config = AnnotatedElementUtils.findMergedAnnotation(method, QueryCache.class);
+		if (config == null) {
+			config = AnnotatedElementUtils.findMergedAnnotation(repositoryInterface, QueryCache.class);
+		}
+		Set<Class<?>> tables = new LinkedHashSet<>();
+		tables.add(domainType);
+		if (config != null) {
+			tables.addAll(Arrays.asList(config.tables()));
+		}
+		policy.tables = tables.toArray(new Class<?>[0]);
+		// getOne 返回延迟加载代理, 不缓存
+		boolean cacheable = config != null && !write && !"getOne".equals(method.getName());
+		policy.ttl = cacheable ? config.ttl() : 0;
+		if (cacheable) {
+			Tags tags = Tags.of("query", repositoryInterface.getSimpleName() + "." + method.getName());
+			policy.hits = Metrics.counter("wakanda.querycache.hits", tags);
+			policy.misses = Metrics.counter("wakanda.querycache.misses", tags);
+			Metrics.gauge("wakanda.querycache.hit.ratio", tags, policy, Policy::hitRatio);
+		}
+		return policy;
+	}
+
+	/**
+	 * 集合结果每次返回副本, 避免调用方修改缓存内容
+	 */
+	private static Object copy(Object value) {
+		if (value instanceof List) {
+			return new ArrayList<>((List<?>) value);
+		}
+		if (value instanceof Set) {
+			return new LinkedHashSet<>((Set<?>) value);
+		}
+		return value;
+	}
+
+	/**
+	 * 单个方法的缓存策略
+	 */
+	private static class Policy {
+
+		private boolean write;
+
+		private Class<?>[] tables;
+
+		private long ttl;
+
+		private Counter hits;
+
+		private Counter misses;
+
+		private double hitRatio() {
+			double total = hits.count() + misses.count();
+			return total <= 0 ? 0 : hits.count() / total;
+		}
+	}
+
+	private static class CachedResult {
+
+		private final Object value;
+
+		private final long[] snapshot;
+
+		private final long expiresAt;
+
+		private CachedResult(Object value, long[] snapshot, long expiresAt) {
+			this.value = value;
+			this.snapshot = snapshot;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isValid(long[] current, long now) {
+			return now < expiresAt && Arrays.equals(snapshot, current);
+		}
+	}
+
+	/**
+	 * 方法与参数值; 参数只接受可比较的不可变值
+	 */
+	private static class Key {
+
+		private final Method method;
+
+		private final Object[] args;
+
+		private final int hash;
+
+		private Key(Method method, Object[] args) {
+			this.method = method;
+			this.args = args;
+			this.hash = 31 * method.hashCode() + Arrays.deepHashCode(args);
+		}
+
+		private static Key of(Method method, Object[] args) {
+			Object[] values = new Object[args.length];
+			for (int i = 0; i < args.length; i++) {
+				values[i] = value(args[i]);
+				if (values[i] == Unsupported.INSTANCE) {
+					return null;
+				}
+			}
+			return new Key(method, values);
+		}
+
+		private static Object value(Object arg) {
+			if (arg == null || arg instanceof String || arg instanceof Number || arg instanceof Boolean
+					|| arg instanceof Character || arg instanceof Enum || arg instanceof UUID
+					|| arg instanceof Sort || arg instanceof Pageable || arg instanceof Class) {
+				return arg;
+			}
+			if (arg instanceof Date) {
+				return ((Date) arg).getTime();
+			}
+			if (arg instanceof Iterable) {
+				List<Object> values = new ArrayList<>();
+				for (Object item : (Iterable<?>) arg) {
+					Object value = value(item);
+					if (value == Unsupported.INSTANCE) {
+						return value;
+					}
+					values.add(value);
+				}
+				return values;
+			}
+			return Unsupported.INSTANCE;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return hash == key.hash && method.equals(key.method) && Arrays.deepEquals(args, key.args);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private enum Unsupported {
+		INSTANCE
+	}
+}
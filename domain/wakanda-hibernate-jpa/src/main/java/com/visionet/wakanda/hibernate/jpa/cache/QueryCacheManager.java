@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.cache;
+
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按表(实体)维护修改计数, 缓存结果记录查询前各相关表的计数, 计数变化即失效
+ *
+ * 事务内的写入在事务结束后才增加计数, 同一事务中随后对这些表的查询不读写缓存, 避免缓存未提交的数据
+ *
+ * @author pangcaijie
+ * @since 2019/5/15.
+ */
+public class QueryCacheManager {
+
+	private final ConcurrentMap<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * @param tables 相关实体
+	 * @return 当前计数快照
+	 */
+	long[] snapshot(Class<?>[] tables) {
+		long[] snapshot = new long[tables.length];
+		for (int i = 0; i < tables.length; i++) {
+			snapshot[i] = version(tables[i]).get();
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return 当前事务是否写过其中某个表
+	 */
+	boolean isDirty(Class<?>[] tables) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return false;
+		}
+		Dirty dirty = (Dirty) TransactionSynchronizationManager.getResource(this);
+		if (dirty == null) {
+			return false;
+		}
+		for (Class<?> table : tables) {
+			if (dirty.tables.contains(table)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 记录通过仓库对实体的写入
+	 * @param table 实体
+	 */
+	void modified(Class<?> table) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			version(table).incrementAndGet();
+			return;
+		}
+		Dirty dirty = (Dirty) TransactionSynchronizationManager.getResource(this);
+		if (dirty == null) {
+			dirty = new Dirty();
+			TransactionSynchronizationManager.bindResource(this, dirty);
+			TransactionSynchronizationManager.registerSynchronization(dirty);
+		}
+		dirty.tables.add(table);
+		// 提交前其它线程可能读到旧数据并写入缓存, 结束时再加一次计数使其失效
+		version(table).incrementAndGet();
+	}
+
+	/**
+	 * 使依赖这些实体的缓存结果失效, 用于绕过仓库的写入
+	 * @param tables 实体
+	 */
+	public void invalidate(Class<?>... tables) {
+		for (Class<?> table : tables) {
+			version(table).incrementAndGet();
+		}
+	}
+
+	private AtomicLong version(Class<?> table) {
+		AtomicLong version = versions.get(table);
+		if (version == null) {
+			version = versions.computeIfAbsent(table, key -> new AtomicLong());
+		}
+		return version;
+	}
+
+	/**
+	 * 当前事务写过的表
+	 */
+	private class Dirty extends TransactionSynchronizationAdapter {
+
+		private final Set<Class<?>> tables = new HashSet<>();
+
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(QueryCacheManager.this);
+			for (Class<?> table : tables) {
+				version(table).incrementAndGet();
+			}
+		}
+
+		@Override
+		public int getOrder() {
+			return Ordered.LOWEST_PRECEDENCE;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.config;
+
+import com.visionet.wakanda.hibernate.jpa.admission.AdaptiveLimit;
+import com.visionet.wakanda.hibernate.jpa.admission.AdmissionController;
+import com.visionet.wakanda.hibernate.jpa.admission.AdmissionInterceptor;
+import com.visionet.wakanda.hibernate.jpa.admission.HikariPoolSaturation;
+import com.visionet.wakanda.hibernate.jpa.service.BaseService;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 数据库调用准入控制配置, {@code wakanda.jpa.admission.enabled=true} 时生效
+ *
+ * {@code BaseService} 实现与仓库的调用在事务开始前申请许可, 超过自适应并发上限时抛出
+ * {@link com.visionet.wakanda.hibernate.jpa.admission.AdmissionRejectedException};
+ * 上限参数见 {@code wakanda.jpa.admission.*}
+ *
+ * @author pangcaijie
+ * @since 2019/5/16.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "wakanda.jpa.admission", name = "enabled", havingValue = "true")
+public class AdmissionConfiguration implements EnvironmentAware {
+
+	private static final String PREFIX = "wakanda.jpa.admission.";
+
+	private Environment environment;
+
+	@Bean
+	public AdmissionController admissionController(ObjectProvider<DataSource> dataSource) {
+		AdaptiveLimit limit = new AdaptiveLimit(
+				environment.getProperty(PREFIX + "initialLimit", Integer.class, 20),
+				environment.getProperty(PREFIX + "minLimit", Integer.class, 2),
+				environment.getProperty(PREFIX + "maxLimit", Integer.class, 200),
+				environment.getProperty(PREFIX + "latencyTolerance", Double.class, 2.0),
+				environment.getProperty(PREFIX + "backoff", Double.class, 0.9));
+		return new AdmissionController(limit, new HikariPoolSaturation(dataSource),
+				environment.getProperty(PREFIX + "saturationThreshold", Double.class, 0.9));
+	}
+
+	/**
+	 * 在事务拦截器之外执行, 被拒绝的调用不会占用连接
+	 */
+	@Bean
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	public static Advisor admissionAdvisor(AdmissionController admissionController) {
+		StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return Modifier.isPublic(method.getModifiers()) && !method.getName().startsWith("set")
+						&& method.getDeclaringClass() != Object.class;
+			}
+		};
+		pointcut.setClassFilter(new RootClassFilter(BaseService.class));
+		DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut,
+				new AdmissionInterceptor(admissionController));
+		advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return advisor;
+	}
+
+	@Override
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
+}
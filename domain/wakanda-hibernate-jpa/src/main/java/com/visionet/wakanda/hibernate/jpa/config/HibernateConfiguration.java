@@ -4,19 +4,27 @@
  */
 package com.visionet.wakanda.hibernate.jpa.config;
 
-import com.visionet.wakanda.hibernate.jpa.repository.SimpleBaseRepositoryFactoryBean;
+import com.visionet.wakanda.hibernate.jpa.cache.QueryCache;
+import com.visionet.wakanda.hibernate.jpa.cache.QueryCacheManager;
+import com.visionet.wakanda.hibernate.jpa.index.PersistenceIndex;
+import com.visionet.wakanda.hibernate.jpa.replica.ReplicaManager;
+import com.visionet.wakanda.hibernate.jpa.replica.Replicated;
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeProvider;
+import com.visionet.wakanda.hibernate.jpa.scope.ScopeColumn;
 import com.visionet.wakanda.hibernate.jpa.support.DefaultAuditorAware;
 import com.visionet.wakanda.hibernate.jpa.support.HibernateConfigException;
+import com.visionet.wakanda.hibernate.jpa.support.PersistenceBootstrap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.env.Environment;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 /**
@@ -24,15 +32,31 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
  *
  * 默认开启jpa数据修改监听{@link EnableJpaAuditing}
  *
+ * classpath 中存在 {@link PersistenceIndex} 时实体与仓库直接从索引加载, 否则按
+ * {@link EntityScan} 与 {@link HibernateRepositoriesRegistrar} 中的包路径扫描
+ *
+ * 启动方式见 {@link PersistenceBootstrap}, 配置 {@code wakanda.jpa.bootstrapMode=deferred} 后
+ * EntityManagerFactory 在后台线程构建, 仓库延迟到容器刷新完成时创建; 存在 actuator 时由
+ * {@link PersistenceHealthConfiguration} 注册持久化健康检查, 构建完成前不接收流量
+ *
+ * 仓库接口或方法标注 {@link QueryCache} 后缓存查询结果, 由 {@link QueryCacheManager} 按表失效
+ *
+ * 配置 {@code wakanda.jpa.admission.enabled=true} 后按数据库负载拒绝过量调用, 见 {@link AdmissionConfiguration}
+ *
+ * 配置 {@code wakanda.jpa.slowQuery.enabled=true} 后记录慢查询及其执行计划, 见 {@link SlowQueryConfiguration}
+ *
+ * 容器中存在 {@link DataScopeProvider} 时仓库的查询、count 与删除按数据范围过滤, 见 {@link ScopeColumn}
+ *
+ * 容器中存在 {@link ReplicaManager} 时标注 {@link Replicated} 的仓库从内存副本读取
+ *
  * @author pangcaijie
  * @since 2019/3/15.
  */
 @Configuration
 @EnableJpaAuditing
 @EntityScan("com.visionet.**.entity")
-@EnableJpaRepositories(
-		basePackages = "com.visionet",
-		repositoryFactoryBeanClass= SimpleBaseRepositoryFactoryBean.class)
+@Import({HibernateRepositoriesRegistrar.class, AdmissionConfiguration.class, SlowQueryConfiguration.class,
+		PersistenceHealthConfiguration.class})
 @EnableTransactionManagement
 public class HibernateConfiguration implements EnvironmentAware {
 
@@ -40,15 +64,18 @@ public class HibernateConfiguration implements EnvironmentAware {
 
 	private Logger logger = LoggerFactory.getLogger(HibernateConfiguration.class);
 
+	/**
+	 * {@code wakanda.jpa.auditorAware} 指定的类由容器创建, 可以注入其它 bean
+	 */
 	@Bean
-	public AuditorAware auditorAware() {
+	public AuditorAware auditorAware(AutowireCapableBeanFactory beanFactory) {
 		String customizeAuditorAware = environment.getProperty("wakanda.jpa.auditorAware");
 		if (customizeAuditorAware == null || customizeAuditorAware.length() <= 0) {
 			return new DefaultAuditorAware();
 		} else {
 			try {
 				Class<?> cls = Class.forName(customizeAuditorAware);
-				return (AuditorAware) cls.newInstance();
+				return (AuditorAware) beanFactory.createBean(cls);
 			} catch (Exception e) {
 				logger.error("Could not customize AuditorAware instance, cause:", e);
 				throw new HibernateConfigException();
@@ -56,6 +83,16 @@ public class HibernateConfiguration implements EnvironmentAware {
 		}
 	}
 
+	@Bean
+	public QueryCacheManager queryCacheManager() {
+		return new QueryCacheManager();
+	}
+
+	@Bean
+	public static PersistenceBootstrap persistenceBootstrap(Environment environment) {
+		return new PersistenceBootstrap(PersistenceBootstrap.resolveBootstrapMode(environment));
+	}
+
 	@Override
 	public void setEnvironment(Environment environment) {
         this.environment = environment;
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.config;
+
+import com.visionet.wakanda.hibernate.jpa.index.PersistenceIndexRepositoriesRegistrar;
+import com.visionet.wakanda.hibernate.jpa.repository.SimpleBaseRepositoryFactoryBean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * 仓库配置, 注解属性由 {@link PersistenceIndexRepositoriesRegistrar} 读取
+ *
+ * 由 {@link HibernateConfiguration} 通过 {@code @Import} 引入, 不能作为配置类或内部类, 否则
+ * {@link EnableJpaRepositories} 会被再次处理
+ *
+ * @author pangcaijie
+ * @since 2019/4/29.
+ */
+@EnableJpaRepositories(
+		basePackages = "com.visionet",
+		repositoryFactoryBeanClass= SimpleBaseRepositoryFactoryBean.class)
+class HibernateRepositoriesRegistrar extends PersistenceIndexRepositoriesRegistrar {
+
+}
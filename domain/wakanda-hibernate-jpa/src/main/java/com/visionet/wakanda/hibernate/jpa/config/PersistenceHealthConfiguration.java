@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.config;
+
+import com.visionet.wakanda.hibernate.jpa.support.PersistenceBootstrap;
+import com.visionet.wakanda.hibernate.jpa.support.PersistenceHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * classpath 中存在 spring-boot-actuator 时注册 {@link PersistenceHealthIndicator}, 健康检查名称为 {@code persistence}
+ *
+ * @author pangcaijie
+ * @since 2019/4/30.
+ */
+@Configuration
+@ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+public class PersistenceHealthConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean(name = "persistenceHealthIndicator")
+	public PersistenceHealthIndicator persistenceHealthIndicator(PersistenceBootstrap persistenceBootstrap) {
+		return new PersistenceHealthIndicator(persistenceBootstrap);
+	}
+}
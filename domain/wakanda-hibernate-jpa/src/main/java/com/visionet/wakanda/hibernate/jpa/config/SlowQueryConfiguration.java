@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.config;
+
+import com.visionet.wakanda.hibernate.jpa.service.BaseService;
+import com.visionet.wakanda.hibernate.jpa.slowquery.QueryOriginInterceptor;
+import com.visionet.wakanda.hibernate.jpa.slowquery.SlowQueryDataSourcePostProcessor;
+import com.visionet.wakanda.hibernate.jpa.slowquery.SlowQueryLog;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 慢查询日志配置, {@code wakanda.jpa.slowQuery.enabled=true} 时生效
+ *
+ * 参数: {@code threshold} 记录阈值(毫秒, 默认 1000), {@code explainSampleRate} EXPLAIN 采样率(默认 0.1),
+ * {@code explainInterval} 同一语句两次 EXPLAIN 的最小间隔(毫秒, 默认 600000)
+ *
+ * @author pangcaijie
+ * @since 2019/5/17.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "wakanda.jpa.slowQuery", name = "enabled", havingValue = "true")
+public class SlowQueryConfiguration implements EnvironmentAware {
+
+	private static final String PREFIX = "wakanda.jpa.slowQuery.";
+
+	private Environment environment;
+
+	@Bean(destroyMethod = "close")
+	public SlowQueryLog slowQueryLog() {
+		return new SlowQueryLog(
+				environment.getProperty(PREFIX + "threshold", Long.class, 1000L),
+				environment.getProperty(PREFIX + "explainSampleRate", Double.class, 0.1),
+				environment.getProperty(PREFIX + "explainInterval", Long.class, 600000L));
+	}
+
+	@Bean
+	public static SlowQueryDataSourcePostProcessor slowQueryDataSourcePostProcessor(
+			ObjectProvider<SlowQueryLog> slowQueryLog) {
+		return new SlowQueryDataSourcePostProcessor(slowQueryLog);
+	}
+
+	/**
+	 * 记录慢查询来源的服务方法
+	 */
+	@Bean
+	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+	public static Advisor queryOriginAdvisor() {
+		StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+			}
+		};
+		pointcut.setClassFilter(new RootClassFilter(BaseService.class));
+		DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new QueryOriginInterceptor());
+		advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return advisor;
+	}
+
+	@Override
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
+	}
+}
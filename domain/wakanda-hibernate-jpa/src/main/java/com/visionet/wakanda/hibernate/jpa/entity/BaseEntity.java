@@ -4,7 +4,9 @@
  */
 package com.visionet.wakanda.hibernate.jpa.entity;
 
+import com.visionet.wakanda.hibernate.jpa.support.InternedStringType;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
@@ -24,12 +26,14 @@ import java.util.Date;
 public abstract class BaseEntity<T> implements Persistable<T> {
 
 	@Id
-	@GenericGenerator(name = "system-uuid", strategy = "guid")
+	@GenericGenerator(name = "system-uuid",
+			strategy = "com.visionet.wakanda.hibernate.jpa.support.AssignableGuidGenerator")
 	@GeneratedValue(generator = "system-uuid")
 	private T id;
 
 	@CreatedBy
 	@Column(updatable = false)
+	@Type(type = InternedStringType.NAME)
 	private String createdBy;
 
 	@CreatedDate
@@ -38,6 +42,7 @@ public abstract class BaseEntity<T> implements Persistable<T> {
 	private Date createdDate;
 
 	@LastModifiedBy
+	@Type(type = InternedStringType.NAME)
 	private String updatedBy;
 
 	@LastModifiedDate
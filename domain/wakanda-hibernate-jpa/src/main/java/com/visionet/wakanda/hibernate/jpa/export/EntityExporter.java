@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.export;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.support.RangePartitioner;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.Query;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 实体表流式导出
+ *
+ * 使用 {@link StatelessSession} 的只进游标逐行读取(MySQL 下 fetchSize 为 {@link Integer#MIN_VALUE}, 即服务端流式返回),
+ * 每行格式化到线程复用的写缓冲区, 写满后写出到目标通道; 不经过持久化上下文, 堆内存占用与表大小无关.
+ *
+ * 配置 {@link #setPartitions(int, String)} 后按数值主键或 {@code createdDate} 的取值范围切分, 各分区在独立的连接上并行读取,
+ * 行的顺序不做保证. 只导出基本类型列, 多对一关联输出关联实体的主键, 集合属性不导出.
+ *
+ * <pre>
+ * long rows = new EntityExporter&lt;&gt;(Order.class, entityManagerFactory)
+ *         .setFormat(ExportFormat.CSV)
+ *         .setGzip(true)
+ *         .setPartitions(4, "createdDate")
+ *         .export(Paths.get("orders.csv.gz"));
+ * </pre>
+ *
+ * @author pangcaijie
+ * @since 2019/5/14.
+ */
+public class EntityExporter<M extends BaseEntity> {
+
+	private static final Logger logger = LoggerFactory.getLogger(EntityExporter.class);
+
+	private static final int DEFAULT_FETCH_SIZE = 1000;
+
+	private final Class<M> entityClass;
+
+	private final SessionFactoryImplementor sessionFactory;
+
+	private final AbstractEntityPersister persister;
+
+	private ExportFormat format = ExportFormat.CSV;
+
+	private boolean gzip;
+
+	private int bufferSize = 64 * 1024;
+
+	private int partitions = 1;
+
+	private String partitionProperty;
+
+	public EntityExporter(Class<M> entityClass, EntityManagerFactory entityManagerFactory) {
+		this.entityClass = entityClass;
+		this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+		this.persister = (AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(entityClass);
+	}
+
+	public EntityExporter<M> setFormat(ExportFormat format) {
+		Assert.notNull(format, "ExportFormat must not be null");
+		this.format = format;
+		return this;
+	}
+
+	public EntityExporter<M> setGzip(boolean gzip) {
+		this.gzip = gzip;
+		return this;
+	}
+
+	/**
+	 * @param bufferSize 每个线程的写缓冲区大小, 默认 64KB
+	 */
+	public EntityExporter<M> setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize >= 1024, "bufferSize must be at least 1024");
+		this.bufferSize = bufferSize;
+		return this;
+	}
+
+	/**
+	 * @param partitions 并行分区数
+	 * @param property 用于切分范围的数值或日期属性, 如数值主键或 {@code createdDate}
+	 */
+	public EntityExporter<M> setPartitions(int partitions, String property) {
+		Assert.isTrue(partitions > 0, "partitions must be positive");
+		Assert.isTrue(partitions == 1 || property != null, "A partition property is required");
+		this.partitions = partitions;
+		this.partitionProperty = property;
+		return this;
+	}
+
+	/**
+	 * 导出到文件, 已存在时覆盖
+	 * @return 导出行数
+	 */
+	public long export(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			return export(channel);
+		}
+	}
+
+	/**
+	 * 导出到输出流, 结束后不关闭流
+	 * @return 导出行数
+	 */
+	public long export(OutputStream out) throws IOException {
+		long rows = export(Channels.newChannel(out));
+		out.flush();
+		return rows;
+	}
+
+	/**
+	 * 导出到通道, 结束后不关闭通道
+	 * @return 导出行数
+	 */
+	public long export(WritableByteChannel channel) throws IOException {
+		long start = System.currentTimeMillis();
+		Columns columns = new Columns();
+		ExportSink sink = new ExportSink(channel, gzip, bufferSize, format.separator());
+		StringBuilder header = new StringBuilder();
+		format.header(header, columns.names);
+		sink.writeRaw(header.toString());
+
+		long rows;
+		if (partitions == 1) {
+			rows = exportRange(sink, columns, null);
+		} else {
+			rows = exportPartitions(sink, columns);
+		}
+		sink.writeRaw(format.footer());
+		sink.finish();
+		long elapsed = Math.max(1, System.currentTimeMillis() - start);
+		logger.info("Exported {} rows of {} in {} ms, {} rows/s", rows, entityClass.getSimpleName(), elapsed,
+				rows * 1000 / elapsed);
+		return rows;
+	}
+
+	private long exportPartitions(ExportSink sink, Columns columns) throws IOException {
+		List<Range> ranges = ranges();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("wakanda-export-");
+		threadFactory.setDaemon(true);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(partitions, ranges.size()), threadFactory);
+		try {
+			List<Future<Long>> futures = new ArrayList<>(ranges.size());
+			for (Range range : ranges) {
+				futures.add(executor.submit(() -> exportRange(sink, columns, range)));
+			}
+			long rows = 0;
+			for (Future<Long> future : futures) {
+				rows += future.get();
+			}
+			return rows;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Export interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 按分区属性的最小、最大值等分, 空值单独作为一个分区
+	 */
+	private List<Range> ranges() {
+		List<Range> ranges = new ArrayList<>(partitions + 1);
+		Object[] bounds;
+		try (StatelessSession session = sessionFactory.openStatelessSession()) {
+			bounds = (Object[]) session.createQuery("select min(e." + partitionProperty + "), max(e."
+					+ partitionProperty + ") from " + persister.getEntityName() + " e").uniqueResult();
+		}
+		RangePartitioner partitioner = RangePartitioner.split(
+				sessionFactory.getMetamodel().entity(entityClass).getAttribute(partitionProperty).getJavaType(),
+				bounds[0], bounds[1], partitions);
+		for (int i = 0; i < partitioner.getCount(); i++) {
+			ranges.add(new Range(partitioner.from(i), partitioner.to(i)));
+		}
+		ranges.add(Range.NULLS);
+		return ranges;
+	}
+
+	private long exportRange(ExportSink sink, Columns columns, Range range) {
+		try (StatelessSession session = sessionFactory.openStatelessSession()) {
+			Transaction transaction = session.beginTransaction();
+			try {
+				String hql = columns.select;
+				if (range == Range.NULLS) {
+					hql += " where e." + partitionProperty + " is null";
+				} else if (range != null) {
+					hql += " where e." + partitionProperty + " >= :from";
+					hql += range.to == null ? "" : " and e." + partitionProperty + " < :to";
+				}
+				Query<?> query = (Query<?>) session.createQuery(hql);
+				if (range != null && range != Range.NULLS) {
+					query.setParameter("from", range.from);
+					if (range.to != null) {
+						query.setParameter("to", range.to);
+					}
+				}
+				query.setReadOnly(true);
+				query.setFetchSize(sessionFactory.getJdbcServices().getDialect() instanceof MySQLDialect
+						? Integer.MIN_VALUE : DEFAULT_FETCH_SIZE);
+
+				ExportSink.RowBuffer buffer = sink.newBuffer(bufferSize);
+				StringBuilder row = new StringBuilder(256);
+				String separator = format.separator();
+				long rows = 0;
+				try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+					while (results.next()) {
+						row.setLength(0);
+						row.append(separator);
+						format.row(row, columns.names, results.get());
+						buffer.append(row);
+						rows++;
+					}
+				}
+				buffer.flush();
+				return rows;
+			} finally {
+				transaction.rollback();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 导出的列: 主键、单列属性与对一关联的主键
+	 *
+	 * 按列查询而不是加载实体, 急加载的关联不会对每行再发出查询; 本表持有外键的关联直接读取外键列,
+	 * 对方持有外键的一对一关联使用左连接
+	 */
+	private class Columns {
+
+		private final String[] names;
+
+		private final String select;
+
+		private Columns() {
+			List<String> names = new ArrayList<>();
+			List<String> selections = new ArrayList<>();
+			StringBuilder joins = new StringBuilder();
+			names.add(persister.getIdentifierPropertyName());
+			selections.add("e." + persister.getIdentifierPropertyName());
+			Type[] types = persister.getPropertyTypes();
+			for (int i = 0; i < types.length; i++) {
+				if (types[i].isCollectionType() || types[i].isComponentType()) {
+					continue;
+				}
+				String property = persister.getPropertyNames()[i];
+				names.add(property);
+				if (!types[i].isEntityType()) {
+					selections.add("e." + property);
+					continue;
+				}
+				String associatedId = sessionFactory.getMetamodel().entityPersister(
+						((EntityType) types[i]).getAssociatedEntityName(sessionFactory)).getIdentifierPropertyName();
+				if (persister.getPropertyColumnNames(i).length > 0) {
+					selections.add("e." + property + "." + associatedId);
+				} else {
+					joins.append(" left join e.").append(property).append(" j").append(i);
+					selections.add("j" + i + "." + associatedId);
+				}
+			}
+			this.names = names.toArray(new String[0]);
+			this.select = "select " + String.join(", ", selections) + " from " + persister.getEntityName() + " e"
+					+ joins;
+		}
+	}
+
+	/**
+	 * 分区范围 [from, to), to 为 null 表示不设上限
+	 */
+	private static class Range {
+
+		static final Range NULLS = new Range(null, null);
+
+		private final Object from;
+
+		private final Object to;
+
+		private Range(Object from, Object to) {
+			this.from = from;
+			this.to = to;
+		}
+	}
+}
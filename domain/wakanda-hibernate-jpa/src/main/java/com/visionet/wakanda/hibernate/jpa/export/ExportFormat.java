@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.export;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * 导出格式
+ *
+ * 每行输出为 {@link #separator()} + 行内容, 由 {@link ExportSink} 去掉第一行前的分隔符
+ *
+ * @author pangcaijie
+ * @since 2019/5/14.
+ */
+public enum ExportFormat {
+
+	/**
+	 * 首行为属性名, 含分隔符、引号或换行的字段用双引号包围
+	 */
+	CSV {
+		@Override
+		void header(StringBuilder out, String[] names) {
+			for (int i = 0; i < names.length; i++) {
+				if (i > 0) {
+					out.append(',');
+				}
+				csv(out, names[i]);
+			}
+			out.append('\n');
+		}
+
+		@Override
+		void row(StringBuilder out, String[] names, Object[] values) {
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					out.append(',');
+				}
+				if (values[i] != null) {
+					csv(out, text(values[i]));
+				}
+			}
+			out.append('\n');
+		}
+	},
+
+	/**
+	 * JSON 数组, 每个实体一行
+	 */
+	JSON {
+		@Override
+		void header(StringBuilder out, String[] names) {
+			out.append("[\n");
+		}
+
+		@Override
+		String separator() {
+			return ",";
+		}
+
+		@Override
+		void row(StringBuilder out, String[] names, Object[] values) {
+			json(out, names, values);
+			out.append('\n');
+		}
+
+		@Override
+		String footer() {
+			return "]\n";
+		}
+	},
+
+	/**
+	 * 每行一个 JSON 对象
+	 */
+	JSON_LINES {
+		@Override
+		void row(StringBuilder out, String[] names, Object[] values) {
+			json(out, names, values);
+			out.append('\n');
+		}
+	};
+
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+	void header(StringBuilder out, String[] names) {
+	}
+
+	String separator() {
+		return "";
+	}
+
+	abstract void row(StringBuilder out, String[] names, Object[] values);
+
+	String footer() {
+		return "";
+	}
+
+	private static String text(Object value) {
+		if (value instanceof Date) {
+			return DATE_FORMAT.format(Instant.ofEpochMilli(((Date) value).getTime()).atZone(ZoneId.systemDefault()));
+		}
+		if (value instanceof Enum) {
+			return ((Enum<?>) value).name();
+		}
+		return value.toString();
+	}
+
+	private static void csv(StringBuilder out, String text) {
+		boolean quote = false;
+		for (int i = 0; i < text.length() && !quote; i++) {
+			char c = text.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			out.append(text);
+			return;
+		}
+		out.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				out.append('"');
+			}
+			out.append(c);
+		}
+		out.append('"');
+	}
+
+	private static void json(StringBuilder out, String[] names, Object[] values) {
+		out.append('{');
+		for (int i = 0; i < names.length; i++) {
+			if (i > 0) {
+				out.append(',');
+			}
+			jsonString(out, names[i]);
+			out.append(':');
+			Object value = values[i];
+			if (value == null) {
+				out.append("null");
+			} else if (value instanceof Number || value instanceof Boolean) {
+				out.append(value);
+			} else {
+				jsonString(out, text(value));
+			}
+		}
+		out.append('}');
+	}
+
+	private static void jsonString(StringBuilder out, String text) {
+		out.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '"':
+					out.append("\\\"");
+					break;
+				case '\\':
+					out.append("\\\\");
+					break;
+				case '\n':
+					out.append("\\n");
+					break;
+				case '\r':
+					out.append("\\r");
+					break;
+				case '\t':
+					out.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						out.append(String.format("\\u%04x", (int) c));
+					} else {
+						out.append(c);
+					}
+			}
+		}
+		out.append('"');
+	}
+}
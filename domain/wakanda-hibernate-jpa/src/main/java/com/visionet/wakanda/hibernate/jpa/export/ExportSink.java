@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 导出目标, 多个分区线程共享; 每个线程使用自己的 {@link RowBuffer}, 只在整行写满缓冲区后加锁写出,
+ * 因此不同线程的行不会交错
+ *
+ * @author pangcaijie
+ * @since 2019/5/14.
+ */
+class ExportSink {
+
+	private final WritableByteChannel channel;
+
+	private final GZIPOutputStream gzip;
+
+	private final int separatorBytes;
+
+	private boolean started;
+
+	ExportSink(WritableByteChannel target, boolean gzip, int bufferSize, String separator) throws IOException {
+		if (gzip) {
+			OutputStream out = Channels.newOutputStream(target);
+			this.gzip = new GZIPOutputStream(out, bufferSize);
+			this.channel = Channels.newChannel(this.gzip);
+		} else {
+			this.gzip = null;
+			this.channel = target;
+		}
+		this.separatorBytes = separator.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	/**
+	 * 写出不带分隔符的内容(表头、结尾)
+	 */
+	synchronized void writeRaw(String text) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * 写出以分隔符开头的若干整行
+	 */
+	synchronized void write(ByteBuffer buffer) throws IOException {
+		if (!started && buffer.hasRemaining()) {
+			((Buffer) buffer).position(buffer.position() + separatorBytes);
+			started = true;
+		}
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * 结束 gzip 流, 不关闭调用方传入的目标
+	 */
+	synchronized void finish() throws IOException {
+		if (gzip != null) {
+			gzip.finish();
+			gzip.flush();
+		}
+	}
+
+	RowBuffer newBuffer(int size) {
+		return new RowBuffer(size);
+	}
+
+	/**
+	 * 单个线程复用的写缓冲区
+	 */
+	class RowBuffer {
+
+		private final ByteBuffer buffer;
+
+		private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+		private RowBuffer(int size) {
+			this.buffer = ByteBuffer.allocate(size);
+		}
+
+		/**
+		 * @param row 分隔符 + 一整行
+		 */
+		void append(CharSequence row) throws IOException {
+			long maxBytes = (long) row.length() * 3;
+			if (maxBytes > buffer.remaining()) {
+				flush();
+			}
+			if (maxBytes <= buffer.remaining()) {
+				encode(CharBuffer.wrap(row));
+				return;
+			}
+			// 超过缓冲区的行持锁分段写出, 保证不与其它线程交错
+			synchronized (ExportSink.this) {
+				CharBuffer chars = CharBuffer.wrap(row);
+				while (encode(chars).isOverflow()) {
+					flush();
+				}
+				flush();
+			}
+		}
+
+		void flush() throws IOException {
+			if (buffer.position() > 0) {
+				// 转为 Buffer 调用, JDK 9 以上编译时不会链接到 Java 8 没有的 ByteBuffer 重载
+				((Buffer) buffer).flip();
+				write(buffer);
+				((Buffer) buffer).clear();
+			}
+		}
+
+		private CoderResult encode(CharBuffer chars) {
+			CoderResult result = encoder.encode(chars, buffer, true);
+			if (!result.isOverflow()) {
+				encoder.reset();
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.index;
+
+import com.visionet.wakanda.hibernate.jpa.support.HibernateConfigException;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * 编译期生成的持久化索引, 由 {@link PersistenceIndexProcessor} 写入 {@link #LOCATION}
+ *
+ * 索引存在时, 启动阶段直接从索引读取实体与仓库, 只扫描没有索引的 classpath 条目(未使用处理器编译的 jar);
+ * 可通过 {@code wakanda.jpa.persistenceIndex=false} 关闭
+ *
+ * @author pangcaijie
+ * @since 2019/4/29.
+ */
+public final class PersistenceIndex {
+
+	/**
+	 * 索引文件位置, 格式与 {@code META-INF/spring.components} 一致: {@code 类名=类别}
+	 */
+	public static final String LOCATION = "META-INF/wakanda-persistence.index";
+
+	public static final String ENTITY = "entity";
+
+	public static final String REPOSITORY = "repository";
+
+	public static final String ENABLED_PROPERTY = "wakanda.jpa.persistenceIndex";
+
+	private static final Map<ClassLoader, Optional<PersistenceIndex>> cache = new ConcurrentReferenceHashMap<>();
+
+	private final Set<String> entities;
+
+	private final Set<String> repositories;
+
+	private final Set<String> roots;
+
+	private PersistenceIndex(Set<String> entities, Set<String> repositories, Set<String> roots) {
+		this.entities = Collections.unmodifiableSet(entities);
+		this.repositories = Collections.unmodifiableSet(repositories);
+		this.roots = Collections.unmodifiableSet(roots);
+	}
+
+	/**
+	 * 读取 classpath 中所有的索引文件
+	 * @param environment 环境配置, 用于判断索引是否被关闭
+	 * @param classLoader 类加载器
+	 * @return 合并后的索引, 未启用或 classpath 中不存在索引时返回 {@code null}
+	 */
+	public static PersistenceIndex load(Environment environment, ClassLoader classLoader) {
+		if (!environment.getProperty(ENABLED_PROPERTY, Boolean.class, Boolean.TRUE)) {
+			return null;
+		}
+		ClassLoader loader = (classLoader != null ? classLoader : PersistenceIndex.class.getClassLoader());
+		return cache.computeIfAbsent(loader, PersistenceIndex::doLoad).orElse(null);
+	}
+
+	private static Optional<PersistenceIndex> doLoad(ClassLoader classLoader) {
+		Set<String> entities = new LinkedHashSet<>();
+		Set<String> repositories = new LinkedHashSet<>();
+		Set<String> roots = new HashSet<>();
+		try {
+			Enumeration<URL> urls = classLoader.getResources(LOCATION);
+			if (!urls.hasMoreElements()) {
+				return Optional.empty();
+			}
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				String location = url.toString();
+				roots.add(location.substring(0, location.length() - LOCATION.length()));
+				Properties properties = new Properties();
+				try (InputStream in = url.openStream()) {
+					properties.load(in);
+				}
+				for (String type : properties.stringPropertyNames()) {
+					String kind = properties.getProperty(type);
+					if (ENTITY.equals(kind)) {
+						entities.add(type);
+					} else if (REPOSITORY.equals(kind)) {
+						repositories.add(type);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new HibernateConfigException("Unable to load persistence index from " + LOCATION, e);
+		}
+		return Optional.of(new PersistenceIndex(entities, repositories, roots));
+	}
+
+	/**
+	 * @return 索引中的实体类名
+	 */
+	public Set<String> getEntities() {
+		return entities;
+	}
+
+	/**
+	 * @return 索引中的仓库接口名
+	 */
+	public Set<String> getRepositories() {
+		return repositories;
+	}
+
+	/**
+	 * @param root classpath 条目的 URL, 如 {@code file:/app/classes/}, {@code jar:file:/app/lib/a.jar!/}
+	 * @return 该条目是否带有索引, 带有索引的条目不再扫描
+	 */
+	public boolean isIndexed(String root) {
+		return roots.contains(root);
+	}
+
+	/**
+	 * @return 仓库接口所在的包, 用于限定自定义实现(xxxImpl)的查找范围
+	 */
+	public Set<String> getRepositoryPackages() {
+		Set<String> packages = new LinkedHashSet<>();
+		for (String repository : repositories) {
+			int lastDot = repository.lastIndexOf('.');
+			packages.add(lastDot > 0 ? repository.substring(0, lastDot) : "");
+		}
+		return packages;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.index;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import java.util.Collections;
+
+/**
+ * 使用 {@link PersistenceIndex} 中的实体作为持久化单元的托管类, 原有的扫描包只在没有索引的 classpath 条目中扫描
+ *
+ * @author pangcaijie
+ * @since 2019/4/29.
+ */
+public class PersistenceIndexEntityPostProcessor implements BeanPostProcessor, ResourceLoaderAware {
+
+	private final PersistenceIndex index;
+
+	private ResourceLoader resourceLoader;
+
+	public PersistenceIndexEntityPostProcessor(PersistenceIndex index) {
+		this.index = index;
+	}
+
+	@Override
+	public void setResourceLoader(ResourceLoader resourceLoader) {
+		this.resourceLoader = resourceLoader;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof LocalContainerEntityManagerFactoryBean) {
+			LocalContainerEntityManagerFactoryBean factoryBean = (LocalContainerEntityManagerFactoryBean) bean;
+			factoryBean.setResourceLoader(new UnindexedResourcePatternResolver(
+					resourceLoader, index, Collections.emptySet()));
+			factoryBean.setPersistenceUnitPostProcessors(persistenceUnit -> {
+				for (String entity : index.getEntities()) {
+					if (!persistenceUnit.getManagedClassNames().contains(entity)) {
+						persistenceUnit.addManagedClassName(entity);
+					}
+				}
+			});
+		}
+		return bean;
+	}
+}
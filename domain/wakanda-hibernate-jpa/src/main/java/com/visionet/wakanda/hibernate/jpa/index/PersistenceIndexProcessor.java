@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * 编译期生成 {@link PersistenceIndex} 的注解处理器
+ *
+ * 收集当前编译单元中的 JPA 实体({@code @Entity}, 非抽象)与仓库接口(继承 {@code Repository} 且未标注
+ * {@code @NoRepositoryBean}), 写入 {@link PersistenceIndex#LOCATION}; 增量编译时保留上次索引中仍然存在的类型
+ *
+ * @author pangcaijie
+ * @since 2019/4/29.
+ */
+@SupportedAnnotationTypes("*")
+public class PersistenceIndexProcessor extends AbstractProcessor {
+
+	private static final String ENTITY_ANNOTATION = "javax.persistence.Entity";
+
+	private static final String NO_REPOSITORY_BEAN_ANNOTATION = "org.springframework.data.repository.NoRepositoryBean";
+
+	private static final String REPOSITORY_DEFINITION_ANNOTATION =
+			"org.springframework.data.repository.RepositoryDefinition";
+
+	private static final String REPOSITORY_TYPE = "org.springframework.data.repository.Repository";
+
+	private final Map<String, String> entries = new TreeMap<>();
+
+	private final Set<String> processed = new HashSet<>();
+
+	private Elements elements;
+
+	private Types types;
+
+	private TypeMirror repositoryType;
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		TypeElement repository = elements.getTypeElement(REPOSITORY_TYPE);
+		this.repositoryType = (repository != null ? types.erasure(repository.asType()) : null);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getRootElements()) {
+			collect(element);
+		}
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		}
+		return false;
+	}
+
+	private void collect(Element element) {
+		if (!(element instanceof TypeElement)) {
+			return;
+		}
+		TypeElement type = (TypeElement) element;
+		String name = elements.getBinaryName(type).toString();
+		processed.add(name);
+		if (isEntity(type)) {
+			entries.put(name, PersistenceIndex.ENTITY);
+		} else if (isRepository(type)) {
+			entries.put(name, PersistenceIndex.REPOSITORY);
+		}
+		for (Element enclosed : type.getEnclosedElements()) {
+			collect(enclosed);
+		}
+	}
+
+	private boolean isEntity(TypeElement type) {
+		return type.getKind() == ElementKind.CLASS
+				&& !type.getModifiers().contains(Modifier.ABSTRACT)
+				&& hasAnnotation(type, ENTITY_ANNOTATION);
+	}
+
+	private boolean isRepository(TypeElement type) {
+		if (type.getKind() != ElementKind.INTERFACE || hasAnnotation(type, NO_REPOSITORY_BEAN_ANNOTATION)) {
+			return false;
+		}
+		if (hasAnnotation(type, REPOSITORY_DEFINITION_ANNOTATION)) {
+			return true;
+		}
+		TypeMirror erasure = types.erasure(type.asType());
+		return repositoryType != null && !types.isSameType(erasure, repositoryType)
+				&& types.isAssignable(erasure, repositoryType);
+	}
+
+	private boolean hasAnnotation(TypeElement type, String annotation) {
+		for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+			Element annotationType = mirror.getAnnotationType().asElement();
+			if (((TypeElement) annotationType).getQualifiedName().contentEquals(annotation)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void writeIndex() {
+		Map<String, String> index = new TreeMap<>(readPreviousIndex());
+		// 本次编译过的类型以本次结果为准, 其余类型仍然存在时保留
+		index.keySet().removeIf(type -> processed.contains(type)
+				|| elements.getTypeElement(type.replace('$', '.')) == null);
+		index.putAll(entries);
+		if (index.isEmpty()) {
+			return;
+		}
+		try {
+			FileObject file = processingEnv.getFiler()
+					.createResource(StandardLocation.CLASS_OUTPUT, "", PersistenceIndex.LOCATION);
+			try (OutputStream out = file.openOutputStream()) {
+				StringBuilder builder = new StringBuilder();
+				for (Map.Entry<String, String> entry : index.entrySet()) {
+					builder.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+				}
+				out.write(builder.toString().getBytes("ISO-8859-1"));
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Unable to write persistence index " + PersistenceIndex.LOCATION + ": " + e);
+		}
+	}
+
+	private Map<String, String> readPreviousIndex() {
+		Map<String, String> previous = new HashMap<>();
+		try {
+			FileObject file = processingEnv.getFiler()
+					.getResource(StandardLocation.CLASS_OUTPUT, "", PersistenceIndex.LOCATION);
+			Properties properties = new Properties();
+			try (InputStream in = file.openInputStream()) {
+				properties.load(in);
+			}
+			for (String type : properties.stringPropertyNames()) {
+				previous.put(type, properties.getProperty(type));
+			}
+		} catch (IOException e) {
+			// 首次编译, 不存在旧索引
+		}
+		return previous;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.index;
+
+import com.visionet.wakanda.hibernate.jpa.support.PersistenceBootstrap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.jpa.repository.config.JpaRepositoryConfigExtension;
+import org.springframework.data.repository.config.*;
+import org.springframework.data.util.Streamable;
+
+import java.lang.annotation.Annotation;
+import java.util.*;
+
+/**
+ * 基于 {@link PersistenceIndex} 注册 JPA 仓库
+ *
+ * 仓库属性取自子类上标注的 {@link EnableJpaRepositories}, 子类通过 {@code @Import} 引入;
+ * 仓库的创建时机由 {@link PersistenceBootstrap} 的启动方式决定;
+ * 索引存在时按索引注册仓库与实体, {@code basePackages} 只在没有索引的 classpath 条目中扫描; 否则全部按包扫描
+ *
+ * @author pangcaijie
+ * @since 2019/4/29.
+ */
+public abstract class PersistenceIndexRepositoriesRegistrar extends RepositoryBeanDefinitionRegistrarSupport {
+
+	private static final String ENTITY_POST_PROCESSOR_BEAN_NAME =
+			"com.visionet.wakanda.hibernate.jpa.index.internalPersistenceIndexEntityPostProcessor";
+
+	private final Logger logger = LoggerFactory.getLogger(PersistenceIndexRepositoriesRegistrar.class);
+
+	private ResourceLoader resourceLoader;
+
+	private Environment environment;
+
+	@Override
+	public void setResourceLoader(ResourceLoader resourceLoader) {
+		super.setResourceLoader(resourceLoader);
+		this.resourceLoader = resourceLoader;
+	}
+
+	@Override
+	public void setEnvironment(Environment environment) {
+		super.setEnvironment(environment);
+		this.environment = environment;
+	}
+
+	@Override
+	public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+		AnnotationMetadata metadata = new StandardAnnotationMetadata(getClass(), true);
+		long start = System.currentTimeMillis();
+		PersistenceIndex index = PersistenceIndex.load(environment, resourceLoader.getClassLoader());
+
+		AnnotationRepositoryConfigurationSource configurationSource =
+				new IndexedRepositoryConfigurationSource(metadata, registry, index);
+		RepositoryConfigurationExtension extension = getExtension();
+		RepositoryConfigurationUtils.exposeRegistration(extension, registry, configurationSource);
+		// 自定义实现(xxxImpl)可能位于带索引的条目中, 仓库所在的包仍全部扫描
+		ResourceLoader loader = (index == null ? resourceLoader
+				: new UnindexedResourcePatternResolver(resourceLoader, index, index.getRepositoryPackages()));
+		new RepositoryConfigurationDelegate(configurationSource, loader, environment)
+				.registerRepositoriesIn(registry, extension);
+
+		if (index == null) {
+			logger.info("Scanned JPA repositories in {} ms", System.currentTimeMillis() - start);
+			return;
+		}
+		RootBeanDefinition postProcessor = new RootBeanDefinition(PersistenceIndexEntityPostProcessor.class);
+		postProcessor.getConstructorArgumentValues().addGenericArgumentValue(index);
+		postProcessor.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		registry.registerBeanDefinition(ENTITY_POST_PROCESSOR_BEAN_NAME, postProcessor);
+
+		logger.info("Registered {} JPA repositories and {} entities from {} in {} ms",
+				index.getRepositories().size(), index.getEntities().size(), PersistenceIndex.LOCATION,
+				System.currentTimeMillis() - start);
+	}
+
+	@Override
+	protected Class<? extends Annotation> getAnnotation() {
+		return EnableJpaRepositories.class;
+	}
+
+	@Override
+	protected RepositoryConfigurationExtension getExtension() {
+		return new JpaRepositoryConfigExtension();
+	}
+
+	/**
+	 * 存在索引时候选仓库取自索引, 以及没有索引的条目中扫描到的仓库; 启动方式可由 {@link PersistenceBootstrap#BOOTSTRAP_MODE_PROPERTY} 覆盖
+	 */
+	private class IndexedRepositoryConfigurationSource extends AnnotationRepositoryConfigurationSource {
+
+		private final PersistenceIndex index;
+
+		IndexedRepositoryConfigurationSource(
+				AnnotationMetadata metadata, BeanDefinitionRegistry registry, PersistenceIndex index) {
+			super(metadata, getAnnotation(), resourceLoader, environment, registry);
+			this.index = index;
+		}
+
+		@Override
+		public BootstrapMode getBootstrapMode() {
+			return environment.containsProperty(PersistenceBootstrap.BOOTSTRAP_MODE_PROPERTY)
+					? PersistenceBootstrap.resolveBootstrapMode(environment) : super.getBootstrapMode();
+		}
+
+		@Override
+		public Streamable<String> getBasePackages() {
+			if (index == null) {
+				return super.getBasePackages();
+			}
+			Set<String> basePackages = new LinkedHashSet<>(index.getRepositoryPackages());
+			super.getBasePackages().forEach(basePackages::add);
+			return Streamable.of(basePackages);
+		}
+
+		@Override
+		public Streamable<BeanDefinition> getCandidates(ResourceLoader loader) {
+			if (index == null) {
+				return super.getCandidates(loader);
+			}
+			List<BeanDefinition> candidates = new ArrayList<>(index.getRepositories().size());
+			for (String repository : index.getRepositories()) {
+				GenericBeanDefinition candidate = new GenericBeanDefinition();
+				candidate.setBeanClassName(repository);
+				candidates.add(candidate);
+			}
+			super.getCandidates(new UnindexedResourcePatternResolver(loader, index, Collections.emptySet()))
+					.forEach(candidates::add);
+			return Streamable.of(candidates);
+		}
+	}
+}
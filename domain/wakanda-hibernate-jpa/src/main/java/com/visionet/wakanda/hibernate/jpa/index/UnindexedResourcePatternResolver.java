@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.index;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 扫描类文件时跳过带有 {@link PersistenceIndex} 的 classpath 条目
+ *
+ * 索引中的实体与仓库直接注册, 未使用 {@link PersistenceIndexProcessor} 编译的 jar 仍按包扫描;
+ * 其它资源(persistence.xml 等)照常查找
+ *
+ * @author pangcaijie
+ * @since 2019/4/29.
+ */
+class UnindexedResourcePatternResolver extends PathMatchingResourcePatternResolver {
+
+	private static final String CLASS_PATTERN = ".class";
+
+	private final PersistenceIndex index;
+
+	private final Set<String> exemptPatterns = new HashSet<>();
+
+	/**
+	 * @param resourceLoader 原资源加载器
+	 * @param index 持久化索引
+	 * @param exemptPackages 这些包的扫描不跳过索引条目, 用于查找仓库的自定义实现
+	 */
+	UnindexedResourcePatternResolver(ResourceLoader resourceLoader, PersistenceIndex index,
+									 Collection<String> exemptPackages) {
+		super(resourceLoader);
+		this.index = index;
+		for (String exemptPackage : exemptPackages) {
+			exemptPatterns.add(CLASSPATH_ALL_URL_PREFIX + ClassUtils.convertClassNameToResourcePath(exemptPackage) + "/");
+		}
+	}
+
+	@Override
+	protected Resource[] findPathMatchingResources(String locationPattern) throws IOException {
+		if (!locationPattern.startsWith(CLASSPATH_ALL_URL_PREFIX) || !locationPattern.endsWith(CLASS_PATTERN)) {
+			return super.findPathMatchingResources(locationPattern);
+		}
+		String rootDirPath = determineRootDir(locationPattern);
+		if (exemptPatterns.contains(rootDirPath)) {
+			return super.findPathMatchingResources(locationPattern);
+		}
+		String subPattern = locationPattern.substring(rootDirPath.length());
+		String rootDir = rootDirPath.substring(CLASSPATH_ALL_URL_PREFIX.length());
+		Set<Resource> result = new LinkedHashSet<>();
+		for (Resource rootDirResource : getResources(rootDirPath)) {
+			String url = rootDirResource.getURL().toString();
+			// 无法确定所在条目时按未索引处理, 宁可多扫描
+			if (url.endsWith(rootDir) && index.isIndexed(url.substring(0, url.length() - rootDir.length()))) {
+				continue;
+			}
+			result.addAll(Arrays.asList(getResources(url + subPattern)));
+		}
+		return result.toArray(new Resource[0]);
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * {@link IngestMode#BATCH_INSERT}
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+class BatchInsertWriter implements IngestWriter {
+
+	private final EntityManager em;
+
+	private final int batchSize;
+
+	BatchInsertWriter(EntityManager em, int batchSize) {
+		this.em = em;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void write(List<?> entities) {
+		em.unwrap(Session.class).setJdbcBatchSize(batchSize);
+		for (Object entity : entities) {
+			em.persist(entity);
+		}
+		em.flush();
+		em.clear();
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单行 CSV 拆分, 支持双引号包围的字段与 {@code ""} 转义; 不支持字段内换行
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+public final class Csv {
+
+	private Csv() {
+	}
+
+	/**
+	 * @param line 一行内容
+	 * @param separator 分隔符
+	 * @return 字段, 空字段为空字符串
+	 */
+	public static String[] split(String line, char separator) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"') {
+					if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						field.append('"');
+						i++;
+					} else {
+						quoted = false;
+					}
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == separator) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields.toArray(new String[0]);
+	}
+}
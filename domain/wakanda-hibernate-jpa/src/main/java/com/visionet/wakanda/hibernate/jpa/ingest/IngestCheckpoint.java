@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * 导入检查点, 保存在源文件旁的 {@code .checkpoint} 文件中
+ *
+ * 各批次并行写入、完成顺序不定: {@code offset} 之前的内容全部写入, 之后已完成的批次单独记录,
+ * 续传时从 {@code offset} 开始读取并跳过这些批次. 批次按行数切分, 续传必须使用相同的 batchSize
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+class IngestCheckpoint {
+
+	private static final long SAVE_INTERVAL_MILLIS = 1000;
+
+	private final Path path;
+
+	private final int batchSize;
+
+	private long offset;
+
+	private long rows;
+
+	/**
+	 * offset 之前的批次数, 用于续传时还原行号
+	 */
+	private long chunks;
+
+	/**
+	 * offset 之后已完成批次的起止偏移
+	 */
+	private final TreeMap<Long, Long> completed = new TreeMap<>();
+
+	private long lastSaved;
+
+	private IngestCheckpoint(Path path, int batchSize) {
+		this.path = path;
+		this.batchSize = batchSize;
+	}
+
+	static IngestCheckpoint load(Path file, int batchSize) throws IOException {
+		Path path = file.resolveSibling(file.getFileName() + ".checkpoint");
+		IngestCheckpoint checkpoint = new IngestCheckpoint(path, batchSize);
+		if (Files.exists(path)) {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+			int saved = Integer.parseInt(properties.getProperty("batchSize"));
+			if (saved != batchSize) {
+				throw new IngestException("Checkpoint " + path + " was written with batchSize " + saved
+						+ ", resume with the same batchSize or delete the checkpoint");
+			}
+			checkpoint.offset = Long.parseLong(properties.getProperty("offset"));
+			checkpoint.rows = Long.parseLong(properties.getProperty("rows"));
+			checkpoint.chunks = Long.parseLong(properties.getProperty("chunks"));
+			String chunks = properties.getProperty("completed", "");
+			for (String chunk : chunks.split(",")) {
+				if (!chunk.isEmpty()) {
+					String[] range = chunk.split("-");
+					checkpoint.completed.put(Long.parseLong(range[0]), Long.parseLong(range[1]));
+				}
+			}
+		}
+		return checkpoint;
+	}
+
+	synchronized long getOffset() {
+		return offset;
+	}
+
+	synchronized long getRows() {
+		return rows;
+	}
+
+	synchronized long getChunks() {
+		return chunks;
+	}
+
+	synchronized boolean isCompleted(long start) {
+		return completed.containsKey(start);
+	}
+
+	/**
+	 * 跳过文件开头不需要导入的内容(BOM、表头)
+	 */
+	synchronized void advanceTo(long position) {
+		if (offset < position) {
+			offset = position;
+		}
+	}
+
+	/**
+	 * 记录一个批次写入完成, 并按间隔落盘
+	 */
+	synchronized void complete(long start, long end, long written) {
+		completed.put(start, end);
+		rows += written;
+		while (completed.containsKey(offset)) {
+			offset = completed.remove(offset);
+			chunks++;
+		}
+		if (System.currentTimeMillis() - lastSaved >= SAVE_INTERVAL_MILLIS) {
+			save();
+		}
+	}
+
+	synchronized void save() {
+		Properties properties = new Properties();
+		properties.setProperty("batchSize", String.valueOf(batchSize));
+		properties.setProperty("offset", String.valueOf(offset));
+		properties.setProperty("rows", String.valueOf(rows));
+		properties.setProperty("chunks", String.valueOf(chunks));
+		StringBuilder chunks = new StringBuilder();
+		for (Map.Entry<Long, Long> entry : completed.entrySet()) {
+			if (chunks.length() > 0) {
+				chunks.append(',');
+			}
+			chunks.append(entry.getKey()).append('-').append(entry.getValue());
+		}
+		properties.setProperty("completed", chunks.toString());
+		try {
+			Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+			try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				properties.store(writer, null);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write checkpoint " + path, e);
+		}
+		lastSaved = System.currentTimeMillis();
+	}
+
+	/**
+	 * 整个文件导入完成后删除检查点
+	 */
+	synchronized void delete() throws IOException {
+		Files.deleteIfExists(path);
+	}
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+/**
+ * 导入中断, 已写入部分记录在检查点文件中, 重新执行同一导入会从检查点继续
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+public class IngestException extends RuntimeException {
+
+	public IngestException(String message) {
+		super(message);
+	}
+
+	public IngestException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+/**
+ * 导入的写入方式
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+public enum IngestMode {
+
+	/**
+	 * MySQL、实体只包含基本类型列且配置了审计处理器时使用 {@link #LOAD_DATA}, 否则 {@link #BATCH_INSERT}
+	 */
+	AUTO,
+
+	/**
+	 * persist 后按 JDBC batch 写入, 经过实体监听器与主键生成器
+	 */
+	BATCH_INSERT,
+
+	/**
+	 * MySQL {@code LOAD DATA LOCAL INFILE}, 每批数据以内存流提交, 不经过实体监听器;
+	 * 需要连接开启 {@code allowLoadLocalInfile} 且服务端 {@code local_infile=ON}, 审计字段由
+	 * {@link IngestPipeline#setAuditingHandler} 配置的处理器填写, 未配置时导入失败
+	 */
+	LOAD_DATA
+}
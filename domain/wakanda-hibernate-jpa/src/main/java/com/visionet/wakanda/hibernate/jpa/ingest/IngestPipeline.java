@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.support.AssignableGuidGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.auditing.AuditingHandler;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 大文件流式导入
+ *
+ * 调用线程以内存映射方式按行读取文件, 每 batchSize 行组成一个批次放入有界队列; 工作线程并行解析、补齐
+ * {@link BaseEntity} 默认值(字符串主键、审计字段、版本号)并在各自的事务中写入. 内存占用只取决于
+ * 队列容量与批次大小, 与文件大小无关.
+ *
+ * 解析失败的行写入源文件旁的 {@code .errors} 文件后继续; 写入失败时导入中止并抛出 {@link IngestException},
+ * 已写入的批次保存在 {@code .checkpoint} 文件中, 使用相同配置再次导入会跳过这些批次, 全部完成后删除检查点.
+ *
+ * <pre>
+ * IngestResult result = new IngestPipeline&lt;&gt;(Event.class, entityManagerFactory)
+ *         .setSkipLines(1)
+ *         .ingest(Paths.get("events.csv"), line -&gt; {
+ *             String[] fields = Csv.split(line, ',');
+ *             return new Event(fields[0], Long.parseLong(fields[1]));
+ *         });
+ * </pre>
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+public class IngestPipeline<M extends BaseEntity> {
+
+	private static final Logger logger = LoggerFactory.getLogger(IngestPipeline.class);
+
+	private static final long PROGRESS_INTERVAL_MILLIS = 10000;
+
+	private final Class<M> entityClass;
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final EntityManager em;
+
+	private final PlatformTransactionManager transactionManager;
+
+	private int workers = Runtime.getRuntime().availableProcessors();
+
+	private int batchSize = 1000;
+
+	private int queueCapacity = 0;
+
+	private int skipLines = 0;
+
+	private IngestMode mode = IngestMode.AUTO;
+
+	private AuditingHandler auditingHandler;
+
+	public IngestPipeline(Class<M> entityClass, EntityManagerFactory entityManagerFactory) {
+		this(entityClass, entityManagerFactory, new JpaTransactionManager(entityManagerFactory));
+	}
+
+	public IngestPipeline(Class<M> entityClass, EntityManagerFactory entityManagerFactory,
+			PlatformTransactionManager transactionManager) {
+		this.entityClass = entityClass;
+		this.entityManagerFactory = entityManagerFactory;
+		this.em = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+		this.transactionManager = transactionManager;
+	}
+
+	/**
+	 * @param workers 并行解析与写入的线程数, 默认为 CPU 核数
+	 */
+	public IngestPipeline<M> setWorkers(int workers) {
+		Assert.isTrue(workers > 0, "workers must be positive");
+		this.workers = workers;
+		return this;
+	}
+
+	/**
+	 * @param batchSize 每批行数, 即每个事务写入的行数, 默认 1000; 续传时必须与首次导入相同
+	 */
+	public IngestPipeline<M> setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive");
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * @param queueCapacity 等待处理的批次上限, 默认为线程数的两倍
+	 */
+	public IngestPipeline<M> setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * @param skipLines 文件开头跳过的行数(表头)
+	 */
+	public IngestPipeline<M> setSkipLines(int skipLines) {
+		this.skipLines = skipLines;
+		return this;
+	}
+
+	public IngestPipeline<M> setMode(IngestMode mode) {
+		Assert.notNull(mode, "IngestMode must not be null");
+		this.mode = mode;
+		return this;
+	}
+
+	/**
+	 * @param auditingHandler {@link IngestMode#LOAD_DATA} 不经过实体监听器, 由它填写审计字段;
+	 *                        {@link IngestMode#AUTO} 未配置时不使用 LOAD DATA
+	 */
+	public IngestPipeline<M> setAuditingHandler(AuditingHandler auditingHandler) {
+		this.auditingHandler = auditingHandler;
+		return this;
+	}
+
+	/**
+	 * 导入文件
+	 * @param file UTF-8 编码的文本文件, 每行一条记录
+	 * @param mapper 行映射
+	 * @return 统计
+	 * @throws IngestException 写入失败, 可在排除问题后重新执行以续传
+	 */
+	public IngestResult ingest(Path file, RowMapper<? extends M> mapper) throws IOException {
+		long start = System.currentTimeMillis();
+		IngestCheckpoint checkpoint = IngestCheckpoint.load(file, batchSize);
+		long resumed = checkpoint.getRows();
+		IngestWriter writer = createWriter();
+		Run run = new Run(file, mapper, writer, checkpoint, start);
+
+		int capacity = queueCapacity > 0 ? queueCapacity : workers * 2;
+		BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(capacity);
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("wakanda-ingest-");
+		threadFactory.setDaemon(true);
+		ExecutorService executor = Executors.newFixedThreadPool(workers, threadFactory);
+		List<Future<?>> futures = new ArrayList<>(workers);
+		for (int i = 0; i < workers; i++) {
+			futures.add(executor.submit(() -> run.work(queue)));
+		}
+		try {
+			read(file, checkpoint, queue, run);
+		} finally {
+			for (int i = 0; i < workers; i++) {
+				putQuietly(queue, Chunk.END, run);
+			}
+			executor.shutdown();
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					run.fail(e.getCause());
+				}
+			}
+			run.closeErrors();
+			checkpoint.save();
+		}
+		if (run.failure.get() != null) {
+			throw new IngestException("Ingest of " + file + " stopped at offset " + checkpoint.getOffset()
+					+ ", run again to resume", run.failure.get());
+		}
+		checkpoint.delete();
+		IngestResult result = new IngestResult(run.rows.get(), run.failed.get(), resumed,
+				System.currentTimeMillis() - start);
+		logger.info("Ingested {} into {}: {}", file, entityClass.getSimpleName(), result);
+		return result;
+	}
+
+	private void read(Path file, IngestCheckpoint checkpoint, BlockingQueue<Chunk> queue, Run run)
+			throws IOException {
+		long offset = checkpoint.getOffset();
+		try (MappedLineReader reader = new MappedLineReader(file, offset)) {
+			long lineNumber = offset == 0 ? 0 : skipLines + checkpoint.getChunks() * batchSize;
+			if (offset == 0) {
+				while (lineNumber < skipLines && reader.readLine() != null) {
+					lineNumber++;
+				}
+				checkpoint.advanceTo(reader.getPosition());
+			}
+			long chunkStart = reader.getPosition();
+			List<String> lines = new ArrayList<>(batchSize);
+			String line;
+			while (run.failure.get() == null && (line = reader.readLine()) != null) {
+				lines.add(line);
+				lineNumber++;
+				if (lines.size() >= batchSize) {
+					submit(queue, new Chunk(chunkStart, reader.getPosition(), lineNumber - lines.size() + 1, lines),
+							checkpoint, run);
+					chunkStart = reader.getPosition();
+					lines = new ArrayList<>(batchSize);
+				}
+			}
+			if (!lines.isEmpty() && run.failure.get() == null) {
+				submit(queue, new Chunk(chunkStart, reader.getPosition(), lineNumber - lines.size() + 1, lines),
+						checkpoint, run);
+			}
+		}
+	}
+
+	private void submit(BlockingQueue<Chunk> queue, Chunk chunk, IngestCheckpoint checkpoint, Run run) {
+		if (checkpoint.isCompleted(chunk.start)) {
+			return;
+		}
+		putQuietly(queue, chunk, run);
+	}
+
+	private void putQuietly(BlockingQueue<Chunk> queue, Chunk chunk, Run run) {
+		try {
+			queue.put(chunk);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			run.fail(e);
+		}
+	}
+
+	private IngestWriter createWriter() {
+		if (mode != IngestMode.BATCH_INSERT) {
+			SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+			LoadDataWriter writer = LoadDataWriter.create(em, sessionFactory, entityClass);
+			if (mode == IngestMode.LOAD_DATA) {
+				if (writer == null) {
+					throw new IngestException("LOAD DATA is not supported for " + entityClass.getName());
+				}
+				if (auditingHandler == null) {
+					throw new IngestException("LOAD DATA bypasses entity listeners, an AuditingHandler is required"
+							+ " to fill the audit columns of " + entityClass.getName());
+				}
+				return writer;
+			}
+			// 没有审计处理器时 LOAD DATA 写入的审计字段为空, 改用经过实体监听器的 JDBC batch
+			if (writer != null && auditingHandler != null) {
+				return writer;
+			}
+		}
+		return new BatchInsertWriter(em, batchSize);
+	}
+
+	/**
+	 * 一个批次
+	 */
+	private static class Chunk {
+
+		static final Chunk END = new Chunk(-1, -1, -1, null);
+
+		private final long start;
+
+		private final long end;
+
+		private final long firstLine;
+
+		private final List<String> lines;
+
+		private Chunk(long start, long end, long firstLine, List<String> lines) {
+			this.start = start;
+			this.end = end;
+			this.firstLine = firstLine;
+			this.lines = lines;
+		}
+	}
+
+	/**
+	 * 一次导入的状态
+	 */
+	private class Run {
+
+		private final Path file;
+
+		private final RowMapper<? extends M> mapper;
+
+		private final IngestWriter writer;
+
+		private final IngestCheckpoint checkpoint;
+
+		private final long start;
+
+		private final TransactionTemplate transactionTemplate;
+
+		private final boolean listenersBypassed;
+
+		private final AtomicLong rows = new AtomicLong();
+
+		private final AtomicLong failed = new AtomicLong();
+
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		private final Counter rowCounter;
+
+		private final Counter failedCounter;
+
+		private BufferedWriter errors;
+
+		private long lastProgress;
+
+		private Run(Path file, RowMapper<? extends M> mapper, IngestWriter writer, IngestCheckpoint checkpoint,
+				long start) {
+			this.file = file;
+			this.mapper = mapper;
+			this.writer = writer;
+			this.checkpoint = checkpoint;
+			this.start = start;
+			this.lastProgress = start;
+			this.transactionTemplate = new TransactionTemplate(transactionManager);
+			this.listenersBypassed = writer instanceof LoadDataWriter;
+			this.rowCounter = Metrics.counter("wakanda.ingest.rows", "entity", entityClass.getSimpleName());
+			this.failedCounter = Metrics.counter("wakanda.ingest.failed", "entity", entityClass.getSimpleName());
+		}
+
+		private void work(BlockingQueue<Chunk> queue) {
+			while (true) {
+				Chunk chunk;
+				try {
+					chunk = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				if (chunk == Chunk.END) {
+					return;
+				}
+				if (failure.get() != null) {
+					continue;
+				}
+				try {
+					write(chunk);
+				} catch (Throwable e) {
+					// 任何异常都中止导入, 工作线程继续取出剩余批次, 读取线程不会阻塞在已满的队列上
+					fail(e);
+				}
+			}
+		}
+
+		private void write(Chunk chunk) {
+			List<M> entities = new ArrayList<>(chunk.lines.size());
+			for (int i = 0; i < chunk.lines.size(); i++) {
+				String line = chunk.lines.get(i);
+				try {
+					M entity = mapper.map(line);
+					if (entity != null) {
+						prepare(entity);
+						entities.add(entity);
+					}
+				} catch (Exception e) {
+					error(chunk.firstLine + i, line, e);
+				}
+			}
+			transactionTemplate.execute(status -> {
+				writer.write(entities);
+				return null;
+			});
+			checkpoint.complete(chunk.start, chunk.end, entities.size());
+			rows.addAndGet(entities.size());
+			rowCounter.increment(entities.size());
+			progress();
+		}
+
+		/**
+		 * 补齐 {@link BaseEntity} 默认值
+		 */
+		private void prepare(M entity) {
+			AssignableGuidGenerator.assign(entity);
+			if (entity.getDeleted() == null) {
+				entity.setDeleted(false);
+			}
+			if (listenersBypassed) {
+				auditingHandler.markCreated(entity);
+			}
+		}
+
+		private void fail(Throwable e) {
+			if (failure.compareAndSet(null, e)) {
+				logger.error("Ingest of {} failed", file, e);
+			}
+		}
+
+		private synchronized void error(long lineNumber, String line, Exception e) {
+			failed.incrementAndGet();
+			failedCounter.increment();
+			try {
+				if (errors == null) {
+					Path path = file.resolveSibling(file.getFileName() + ".errors");
+					errors = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+							StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+				}
+				errors.write(lineNumber + "\t" + e + "\t" + line);
+				errors.newLine();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		private synchronized void closeErrors() throws IOException {
+			if (errors != null) {
+				errors.close();
+			}
+		}
+
+		private synchronized void progress() {
+			long now = System.currentTimeMillis();
+			if (now - lastProgress >= PROGRESS_INTERVAL_MILLIS) {
+				lastProgress = now;
+				long written = rows.get();
+				logger.info("Ingesting {}: {} rows, {} rows/s", file, written, written * 1000 / Math.max(1, now - start));
+			}
+		}
+	}
+}
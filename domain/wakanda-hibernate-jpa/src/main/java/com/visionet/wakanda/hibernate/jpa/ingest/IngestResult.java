@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+/**
+ * 一次导入的统计
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+public class IngestResult {
+
+	private final long rows;
+
+	private final long failed;
+
+	private final long resumed;
+
+	private final long elapsedMillis;
+
+	IngestResult(long rows, long failed, long resumed, long elapsedMillis) {
+		this.rows = rows;
+		this.failed = failed;
+		this.resumed = resumed;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * @return 本次写入的行数
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return 解析失败并记录到错误文件的行数
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return 之前已经写入、本次从检查点跳过的行数
+	 */
+	public long getResumed() {
+		return resumed;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public double getRowsPerSecond() {
+		return elapsedMillis <= 0 ? rows : rows * 1000d / elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d rows (%d failed, %d resumed) in %d ms, %.0f rows/s",
+				rows, failed, resumed, elapsedMillis, getRowsPerSecond());
+	}
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+import java.util.List;
+
+/**
+ * 在当前事务中写入一批实体
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+interface IngestWriter {
+
+	void write(List<?> entities);
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link IngestMode#LOAD_DATA}: 把一批实体按 MySQL 默认格式(制表符分隔, {@code \N} 表示 null)写入内存,
+ * 通过 {@code LOAD DATA LOCAL INFILE} 一次提交
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+class LoadDataWriter implements IngestWriter {
+
+	private static final String MYSQL_STATEMENT = "com.mysql.jdbc.Statement";
+
+	private final EntityManager em;
+
+	private final AbstractEntityPersister persister;
+
+	private final List<Integer> properties;
+
+	private final String sql;
+
+	private LoadDataWriter(EntityManager em, AbstractEntityPersister persister, List<Integer> properties,
+			String sql) {
+		this.em = em;
+		this.persister = persister;
+		this.properties = properties;
+		this.sql = sql;
+	}
+
+	/**
+	 * @return 当前数据库或实体不支持时返回 null
+	 */
+	static LoadDataWriter create(EntityManager em, SessionFactoryImplementor sessionFactory, Class<?> entityClass) {
+		if (!(sessionFactory.getJdbcServices().getDialect() instanceof MySQLDialect)
+				|| !ClassUtils.isPresent(MYSQL_STATEMENT, LoadDataWriter.class.getClassLoader())) {
+			return null;
+		}
+		EntityPersister entityPersister = sessionFactory.getMetamodel().entityPersister(entityClass);
+		if (!(entityPersister instanceof AbstractEntityPersister)) {
+			return null;
+		}
+		AbstractEntityPersister persister = (AbstractEntityPersister) entityPersister;
+		if (persister.isMultiTable() || persister.isInherited() || persister.getEntityMetamodel().hasSubclasses()
+				|| persister.getIdentifierColumnNames().length != 1
+				|| !isBasic(persister.getIdentifierType().getReturnedClass())) {
+			return null;
+		}
+		StringBuilder columns = new StringBuilder(persister.getIdentifierColumnNames()[0]);
+		List<Integer> properties = new ArrayList<>();
+		Type[] types = persister.getPropertyTypes();
+		boolean[] insertable = persister.getPropertyInsertability();
+		for (int i = 0; i < types.length; i++) {
+			String[] names = persister.getPropertyColumnNames(i);
+			if (!insertable[i] || names == null || names.length == 0) {
+				continue;
+			}
+			if (names.length != 1 || names[0] == null || types[i].isAssociationType()
+					|| !isBasic(types[i].getReturnedClass())) {
+				return null;
+			}
+			columns.append(", ").append(names[0]);
+			properties.add(i);
+		}
+		String sql = "LOAD DATA LOCAL INFILE 'ingest' INTO TABLE " + persister.getTableName()
+				+ " CHARACTER SET utf8mb4 (" + columns + ")";
+		return new LoadDataWriter(em, persister, properties, sql);
+	}
+
+	@Override
+	public void write(List<?> entities) {
+		SessionImplementor session = em.unwrap(SessionImplementor.class);
+		session.flush();
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+		ByteArrayOutputStream out = new ByteArrayOutputStream(entities.size() * 128);
+		StringBuilder row = new StringBuilder();
+		for (Object entity : entities) {
+			row.setLength(0);
+			append(row, persister.getIdentifier(entity, session), dateFormat);
+			Object[] values = persister.getPropertyValues(entity);
+			for (int property : properties) {
+				row.append('\t');
+				Object value = values[property];
+				if (persister.isVersioned() && property == persister.getVersionProperty() && value == null) {
+					value = 0;
+				}
+				append(row, value, dateFormat);
+			}
+			row.append('\n');
+			byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+			out.write(bytes, 0, bytes.length);
+		}
+		session.doWork(connection -> {
+			try (Statement statement = connection.createStatement()) {
+				statement.unwrap(com.mysql.jdbc.Statement.class)
+						.setLocalInfileInputStream(new ByteArrayInputStream(out.toByteArray()));
+				statement.execute(sql);
+			}
+		});
+	}
+
+	private static void append(StringBuilder row, Object value, SimpleDateFormat dateFormat) {
+		if (value == null) {
+			row.append("\\N");
+		} else if (value instanceof Boolean) {
+			row.append((Boolean) value ? '1' : '0');
+		} else if (value instanceof Date) {
+			row.append(dateFormat.format((Date) value));
+		} else if (value instanceof BigDecimal) {
+			row.append(((BigDecimal) value).toPlainString());
+		} else {
+			String text = value.toString();
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				switch (c) {
+					case '\\':
+						row.append("\\\\");
+						break;
+					case '\t':
+						row.append("\\t");
+						break;
+					case '\n':
+						row.append("\\n");
+						break;
+					case '\r':
+						row.append("\\r");
+						break;
+					case '\0':
+						row.append("\\0");
+						break;
+					default:
+						row.append(c);
+				}
+			}
+		}
+	}
+
+	private static boolean isBasic(Class<?> type) {
+		return String.class == type || Boolean.class == type || boolean.class == type || Character.class == type
+				|| Number.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type)
+				|| (type.isPrimitive() && type != void.class);
+	}
+}
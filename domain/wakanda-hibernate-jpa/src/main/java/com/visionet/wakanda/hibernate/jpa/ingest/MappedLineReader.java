@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以内存映射窗口按行读取 UTF-8 文件, 堆内存占用与文件大小无关
+ *
+ * 每次映射不超过 {@link #WINDOW_SIZE} 字节, 行跨越窗口时从行首重新映射; 支持 {@code \n} 与 {@code \r\n}
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+class MappedLineReader implements Closeable {
+
+	static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final int windowSize;
+
+	private MappedByteBuffer window;
+
+	private long windowStart;
+
+	private long position;
+
+	private byte[] scratch = new byte[1024];
+
+	MappedLineReader(Path file, long offset) throws IOException {
+		this(file, offset, WINDOW_SIZE);
+	}
+
+	MappedLineReader(Path file, long offset, int windowSize) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.windowSize = windowSize;
+		this.position = offset;
+		if (offset == 0) {
+			skipBom();
+		}
+	}
+
+	/**
+	 * @return 下一行, 文件结束时返回 null
+	 */
+	String readLine() throws IOException {
+		while (position < size) {
+			if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+				map(position);
+			}
+			int start = (int) (position - windowStart);
+			int end = start;
+			int limit = window.limit();
+			while (end < limit && window.get(end) != '\n') {
+				end++;
+			}
+			if (end < limit) {
+				position = windowStart + end + 1;
+				return decode(start, end);
+			}
+			if (windowStart + limit >= size) {
+				// 最后一行没有换行符
+				position = size;
+				return decode(start, end);
+			}
+			if (start == 0) {
+				throw new IOException("Line at offset " + position + " is longer than " + windowSize + " bytes");
+			}
+			map(position);
+		}
+		return null;
+	}
+
+	/**
+	 * @return 已读取内容之后的字节偏移, 用于检查点
+	 */
+	long getPosition() {
+		return position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	private void map(long start) throws IOException {
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+	}
+
+	private String decode(int start, int end) {
+		if (end > start && window.get(end - 1) == '\r') {
+			end--;
+		}
+		int length = end - start;
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		// JDK 9 起 MappedByteBuffer 覆盖了 position(int), 转为 Buffer 调用才能在 Java 8 上运行
+		((Buffer) window).position(start);
+		window.get(scratch, 0, length);
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private void skipBom() throws IOException {
+		if (size >= 3) {
+			map(0);
+			if (window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF) {
+				position = 3;
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+/**
+ * 把文件中的一行映射为实体, CSV 可配合 {@link Csv#split(String, char)}, JSON lines 可直接交给 JSON 库解析
+ *
+ * @author pangcaijie
+ * @since 2019/5/13.
+ */
+@FunctionalInterface
+public interface RowMapper<M> {
+
+	/**
+	 * @param line 一行内容, 不含换行符
+	 * @return 实体, 返回 null 表示跳过该行
+	 * @throws Exception 该行无法解析, 记录到错误文件后继续
+	 */
+	M map(String line) throws Exception;
+}
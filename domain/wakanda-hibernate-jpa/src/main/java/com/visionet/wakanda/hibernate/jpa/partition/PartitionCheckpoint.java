@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.partition;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 分区处理检查点
+ *
+ * 记录切分范围(属性、下界、步长、分区数)、已完成的分区与未完成分区内最后提交的主键; 续传时沿用记录的范围,
+ * 之后新增的行落在不设上限的最后一个分区或空值分区中
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+class PartitionCheckpoint {
+
+	private static final String POSITION = "position.";
+
+	private final Path path;
+
+	private String property;
+
+	private long low;
+
+	private long step;
+
+	/**
+	 * 按范围切分的分区数, 不含空值分区; 为 -1 表示尚未切分
+	 */
+	private int ranges = -1;
+
+	private final BitSet completed = new BitSet();
+
+	/**
+	 * 分区 -> 最后提交的主键
+	 */
+	private final Map<Integer, String> positions = new TreeMap<>();
+
+	private PartitionCheckpoint(Path path) {
+		this.path = path;
+	}
+
+	static PartitionCheckpoint load(Path path) throws IOException {
+		PartitionCheckpoint checkpoint = new PartitionCheckpoint(path);
+		if (Files.exists(path)) {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+			checkpoint.property = properties.getProperty("property");
+			checkpoint.low = Long.parseLong(properties.getProperty("low"));
+			checkpoint.step = Long.parseLong(properties.getProperty("step"));
+			checkpoint.ranges = Integer.parseInt(properties.getProperty("ranges"));
+			for (String index : properties.getProperty("completed", "").split(",")) {
+				if (!index.isEmpty()) {
+					checkpoint.completed.set(Integer.parseInt(index));
+				}
+			}
+			for (String name : properties.stringPropertyNames()) {
+				if (name.startsWith(POSITION)) {
+					checkpoint.positions.put(Integer.parseInt(name.substring(POSITION.length())),
+							properties.getProperty(name));
+				}
+			}
+		}
+		return checkpoint;
+	}
+
+	synchronized boolean isStarted() {
+		return ranges >= 0;
+	}
+
+	synchronized String getProperty() {
+		return property;
+	}
+
+	synchronized long getLow() {
+		return low;
+	}
+
+	synchronized long getStep() {
+		return step;
+	}
+
+	synchronized int getRanges() {
+		return ranges;
+	}
+
+	synchronized boolean isCompleted(int partition) {
+		return completed.get(partition);
+	}
+
+	/**
+	 * @return 分区内最后提交的主键, 未开始时为 null
+	 */
+	synchronized String getPosition(int partition) {
+		return positions.get(partition);
+	}
+
+	synchronized int getCompleted() {
+		return completed.cardinality();
+	}
+
+	synchronized void start(String property, long low, long step, int ranges) {
+		this.property = property;
+		this.low = low;
+		this.step = step;
+		this.ranges = ranges;
+		save();
+	}
+
+	/**
+	 * 记录分区内一批提交完成并落盘
+	 * @param id 该批最后一个实体的主键
+	 */
+	synchronized void advance(int partition, Object id) {
+		positions.put(partition, String.valueOf(id));
+		save();
+	}
+
+	/**
+	 * 记录一个分区处理完成并落盘
+	 */
+	synchronized void complete(int partition) {
+		completed.set(partition);
+		positions.remove(partition);
+		save();
+	}
+
+	private void save() {
+		Properties properties = new Properties();
+		properties.setProperty("property", property);
+		properties.setProperty("low", String.valueOf(low));
+		properties.setProperty("step", String.valueOf(step));
+		properties.setProperty("ranges", String.valueOf(ranges));
+		StringBuilder indexes = new StringBuilder();
+		for (int i = completed.nextSetBit(0); i >= 0; i = completed.nextSetBit(i + 1)) {
+			if (indexes.length() > 0) {
+				indexes.append(',');
+			}
+			indexes.append(i);
+		}
+		properties.setProperty("completed", indexes.toString());
+		for (Map.Entry<Integer, String> position : positions.entrySet()) {
+			properties.setProperty(POSITION + position.getKey(), position.getValue());
+		}
+		try {
+			Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+			try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				properties.store(writer, null);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write checkpoint " + path, e);
+		}
+	}
+
+	/**
+	 * 全部分区完成后删除检查点
+	 */
+	synchronized void delete() throws IOException {
+		Files.deleteIfExists(path);
+	}
+}
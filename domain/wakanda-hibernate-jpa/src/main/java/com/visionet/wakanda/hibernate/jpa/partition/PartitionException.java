@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.partition;
+
+/**
+ * 分区处理中断, 已完成的分区记录在检查点文件中, 重新执行同一处理会跳过这些分区
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class PartitionException extends RuntimeException {
+
+	public PartitionException(String message) {
+		super(message);
+	}
+
+	public PartitionException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.partition;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 处理分区中的一个实体; 实体处于持久化状态, 修改在每个批次结束时刷新
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+@FunctionalInterface
+public interface PartitionHandler<M> {
+
+	/**
+	 * @param entity 实体
+	 * @param entityManager 当前分区事务的 EntityManager, 可用于删除或新增实体
+	 * @throws Exception 处理失败, 当前分区回滚, 处理中止
+	 */
+	void handle(M entity, EntityManager entityManager) throws Exception;
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.partition;
+
+/**
+ * 一次分区处理的统计
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class PartitionResult {
+
+	private final long rows;
+
+	private final int partitions;
+
+	private final int resumed;
+
+	private final long elapsedMillis;
+
+	PartitionResult(long rows, int partitions, int resumed, long elapsedMillis) {
+		this.rows = rows;
+		this.partitions = partitions;
+		this.resumed = resumed;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * @return 本次处理的实体数
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return 本次处理的分区数
+	 */
+	public int getPartitions() {
+		return partitions;
+	}
+
+	/**
+	 * @return 之前已经完成、本次从检查点跳过的分区数
+	 */
+	public int getResumed() {
+		return resumed;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public double getRowsPerSecond() {
+		return elapsedMillis <= 0 ? rows : rows * 1000d / elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d rows in %d partitions (%d resumed) in %d ms, %.0f rows/s",
+				rows, partitions, resumed, elapsedMillis, getRowsPerSecond());
+	}
+}
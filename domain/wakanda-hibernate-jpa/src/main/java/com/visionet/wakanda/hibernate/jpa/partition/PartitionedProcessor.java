@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.partition;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.support.RangePartitioner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 实体表分区并行处理
+ *
+ * 按数值主键或 {@code createdDate} 的取值范围把表切分为多个分区, 空值单独作为一个分区, 由有界线程池并行处理.
+ * 分区内按主键顺序分批读取, 每批在独立的事务中处理并提交, 事务长度与持久化上下文的大小只取决于批次大小,
+ * 与分区的行数无关; 失败时已提交的批次不回滚.
+ *
+ * 配置 {@link #setCheckpoint(Path)} 后每批提交时记录分区内的位置, 中断后再次执行跳过已完成的分区并从记录的位置继续,
+ * 全部完成后删除检查点; 提交与记录之间中断时该批会被再次处理. 配置 {@link #setSaturation(DoubleSupplier, double)} 后,
+ * 连接池饱和时暂缓领取新分区, 至少保留一个分区在执行, 批处理不会挤占在线请求的连接.
+ *
+ * 处理中修改分区属性使实体移入尚未处理的分区时, 该实体会被再次处理; 工作线程不继承调用线程的数据权限
+ *
+ * <pre>
+ * PartitionResult result = new PartitionedProcessor&lt;&gt;(Order.class, entityManagerFactory)
+ *         .setPartitions(64, "createdDate")
+ *         .setCheckpoint(Paths.get("close-orders.checkpoint"))
+ *         .process((order, em) -&gt; order.close());
+ * </pre>
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class PartitionedProcessor<M extends BaseEntity> {
+
+	private static final Logger logger = LoggerFactory.getLogger(PartitionedProcessor.class);
+
+	private static final long THROTTLE_MILLIS = 100;
+
+	/**
+	 * {@link BaseEntity} 的主键属性, 分区内按它的顺序分批读取
+	 */
+	private static final String ID_PROPERTY = "id";
+
+	private final Class<M> entityClass;
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final EntityManager em;
+
+	private final PlatformTransactionManager transactionManager;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private int partitions = parallelism * 4;
+
+	private String property = "createdDate";
+
+	private int chunkSize = 500;
+
+	private Path checkpointFile;
+
+	private DoubleSupplier saturation;
+
+	private double saturationThreshold;
+
+	public PartitionedProcessor(Class<M> entityClass, EntityManagerFactory entityManagerFactory) {
+		this(entityClass, entityManagerFactory, new JpaTransactionManager(entityManagerFactory));
+	}
+
+	/**
+	 * @param transactionManager 应用的事务管理器, 必须管理 entityManagerFactory
+	 */
+	public PartitionedProcessor(Class<M> entityClass, EntityManagerFactory entityManagerFactory,
+			PlatformTransactionManager transactionManager) {
+		this.entityClass = entityClass;
+		this.entityManagerFactory = entityManagerFactory;
+		this.em = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+		this.transactionManager = transactionManager;
+	}
+
+	/**
+	 * @param parallelism 并行处理的线程数, 默认为 CPU 核数
+	 */
+	public PartitionedProcessor<M> setParallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "parallelism must be positive");
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * @param partitions 按范围切分的分区数, 默认为 CPU 核数的 4 倍; 只决定并行的粒度, 事务按批提交
+	 * @param property 用于切分范围的数值或日期属性, 默认 {@code createdDate}
+	 */
+	public PartitionedProcessor<M> setPartitions(int partitions, String property) {
+		Assert.isTrue(partitions > 0, "partitions must be positive");
+		Assert.notNull(property, "A partition property is required");
+		this.partitions = partitions;
+		this.property = property;
+		return this;
+	}
+
+	/**
+	 * @param chunkSize 每批读取的实体数, 每批一个事务, 默认 500
+	 */
+	public PartitionedProcessor<M> setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	/**
+	 * @param checkpointFile 检查点文件, 续传时必须使用相同的分区属性
+	 */
+	public PartitionedProcessor<M> setCheckpoint(Path checkpointFile) {
+		this.checkpointFile = checkpointFile;
+		return this;
+	}
+
+	/**
+	 * @param saturation 连接池饱和度(0~1), 如 {@code HikariPoolSaturation}
+	 * @param threshold 饱和度达到该值时暂缓领取新分区
+	 */
+	public PartitionedProcessor<M> setSaturation(DoubleSupplier saturation, double threshold) {
+		this.saturation = saturation;
+		this.saturationThreshold = threshold;
+		return this;
+	}
+
+	/**
+	 * 处理全部实体
+	 * @param handler 实体处理
+	 * @return 统计
+	 * @throws PartitionException 处理失败, 配置了检查点时可在排除问题后重新执行以续传
+	 */
+	public PartitionResult process(PartitionHandler<? super M> handler) throws IOException {
+		long start = System.currentTimeMillis();
+		PartitionCheckpoint checkpoint = checkpointFile != null ? PartitionCheckpoint.load(checkpointFile) : null;
+		Ranges ranges = ranges(checkpoint);
+		int resumed = checkpoint != null ? checkpoint.getCompleted() : 0;
+		Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+		// 最后一个下标为空值分区
+		for (int i = 0; i <= ranges.count; i++) {
+			if (checkpoint == null || !checkpoint.isCompleted(i)) {
+				pending.add(i);
+			}
+		}
+
+		Run run = new Run(handler, ranges, checkpoint);
+		int threads = Math.max(1, Math.min(parallelism, pending.size()));
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("wakanda-partition-");
+		threadFactory.setDaemon(true);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory);
+		List<Future<?>> futures = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			futures.add(executor.submit(() -> run.work(pending)));
+		}
+		executor.shutdown();
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				run.fail(e);
+			} catch (ExecutionException e) {
+				run.fail(e.getCause());
+			}
+		}
+		if (run.failure.get() != null) {
+			throw new PartitionException("Processing of " + entityClass.getSimpleName() + " stopped after "
+					+ run.partitions.get() + " partitions" + (checkpoint != null ? ", run again to resume" : ""),
+					run.failure.get());
+		}
+		if (checkpoint != null) {
+			checkpoint.delete();
+		}
+		PartitionResult result = new PartitionResult(run.rows.get(), run.partitions.get(), resumed,
+				System.currentTimeMillis() - start);
+		logger.info("Processed {}: {}", entityClass.getSimpleName(), result);
+		return result;
+	}
+
+	/**
+	 * 按分区属性的最小、最大值等分; 续传时沿用检查点记录的范围
+	 */
+	private Ranges ranges(PartitionCheckpoint checkpoint) {
+		EntityType<M> entityType = entityManagerFactory.getMetamodel().entity(entityClass);
+		Class<?> type = entityType.getAttribute(property).getJavaType();
+		if (checkpoint != null && checkpoint.isStarted()) {
+			if (!property.equals(checkpoint.getProperty())) {
+				throw new PartitionException("Checkpoint " + checkpointFile + " was written for property "
+						+ checkpoint.getProperty() + ", resume with the same property or delete the checkpoint");
+			}
+			return new Ranges(new RangePartitioner(type, checkpoint.getLow(), checkpoint.getStep(),
+					checkpoint.getRanges()));
+		}
+		Object[] bounds = new TransactionTemplate(transactionManager).execute(status -> (Object[]) em.createQuery(
+				"select min(e." + property + "), max(e." + property + ") from " + entityClass.getName() + " e")
+				.getSingleResult());
+		Ranges ranges = new Ranges(RangePartitioner.split(type, bounds[0], bounds[1], partitions));
+		if (checkpoint != null) {
+			checkpoint.start(property, ranges.partitioner.getLow(), ranges.partitioner.getStep(), ranges.count);
+		}
+		return ranges;
+	}
+
+	/**
+	 * 下标 0 到 count - 1 为按范围切分的分区, 下标 count 为空值分区
+	 */
+	private class Ranges {
+
+		private final RangePartitioner partitioner;
+
+		private final int count;
+
+		private Ranges(RangePartitioner partitioner) {
+			this.partitioner = partitioner;
+			this.count = partitioner.getCount();
+		}
+
+		/**
+		 * 分区内按主键顺序取下一批
+		 */
+		private List<M> next(int partition, Object after) {
+			StringBuilder jpql = new StringBuilder("select e from ").append(entityClass.getName()).append(" e where ");
+			if (partition == count) {
+				jpql.append("e.").append(property).append(" is null");
+			} else {
+				jpql.append("e.").append(property).append(" >= :from");
+				if (partition < count - 1) {
+					jpql.append(" and e.").append(property).append(" < :to");
+				}
+			}
+			if (after != null) {
+				jpql.append(" and e.").append(ID_PROPERTY).append(" > :after");
+			}
+			jpql.append(" order by e.").append(ID_PROPERTY);
+			TypedQuery<M> query = em.createQuery(jpql.toString(), entityClass);
+			if (partition < count) {
+				query.setParameter("from", partitioner.from(partition));
+				if (partition < count - 1) {
+					query.setParameter("to", partitioner.to(partition));
+				}
+			}
+			if (after != null) {
+				query.setParameter("after", after);
+			}
+			return query.setMaxResults(chunkSize).getResultList();
+		}
+	}
+
+	/**
+	 * 一次处理的状态
+	 */
+	private class Run {
+
+		private final PartitionHandler<? super M> handler;
+
+		private final Ranges ranges;
+
+		private final PartitionCheckpoint checkpoint;
+
+		private final TransactionTemplate transactionTemplate;
+
+		private final PersistenceUnitUtil persistenceUnitUtil;
+
+		private final Class<?> idType;
+
+		private final AtomicInteger active = new AtomicInteger();
+
+		private final AtomicInteger partitions = new AtomicInteger();
+
+		private final AtomicLong rows = new AtomicLong();
+
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		private final Counter rowCounter;
+
+		private final Counter throttled;
+
+		private Run(PartitionHandler<? super M> handler, Ranges ranges, PartitionCheckpoint checkpoint) {
+			this.handler = handler;
+			this.ranges = ranges;
+			this.checkpoint = checkpoint;
+			this.transactionTemplate = new TransactionTemplate(transactionManager);
+			this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+			this.idType = entityManagerFactory.getMetamodel().entity(entityClass).getIdType().getJavaType();
+			this.rowCounter = Metrics.counter("wakanda.partition.rows", "entity", entityClass.getSimpleName());
+			this.throttled = Metrics.counter("wakanda.partition.throttled", "entity", entityClass.getSimpleName());
+		}
+
+		private void work(Queue<Integer> pending) {
+			while (failure.get() == null) {
+				Integer partition = pending.poll();
+				if (partition == null || !acquire()) {
+					return;
+				}
+				try {
+					if (process(partition)) {
+						if (checkpoint != null) {
+							checkpoint.complete(partition);
+						}
+						partitions.incrementAndGet();
+					}
+				} catch (RuntimeException e) {
+					fail(e);
+				} finally {
+					active.decrementAndGet();
+				}
+			}
+		}
+
+		/**
+		 * @return 分区是否处理完, 其它分区失败时提前返回 false
+		 */
+		private boolean process(int partition) {
+			Object after = checkpoint != null ? position(partition) : null;
+			while (failure.get() == null) {
+				Object from = after;
+				List<M> chunk = transactionTemplate.execute(status -> processChunk(partition, from));
+				rows.addAndGet(chunk.size());
+				rowCounter.increment(chunk.size());
+				if (chunk.size() < chunkSize) {
+					return true;
+				}
+				after = persistenceUnitUtil.getIdentifier(chunk.get(chunk.size() - 1));
+				if (checkpoint != null) {
+					checkpoint.advance(partition, after);
+				}
+			}
+			return false;
+		}
+
+		private List<M> processChunk(int partition, Object after) {
+			List<M> chunk = ranges.next(partition, after);
+			for (M entity : chunk) {
+				try {
+					handler.handle(entity, em);
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new PartitionException("Could not process " + entityClass.getSimpleName() + " "
+							+ entity.getId(), e);
+				}
+			}
+			return chunk;
+		}
+
+		private Object position(int partition) {
+			String position = checkpoint.getPosition(partition);
+			return position != null ? DefaultConversionService.getSharedInstance().convert(position, idType) : null;
+		}
+
+		/**
+		 * 连接池饱和时等待, 直到饱和度回落或没有其它分区在执行
+		 */
+		private boolean acquire() {
+			while (saturation != null && active.get() > 0 && saturation.getAsDouble() >= saturationThreshold) {
+				throttled.increment();
+				try {
+					Thread.sleep(THROTTLE_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					fail(e);
+					return false;
+				}
+			}
+			active.incrementAndGet();
+			return true;
+		}
+
+		private void fail(Throwable e) {
+			if (failure.compareAndSet(null, e)) {
+				logger.error("Processing of {} failed", entityClass.getSimpleName(), e);
+			}
+		}
+	}
+}
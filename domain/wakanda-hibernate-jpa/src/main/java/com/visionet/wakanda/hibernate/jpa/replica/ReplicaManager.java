@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.replica;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 管理 {@link Replicated} 仓库的内存副本, 由一个后台线程定时同步
+ *
+ * 配置快照目录后, 每次同步到变化都把副本写入 {@code <实体类名>.replica}; 重启时先从快照加载, 再只同步快照之后
+ * 修改的行
+ *
+ * <pre>
+ * &#64;Bean
+ * public ReplicaManager replicaManager() {
+ *     return new ReplicaManager(Paths.get("/var/lib/app/replica"));
+ * }
+ * </pre>
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class ReplicaManager implements AutoCloseable {
+
+	private final Path snapshotDirectory;
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "wakanda-replica");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final ConcurrentMap<Class<?>, ReplicaTable<?>> tables = new ConcurrentHashMap<>();
+
+	public ReplicaManager() {
+		this(null);
+	}
+
+	/**
+	 * @param snapshotDirectory 快照目录, 为 null 时不写快照, 重启后全量加载
+	 */
+	public ReplicaManager(Path snapshotDirectory) {
+		this.snapshotDirectory = snapshotDirectory;
+	}
+
+	/**
+	 * 创建并开始同步实体的副本, 同一实体只创建一次
+	 */
+	@SuppressWarnings("unchecked")
+	public <M extends BaseEntity> ReplicaTable<M> register(Class<M> entityClass,
+			EntityManagerFactory entityManagerFactory, Replicated replicated) {
+		return (ReplicaTable<M>) tables.computeIfAbsent(entityClass, type -> {
+			Path snapshot = snapshotDirectory != null ? snapshotDirectory.resolve(entityClass.getName() + ".replica")
+					: null;
+			ReplicaTable<M> table = new ReplicaTable<>(entityClass, entityManagerFactory, replicated.indexes(),
+					replicated.overlap(), replicated.reconcileInterval(), snapshot);
+			table.start(scheduler, replicated.syncInterval());
+			return table;
+		});
+	}
+
+	/**
+	 * @return 实体的副本, 未注册时为 null
+	 */
+	@SuppressWarnings("unchecked")
+	public <M extends BaseEntity> ReplicaTable<M> getTable(Class<M> entityClass) {
+		return (ReplicaTable<M>) tables.get(entityClass);
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.replica;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 副本快照文件
+ *
+ * 文件头记录实体名、属性名与同步水位, 之后每行依次为主键与各属性值; 常见基本类型按标签定长或带长度写入,
+ * 其它值使用 Java 序列化. 读取时以只读方式映射文件, 直接从映射区解码, 不经过流与中间缓冲.
+ * 实体名或属性名与当前映射不一致(表结构变更)时视为没有快照
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+final class ReplicaSnapshot {
+
+	private static final int MAGIC = 0x57524550;
+
+	private static final int FORMAT = 1;
+
+	private static final byte NULL = 0;
+
+	private static final byte STRING = 1;
+
+	private static final byte INTEGER = 2;
+
+	private static final byte LONG = 3;
+
+	private static final byte SHORT = 4;
+
+	private static final byte BYTE = 5;
+
+	private static final byte DOUBLE = 6;
+
+	private static final byte FLOAT = 7;
+
+	private static final byte BOOLEAN = 8;
+
+	private static final byte CHARACTER = 9;
+
+	private static final byte BIG_DECIMAL = 10;
+
+	private static final byte BIG_INTEGER = 11;
+
+	private static final byte DATE = 12;
+
+	private static final byte TIMESTAMP = 13;
+
+	private static final byte SQL_DATE = 14;
+
+	private static final byte TIME = 15;
+
+	private static final byte BYTES = 16;
+
+	private static final byte SERIALIZED = 17;
+
+	private final long watermark;
+
+	private final List<Object[]> rows;
+
+	private ReplicaSnapshot(long watermark, List<Object[]> rows) {
+		this.watermark = watermark;
+		this.rows = rows;
+	}
+
+	/**
+	 * @return 快照时的同步水位, 即最大的修改时间(毫秒)
+	 */
+	long getWatermark() {
+		return watermark;
+	}
+
+	/**
+	 * @return 各行的主键与属性值, 下标 0 为主键
+	 */
+	List<Object[]> getRows() {
+		return rows;
+	}
+
+	/**
+	 * 先写临时文件再原子替换, 写入过程中崩溃不会留下不完整的快照
+	 * @param rows 各行的主键与属性值, 下标 0 为主键
+	 * @throws IllegalArgumentException 存在无法写入的值
+	 */
+	static void write(Path file, String entityName, String[] properties, long watermark, Collection<Object[]> rows)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT);
+		writeString(out, entityName);
+		out.writeInt(properties.length);
+		for (String property : properties) {
+			writeString(out, property);
+		}
+		out.writeLong(watermark);
+		out.writeInt(rows.size());
+		for (Object[] row : rows) {
+			for (Object value : row) {
+				writeValue(out, value);
+			}
+		}
+		out.flush();
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return 快照, 文件不存在或与当前映射不一致时为 null
+	 * @throws IOException 文件损坏或无法读取
+	 */
+	static ReplicaSnapshot read(Path file, String entityName, String[] properties) throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT
+					|| !entityName.equals(readString(buffer))) {
+				return null;
+			}
+			int count = buffer.getInt();
+			if (count != properties.length) {
+				return null;
+			}
+			for (String property : properties) {
+				if (!property.equals(readString(buffer))) {
+					return null;
+				}
+			}
+			long watermark = buffer.getLong();
+			int size = buffer.getInt();
+			List<Object[]> rows = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				Object[] row = new Object[properties.length + 1];
+				for (int j = 0; j < row.length; j++) {
+					row[j] = readValue(buffer);
+				}
+				rows.add(row);
+			}
+			return new ReplicaSnapshot(watermark, rows);
+		} catch (RuntimeException | ClassNotFoundException e) {
+			throw new IOException("Corrupt replica snapshot " + file, e);
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) value);
+		} else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof Character) {
+			out.writeByte(CHARACTER);
+			out.writeChar((Character) value);
+		} else if (value instanceof BigDecimal) {
+			out.writeByte(BIG_DECIMAL);
+			out.writeInt(((BigDecimal) value).scale());
+			writeBytes(out, ((BigDecimal) value).unscaledValue().toByteArray());
+		} else if (value instanceof BigInteger) {
+			out.writeByte(BIG_INTEGER);
+			writeBytes(out, ((BigInteger) value).toByteArray());
+		} else if (value instanceof byte[]) {
+			out.writeByte(BYTES);
+			writeBytes(out, (byte[]) value);
+		} else if (value.getClass() == Timestamp.class) {
+			out.writeByte(TIMESTAMP);
+			out.writeLong(((Timestamp) value).getTime());
+			out.writeInt(((Timestamp) value).getNanos());
+		} else if (value.getClass() == java.sql.Date.class) {
+			out.writeByte(SQL_DATE);
+			out.writeLong(((Date) value).getTime());
+		} else if (value.getClass() == Time.class) {
+			out.writeByte(TIME);
+			out.writeLong(((Date) value).getTime());
+		} else if (value.getClass() == Date.class) {
+			out.writeByte(DATE);
+			out.writeLong(((Date) value).getTime());
+		} else if (value instanceof Serializable) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream serialized = new ObjectOutputStream(bytes)) {
+				serialized.writeObject(value);
+			}
+			out.writeByte(SERIALIZED);
+			writeBytes(out, bytes.toByteArray());
+		} else {
+			throw new IllegalArgumentException("Value of " + value.getClass() + " can not be written to a snapshot");
+		}
+	}
+
+	private static Object readValue(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+		byte tag = buffer.get();
+		switch (tag) {
+			case NULL:
+				return null;
+			case STRING:
+				return readString(buffer);
+			case INTEGER:
+				return buffer.getInt();
+			case LONG:
+				return buffer.getLong();
+			case SHORT:
+				return buffer.getShort();
+			case BYTE:
+				return buffer.get();
+			case DOUBLE:
+				return buffer.getDouble();
+			case FLOAT:
+				return buffer.getFloat();
+			case BOOLEAN:
+				return buffer.get() != 0;
+			case CHARACTER:
+				return buffer.getChar();
+			case BIG_DECIMAL:
+				int scale = buffer.getInt();
+				return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+			case BIG_INTEGER:
+				return new BigInteger(readBytes(buffer));
+			case BYTES:
+				return readBytes(buffer);
+			case TIMESTAMP:
+				Timestamp timestamp = new Timestamp(buffer.getLong());
+				timestamp.setNanos(buffer.getInt());
+				return timestamp;
+			case SQL_DATE:
+				return new java.sql.Date(buffer.getLong());
+			case TIME:
+				return new Time(buffer.getLong());
+			case DATE:
+				return new Date(buffer.getLong());
+			case SERIALIZED:
+				try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes(buffer)))) {
+					return in.readObject();
+				}
+			default:
+				throw new IOException("Unknown value tag " + tag);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		return new String(readBytes(buffer), StandardCharsets.UTF_8);
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return bytes;
+	}
+}
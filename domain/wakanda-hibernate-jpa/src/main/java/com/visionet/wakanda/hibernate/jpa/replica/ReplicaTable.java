@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.replica;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个实体表的内存副本
+ *
+ * 全部行与二级索引保存在不可变的 {@link State} 中, 同步时整体替换, 读取无锁且不访问数据库. 增量同步读取
+ * {@code updatedDate} 不早于水位减重叠时间的行, 按 {@code version} 与 {@code updatedDate} 判断是否变化,
+ * {@code isDeleted} 为 true 的行从副本移除. 提交晚于重叠时间的修改不会被增量读到, 因此每次同步后比较未删除行的
+ * 行数与 {@code version} 之和, 不一致(物理删除、漏掉的修改)时全量重新加载; 不增加 {@code version} 的写入
+ * (批量更新、upsert)由按 {@link Replicated#reconcileInterval()} 的定期全量加载兜底.
+ *
+ * 只复制单列属性, 含关联或集合属性的实体不能复制
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class ReplicaTable<M extends BaseEntity> {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplicaTable.class);
+
+	private static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+
+	private final Class<M> entityClass;
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final EntityPersister persister;
+
+	private final String[] properties;
+
+	private final String[] indexes;
+
+	private final long overlap;
+
+	private final long reconcileInterval;
+
+	private final Path snapshotFile;
+
+	private final Constructor<M> constructor;
+
+	private final Timer syncTimer;
+
+	private final Counter reloads;
+
+	private volatile State<M> state;
+
+	/**
+	 * 上次全量加载的时间, 毫秒
+	 */
+	private volatile long loadedAt;
+
+	ReplicaTable(Class<M> entityClass, EntityManagerFactory entityManagerFactory, String[] indexes, long overlap,
+			long reconcileInterval, Path snapshotFile) {
+		this.entityClass = entityClass;
+		this.entityManagerFactory = entityManagerFactory;
+		this.persister = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMetamodel()
+				.entityPersister(entityClass);
+		this.properties = persister.getPropertyNames();
+		this.indexes = indexes;
+		this.overlap = overlap;
+		this.reconcileInterval = reconcileInterval;
+		this.snapshotFile = snapshotFile;
+		Type[] types = persister.getPropertyTypes();
+		for (int i = 0; i < types.length; i++) {
+			if (types[i].isAssociationType()) {
+				throw new IllegalStateException("Replicated entity " + entityClass.getName()
+						+ " can not have association " + properties[i]);
+			}
+		}
+		for (String index : indexes) {
+			if (!Arrays.asList(properties).contains(index)) {
+				throw new IllegalStateException("Unknown index property " + index + " of " + entityClass.getName());
+			}
+		}
+		try {
+			this.constructor = entityClass.getDeclaredConstructor();
+			this.constructor.setAccessible(true);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Replicated entity " + entityClass.getName()
+					+ " needs a no-arg constructor", e);
+		}
+		String entity = entityClass.getSimpleName();
+		this.syncTimer = Metrics.timer("wakanda.replica.sync", "entity", entity);
+		this.reloads = Metrics.counter("wakanda.replica.reloads", "entity", entity);
+		Metrics.gauge("wakanda.replica.size", Tags.of("entity", entity), this, ReplicaTable::size);
+	}
+
+	/**
+	 * 从快照加载后立即开始第一次同步, 之后按间隔同步
+	 */
+	void start(ScheduledExecutorService scheduler, long syncInterval) {
+		if (snapshotFile != null) {
+			try {
+				ReplicaSnapshot snapshot = ReplicaSnapshot.read(snapshotFile, persister.getEntityName(), properties);
+				if (snapshot != null) {
+					List<M> rows = new ArrayList<>(snapshot.getRows().size());
+					for (Object[] row : snapshot.getRows()) {
+						rows.add(restore(row));
+					}
+					state = new State<>(rows, indexes, persister, snapshot.getWatermark());
+					loadedAt = System.currentTimeMillis();
+					logger.info("Loaded {} rows of {} from snapshot {}", rows.size(), entityClass.getSimpleName(),
+							snapshotFile);
+				}
+			} catch (IOException | RuntimeException e) {
+				logger.warn("Could not load replica snapshot {}, loading from database", snapshotFile, e);
+			}
+		}
+		scheduler.scheduleWithFixedDelay(this::syncQuietly, 0, syncInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return 是否已加载, 加载前读取应访问数据库
+	 */
+	public boolean isReady() {
+		return state != null;
+	}
+
+	/**
+	 * @return 主键对应的实体, 不存在或尚未加载时为 null
+	 */
+	public M get(Object id) {
+		State<M> current = state;
+		return current != null ? current.rows.get(id) : null;
+	}
+
+	/**
+	 * @return 全部未删除的实体, 不可修改
+	 */
+	public List<M> getAll() {
+		State<M> current = state;
+		return current != null ? current.all : Collections.<M>emptyList();
+	}
+
+	/**
+	 * @param index {@link Replicated#indexes()} 中的属性
+	 * @param value 属性值
+	 * @return 属性等于 value 的实体, 不可修改
+	 */
+	public List<M> find(String index, Object value) {
+		State<M> current = state;
+		if (current == null) {
+			return Collections.emptyList();
+		}
+		Map<Object, List<M>> entries = current.indexes.get(index);
+		if (entries == null) {
+			throw new IllegalArgumentException("No replica index " + index + " on " + entityClass.getName());
+		}
+		List<M> result = entries.get(value);
+		return result != null ? result : Collections.<M>emptyList();
+	}
+
+	/**
+	 * @return 唯一索引上属性等于 value 的实体, 不存在时为 null
+	 */
+	public M findOne(String index, Object value) {
+		List<M> result = find(index, value);
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	public int size() {
+		State<M> current = state;
+		return current != null ? current.all.size() : 0;
+	}
+
+	/**
+	 * 通过仓库写入后调用; 事务中的写入在提交后同步, 本节点随后的读取能看到写入
+	 */
+	public void modified() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			syncQuietly();
+			return;
+		}
+		if (TransactionSynchronizationManager.hasResource(this)) {
+			return;
+		}
+		TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(ReplicaTable.this);
+				if (status == STATUS_COMMITTED) {
+					syncQuietly();
+				}
+			}
+		});
+	}
+
+	/**
+	 * 立即同步一次
+	 */
+	public synchronized void sync() {
+		long start = System.nanoTime();
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			State<M> current = state;
+			boolean reconcile = System.currentTimeMillis() - loadedAt >= reconcileInterval;
+			State<M> next = current == null || reconcile ? load(entityManager) : delta(entityManager, current);
+			if (next != current) {
+				state = next;
+				save(next);
+			}
+		} finally {
+			entityManager.close();
+			syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void syncQuietly() {
+		try {
+			sync();
+		} catch (RuntimeException e) {
+			logger.warn("Could not sync replica of {}", entityClass.getSimpleName(), e);
+		}
+	}
+
+	private State<M> load(EntityManager entityManager) {
+		reloads.increment();
+		loadedAt = System.currentTimeMillis();
+		List<M> rows = query(entityManager, "select e from " + persister.getEntityName()
+				+ " e where e.isDeleted is null or e.isDeleted = false", null);
+		long watermark = Long.MIN_VALUE;
+		for (M row : rows) {
+			watermark = Math.max(watermark, modifiedTime(row));
+		}
+		return new State<>(rows, indexes, persister, watermark);
+	}
+
+	private State<M> delta(EntityManager entityManager, State<M> current) {
+		Date since = new Date(current.watermark == Long.MIN_VALUE ? 0 : current.watermark - overlap);
+		List<M> changed = query(entityManager, "select e from " + persister.getEntityName()
+				+ " e where e.updatedDate >= :since", since);
+		Map<Object, M> rows = null;
+		long watermark = current.watermark;
+		for (M row : changed) {
+			watermark = Math.max(watermark, modifiedTime(row));
+			M existing = current.rows.get(row.getId());
+			boolean deleted = Boolean.TRUE.equals(row.getIsDeleted());
+			if (deleted ? existing == null : existing != null && Objects.equals(existing.getVersion(), row.getVersion())
+					&& Objects.equals(existing.getUpdatedDate(), row.getUpdatedDate())) {
+				continue;
+			}
+			if (rows == null) {
+				rows = new LinkedHashMap<>(current.rows);
+			}
+			if (deleted) {
+				rows.remove(row.getId());
+			} else {
+				rows.put(row.getId(), row);
+			}
+		}
+		State<M> next;
+		if (rows == null) {
+			next = watermark == current.watermark ? current
+					: new State<>(current.all, current.rows, current.indexes, current.versions, watermark);
+		} else {
+			next = new State<>(new ArrayList<>(rows.values()), indexes, persister, watermark);
+		}
+		Object[] totals = (Object[]) entityManager.createQuery("select count(e), coalesce(sum(e.version), 0) from "
+				+ persister.getEntityName() + " e where e.isDeleted is null or e.isDeleted = false").getSingleResult();
+		long count = ((Number) totals[0]).longValue();
+		long versions = ((Number) totals[1]).longValue();
+		if (count != next.all.size() || versions != next.versions) {
+			logger.info("Replica of {} has {} rows (version sum {}) but table has {} ({}), reloading",
+					entityClass.getSimpleName(), next.all.size(), next.versions, count, versions);
+			return load(entityManager);
+		}
+		return next;
+	}
+
+	private List<M> query(EntityManager entityManager, String jpql, Date since) {
+		TypedQuery<M> query = entityManager.createQuery(jpql, entityClass);
+		query.setHint(READ_ONLY_HINT, true);
+		if (since != null) {
+			query.setParameter("since", since);
+		}
+		return query.getResultList();
+	}
+
+	private void save(State<M> next) {
+		if (snapshotFile == null) {
+			return;
+		}
+		List<Object[]> rows = new ArrayList<>(next.all.size());
+		for (M entity : next.all) {
+			Object[] values = persister.getPropertyValues(entity);
+			Object[] row = new Object[values.length + 1];
+			row[0] = entity.getId();
+			System.arraycopy(values, 0, row, 1, values.length);
+			rows.add(row);
+		}
+		try {
+			ReplicaSnapshot.write(snapshotFile, persister.getEntityName(), properties, next.watermark, rows);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Could not write replica snapshot {}", snapshotFile, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private M restore(Object[] row) {
+		M entity;
+		try {
+			entity = constructor.newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not instantiate " + entityClass.getName(), e);
+		}
+		entity.setId(row[0]);
+		persister.setPropertyValues(entity, Arrays.copyOfRange(row, 1, row.length));
+		return entity;
+	}
+
+	private static long modifiedTime(BaseEntity entity) {
+		Date modified = entity.getUpdatedDate() != null ? entity.getUpdatedDate() : entity.getCreatedDate();
+		return modified != null ? modified.getTime() : Long.MIN_VALUE;
+	}
+
+	/**
+	 * 某一时刻的副本, 创建后不再修改
+	 */
+	private static final class State<M extends BaseEntity> {
+
+		private final List<M> all;
+
+		private final Map<Object, M> rows;
+
+		private final Map<String, Map<Object, List<M>>> indexes;
+
+		private final long watermark;
+
+		/**
+		 * 全部行的 {@code version} 之和, 与数据库比较以发现增量同步漏掉的修改
+		 */
+		private final long versions;
+
+		private State(List<M> all, String[] indexes, EntityPersister persister, long watermark) {
+			Map<Object, M> rows = new HashMap<>(all.size() * 4 / 3 + 1);
+			Map<String, Map<Object, List<M>>> entries = new HashMap<>();
+			for (String index : indexes) {
+				entries.put(index, new HashMap<>());
+			}
+			long versions = 0;
+			for (M entity : all) {
+				rows.put(entity.getId(), entity);
+				versions += entity.getVersion() != null ? entity.getVersion() : 0;
+				for (String index : indexes) {
+					entries.get(index).computeIfAbsent(persister.getPropertyValue(entity, index),
+							value -> new ArrayList<>(1)).add(entity);
+				}
+			}
+			for (Map<Object, List<M>> index : entries.values()) {
+				index.replaceAll((value, list) -> Collections.unmodifiableList(list));
+			}
+			this.all = Collections.unmodifiableList(all);
+			this.rows = rows;
+			this.indexes = entries;
+			this.versions = versions;
+			this.watermark = watermark;
+		}
+
+		private State(List<M> all, Map<Object, M> rows, Map<String, Map<Object, List<M>>> indexes, long versions,
+				long watermark) {
+			this.all = all;
+			this.rows = rows;
+			this.indexes = indexes;
+			this.versions = versions;
+			this.watermark = watermark;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.replica;
+
+import java.lang.annotation.*;
+
+/**
+ * 标注在仓库接口上, 在每个节点的内存中保存该实体表的完整副本, 用于字典、配置等小而读多写少的表
+ *
+ * 容器中存在 {@link ReplicaManager} 时生效: 只读事务或事务外的 {@code findById}、{@code findAll}、{@code count}
+ * 等直接读取副本, 不访问数据库; 副本按 {@code updatedDate} 增量同步, 软删除的行从副本中移除, 访问数据库的读取
+ * 同样不返回软删除的行.
+ * 副本中的实体为所有调用方共享的游离对象, 只能读取, 修改应在读写事务中重新查询
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Replicated {
+
+	/**
+	 * @return 建立二级索引的属性, 通过 {@link ReplicaTable#find(String, Object)} 查找
+	 */
+	String[] indexes() default {};
+
+	/**
+	 * @return 增量同步间隔, 毫秒
+	 */
+	long syncInterval() default 5000;
+
+	/**
+	 * @return 增量同步时向前重叠的时间, 毫秒; 覆盖各节点的时钟偏差与提交晚于修改时间的事务
+	 */
+	long overlap() default 10000;
+
+	/**
+	 * @return 定期全量加载的间隔, 毫秒; 兜底增量同步与行数、版本校验都发现不了的修改
+	 */
+	long reconcileInterval() default 600000;
+}
@@ -4,6 +4,9 @@ import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author TC.Ubuntu
  * @DESCRIPTION ${DESCRIPTION}
@@ -12,4 +15,19 @@ import org.springframework.data.repository.NoRepositoryBean;
 @NoRepositoryBean
 public interface BaseRepository<M extends BaseEntity, T> extends JpaRepository<M, T> {
 
+	/**
+	 * 以单条语句插入或更新已分配主键的实体(MySQL 为 INSERT ... ON DUPLICATE KEY UPDATE),
+	 * 不像 {@code save} 那样先 SELECT 再 UPDATE; 数据库不支持时退化为 {@code save}
+	 * @param entity 已分配主键的实体
+	 * @return entity
+	 */
+	<S extends M> S upsert(S entity);
+
+	/**
+	 * 批量 upsert, 按 {@code hibernate.jdbc.batch_size} 分批执行
+	 * @param entities 已分配主键的实体
+	 * @return entities
+	 */
+	<S extends M> List<S> upsertAll(Collection<S> entities);
+
 }
@@ -4,20 +4,67 @@
  */
 package com.visionet.wakanda.hibernate.jpa.repository;
 
+import com.visionet.wakanda.hibernate.jpa.admission.AdmissionController;
+import com.visionet.wakanda.hibernate.jpa.admission.AdmissionInterceptor;
+import com.visionet.wakanda.hibernate.jpa.cache.QueryCacheInterceptor;
+import com.visionet.wakanda.hibernate.jpa.cache.QueryCacheManager;
 import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.replica.ReplicaManager;
+import com.visionet.wakanda.hibernate.jpa.replica.Replicated;
+import com.visionet.wakanda.hibernate.jpa.repository.impl.ReplicatedBaseRepository;
+import com.visionet.wakanda.hibernate.jpa.repository.impl.ShardedBaseRepository;
 import com.visionet.wakanda.hibernate.jpa.repository.impl.SimpleBaseRepository;
+import com.visionet.wakanda.hibernate.jpa.repository.impl.WriteBehindBaseRepository;
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeInterceptor;
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeProvider;
+import com.visionet.wakanda.hibernate.jpa.shard.ShardMap;
+import com.visionet.wakanda.hibernate.jpa.shard.Sharded;
+import com.visionet.wakanda.hibernate.jpa.writebehind.WriteBehind;
+import com.visionet.wakanda.hibernate.jpa.writebehind.WriteBehindBuffer;
+import com.visionet.wakanda.hibernate.jpa.writebehind.WriteBehindFailureHandler;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.auditing.AuditingHandler;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
 import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.data.jpa.repository.support.JpaRepositoryImplementation;
+import org.springframework.data.repository.core.RepositoryInformation;
 import org.springframework.data.repository.core.RepositoryMetadata;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.persistence.EntityManager;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SimpleBaseRepositoryFactoryBean<R extends JpaRepository<M, ID>, M extends BaseEntity, ID>
-		extends JpaRepositoryFactoryBean<R, M, ID> {
+		extends JpaRepositoryFactoryBean<R, M, ID> implements DisposableBean {
+
+	private ShardMap shardMap;
+
+	private AuditingHandler auditingHandler;
+
+	private QueryCacheManager queryCacheManager;
+
+	private AdmissionController admissionController;
+
+	private DataScopeProvider dataScopeProvider;
+
+	private ReplicaManager replicaManager;
+
+	private BeanFactory beanFactory;
+
+	private String transactionManagerName = "transactionManager";
+
+	private WriteBehindFailureHandler writeBehindFailureHandler;
+
+	private WriteBehindBuffer<?> writeBehindBuffer;
 
 	/**
 	 * Creates a new {@link JpaRepositoryFactoryBean} for the given repository interface.
@@ -28,6 +75,95 @@ public class SimpleBaseRepositoryFactoryBean<R extends JpaRepository<M, ID>, M e
 		super(repositoryInterface);
 	}
 
+	/**
+	 * 配置分片后, 标注 {@link Sharded} 的实体使用 {@link ShardedBaseRepository}
+	 * @param shardMap 分片配置
+	 */
+	@Autowired(required = false)
+	public void setShardMap(ShardMap shardMap) {
+		this.shardMap = shardMap;
+	}
+
+	/**
+	 * upsert 绕过 JPA 回调, 需要由仓库直接填写审计字段
+	 * @param auditingHandler {@code @EnableJpaAuditing} 注册的审计处理器
+	 */
+	@Autowired
+	public void setAuditingHandler(ObjectProvider<AuditingHandler> auditingHandler) {
+		this.auditingHandler = auditingHandler.getIfUnique();
+	}
+
+	/**
+	 * 配置后仓库的写入会使查询缓存失效, 标注 {@link com.visionet.wakanda.hibernate.jpa.cache.QueryCache}
+	 * 的查询会缓存结果
+	 * @param queryCacheManager 查询缓存
+	 */
+	@Autowired(required = false)
+	public void setQueryCacheManager(QueryCacheManager queryCacheManager) {
+		this.queryCacheManager = queryCacheManager;
+	}
+
+	/**
+	 * 配置后仓库调用经过准入控制, 命中查询缓存的调用不占用许可
+	 * @param admissionController 准入控制
+	 */
+	@Autowired(required = false)
+	public void setAdmissionController(AdmissionController admissionController) {
+		this.admissionController = admissionController;
+	}
+
+	/**
+	 * 配置后仓库的查询、count 与删除只作用于当前调用者可见的行, 受限的调用不使用查询缓存;
+	 * 过滤器无法生效的调用(原生 SQL、{@code @Modifying} 查询、分片仓库)受限时拒绝执行
+	 * @param dataScopeProvider 数据范围
+	 */
+	@Autowired(required = false)
+	public void setDataScopeProvider(DataScopeProvider dataScopeProvider) {
+		this.dataScopeProvider = dataScopeProvider;
+	}
+
+	/**
+	 * 配置后标注 {@link Replicated} 的仓库使用 {@link ReplicatedBaseRepository}, 从内存副本读取
+	 * @param replicaManager 副本管理
+	 */
+	@Autowired(required = false)
+	public void setReplicaManager(ReplicaManager replicaManager) {
+		this.replicaManager = replicaManager;
+	}
+
+	/**
+	 * 配置后 {@link WriteBehind} 缓冲区写入失败的实体交给该处理器, 否则保留在缓冲区的死信队列中
+	 * @param writeBehindFailureHandler 写入失败处理
+	 */
+	@Autowired(required = false)
+	public void setWriteBehindFailureHandler(WriteBehindFailureHandler writeBehindFailureHandler) {
+		this.writeBehindFailureHandler = writeBehindFailureHandler;
+	}
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		super.setBeanFactory(beanFactory);
+		this.beanFactory = beanFactory;
+	}
+
+	@Override
+	public void setTransactionManager(String transactionManager) {
+		super.setTransactionManager(transactionManager);
+		if (transactionManager != null) {
+			this.transactionManagerName = transactionManager;
+		}
+	}
+
+	/**
+	 * 关闭时写完 {@link WriteBehind} 缓冲区中的实体
+	 */
+	@Override
+	public void destroy() {
+		if (writeBehindBuffer != null) {
+			writeBehindBuffer.close();
+		}
+	}
+
 	protected RepositoryFactorySupport createRepositoryFactory(EntityManager entityManager) {
 		return new SimpleBaseRepositoryFactory<M, ID>(entityManager);
 	}
@@ -38,12 +174,63 @@ public class SimpleBaseRepositoryFactoryBean<R extends JpaRepository<M, ID>, M e
 		private SimpleBaseRepositoryFactory(EntityManager entityManager) {
 			super(entityManager);
 			this.entityManager = entityManager;
+			if (dataScopeProvider != null) {
+				addRepositoryProxyPostProcessor((factory, information) -> factory.addAdvice(new DataScopeInterceptor(
+						dataScopeProvider, entityManager.getEntityManagerFactory(),
+						() -> beanFactory.getBean(transactionManagerName, PlatformTransactionManager.class))));
+			}
+			if (queryCacheManager != null) {
+				addRepositoryProxyPostProcessor((factory, information) -> factory.addAdvice(new QueryCacheInterceptor(
+						queryCacheManager, information.getRepositoryInterface(), information.getDomainType())));
+			}
+			if (admissionController != null) {
+				addRepositoryProxyPostProcessor((factory, information) -> factory.addAdvice(
+						new AdmissionInterceptor(admissionController, information.getRepositoryInterface())));
+			}
 		}
 
+		@Override
 		@SuppressWarnings({"unchecked"})
-		protected Object getTargetRepository(RepositoryMetadata metadata) {
-			JpaEntityInformation<M, T> entityInformation = getEntityInformation((Class<M>) metadata.getDomainType());
-			return new SimpleBaseRepository<M, T>(entityInformation, entityManager);
+		protected JpaRepositoryImplementation<?, ?> getTargetRepository(
+				RepositoryInformation information, EntityManager entityManager) {
+			Class<M> domainType = (Class<M>) information.getDomainType();
+			JpaEntityInformation<M, T> entityInformation = getEntityInformation(domainType);
+			SimpleBaseRepository<M, T> repository;
+			WriteBehind writeBehind = information.getRepositoryInterface().getAnnotation(WriteBehind.class);
+			Replicated replicated = information.getRepositoryInterface().getAnnotation(Replicated.class);
+			if (shardMap != null && domainType.isAnnotationPresent(Sharded.class)) {
+				rejectQueryMethods(information);
+				repository = new ShardedBaseRepository<M, T>(entityInformation, shardMap);
+			} else if (writeBehind != null) {
+				PlatformTransactionManager transactionManager =
+						beanFactory.getBean(transactionManagerName, PlatformTransactionManager.class);
+				WriteBehindBuffer<M> buffer = new WriteBehindBuffer<M>(
+						information.getRepositoryInterface().getSimpleName(), writeBehind, entityManager,
+						transactionManager);
+				buffer.setFailureHandler(writeBehindFailureHandler);
+				writeBehindBuffer = buffer;
+				repository = new WriteBehindBaseRepository<M, T>(entityInformation, entityManager, buffer);
+			} else if (replicated != null && replicaManager != null) {
+				repository = new ReplicatedBaseRepository<M, T>(entityInformation, entityManager,
+						replicaManager.register(domainType, entityManager.getEntityManagerFactory(), replicated));
+			} else {
+				repository = new SimpleBaseRepository<M, T>(entityInformation, entityManager);
+			}
+			repository.setAuditingHandler(auditingHandler);
+			return repository;
+		}
+
+		/**
+		 * 派生查询与 {@code @Query} 方法只会在主 EntityManager 上执行, 分片仓库中不允许声明
+		 */
+		private void rejectQueryMethods(RepositoryInformation information) {
+			List<String> queryMethods = new ArrayList<>();
+			information.getQueryMethods().forEach(method -> queryMethods.add(method.getName()));
+			if (!queryMethods.isEmpty()) {
+				throw new IllegalStateException("@Sharded repository " + information.getRepositoryInterface().getName()
+						+ " declares query methods " + queryMethods + ", which would only run against the first shard;"
+						+ " use Specification or Example queries instead");
+			}
 		}
 
 		protected Class<?> getRepositoryBaseClass(RepositoryMetadata metadata) {
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.repository.impl;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.replica.ReplicaTable;
+import com.visionet.wakanda.hibernate.jpa.replica.Replicated;
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeFilters;
+import com.visionet.wakanda.hibernate.jpa.shard.SortComparator;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 从内存副本读取的仓库, 见 {@link Replicated}
+ *
+ * 读取方法不开启事务; 副本加载完成前、数据范围受限时以及读写事务中仍访问数据库, 读写事务中取得的实体
+ * 处于持久化状态, 修改照常提交. 两种读取都不返回软删除的行. 写入直接访问数据库, 提交后同步副本
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class ReplicatedBaseRepository<M extends BaseEntity, T> extends SimpleBaseRepository<M, T> {
+
+	/**
+	 * {@link BaseEntity} 的软删除标记
+	 */
+	private static final String DELETED = "isDeleted";
+
+	private final ReplicaTable<M> replica;
+
+	public ReplicatedBaseRepository(JpaEntityInformation<M, ?> entityInformation, EntityManager entityManager,
+			ReplicaTable<M> replica) {
+		super(entityInformation, entityManager);
+		this.replica = replica;
+	}
+
+	public ReplicaTable<M> getReplica() {
+		return replica;
+	}
+
+	// 读取
+	//-------------------------------------------------------------------
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public Optional<M> findById(T id) {
+		Assert.notNull(id, "The given id must not be null!");
+		if (!useReplica()) {
+			return findOne(notDeleted().and(hasId(id)));
+		}
+		return Optional.ofNullable(replica.get(id));
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public M getOne(T id) {
+		return findById(id).orElseThrow(() -> new EntityNotFoundException(
+				"Unable to find " + getEntityClass().getName() + " with id " + id));
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public boolean existsById(T id) {
+		Assert.notNull(id, "The given id must not be null!");
+		if (!useReplica()) {
+			return count(notDeleted().and(hasId(id))) > 0;
+		}
+		return replica.get(id) != null;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public List<M> findAll() {
+		return useReplica() ? new ArrayList<>(replica.getAll()) : findAll(notDeleted());
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public List<M> findAll(Sort sort) {
+		if (!useReplica()) {
+			return findAll(notDeleted(), sort);
+		}
+		List<M> result = new ArrayList<>(replica.getAll());
+		if (sort.isSorted()) {
+			result.sort(new SortComparator<>(sort));
+		}
+		return result;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public List<M> findAllById(Iterable<T> ids) {
+		Assert.notNull(ids, "The given Iterable of Id's must not be null!");
+		if (!useReplica()) {
+			List<T> values = new ArrayList<>();
+			ids.forEach(values::add);
+			return values.isEmpty() ? new ArrayList<>() : findAll(notDeleted().and(hasIdIn(values)));
+		}
+		List<M> result = ids instanceof Collection ? new ArrayList<>(((Collection<?>) ids).size()) : new ArrayList<>();
+		for (T id : ids) {
+			M entity = replica.get(id);
+			if (entity != null) {
+				result.add(entity);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public long count() {
+		return useReplica() ? replica.size() : count(notDeleted());
+	}
+
+	// 写入: 提交后同步副本
+	//-------------------------------------------------------------------
+
+	@Override
+	@Transactional
+	public <S extends M> S save(S entity) {
+		S result = super.save(entity);
+		replica.modified();
+		return result;
+	}
+
+	@Override
+	@Transactional
+	public void delete(M entity) {
+		super.delete(entity);
+		replica.modified();
+	}
+
+	@Override
+	@Transactional
+	public void deleteInBatch(Iterable<M> entities) {
+		super.deleteInBatch(entities);
+		replica.modified();
+	}
+
+	@Override
+	@Transactional
+	public void deleteAllInBatch() {
+		super.deleteAllInBatch();
+		replica.modified();
+	}
+
+	@Override
+	@Transactional
+	public <S extends M> List<S> upsertAll(Collection<S> entities) {
+		List<S> result = super.upsertAll(entities);
+		replica.modified();
+		return result;
+	}
+
+	private Specification<M> notDeleted() {
+		return (root, query, builder) -> builder.or(builder.isNull(root.get(DELETED)),
+				builder.isFalse(root.get(DELETED)));
+	}
+
+	private Specification<M> hasId(T id) {
+		return (root, query, builder) -> builder.equal(
+				root.get(getEntityInformation().getIdAttribute().getName()), id);
+	}
+
+	private Specification<M> hasIdIn(Collection<T> ids) {
+		return (root, query, builder) -> root.get(getEntityInformation().getIdAttribute().getName()).in(ids);
+	}
+
+	/**
+	 * 副本中是软删除后的数据且不受数据范围限制; 读写事务中的读取可能随后修改实体, 需要持久化状态的对象
+	 */
+	private boolean useReplica() {
+		return replica.isReady() && DataScopeFilters.current() == null
+				&& (!TransactionSynchronizationManager.isActualTransactionActive()
+				|| TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+	}
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.repository.impl;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeFilters;
+import com.visionet.wakanda.hibernate.jpa.shard.ShardMap;
+import com.visionet.wakanda.hibernate.jpa.shard.SortComparator;
+import com.visionet.wakanda.hibernate.jpa.support.AssignableGuidGenerator;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.auditing.AuditingHandler;
+import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 按主键分片的仓库
+ *
+ * 按主键的读写({@code findById}/{@code save}/{@code delete})直接路由到所在分片, 每次调用在该分片的独立事务中执行;
+ * 全表查询与统计在所有分片上并行执行后合并, 带 {@link Sort} 时按排序归并. 新实体在写入前分配 UUID 主键以确定分片
+ *
+ * 数据范围只在主 EntityManager 上启用, 分片上无法生效, 受限的调用直接拒绝
+ *
+ * @author pangcaijie
+ * @since 2019/5/6.
+ */
+public class ShardedBaseRepository<M extends BaseEntity, T> extends SimpleBaseRepository<M, T> {
+
+	private final ShardMap shardMap;
+
+	private final List<SimpleBaseRepository<M, T>> repositories;
+
+	private final List<TransactionTemplate> writeTemplates;
+
+	private final List<TransactionTemplate> readTemplates;
+
+	public ShardedBaseRepository(JpaEntityInformation<M, ?> entityInformation, ShardMap shardMap) {
+		super(entityInformation, shardMap.getShards().get(0).getEntityManager());
+		this.shardMap = shardMap;
+		this.repositories = new ArrayList<>(shardMap.size());
+		this.writeTemplates = new ArrayList<>(shardMap.size());
+		this.readTemplates = new ArrayList<>(shardMap.size());
+		for (ShardMap.Shard shard : shardMap.getShards()) {
+			repositories.add(new SimpleBaseRepository<>(entityInformation, shard.getEntityManager()));
+			writeTemplates.add(new TransactionTemplate(shard.getTransactionManager()));
+			TransactionTemplate readTemplate = new TransactionTemplate(shard.getTransactionManager());
+			readTemplate.setReadOnly(true);
+			readTemplates.add(readTemplate);
+		}
+	}
+
+	// 单分片路由
+	//-------------------------------------------------------------------
+
+	@Override
+	public Optional<M> findById(T id) {
+		return read(shardIndex(id), repository -> repository.findById(id));
+	}
+
+	@Override
+	public M getOne(T id) {
+		// 分片事务在返回前已经结束, 不能返回延迟加载的代理
+		return findById(id).orElseThrow(() -> new EntityNotFoundException(
+				"Unable to find " + getEntityClass().getName() + " with id " + id));
+	}
+
+	@Override
+	public boolean existsById(T id) {
+		return read(shardIndex(id), repository -> repository.existsById(id));
+	}
+
+	@Override
+	public <S extends M> S save(S entity) {
+		return write(shardIndex(assignId(entity)), repository -> repository.save(entity));
+	}
+
+	@Override
+	public <S extends M> S saveAndFlush(S entity) {
+		return write(shardIndex(assignId(entity)), repository -> repository.saveAndFlush(entity));
+	}
+
+	@Override
+	public <S extends M> List<S> saveAll(Iterable<S> entities) {
+		Assert.notNull(entities, "The given Iterable of entities not be null!");
+		Map<Integer, List<S>> grouped = new TreeMap<>();
+		for (S entity : entities) {
+			grouped.computeIfAbsent(shardIndex(assignId(entity)), key -> new ArrayList<>()).add(entity);
+		}
+		List<S> result = new ArrayList<>();
+		for (Map.Entry<Integer, List<S>> entry : grouped.entrySet()) {
+			result.addAll(write(entry.getKey(), repository -> repository.saveAll(entry.getValue())));
+		}
+		return result;
+	}
+
+	@Override
+	public void setAuditingHandler(AuditingHandler auditingHandler) {
+		super.setAuditingHandler(auditingHandler);
+		for (SimpleBaseRepository<M, T> repository : repositories) {
+			repository.setAuditingHandler(auditingHandler);
+		}
+	}
+
+	@Override
+	public <S extends M> S upsert(S entity) {
+		return write(shardIndex(entityId(entity)), repository -> repository.upsert(entity));
+	}
+
+	@Override
+	public <S extends M> List<S> upsertAll(Collection<S> entities) {
+		Assert.notNull(entities, "The given Collection of entities not be null!");
+		Map<Integer, List<S>> grouped = new TreeMap<>();
+		for (S entity : entities) {
+			grouped.computeIfAbsent(shardIndex(entityId(entity)), key -> new ArrayList<>()).add(entity);
+		}
+		List<S> result = new ArrayList<>(entities.size());
+		for (Map.Entry<Integer, List<S>> entry : grouped.entrySet()) {
+			result.addAll(write(entry.getKey(), repository -> repository.upsertAll(entry.getValue())));
+		}
+		return result;
+	}
+
+	@Override
+	public void deleteById(T id) {
+		write(shardIndex(id), repository -> {
+			repository.deleteById(id);
+			return null;
+		});
+	}
+
+	@Override
+	public void delete(M entity) {
+		write(shardIndex(entityId(entity)), repository -> {
+			repository.delete(entity);
+			return null;
+		});
+	}
+
+	@Override
+	public void deleteAll(Iterable<? extends M> entities) {
+		Assert.notNull(entities, "The given Iterable of entities not be null!");
+		for (M entity : entities) {
+			delete(entity);
+		}
+	}
+
+	@Override
+	public void deleteInBatch(Iterable<M> entities) {
+		Assert.notNull(entities, "The given Iterable of entities not be null!");
+		Map<Integer, List<M>> grouped = new TreeMap<>();
+		for (M entity : entities) {
+			grouped.computeIfAbsent(shardIndex(entityId(entity)), key -> new ArrayList<>()).add(entity);
+		}
+		for (Map.Entry<Integer, List<M>> entry : grouped.entrySet()) {
+			write(entry.getKey(), repository -> {
+				repository.deleteInBatch(entry.getValue());
+				return null;
+			});
+		}
+	}
+
+	@Override
+	public void flush() {
+		// 每次调用都在分片事务内提交, 没有需要刷新的状态
+	}
+
+	// 多分片并行
+	//-------------------------------------------------------------------
+
+	@Override
+	public List<M> findAll() {
+		return gather(repository -> repository.findAll(), null);
+	}
+
+	@Override
+	public List<M> findAll(Sort sort) {
+		return gather(repository -> repository.findAll(sort), sort);
+	}
+
+	@Override
+	public Page<M> findAll(Pageable pageable) {
+		return gatherPage(pageable, repository -> repository.findAll(pageable(pageable)));
+	}
+
+	@Override
+	public List<M> findAllById(Iterable<T> ids) {
+		Assert.notNull(ids, "The given Iterable of Id's must not be null!");
+		Map<Integer, List<T>> grouped = new TreeMap<>();
+		for (T id : ids) {
+			grouped.computeIfAbsent(shardIndex(id), key -> new ArrayList<>()).add(id);
+		}
+		List<M> result = new ArrayList<>();
+		for (Map.Entry<Integer, List<T>> entry : grouped.entrySet()) {
+			result.addAll(read(entry.getKey(), repository -> repository.findAllById(entry.getValue())));
+		}
+		return result;
+	}
+
+	@Override
+	public long count() {
+		return sum(repository -> repository.count());
+	}
+
+	@Override
+	public Optional<M> findOne(Specification<M> spec) {
+		return single(gather(repository -> repository.findAll(spec), null));
+	}
+
+	@Override
+	public List<M> findAll(Specification<M> spec) {
+		return gather(repository -> repository.findAll(spec), null);
+	}
+
+	@Override
+	public Page<M> findAll(Specification<M> spec, Pageable pageable) {
+		return gatherPage(pageable, repository -> repository.findAll(spec, pageable(pageable)));
+	}
+
+	@Override
+	public List<M> findAll(Specification<M> spec, Sort sort) {
+		return gather(repository -> repository.findAll(spec, sort), sort);
+	}
+
+	@Override
+	public long count(Specification<M> spec) {
+		return sum(repository -> repository.count(spec));
+	}
+
+	@Override
+	public <S extends M> Optional<S> findOne(Example<S> example) {
+		return single(gather(repository -> repository.findAll(example), null));
+	}
+
+	@Override
+	public <S extends M> long count(Example<S> example) {
+		return sum(repository -> repository.count(example));
+	}
+
+	@Override
+	public <S extends M> boolean exists(Example<S> example) {
+		return count(example) > 0;
+	}
+
+	@Override
+	public <S extends M> List<S> findAll(Example<S> example) {
+		return gather(repository -> repository.findAll(example), null);
+	}
+
+	@Override
+	public <S extends M> List<S> findAll(Example<S> example, Sort sort) {
+		return gather(repository -> repository.findAll(example, sort), sort);
+	}
+
+	@Override
+	public <S extends M> Page<S> findAll(Example<S> example, Pageable pageable) {
+		return gatherPage(pageable, repository -> repository.findAll(example, pageable(pageable)));
+	}
+
+	@Override
+	public void deleteAll() {
+		broadcast(repository -> {
+			repository.deleteAll();
+			return null;
+		});
+	}
+
+	@Override
+	public void deleteAllInBatch() {
+		broadcast(repository -> {
+			repository.deleteAllInBatch();
+			return null;
+		});
+	}
+
+	// 内部方法
+	//-------------------------------------------------------------------
+
+	private int shardIndex(Object id) {
+		return shardMap.shardOf(id).getIndex();
+	}
+
+	private Object entityId(M entity) {
+		Assert.notNull(entity, "The entity must not be null!");
+		Object id = getEntityInformation().getId(entity);
+		Assert.notNull(id, "The entity must have an id to be routed to a shard!");
+		return id;
+	}
+
+	private Object assignId(M entity) {
+		Assert.notNull(entity, "Entity must not be null.");
+		Object id = AssignableGuidGenerator.assign(entity);
+		Assert.notNull(id, "Sharded entities with non-String ids must have their id assigned before save");
+		return id;
+	}
+
+	private <R> R read(int shard, Function<SimpleBaseRepository<M, T>, R> action) {
+		rejectScoped();
+		return readTemplates.get(shard).execute(status -> action.apply(repositories.get(shard)));
+	}
+
+	private <R> R write(int shard, Function<SimpleBaseRepository<M, T>, R> action) {
+		rejectScoped();
+		return writeTemplates.get(shard).execute(status -> action.apply(repositories.get(shard)));
+	}
+
+	private <R> List<R> scatter(Function<SimpleBaseRepository<M, T>, R> action, boolean readOnly) {
+		rejectScoped();
+		List<CompletableFuture<R>> futures = new ArrayList<>(repositories.size());
+		for (int i = 0; i < repositories.size(); i++) {
+			final int shard = i;
+			futures.add(CompletableFuture.supplyAsync(
+					() -> readOnly ? read(shard, action) : write(shard, action), shardMap.getExecutor()));
+		}
+		List<R> results = new ArrayList<>(futures.size());
+		for (CompletableFuture<R> future : futures) {
+			results.add(future.join());
+		}
+		return results;
+	}
+
+	private void rejectScoped() {
+		if (DataScopeFilters.current() != null) {
+			throw new InvalidDataAccessApiUsageException("Data scopes cannot be applied to @Sharded entity "
+					+ getEntityClass().getName() + "; run the call unrestricted or remove the scope");
+		}
+	}
+
+	private void broadcast(Function<SimpleBaseRepository<M, T>, Void> action) {
+		scatter(action, false);
+	}
+
+	private long sum(Function<SimpleBaseRepository<M, T>, Long> action) {
+		long total = 0;
+		for (Long count : scatter(action, true)) {
+			total += count;
+		}
+		return total;
+	}
+
+	private <S> List<S> gather(Function<SimpleBaseRepository<M, T>, List<S>> action, Sort sort) {
+		List<List<S>> results = scatter(action, true);
+		boolean sorted = sort != null && sort.isSorted();
+		return SortComparator.merge(results, sorted ? new SortComparator<>(sort) : null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * 每个分片取前 (page + 1) * size 条, 归并后截取目标页
+	 */
+	private <S> Page<S> gatherPage(Pageable pageable, Function<SimpleBaseRepository<M, T>, Page<S>> action) {
+		if (pageable.isUnpaged()) {
+			List<S> content = gather(repository -> action.apply(repository).getContent(), pageable.getSort());
+			return new PageImpl<>(content);
+		}
+		List<Page<S>> pages = scatter(action, true);
+		List<List<S>> contents = new ArrayList<>(pages.size());
+		long total = 0;
+		for (Page<S> page : pages) {
+			contents.add(page.getContent());
+			total += page.getTotalElements();
+		}
+		Sort sort = pageable.getSort();
+		List<S> merged = SortComparator.merge(contents, sort.isSorted() ? new SortComparator<>(sort) : null,
+				(int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize()));
+		int from = (int) Math.min(merged.size(), pageable.getOffset());
+		return new PageImpl<>(new ArrayList<>(merged.subList(from, merged.size())), pageable, total);
+	}
+
+	private Pageable pageable(Pageable pageable) {
+		if (pageable.isUnpaged()) {
+			return pageable;
+		}
+		return PageRequest.of(0, (pageable.getPageNumber() + 1) * pageable.getPageSize(), pageable.getSort());
+	}
+
+	private <S> Optional<S> single(List<S> results) {
+		if (results.size() > 1) {
+			throw new IncorrectResultSizeDataAccessException(1, results.size());
+		}
+		return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+	}
+}
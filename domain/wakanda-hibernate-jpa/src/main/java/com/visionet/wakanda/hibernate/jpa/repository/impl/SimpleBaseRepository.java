@@ -6,26 +6,203 @@ package com.visionet.wakanda.hibernate.jpa.repository.impl;
 
 import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
 import com.visionet.wakanda.hibernate.jpa.repository.BaseRepository;
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeFilters;
+import com.visionet.wakanda.hibernate.jpa.upsert.EntityUpserter;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.data.auditing.AuditingHandler;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.*;
 
 /**
  * @author pangcaijie
  * @since 2019/3/16.
  */
-public class SimpleBaseRepository<M extends BaseEntity, T> extends SimpleJpaRepository implements BaseRepository {
+public class SimpleBaseRepository<M extends BaseEntity, T> extends SimpleJpaRepository<M, T>
+		implements BaseRepository<M, T> {
 
 	private final EntityManager em;
 
-	private final JpaEntityInformation<M, String> entityInformation;
+	private final JpaEntityInformation<M, ?> entityInformation;
 
-	private Class<M> entityClass;
+	private final Class<M> entityClass;
 
-	public SimpleBaseRepository(JpaEntityInformation entityInformation, EntityManager entityManager) {
+	private AuditingHandler auditingHandler;
+
+	private volatile EntityUpserter upserter;
+
+	public SimpleBaseRepository(JpaEntityInformation<M, ?> entityInformation, EntityManager entityManager) {
 		super(entityInformation, entityManager);
 		this.em = entityManager;
 		this.entityInformation = entityInformation;
+		this.entityClass = entityInformation.getJavaType();
+	}
+
+	/**
+	 * upsert 不经过 JPA 生命周期回调, 由仓库直接填写审计字段
+	 * @param auditingHandler {@code @EnableJpaAuditing} 注册的审计处理器
+	 */
+	public void setAuditingHandler(AuditingHandler auditingHandler) {
+		this.auditingHandler = auditingHandler;
+	}
+
+	@Override
+	@Transactional
+	public <S extends M> S upsert(S entity) {
+		Assert.notNull(entity, "Entity must not be null.");
+		upsertAll(Collections.singletonList(entity));
+		return entity;
+	}
+
+	@Override
+	@Transactional
+	public <S extends M> List<S> upsertAll(Collection<S> entities) {
+		Assert.notNull(entities, "The given Collection of entities not be null!");
+		EntityUpserter upserter = getUpserter();
+		if (!upserter.isSupported()) {
+			List<S> result = new ArrayList<>(entities.size());
+			for (S entity : entities) {
+				result.add(save(entity));
+			}
+			return result;
+		}
+		if (auditingHandler != null) {
+			// 新行写入创建与修改信息, 已存在的行只更新修改信息(创建列 updatable = false)
+			for (S entity : entities) {
+				auditingHandler.markCreated(entity);
+			}
+		}
+		upserter.upsert(em.unwrap(SessionImplementor.class), entities);
+		return new ArrayList<>(entities);
+	}
+
+	// 数据范围: em.find/getReference/merge 与批量删除不应用 Hibernate 过滤器, 受限时改用查询.
+	// deleteById/deleteAll 经由 findById/findAll 与 delete(M), 同样受限
+	//-------------------------------------------------------------------
+
+	@Override
+	public Optional<M> findById(T id) {
+		if (DataScopeFilters.current() == null) {
+			return super.findById(id);
+		}
+		Assert.notNull(id, "The given id must not be null!");
+		TypedQuery<M> query = em.createQuery("select x from " + entityInformation.getEntityName() + " x where x."
+				+ entityInformation.getIdAttribute().getName() + " = :id", entityClass);
+		query.setParameter("id", id);
+		List<M> result = query.getResultList();
+		return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+	}
+
+	@Override
+	public M getOne(T id) {
+		if (DataScopeFilters.current() == null) {
+			return super.getOne(id);
+		}
+		return findById(id).orElseThrow(() -> new EntityNotFoundException(
+				"Unable to find " + entityClass.getName() + " with id " + id));
+	}
+
+	/**
+	 * 受限时只删除可见的行, 不可见的实体视为不存在
+	 */
+	@Override
+	@Transactional
+	public void delete(M entity) {
+		if (DataScopeFilters.current() == null) {
+			super.delete(entity);
+			return;
+		}
+		Assert.notNull(entity, "The entity must not be null!");
+		Object id = entityInformation.getId(entity);
+		if (id == null) {
+			return;
+		}
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("id", id);
+		String condition = DataScopeFilters.jpqlCondition(entityClass, "x", parameters);
+		Query query = em.createQuery("select count(x) from " + entityInformation.getEntityName() + " x where x."
+				+ entityInformation.getIdAttribute().getName() + " = :id"
+				+ (condition.isEmpty() ? "" : " and " + condition));
+		for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+			query.setParameter(parameter.getKey(), parameter.getValue());
+		}
+		if (((Number) query.getSingleResult()).longValue() > 0) {
+			super.delete(entity);
+		}
+	}
+
+	@Override
+	@Transactional
+	public void deleteInBatch(Iterable<M> entities) {
+		if (DataScopeFilters.current() == null) {
+			super.deleteInBatch(entities);
+			return;
+		}
+		Assert.notNull(entities, "The given Iterable of entities not be null!");
+		List<Object> ids = new ArrayList<>();
+		for (M entity : entities) {
+			ids.add(entityInformation.getId(entity));
+		}
+		if (ids.isEmpty()) {
+			return;
+		}
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("ids", ids);
+		String condition = DataScopeFilters.jpqlCondition(entityClass, "x", parameters);
+		executeDelete("x." + entityInformation.getIdAttribute().getName() + " in (:ids)"
+				+ (condition.isEmpty() ? "" : " and " + condition), parameters);
+	}
+
+	@Override
+	@Transactional
+	public void deleteAllInBatch() {
+		if (DataScopeFilters.current() == null) {
+			super.deleteAllInBatch();
+			return;
+		}
+		Map<String, Object> parameters = new HashMap<>();
+		executeDelete(DataScopeFilters.jpqlCondition(entityClass, "x", parameters), parameters);
+	}
+
+	private void executeDelete(String condition, Map<String, Object> parameters) {
+		Query query = em.createQuery("delete from " + entityInformation.getEntityName() + " x"
+				+ (condition.isEmpty() ? "" : " where " + condition));
+		for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+			query.setParameter(parameter.getKey(), parameter.getValue());
+		}
+		query.executeUpdate();
+	}
+
+	protected EntityManager getEntityManager() {
+		return em;
+	}
+
+	protected JpaEntityInformation<M, ?> getEntityInformation() {
+		return entityInformation;
+	}
+
+	protected Class<M> getEntityClass() {
+		return entityClass;
+	}
+
+	protected AuditingHandler getAuditingHandler() {
+		return auditingHandler;
+	}
+
+	private EntityUpserter getUpserter() {
+		if (upserter == null) {
+			SessionFactoryImplementor sessionFactory =
+					em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+			upserter = EntityUpserter.forEntity(sessionFactory, entityClass);
+		}
+		return upserter;
 	}
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.repository.impl;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.support.AssignableGuidGenerator;
+import com.visionet.wakanda.hibernate.jpa.writebehind.WriteBehind;
+import com.visionet.wakanda.hibernate.jpa.writebehind.WriteBehindBuffer;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 异步批量写入的仓库, 见 {@link WriteBehind}
+ *
+ * {@code save} 只入队不开启事务, 返回的实体尚未写入数据库; {@code flush}/{@code saveAndFlush} 在调用线程中写出缓冲区.
+ * 查询与删除仍直接访问数据库, 读不到尚在缓冲区中的实体
+ *
+ * @author pangcaijie
+ * @since 2019/5/9.
+ */
+public class WriteBehindBaseRepository<M extends BaseEntity, T> extends SimpleBaseRepository<M, T> {
+
+	private final WriteBehindBuffer<M> buffer;
+
+	public WriteBehindBaseRepository(JpaEntityInformation<M, ?> entityInformation, EntityManager entityManager,
+			WriteBehindBuffer<M> buffer) {
+		super(entityInformation, entityManager);
+		this.buffer = buffer;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public <S extends M> S save(S entity) {
+		Assert.notNull(entity, "Entity must not be null.");
+		// 字符串主键在入队时分配, 使调用方立即拿到主键
+		AssignableGuidGenerator.assign(entity);
+		buffer.add(entity);
+		return entity;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public <S extends M> List<S> saveAll(Iterable<S> entities) {
+		Assert.notNull(entities, "The given Iterable of entities not be null!");
+		List<S> result = new ArrayList<>();
+		for (S entity : entities) {
+			result.add(save(entity));
+		}
+		return result;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public <S extends M> S saveAndFlush(S entity) {
+		S result = save(entity);
+		flush();
+		return result;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public void flush() {
+		buffer.flush();
+	}
+
+	public WriteBehindBuffer<M> getBuffer() {
+		return buffer;
+	}
+
+}
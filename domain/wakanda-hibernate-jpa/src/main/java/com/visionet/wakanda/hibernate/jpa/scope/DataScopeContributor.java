@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.scope;
+
+import org.hibernate.MappingException;
+import org.hibernate.boot.spi.InFlightMetadataCollector;
+import org.hibernate.boot.spi.MetadataContributor;
+import org.hibernate.engine.spi.FilterDefinition;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.Selectable;
+import org.hibernate.type.Type;
+import org.jboss.jandex.IndexView;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 为带数据范围维度的实体注册 Hibernate 过滤器, 过滤器由 {@link DataScopeInterceptor} 在仓库调用时启用
+ *
+ * 条件直接使用维度列, 查询、count 与关联加载都在数据库端过滤, 可以使用以维度列开头的联合索引;
+ * 继承体系中只在声明该维度的最上层实体上注册
+ *
+ * 通过 {@code META-INF/services/org.hibernate.boot.spi.MetadataContributor} 注册
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public class DataScopeContributor implements MetadataContributor {
+
+	@Override
+	public void contribute(InFlightMetadataCollector metadataCollector, IndexView jandexIndex) {
+		for (PersistentClass persistentClass : metadataCollector.getEntityBindings()) {
+			Class<?> mappedClass = persistentClass.getMappedClass();
+			if (mappedClass == null) {
+				continue;
+			}
+			PersistentClass superclass = persistentClass.getSuperclass();
+			Map<String, String> inherited = superclass != null && superclass.getMappedClass() != null
+					? DataScopeFilters.properties(superclass.getMappedClass()) : Collections.emptyMap();
+			for (Map.Entry<String, String> entry : DataScopeFilters.properties(mappedClass).entrySet()) {
+				if (!inherited.containsKey(entry.getKey())) {
+					addFilters(metadataCollector, persistentClass, entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	private static void addFilters(InFlightMetadataCollector metadataCollector, PersistentClass persistentClass,
+			String dimension, String propertyName) {
+		Property property;
+		try {
+			property = persistentClass.getProperty(propertyName);
+		} catch (MappingException e) {
+			// 未映射的属性(如 @Transient)不参与过滤
+			return;
+		}
+		Iterator<Selectable> columns = property.getColumnIterator();
+		Selectable selectable = columns.hasNext() ? columns.next() : null;
+		if (!(selectable instanceof Column) || columns.hasNext()) {
+			throw new MappingException("Data scope property " + persistentClass.getEntityName() + "."
+					+ propertyName + " must be mapped to a single column");
+		}
+		String name = DataScopeFilters.filterName(dimension);
+		if (metadataCollector.getFilterDefinition(name) == null) {
+			// 属性的 Hibernate 类型在二次绑定后才确定, 这里按字段的 Java 类型推断
+			Type type = metadataCollector.getTypeResolver().heuristicType(fieldType(persistentClass.getMappedClass(),
+					propertyName).getName());
+			metadataCollector.addFilterDefinition(new FilterDefinition(name, null,
+					Collections.singletonMap(DataScopeFilters.PARAMETER, type)));
+			metadataCollector.addFilterDefinition(new FilterDefinition(DataScopeFilters.noneFilterName(dimension),
+					"1 = 0", Collections.emptyMap()));
+		}
+		String column = ((Column) selectable).getQuotedName();
+		persistentClass.addFilter(name, column + " in (:" + DataScopeFilters.PARAMETER + ")", true,
+				Collections.emptyMap(), Collections.emptyMap());
+		persistentClass.addFilter(DataScopeFilters.noneFilterName(dimension), "1 = 0", true,
+				Collections.emptyMap(), Collections.emptyMap());
+	}
+
+	private static Class<?> fieldType(Class<?> mappedClass, String propertyName) {
+		for (Class<?> type = mappedClass; type != null && type != Object.class; type = type.getSuperclass()) {
+			for (Field field : type.getDeclaredFields()) {
+				if (field.getName().equals(propertyName)) {
+					return field.getType();
+				}
+			}
+		}
+		return String.class;
+	}
+}
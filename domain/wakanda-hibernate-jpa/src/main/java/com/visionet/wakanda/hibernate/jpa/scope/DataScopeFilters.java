@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.scope;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 数据范围的 Hibernate 过滤器命名约定与当前线程生效的范围
+ *
+ * 每个维度对应两个过滤器: {@code wakanda_scope_<维度>} 条件为 {@code 列 in (:values)},
+ * {@code wakanda_scope_<维度>_none} 条件为 {@code 1 = 0}, 允许值为空时启用后者
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public final class DataScopeFilters {
+
+	/**
+	 * 数据所有者维度, 对应 {@code createdBy}
+	 */
+	public static final String OWNER = "owner";
+
+	static final String PARAMETER = "values";
+
+	private static final String PREFIX = "wakanda_scope_";
+
+	private static final String NONE = "_none";
+
+	private static final ThreadLocal<Map<String, Collection<?>>> CURRENT = new ThreadLocal<>();
+
+	private static final ConcurrentMap<Class<?>, Map<String, String>> PROPERTIES = new ConcurrentHashMap<>();
+
+	private DataScopeFilters() {
+	}
+
+	static String filterName(String dimension) {
+		return PREFIX + dimension;
+	}
+
+	static String noneFilterName(String dimension) {
+		return PREFIX + dimension + NONE;
+	}
+
+	/**
+	 * @return 当前仓库调用生效的范围, 不在受限调用中时为 null
+	 */
+	public static Map<String, Collection<?>> current() {
+		return CURRENT.get();
+	}
+
+	static Map<String, Collection<?>> bind(Map<String, Collection<?>> scopes) {
+		Map<String, Collection<?>> previous = CURRENT.get();
+		CURRENT.set(scopes);
+		return previous;
+	}
+
+	static void restore(Map<String, Collection<?>> previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * @param entityClass 实体类型
+	 * @return 维度 -> 属性名
+	 */
+	public static Map<String, String> properties(Class<?> entityClass) {
+		Map<String, String> properties = PROPERTIES.get(entityClass);
+		if (properties == null) {
+			properties = PROPERTIES.computeIfAbsent(entityClass, DataScopeFilters::resolve);
+		}
+		return properties;
+	}
+
+	/**
+	 * 生成 JPQL 条件, 用于 Hibernate 过滤器不生效的按主键加载与批量删除
+	 * @param entityClass 实体类型
+	 * @param alias 实体别名
+	 * @param parameters 输出: 参数名 -> 值
+	 * @return 以 and 连接的条件, 不受限时为空串
+	 */
+	public static String jpqlCondition(Class<?> entityClass, String alias, Map<String, Object> parameters) {
+		Map<String, Collection<?>> scopes = current();
+		if (scopes == null) {
+			return "";
+		}
+		StringJoiner condition = new StringJoiner(" and ");
+		for (Map.Entry<String, String> entry : properties(entityClass).entrySet()) {
+			Collection<?> values = scopes.get(entry.getKey());
+			if (values == null) {
+				continue;
+			}
+			if (values.isEmpty()) {
+				condition.add("1 = 0");
+			} else {
+				String parameter = "scope_" + entry.getKey();
+				condition.add(alias + "." + entry.getValue() + " in (:" + parameter + ")");
+				parameters.put(parameter, values);
+			}
+		}
+		return condition.toString();
+	}
+
+	private static Map<String, String> resolve(Class<?> entityClass) {
+		Map<String, String> properties = new LinkedHashMap<>();
+		if (BaseEntity.class.isAssignableFrom(entityClass)) {
+			properties.put(OWNER, "createdBy");
+		}
+		for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+			for (Field field : type.getDeclaredFields()) {
+				ScopeColumn column = field.getAnnotation(ScopeColumn.class);
+				if (column != null) {
+					properties.putIfAbsent(column.value(), field.getName());
+				}
+			}
+		}
+		return Collections.unmodifiableMap(properties);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.scope;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.Filter;
+import org.hibernate.Session;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.query.Procedure;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 仓库调用前在当前 Session 上启用数据范围过滤器, 调用结束后关闭
+ *
+ * 没有事务同步时以 {@code PROPAGATION_SUPPORTS} 执行, 使仓库方法与过滤器使用同一个 EntityManager;
+ * 嵌套的仓库调用沿用最外层启用的范围
+ *
+ * 过滤器不作用于原生 SQL、{@code @Modifying} 的批量更新与存储过程, 受限时调用这些方法直接拒绝
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public class DataScopeInterceptor implements MethodInterceptor {
+
+	private final DataScopeProvider provider;
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final Supplier<PlatformTransactionManager> transactionManager;
+
+	private volatile TransactionTemplate template;
+
+	private final ConcurrentMap<Method, Boolean> unscoped = new ConcurrentHashMap<>();
+
+	/**
+	 * @param provider 当前调用者的数据范围
+	 * @param entityManagerFactory 仓库使用的 EntityManagerFactory
+	 * @param transactionManager 仓库使用的事务管理器, 首次调用时获取
+	 */
+	public DataScopeInterceptor(DataScopeProvider provider, EntityManagerFactory entityManagerFactory,
+			Supplier<PlatformTransactionManager> transactionManager) {
+		this.provider = provider;
+		this.entityManagerFactory = entityManagerFactory;
+		this.transactionManager = transactionManager;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Map<String, Collection<?>> current = DataScopeFilters.current();
+		Map<String, Collection<?>> scopes = current != null ? current : provider.currentScopes();
+		if (scopes == null || scopes.isEmpty()) {
+			return invocation.proceed();
+		}
+		Method method = invocation.getMethod();
+		if (unscoped.computeIfAbsent(method, DataScopeInterceptor::isUnscoped)) {
+			throw new InvalidDataAccessApiUsageException("Data scopes cannot be applied to " + method
+					+ "; run the call unrestricted or use a JPQL query");
+		}
+		if (current != null) {
+			return invocation.proceed();
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			return proceed(invocation, scopes);
+		}
+		try {
+			return getTemplate().execute(status -> {
+				try {
+					return proceed(invocation, scopes);
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new UndeclaredCheckedException(e);
+				}
+			});
+		} catch (UndeclaredCheckedException e) {
+			throw e.getCause();
+		}
+	}
+
+	private Object proceed(MethodInvocation invocation, Map<String, Collection<?>> scopes) throws Throwable {
+		EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+		Session session = entityManager.unwrap(Session.class);
+		Set<String> defined = session.getSessionFactory().getDefinedFilterNames();
+		List<String> enabled = new ArrayList<>();
+		Map<String, Collection<?>> previous = DataScopeFilters.bind(scopes);
+		try {
+			for (Map.Entry<String, Collection<?>> entry : scopes.entrySet()) {
+				Collection<?> values = entry.getValue();
+				if (values == null) {
+					continue;
+				}
+				// 允许值为空时 in () 不是合法的 SQL, 改用恒假条件
+				String name = values.isEmpty() ? DataScopeFilters.noneFilterName(entry.getKey())
+						: DataScopeFilters.filterName(entry.getKey());
+				if (!defined.contains(name) || session.getEnabledFilter(name) != null) {
+					continue;
+				}
+				Filter filter = session.enableFilter(name);
+				if (!values.isEmpty()) {
+					filter.setParameterList(DataScopeFilters.PARAMETER, values);
+				}
+				enabled.add(name);
+			}
+			return invocation.proceed();
+		} finally {
+			DataScopeFilters.restore(previous);
+			if (session.isOpen()) {
+				for (String name : enabled) {
+					session.disableFilter(name);
+				}
+			}
+		}
+	}
+
+	private static boolean isUnscoped(Method method) {
+		Query query = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+		return query != null && query.nativeQuery() || AnnotatedElementUtils.hasAnnotation(method, Modifying.class)
+				|| AnnotatedElementUtils.hasAnnotation(method, Procedure.class);
+	}
+
+	private TransactionTemplate getTemplate() {
+		if (template == null) {
+			TransactionTemplate template = new TransactionTemplate(transactionManager.get());
+			template.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+			this.template = template;
+		}
+		return template;
+	}
+
+	/**
+	 * 在 {@link TransactionTemplate} 回调中传递受检异常
+	 */
+	private static class UndeclaredCheckedException extends RuntimeException {
+
+		private UndeclaredCheckedException(Throwable cause) {
+			super(null, cause, false, false);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.scope;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 提供当前调用者可见的数据范围, 由安全模块实现
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public interface DataScopeProvider {
+
+	/**
+	 * @return 维度 -> 允许的值; 不包含的维度不限制, 空集合表示该维度下没有可见数据; 返回 null 或空 Map 表示不限制
+	 */
+	Map<String, Collection<?>> currentScopes();
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.scope;
+
+import java.lang.annotation.*;
+
+/**
+ * 标注实体属性为数据范围的维度, 如租户、组织; 同一维度在各实体中的属性类型应一致
+ *
+ * 所有 {@code BaseEntity} 的 {@code createdBy} 自动作为 {@link DataScopeFilters#OWNER} 维度
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ScopeColumn {
+
+	/**
+	 * @return 维度名称
+	 */
+	String value();
+}
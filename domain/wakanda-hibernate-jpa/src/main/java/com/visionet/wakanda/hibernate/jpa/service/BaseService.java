@@ -5,6 +5,7 @@
 package com.visionet.wakanda.hibernate.jpa.service;
 
 import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.partition.PartitionedProcessor;
 import com.visionet.wakanda.hibernate.jpa.repository.BaseRepository;
 import org.springframework.data.domain.Sort;
 
@@ -64,6 +65,12 @@ public interface BaseService <M extends BaseEntity, ID> {
 	 */
 	public abstract List<M> findAll(Sort sort);
 
+	/**
+	 * 按 createdDate 范围切分全表, 多线程逐个分区处理实体, 用于需要遍历全表的批处理
+	 * @return 分区处理器, 可继续设置分区属性、并行度与检查点后调用 process
+	 */
+	public abstract PartitionedProcessor<M> partitioned();
+
 	/**
 	 * 按条件分页查询实体
 	 * @param Searchable 查询条件
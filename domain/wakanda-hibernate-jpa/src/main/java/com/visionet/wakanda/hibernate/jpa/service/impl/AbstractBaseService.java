@@ -4,12 +4,19 @@
  */
 package com.visionet.wakanda.hibernate.jpa.service.impl;
 
+import com.visionet.wakanda.hibernate.jpa.admission.HikariPoolSaturation;
 import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import com.visionet.wakanda.hibernate.jpa.partition.PartitionedProcessor;
 import com.visionet.wakanda.hibernate.jpa.repository.BaseRepository;
 import com.visionet.wakanda.hibernate.jpa.service.BaseService;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
 import java.util.List;
 
 /**
@@ -18,14 +25,46 @@ import java.util.List;
  */
 public class AbstractBaseService<M extends BaseEntity, ID> implements BaseService<M, ID> {
 
+	/**
+	 * 连接池饱和度达到该值时, 分区处理暂缓领取新分区
+	 */
+	private static final double PARTITION_SATURATION_THRESHOLD = 0.75;
+
 	private BaseRepository<M, ID> customizeRepository;
 
+	private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+	private ObjectProvider<PlatformTransactionManager> transactionManager;
+
+	private HikariPoolSaturation poolSaturation;
+
 	@Override
 	@Autowired
 	public void setBaseRepository(BaseRepository<M, ID> baseRepository) {
 		this.customizeRepository = baseRepository;
 	}
 
+	/**
+	 * 延迟获取, 只有分区处理需要
+	 */
+	@Autowired
+	public void setEntityManagerFactory(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	/**
+	 * 延迟获取, 分区处理使用应用的事务管理器
+	 */
+	@Autowired
+	public void setTransactionManager(ObjectProvider<PlatformTransactionManager> transactionManager) {
+		this.transactionManager = transactionManager;
+	}
+
+	@Autowired
+	public void setDataSource(ObjectProvider<DataSource> dataSource) {
+		this.poolSaturation = new HikariPoolSaturation(dataSource);
+	}
+
 	public BaseRepository<M, ID> getCustomizeRepository() {
 		return customizeRepository;
 	}
@@ -65,6 +104,28 @@ public class AbstractBaseService<M extends BaseEntity, ID> implements BaseServic
 		return this.customizeRepository.findAll(sort);
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	public PartitionedProcessor<M> partitioned() {
+		EntityManagerFactory factory = entityManagerFactory != null ? entityManagerFactory.getIfUnique() : null;
+		if (factory == null) {
+			throw new IllegalStateException("No unique EntityManagerFactory for " + getClass().getName());
+		}
+		Class<?>[] types = GenericTypeResolver.resolveTypeArguments(getClass(), AbstractBaseService.class);
+		if (types == null || types[0] == null) {
+			throw new IllegalStateException("Could not resolve the entity type of " + getClass().getName());
+		}
+		PlatformTransactionManager manager = transactionManager != null ? transactionManager.getIfUnique() : null;
+		if (manager == null) {
+			throw new IllegalStateException("No unique PlatformTransactionManager for " + getClass().getName());
+		}
+		PartitionedProcessor<M> processor = new PartitionedProcessor<>((Class<M>) types[0], factory, manager);
+		if (poolSaturation != null) {
+			processor.setSaturation(poolSaturation, PARTITION_SATURATION_THRESHOLD);
+		}
+		return processor;
+	}
+
 	@Override
 	public long count() {
 		return this.customizeRepository.count();
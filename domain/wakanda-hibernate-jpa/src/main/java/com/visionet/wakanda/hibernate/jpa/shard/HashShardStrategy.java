@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.shard;
+
+/**
+ * 按主键 hash 取模分片
+ *
+ * 主键的 {@code hashCode} 需跨 JVM 稳定({@code String}, {@code Long} 等均满足), 经过混淆后再取模以打散连续主键
+ *
+ * @author pangcaijie
+ * @since 2019/5/6.
+ */
+public class HashShardStrategy implements ShardStrategy {
+
+	@Override
+	public int shardOf(Object id, int shardCount) {
+		int h = id.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return Math.floorMod(h, shardCount);
+	}
+}
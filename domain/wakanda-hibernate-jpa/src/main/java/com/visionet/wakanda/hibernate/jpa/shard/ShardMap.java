@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.shard;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 分片配置: 第 N 个 EntityManagerFactory(对应第 N 个 DataSource)即第 N 个分片
+ *
+ * 在应用中声明为 bean 后, 标注 {@link Sharded} 的实体仓库会按 {@link ShardStrategy} 路由;
+ * 全表查询与统计由 {@link #getExecutor()} 在各分片上并行执行
+ *
+ * <pre>
+ * &#64;Bean
+ * public ShardMap shardMap(List&lt;EntityManagerFactory&gt; shards) {
+ *     return new ShardMap(shards);
+ * }
+ * </pre>
+ *
+ * @author pangcaijie
+ * @since 2019/5/6.
+ */
+public class ShardMap implements DisposableBean {
+
+	private final List<Shard> shards;
+
+	private final ShardStrategy strategy;
+
+	private final ExecutorService executor;
+
+	public ShardMap(List<EntityManagerFactory> entityManagerFactories) {
+		this(entityManagerFactories, new HashShardStrategy());
+	}
+
+	public ShardMap(List<EntityManagerFactory> entityManagerFactories, ShardStrategy strategy) {
+		Assert.notEmpty(entityManagerFactories, "At least one shard is required");
+		Assert.notNull(strategy, "ShardStrategy must not be null");
+		List<Shard> shards = new ArrayList<>(entityManagerFactories.size());
+		for (int i = 0; i < entityManagerFactories.size(); i++) {
+			shards.add(new Shard(i, entityManagerFactories.get(i)));
+		}
+		this.shards = Collections.unmodifiableList(shards);
+		this.strategy = strategy;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("wakanda-shard-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(shards.size(), threadFactory);
+	}
+
+	/**
+	 * @param id 实体主键
+	 * @return 主键所在的分片
+	 */
+	public Shard shardOf(Object id) {
+		Assert.notNull(id, "Shard key must not be null");
+		return shards.get(strategy.shardOf(id, shards.size()));
+	}
+
+	public List<Shard> getShards() {
+		return shards;
+	}
+
+	public int size() {
+		return shards.size();
+	}
+
+	/**
+	 * @return 分片并行查询使用的线程池
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+
+	/**
+	 * 单个分片
+	 */
+	public static class Shard {
+
+		private final int index;
+
+		private final EntityManagerFactory entityManagerFactory;
+
+		private final EntityManager entityManager;
+
+		private final PlatformTransactionManager transactionManager;
+
+		Shard(int index, EntityManagerFactory entityManagerFactory) {
+			this.index = index;
+			this.entityManagerFactory = entityManagerFactory;
+			this.entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+			this.transactionManager = new JpaTransactionManager(entityManagerFactory);
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public EntityManagerFactory getEntityManagerFactory() {
+			return entityManagerFactory;
+		}
+
+		/**
+		 * @return 绑定当前事务的共享 EntityManager
+		 */
+		public EntityManager getEntityManager() {
+			return entityManager;
+		}
+
+		public PlatformTransactionManager getTransactionManager() {
+			return transactionManager;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.shard;
+
+/**
+ * 主键到分片的映射策略
+ *
+ * @author pangcaijie
+ * @since 2019/5/6.
+ */
+public interface ShardStrategy {
+
+	/**
+	 * @param id 实体主键, 不为 null
+	 * @param shardCount 分片数量
+	 * @return 分片序号, 取值 [0, shardCount)
+	 */
+	int shardOf(Object id, int shardCount);
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.shard;
+
+import java.lang.annotation.*;
+
+/**
+ * 标记按主键水平分片的实体
+ *
+ * 容器中存在 {@link ShardMap} 时, 该实体的仓库由
+ * {@link com.visionet.wakanda.hibernate.jpa.repository.impl.ShardedBaseRepository} 实现;
+ * 仓库不能声明派生查询或 {@code @Query} 方法, 跨分片查询使用 Specification 或 Example
+ *
+ * @author pangcaijie
+ * @since 2019/5/6.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Sharded {
+
+}
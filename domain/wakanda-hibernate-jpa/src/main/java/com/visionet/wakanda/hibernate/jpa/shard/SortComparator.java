@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.shard;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+
+import java.util.*;
+
+/**
+ * 按 {@link Sort} 在内存中比较实体, 用于合并各分片已排序的结果
+ *
+ * 空值按 MySQL 的默认规则处理: 升序时排在最前, 降序时排在最后
+ *
+ * @author pangcaijie
+ * @since 2019/5/6.
+ */
+public class SortComparator<T> implements Comparator<T> {
+
+	private final List<Sort.Order> orders = new ArrayList<>();
+
+	public SortComparator(Sort sort) {
+		for (Sort.Order order : sort) {
+			orders.add(order);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public int compare(T left, T right) {
+		BeanWrapperImpl leftWrapper = new BeanWrapperImpl(left);
+		BeanWrapperImpl rightWrapper = new BeanWrapperImpl(right);
+		for (Sort.Order order : orders) {
+			Object leftValue = leftWrapper.getPropertyValue(order.getProperty());
+			Object rightValue = rightWrapper.getPropertyValue(order.getProperty());
+			int result;
+			if (leftValue == null || rightValue == null) {
+				result = compareNulls(leftValue, rightValue, order);
+			} else {
+				if (order.isIgnoreCase() && leftValue instanceof String && rightValue instanceof String) {
+					result = ((String) leftValue).compareToIgnoreCase((String) rightValue);
+				} else {
+					result = ((Comparable<Object>) leftValue).compareTo(rightValue);
+				}
+				result = order.isAscending() ? result : -result;
+			}
+			if (result != 0) {
+				return result;
+			}
+		}
+		return 0;
+	}
+
+	private int compareNulls(Object leftValue, Object rightValue, Sort.Order order) {
+		if (leftValue == rightValue) {
+			return 0;
+		}
+		boolean nullsFirst;
+		switch (order.getNullHandling()) {
+			case NULLS_FIRST:
+				nullsFirst = true;
+				break;
+			case NULLS_LAST:
+				nullsFirst = false;
+				break;
+			default:
+				nullsFirst = order.isAscending();
+		}
+		return (leftValue == null) == nullsFirst ? -1 : 1;
+	}
+
+	/**
+	 * 多路归并各分片已排序的结果
+	 * @param sortedLists 各分片的结果, 每个列表均已按同一 {@link Sort} 排序
+	 * @param comparator 比较器, 为 null 时按分片顺序拼接
+	 * @param limit 最多返回的数量
+	 * @return 合并后的结果
+	 */
+	public static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> comparator, int limit) {
+		int total = 0;
+		for (List<T> list : sortedLists) {
+			total += list.size();
+		}
+		List<T> result = new ArrayList<>(Math.min(total, limit));
+		if (comparator == null) {
+			for (List<T> list : sortedLists) {
+				for (T item : list) {
+					if (result.size() >= limit) {
+						return result;
+					}
+					result.add(item);
+				}
+			}
+			return result;
+		}
+		PriorityQueue<Cursor<T>> queue = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+				(left, right) -> comparator.compare(left.current, right.current));
+		for (List<T> list : sortedLists) {
+			Iterator<T> iterator = list.iterator();
+			if (iterator.hasNext()) {
+				queue.add(new Cursor<>(iterator));
+			}
+		}
+		while (!queue.isEmpty() && result.size() < limit) {
+			Cursor<T> cursor = queue.poll();
+			result.add(cursor.current);
+			if (cursor.advance()) {
+				queue.add(cursor);
+			}
+		}
+		return result;
+	}
+
+	private static class Cursor<T> {
+
+		private final Iterator<T> iterator;
+
+		private T current;
+
+		private Cursor(Iterator<T> iterator) {
+			this.iterator = iterator;
+			this.current = iterator.next();
+		}
+
+		private boolean advance() {
+			if (iterator.hasNext()) {
+				current = iterator.next();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 执行 {@code EXPLAIN} 并以文本行返回执行计划, MySQL 与 H2 通用
+ *
+ * @author pangcaijie
+ * @since 2019/5/17.
+ */
+public final class ExplainPlan {
+
+	private ExplainPlan() {
+	}
+
+	/**
+	 * @param sql 查询语句
+	 * @return 只有查询语句可以安全地 EXPLAIN
+	 */
+	public static boolean isExplainable(String sql) {
+		String trimmed = sql.trim();
+		return trimmed.regionMatches(true, 0, "select", 0, 6);
+	}
+
+	/**
+	 * 使用独立连接执行 EXPLAIN, 不影响调用方事务
+	 * @param dataSource 未经拦截的数据源
+	 * @param sql 查询语句
+	 * @param parameters 按位置绑定的参数, 可为空
+	 * @return 执行计划, 每行各列以 " | " 分隔
+	 */
+	public static List<String> explain(DataSource dataSource, String sql, List<?> parameters) throws SQLException {
+		if (!isExplainable(sql)) {
+			return Collections.emptyList();
+		}
+		try (Connection connection = dataSource.getConnection();
+			 PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+			connection.setReadOnly(true);
+			if (parameters != null) {
+				for (int i = 0; i < parameters.size(); i++) {
+					statement.setObject(i + 1, parameters.get(i));
+				}
+			}
+			List<String> rows = new ArrayList<>();
+			try (ResultSet resultSet = statement.executeQuery()) {
+				int columns = resultSet.getMetaData().getColumnCount();
+				while (resultSet.next()) {
+					StringBuilder row = new StringBuilder();
+					for (int column = 1; column <= columns; column++) {
+						if (column > 1) {
+							row.append(" | ");
+						}
+						row.append(resultSet.getString(column));
+					}
+					rows.add(row.toString());
+				}
+			}
+			return rows;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 执行计划中需要关注的访问方式
+ *
+ * 从 {@link ExplainPlan} 的输出中识别: MySQL 按表格各列判断 {@code type} 与 {@code Extra};
+ * H2 只输出一行改写后的语句, 按其中的注释判断(全表扫描为 {@code tableScan}, 利用索引排序、分组时分别注明
+ * {@code index sorted}、{@code group sorted})
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public enum PlanIssue {
+
+	/**
+	 * 全表扫描, MySQL type 为 ALL
+	 */
+	FULL_SCAN,
+
+	/**
+	 * 排序未使用索引, MySQL Using filesort
+	 */
+	FILESORT,
+
+	/**
+	 * 使用临时表分组或去重, MySQL Using temporary
+	 */
+	TEMPORARY;
+
+	private static final Set<String> JOIN_TYPES = new HashSet<>(Arrays.asList("system", "const", "eq_ref", "ref",
+			"fulltext", "ref_or_null", "index_merge", "unique_subquery", "index_subquery", "range", "index", "ALL"));
+
+	/**
+	 * MySQL EXPLAIN 至少有 id、select_type、table、type、possible_keys、key、key_len、ref、rows、Extra 十列
+	 */
+	private static final int MYSQL_COLUMNS = 10;
+
+	/**
+	 * @param plan {@link ExplainPlan#explain} 返回的执行计划
+	 * @return 计划中出现的问题
+	 */
+	public static Set<PlanIssue> of(List<String> plan) {
+		Set<PlanIssue> issues = EnumSet.noneOf(PlanIssue.class);
+		for (String row : plan) {
+			String[] columns = row.split(" \\| ", -1);
+			if (columns.length >= MYSQL_COLUMNS) {
+				// 5.7 起 table 与 type 之间多了 partitions 列, 取 table 之后第一个连接类型
+				for (int i = 3; i < columns.length; i++) {
+					if (JOIN_TYPES.contains(columns[i])) {
+						if ("ALL".equals(columns[i])) {
+							issues.add(FULL_SCAN);
+						}
+						break;
+					}
+				}
+				String extra = columns[columns.length - 1];
+				if (extra.contains("Using filesort")) {
+					issues.add(FILESORT);
+				}
+				if (extra.contains("Using temporary")) {
+					issues.add(TEMPORARY);
+				}
+			} else {
+				if (row.contains(".tableScan") && !row.contains("direct lookup")) {
+					issues.add(FULL_SCAN);
+				}
+				if (row.contains("ORDER BY") && !row.contains("index sorted")) {
+					issues.add(FILESORT);
+				}
+				if (row.contains("GROUP BY") && !row.contains("group sorted")) {
+					issues.add(TEMPORARY);
+				}
+			}
+		}
+		return issues;
+	}
+}
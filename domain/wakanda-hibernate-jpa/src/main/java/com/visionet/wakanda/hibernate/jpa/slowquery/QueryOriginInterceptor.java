@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+/**
+ * 记录当前线程最外层的 {@code BaseService} 方法, 慢查询日志据此关联到业务调用
+ *
+ * @author pangcaijie
+ * @since 2019/5/17.
+ */
+public class QueryOriginInterceptor implements MethodInterceptor {
+
+	private static final ThreadLocal<String> ORIGIN = new ThreadLocal<>();
+
+	/**
+	 * @return 当前线程所在的服务方法, 形如 {@code OrderServiceImpl.findByCustomer}; 不在服务调用中时为 null
+	 */
+	public static String currentOrigin() {
+		return ORIGIN.get();
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (ORIGIN.get() != null) {
+			return invocation.proceed();
+		}
+		Class<?> targetClass = invocation.getThis() != null
+				? AopUtils.getTargetClass(invocation.getThis()) : invocation.getMethod().getDeclaringClass();
+		ORIGIN.set(targetClass.getSimpleName() + "." + invocation.getMethod().getName());
+		try {
+			return invocation.proceed();
+		} finally {
+			ORIGIN.remove();
+		}
+	}
+}
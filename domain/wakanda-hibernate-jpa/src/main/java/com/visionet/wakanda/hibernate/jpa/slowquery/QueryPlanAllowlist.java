@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 允许出现的执行计划问题, 随代码一起检入
+ *
+ * 每行为 {@code 仓库接口简单类名.方法名(参数类型简单类名) 问题...}, 以参数类型区分重载方法, 仓库名可写为 {@code *}
+ * 匹配所有仓库, 问题省略时允许全部问题; 问题写为 {@code SKIP} 时允许该方法无法检查(没有样例参数、执行失败等),
+ * {@code #} 之后为注释:
+ *
+ * <pre>
+ * # 不带条件的内置查询必然全表扫描
+ * *.findAll() FULL_SCAN
+ * *.findAll(Sort) FULL_SCAN FILESORT
+ * *.findAll(Pageable) FULL_SCAN FILESORT
+ * OrderRepository.findByRemarkLike(String) FULL_SCAN
+ * OrderRepository.findByRegion(Region) SKIP
+ * </pre>
+ *
+ * 检查中没有用到的条目同样使检查失败, 对应的问题修复后必须从文件中删除
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class QueryPlanAllowlist {
+
+	private static final String ANY = "*";
+
+	/**
+	 * 允许方法无法检查
+	 */
+	static final String SKIP = "SKIP";
+
+	private static final Pattern KEY = Pattern.compile("[^.\\s]+\\.\\w+\\([^()]*\\)");
+
+	private final Map<String, Set<PlanIssue>> entries = new LinkedHashMap<>();
+
+	private final Set<String> skips = new LinkedHashSet<>();
+
+	private final Set<String> used = new HashSet<>();
+
+	private final Set<String> usedSkips = new HashSet<>();
+
+	/**
+	 * @param resource classpath 中的文件, 如 {@code query-plan-allowlist.txt}; 不存在时为空
+	 */
+	public static QueryPlanAllowlist fromClasspath(String resource) throws IOException {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		InputStream in = (classLoader != null ? classLoader : QueryPlanAllowlist.class.getClassLoader())
+				.getResourceAsStream(resource);
+		if (in == null) {
+			return new QueryPlanAllowlist();
+		}
+		try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+			return parse(reader);
+		}
+	}
+
+	public static QueryPlanAllowlist parse(Reader reader) throws IOException {
+		QueryPlanAllowlist allowlist = new QueryPlanAllowlist();
+		BufferedReader lines = new BufferedReader(reader);
+		String line;
+		int number = 0;
+		while ((line = lines.readLine()) != null) {
+			number++;
+			int comment = line.indexOf('#');
+			String content = normalize(comment >= 0 ? line.substring(0, comment) : line);
+			String[] fields = content.split("\\s+");
+			if (fields[0].isEmpty()) {
+				continue;
+			}
+			if (!KEY.matcher(fields[0]).matches()) {
+				throw new IllegalArgumentException("Line " + number
+						+ " must start with Repository.method(ParameterTypes): " + line);
+			}
+			Set<PlanIssue> issues = EnumSet.noneOf(PlanIssue.class);
+			boolean skip = false;
+			for (int i = 1; i < fields.length; i++) {
+				if (SKIP.equals(fields[i])) {
+					skip = true;
+				} else {
+					issues.add(PlanIssue.valueOf(fields[i]));
+				}
+			}
+			if (skip) {
+				allowlist.allowSkip(fields[0]);
+			}
+			if (!issues.isEmpty() || !skip) {
+				allowlist.allow(fields[0], issues.isEmpty() ? EnumSet.allOf(PlanIssue.class) : issues);
+			}
+		}
+		return allowlist;
+	}
+
+	/**
+	 * @param key {@code 仓库接口简单类名.方法名(参数类型简单类名)}
+	 * @param issues 允许的问题
+	 */
+	public QueryPlanAllowlist allow(String key, Set<PlanIssue> issues) {
+		entries.computeIfAbsent(key(key), k -> EnumSet.noneOf(PlanIssue.class)).addAll(issues);
+		return this;
+	}
+
+	/**
+	 * 允许方法无法检查
+	 * @param key {@code 仓库接口简单类名.方法名(参数类型简单类名)}
+	 */
+	public QueryPlanAllowlist allowSkip(String key) {
+		skips.add(key(key));
+		return this;
+	}
+
+	/**
+	 * @param signature {@code 方法名(参数类型简单类名)}
+	 * @return 仓库方法允许的问题, 同时记录用到的条目
+	 */
+	Set<PlanIssue> allowed(String repository, String signature, Set<PlanIssue> issues) {
+		Set<PlanIssue> allowed = EnumSet.noneOf(PlanIssue.class);
+		for (String key : keys(repository, signature)) {
+			Set<PlanIssue> entry = entries.get(key);
+			if (entry != null) {
+				allowed.addAll(entry);
+				if (!Collections.disjoint(entry, issues)) {
+					used.add(key);
+				}
+			}
+		}
+		return allowed;
+	}
+
+	/**
+	 * @param signature {@code 方法名(参数类型简单类名)}
+	 * @return 是否允许方法无法检查, 同时记录用到的条目
+	 */
+	boolean skipAllowed(String repository, String signature) {
+		boolean allowed = false;
+		for (String key : keys(repository, signature)) {
+			if (skips.contains(key)) {
+				usedSkips.add(key);
+				allowed = true;
+			}
+		}
+		return allowed;
+	}
+
+	/**
+	 * @return 本次检查中没有用到的条目, 对应的问题已经修复, 应当从文件中删除
+	 */
+	Set<String> unused() {
+		Set<String> unused = new LinkedHashSet<>(entries.keySet());
+		unused.removeAll(used);
+		for (String key : skips) {
+			if (!usedSkips.contains(key)) {
+				unused.add(key + " " + SKIP);
+			}
+		}
+		return unused;
+	}
+
+	private static String key(String key) {
+		String normalized = normalize(key);
+		if (!KEY.matcher(normalized).matches()) {
+			throw new IllegalArgumentException("Allowlist key must be Repository.method(ParameterTypes): " + key);
+		}
+		return normalized;
+	}
+
+	private static String[] keys(String repository, String signature) {
+		String normalized = normalize(signature);
+		return new String[]{repository + "." + normalized, ANY + "." + normalized};
+	}
+
+	/**
+	 * 去掉参数列表中的空白, 使 {@code findBy(String, int)} 与 {@code findBy(String,int)} 一致
+	 */
+	private static String normalize(String line) {
+		String trimmed = line.trim();
+		int open = trimmed.indexOf('(');
+		int close = trimmed.indexOf(')', open + 1);
+		if (open < 0 || close < 0) {
+			return trimmed;
+		}
+		return trimmed.substring(0, open).trim() + trimmed.substring(open, close + 1).replaceAll("\\s+", "")
+				+ trimmed.substring(close + 1);
+	}
+}
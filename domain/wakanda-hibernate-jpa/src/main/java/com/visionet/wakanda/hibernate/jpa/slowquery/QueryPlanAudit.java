@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import com.visionet.wakanda.hibernate.jpa.repository.BaseRepository;
+import com.visionet.wakanda.hibernate.jpa.repository.impl.SimpleBaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 仓库查询执行计划回归检查, 在测试中对本地已准备数据的数据库运行, 不需要网络
+ *
+ * 找出仓库接口中的派生查询、{@link Query} 查询与内置查询({@code findById}、{@code findAll}、{@code count} 等,
+ * 即 {@code BaseService} 使用的方法), 用样例参数在回滚的事务中逐个调用, 记录实际执行的 SQL 与绑定参数,
+ * 再以 {@link ExplainPlan} 取得执行计划, 出现 {@link PlanIssue} 且不在 {@link QueryPlanAllowlist} 中时视为回归;
+ * 无法检查的方法与没有用到的允许条目同样视为回归.
+ * {@link Modifying} 方法、异步方法与含 {@link Example} 参数的方法不检查
+ *
+ * <pre>
+ * QueryPlanAudit audit = new QueryPlanAudit(database)
+ *         .scan("com.visionet.order")
+ *         .setAllowlist(QueryPlanAllowlist.fromClasspath("query-plan-allowlist.txt"));
+ * EntityManagerFactory entityManagerFactory = build(audit.getDataSource());
+ * seed(entityManagerFactory);
+ * audit.run(entityManagerFactory).assertNoRegressions();
+ * </pre>
+ *
+ * 数据库使用 H2 等嵌入式数据库时 CI 中不依赖外部服务; MySQL 在行数很少的表上倾向于全表扫描, 准备的数据量应接近真实分布
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class QueryPlanAudit {
+
+	private static final Logger logger = LoggerFactory.getLogger(QueryPlanAudit.class);
+
+	private static final Set<String> BUILT_IN_QUERIES = new HashSet<>(Arrays.asList(
+			"findById", "existsById", "findAll", "findAllById", "count"));
+
+	private static final Pattern DERIVED_QUERY = Pattern.compile("(find|read|get|query|search|stream|count|exists)\\w*By\\w*");
+
+	private final DataSource dataSource;
+
+	private final DataSource intercepted;
+
+	private final CapturingLog log = new CapturingLog();
+
+	private final Set<Class<?>> repositories = new LinkedHashSet<>();
+
+	private QueryPlanAllowlist allowlist = new QueryPlanAllowlist();
+
+	/**
+	 * @param dataSource 已准备数据的本地数据库
+	 */
+	public QueryPlanAudit(DataSource dataSource) {
+		this.dataSource = dataSource;
+		this.intercepted = SlowQueryDataSource.wrap(dataSource, log);
+	}
+
+	/**
+	 * @return 记录执行语句的数据源, 被检查的 EntityManagerFactory 必须基于它构建
+	 */
+	public DataSource getDataSource() {
+		return intercepted;
+	}
+
+	public QueryPlanAudit addRepository(Class<?> repositoryInterface) {
+		repositories.add(repositoryInterface);
+		return this;
+	}
+
+	/**
+	 * 扫描包中继承 {@link BaseRepository} 的仓库接口
+	 */
+	public QueryPlanAudit scan(String... basePackages) {
+		ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+			@Override
+			protected boolean isCandidateComponent(AnnotatedBeanDefinition definition) {
+				return definition.getMetadata().isInterface() && definition.getMetadata().isIndependent();
+			}
+		};
+		scanner.addIncludeFilter(new AssignableTypeFilter(BaseRepository.class));
+		scanner.addExcludeFilter(new AnnotationTypeFilter(NoRepositoryBean.class));
+		for (String basePackage : basePackages) {
+			for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+				repositories.add(ClassUtils.resolveClassName(candidate.getBeanClassName(),
+						ClassUtils.getDefaultClassLoader()));
+			}
+		}
+		return this;
+	}
+
+	public QueryPlanAudit setAllowlist(QueryPlanAllowlist allowlist) {
+		this.allowlist = allowlist;
+		return this;
+	}
+
+	/**
+	 * 检查全部仓库
+	 * @param entityManagerFactory 基于 {@link #getDataSource()} 构建
+	 * @return 结果, 调用 {@link QueryPlanReport#assertNoRegressions()} 使构建失败
+	 */
+	public QueryPlanReport run(EntityManagerFactory entityManagerFactory) {
+		QueryPlanReport report = new QueryPlanReport();
+		EntityManager em = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+		JpaRepositoryFactory factory = new JpaRepositoryFactory(em);
+		factory.setRepositoryBaseClass(SimpleBaseRepository.class);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(
+				new JpaTransactionManager(entityManagerFactory));
+		try {
+			for (Class<?> repositoryInterface : repositories) {
+				Object repository = factory.getRepository(repositoryInterface);
+				for (Method method : queryMethods(repositoryInterface)) {
+					audit(report, repositoryInterface, repository, method, em, transactionTemplate);
+				}
+			}
+		} finally {
+			log.close();
+		}
+		report.setUnusedAllowances(allowlist.unused());
+		logger.info("Query plan audit: {}", report);
+		return report;
+	}
+
+	private void audit(QueryPlanReport report, Class<?> repositoryInterface, Object repository, Method method,
+			EntityManager em, TransactionTemplate transactionTemplate) {
+		String repositoryName = repositoryInterface.getSimpleName();
+		String signature = method.getName() + Arrays.stream(method.getParameterTypes()).map(Class::getSimpleName)
+				.collect(Collectors.joining(", ", "(", ")"));
+		String name = repositoryName + "." + signature;
+		List<Executed> statements = new ArrayList<>();
+		try {
+			transactionTemplate.execute(status -> {
+				status.setRollbackOnly();
+				Object[] arguments = new Object[method.getParameterCount()];
+				for (int i = 0; i < arguments.length; i++) {
+					arguments[i] = sample(ResolvableType.forMethodParameter(method, i, repositoryInterface), em);
+				}
+				log.capture(statements);
+				try {
+					close(invoke(repository, method, arguments));
+				} finally {
+					log.capture(null);
+				}
+				return null;
+			});
+		} catch (UnsupportedParameterException e) {
+			report.skip(name, e.getMessage(), allowlist.skipAllowed(repositoryName, signature));
+			return;
+		} catch (RuntimeException e) {
+			// 样例参数可能使单结果查询返回多行, 语句已经执行时照常检查
+			if (statements.isEmpty()) {
+				report.skip(name, "Failed: " + e, allowlist.skipAllowed(repositoryName, signature));
+				return;
+			}
+		}
+		for (Executed statement : statements) {
+			if (!ExplainPlan.isExplainable(statement.sql)) {
+				continue;
+			}
+			List<String> plan;
+			try {
+				plan = ExplainPlan.explain(dataSource, statement.sql, statement.parameters);
+			} catch (SQLException e) {
+				report.skip(name, "Could not explain " + statement.sql + ": " + e.getMessage(),
+						allowlist.skipAllowed(repositoryName, signature));
+				continue;
+			}
+			Set<PlanIssue> issues = PlanIssue.of(plan);
+			report.add(new QueryPlanReport.Finding(repositoryName, name, statement.sql, plan, issues,
+					allowlist.allowed(repositoryName, signature, issues)));
+		}
+	}
+
+	/**
+	 * 按方法签名排序, 每次输出顺序一致
+	 */
+	private static List<Method> queryMethods(Class<?> repositoryInterface) {
+		List<Method> methods = new ArrayList<>();
+		for (Method method : repositoryInterface.getMethods()) {
+			if (method.isDefault() || method.isBridge() || Modifier.isStatic(method.getModifiers())
+					|| Future.class.isAssignableFrom(method.getReturnType())
+					|| AnnotatedElementUtils.hasAnnotation(method, Modifying.class)) {
+				continue;
+			}
+			if (method.getDeclaringClass().isAssignableFrom(BaseRepository.class)) {
+				if (BUILT_IN_QUERIES.contains(method.getName()) && Arrays.stream(method.getParameterTypes())
+						.noneMatch(Example.class::isAssignableFrom)) {
+					methods.add(method);
+				}
+			} else if (AnnotatedElementUtils.hasAnnotation(method, Query.class)
+					|| DERIVED_QUERY.matcher(method.getName()).matches()) {
+				methods.add(method);
+			}
+		}
+		methods.sort(Comparator.comparing(Method::toGenericString));
+		return methods;
+	}
+
+	private static Object invoke(Object repository, Method method, Object[] arguments) {
+		try {
+			return method.invoke(repository, arguments);
+		} catch (InvocationTargetException e) {
+			if (e.getTargetException() instanceof RuntimeException) {
+				throw (RuntimeException) e.getTargetException();
+			}
+			throw new UndeclaredThrowableException(e.getTargetException());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 流式查询在调用时已经执行, 关闭以释放游标
+	 */
+	private static void close(Object result) {
+		if (result instanceof Stream) {
+			((Stream<?>) result).close();
+		}
+	}
+
+	private static Object sample(ResolvableType type, EntityManager em) {
+		Class<?> raw = type.resolve(Object.class);
+		if (raw == String.class) {
+			return "x";
+		}
+		if (raw == Integer.class || raw == int.class) {
+			return 1;
+		}
+		if (raw == Long.class || raw == long.class) {
+			return 1L;
+		}
+		if (raw == Short.class || raw == short.class) {
+			return (short) 1;
+		}
+		if (raw == Byte.class || raw == byte.class) {
+			return (byte) 1;
+		}
+		if (raw == Double.class || raw == double.class) {
+			return 1d;
+		}
+		if (raw == Float.class || raw == float.class) {
+			return 1f;
+		}
+		if (raw == Boolean.class || raw == boolean.class) {
+			return true;
+		}
+		if (raw == Character.class || raw == char.class) {
+			return 'x';
+		}
+		if (raw == BigDecimal.class) {
+			return BigDecimal.ONE;
+		}
+		if (raw == BigInteger.class) {
+			return BigInteger.ONE;
+		}
+		if (raw == UUID.class) {
+			return new UUID(0, 1);
+		}
+		if (raw == java.sql.Timestamp.class) {
+			return new java.sql.Timestamp(System.currentTimeMillis());
+		}
+		if (raw == java.sql.Date.class) {
+			return new java.sql.Date(System.currentTimeMillis());
+		}
+		if (raw == Date.class) {
+			return new Date();
+		}
+		if (raw == LocalDate.class) {
+			return LocalDate.now();
+		}
+		if (raw == LocalDateTime.class) {
+			return LocalDateTime.now();
+		}
+		if (raw == Instant.class) {
+			return Instant.now();
+		}
+		if (raw.isEnum() && raw.getEnumConstants().length > 0) {
+			return raw.getEnumConstants()[0];
+		}
+		if (raw == Pageable.class) {
+			return PageRequest.of(0, 10);
+		}
+		if (raw == Sort.class) {
+			return Sort.unsorted();
+		}
+		if (raw == Iterable.class || Collection.class.isAssignableFrom(raw)) {
+			Object element = sample(type.as(Iterable.class).getGeneric(0), em);
+			return Set.class.isAssignableFrom(raw) ? Collections.singleton(element) : Collections.singletonList(element);
+		}
+		if (raw.isArray()) {
+			Object array = Array.newInstance(raw.getComponentType(), 1);
+			Array.set(array, 0, sample(type.getComponentType(), em));
+			return array;
+		}
+		if (raw.isAnnotationPresent(Entity.class)) {
+			// 只使用主键, 不需要实体存在
+			Class<?> idType = em.getMetamodel().entity(raw).getIdType().getJavaType();
+			return em.getReference(raw, sample(ResolvableType.forClass(idType), em));
+		}
+		throw new UnsupportedParameterException("No sample value for " + type);
+	}
+
+	/**
+	 * 一条执行过的语句
+	 */
+	private static class Executed {
+
+		private final String sql;
+
+		private final List<Object> parameters;
+
+		private Executed(String sql, List<Object> parameters) {
+			this.sql = sql;
+			this.parameters = parameters;
+		}
+	}
+
+	/**
+	 * 只记录检查线程中执行的语句, 不统计、不输出日志
+	 */
+	private static class CapturingLog extends SlowQueryLog {
+
+		private final ThreadLocal<List<Executed>> statements = new ThreadLocal<>();
+
+		private CapturingLog() {
+			super(Long.MAX_VALUE, 0, 0);
+		}
+
+		private void capture(List<Executed> statements) {
+			if (statements != null) {
+				this.statements.set(statements);
+			} else {
+				this.statements.remove();
+			}
+		}
+
+		@Override
+		void record(DataSource dataSource, String sql, List<Object> parameters, long nanos) {
+			List<Executed> executed = statements.get();
+			if (executed != null) {
+				executed.add(new Executed(sql, parameters != null ? new ArrayList<>(parameters)
+						: Collections.emptyList()));
+			}
+		}
+	}
+
+	private static class UnsupportedParameterException extends RuntimeException {
+
+		private UnsupportedParameterException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import java.util.*;
+
+/**
+ * {@link QueryPlanAudit} 的结果
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public class QueryPlanReport {
+
+	private final List<Finding> findings = new ArrayList<>();
+
+	private final Map<String, String> skipped = new LinkedHashMap<>();
+
+	private final Set<String> allowedSkips = new HashSet<>();
+
+	private Set<String> unusedAllowances = Collections.emptySet();
+
+	void add(Finding finding) {
+		findings.add(finding);
+	}
+
+	void skip(String method, String reason, boolean allowed) {
+		skipped.put(method, reason);
+		if (allowed) {
+			allowedSkips.add(method);
+		}
+	}
+
+	void setUnusedAllowances(Set<String> unusedAllowances) {
+		this.unusedAllowances = unusedAllowances;
+	}
+
+	/**
+	 * @return 每个仓库方法执行的每条查询
+	 */
+	public List<Finding> getFindings() {
+		return Collections.unmodifiableList(findings);
+	}
+
+	/**
+	 * @return 超出允许范围的查询
+	 */
+	public List<Finding> getViolations() {
+		List<Finding> violations = new ArrayList<>();
+		for (Finding finding : findings) {
+			if (!finding.getViolations().isEmpty()) {
+				violations.add(finding);
+			}
+		}
+		return violations;
+	}
+
+	/**
+	 * @return 无法生成参数或执行失败而没有检查的方法及原因
+	 */
+	public Map<String, String> getSkipped() {
+		return Collections.unmodifiableMap(skipped);
+	}
+
+	/**
+	 * @return 没有检查且不在允许范围内的方法及原因
+	 */
+	public Map<String, String> getUnexpectedSkips() {
+		Map<String, String> unexpected = new LinkedHashMap<>(skipped);
+		unexpected.keySet().removeAll(allowedSkips);
+		return unexpected;
+	}
+
+	/**
+	 * @return 没有用到的允许条目
+	 */
+	public Set<String> getUnusedAllowances() {
+		return unusedAllowances;
+	}
+
+	/**
+	 * @throws AssertionError 存在超出允许范围的查询、不在允许范围内没有检查的方法或没有用到的允许条目,
+	 * 信息中包含语句与执行计划
+	 */
+	public void assertNoRegressions() {
+		List<Finding> violations = getViolations();
+		Map<String, String> unexpectedSkips = getUnexpectedSkips();
+		if (violations.isEmpty() && unexpectedSkips.isEmpty() && unusedAllowances.isEmpty()) {
+			return;
+		}
+		StringBuilder message = new StringBuilder();
+		if (!violations.isEmpty()) {
+			message.append("Query plan regressions, fix the query or index, or add them to the allowlist if intended:");
+			for (Finding finding : violations) {
+				message.append("\n\n").append(finding.getMethod()).append(' ').append(finding.getViolations())
+						.append("\n    ").append(finding.getSql());
+				for (String row : finding.getPlan()) {
+					message.append("\n    ").append(row.replace("\n", "\n    "));
+				}
+			}
+		}
+		if (!unexpectedSkips.isEmpty()) {
+			appendSection(message, "Methods that could not be checked, make them checkable or add them to the"
+					+ " allowlist with " + QueryPlanAllowlist.SKIP + ":");
+			for (Map.Entry<String, String> skip : unexpectedSkips.entrySet()) {
+				message.append("\n").append(skip.getKey()).append(": ").append(skip.getValue());
+			}
+		}
+		if (!unusedAllowances.isEmpty()) {
+			appendSection(message, "Unused allowlist entries, remove them:");
+			for (String allowance : unusedAllowances) {
+				message.append("\n").append(allowance);
+			}
+		}
+		throw new AssertionError(message.toString());
+	}
+
+	private static void appendSection(StringBuilder message, String title) {
+		if (message.length() > 0) {
+			message.append("\n\n");
+		}
+		message.append(title).append('\n');
+	}
+
+	@Override
+	public String toString() {
+		return findings.size() + " queries checked, " + getViolations().size() + " regressions, " + skipped.size()
+				+ " methods skipped, " + getUnexpectedSkips().size() + " not allowed";
+	}
+
+	/**
+	 * 一个仓库方法执行的一条查询
+	 */
+	public static class Finding {
+
+		private final String repository;
+
+		private final String method;
+
+		private final String sql;
+
+		private final List<String> plan;
+
+		private final Set<PlanIssue> issues;
+
+		private final Set<PlanIssue> violations;
+
+		Finding(String repository, String method, String sql, List<String> plan, Set<PlanIssue> issues,
+				Set<PlanIssue> allowed) {
+			this.repository = repository;
+			this.method = method;
+			this.sql = sql;
+			this.plan = plan;
+			this.issues = issues;
+			Set<PlanIssue> violations = EnumSet.noneOf(PlanIssue.class);
+			violations.addAll(issues);
+			violations.removeAll(allowed);
+			this.violations = violations;
+		}
+
+		public String getRepository() {
+			return repository;
+		}
+
+		/**
+		 * @return {@code 仓库接口简单类名.方法名(参数类型)}
+		 */
+		public String getMethod() {
+			return method;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		public List<String> getPlan() {
+			return plan;
+		}
+
+		public Set<PlanIssue> getIssues() {
+			return issues;
+		}
+
+		/**
+		 * @return 不在允许范围内的问题
+		 */
+		public Set<PlanIssue> getViolations() {
+			return violations;
+		}
+	}
+}
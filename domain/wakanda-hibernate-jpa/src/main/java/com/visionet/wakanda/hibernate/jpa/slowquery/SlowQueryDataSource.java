@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 为数据源、连接与语句创建 JDK 动态代理, 记录每次执行的耗时到 {@link SlowQueryLog}
+ *
+ * 数据源代理实现原数据源的全部接口, {@code unwrap}/{@code isWrapperFor} 与 {@code close} 直接交给原数据源
+ *
+ * @author pangcaijie
+ * @since 2019/5/17.
+ */
+public final class SlowQueryDataSource {
+
+	private SlowQueryDataSource() {
+	}
+
+	/**
+	 * @param target 原数据源
+	 * @param log 慢查询日志
+	 * @return 拦截语句执行的数据源
+	 */
+	public static DataSource wrap(DataSource target, SlowQueryLog log) {
+		return (DataSource) Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(),
+				ClassUtils.getAllInterfacesForClass(target.getClass(), SlowQueryDataSource.class.getClassLoader()),
+				new DataSourceHandler(target, log));
+	}
+
+	private static Object invoke(Object target, Object proxy, Method method, Object[] args) throws Throwable {
+		// 代理对象按引用比较, 不能交给原对象
+		if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+			return proxy == args[0];
+		}
+		if ("hashCode".equals(method.getName()) && (args == null || args.length == 0)) {
+			return System.identityHashCode(proxy);
+		}
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+
+	private static class DataSourceHandler implements InvocationHandler {
+
+		private final DataSource target;
+
+		private final SlowQueryLog log;
+
+		private DataSourceHandler(DataSource target, SlowQueryLog log) {
+			this.target = target;
+			this.log = log;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = SlowQueryDataSource.invoke(target, proxy, method, args);
+			if (result instanceof Connection && "getConnection".equals(method.getName())) {
+				return Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(),
+						new Class<?>[]{Connection.class}, new ConnectionHandler((Connection) result, target, log));
+			}
+			return result;
+		}
+	}
+
+	private static class ConnectionHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final DataSource dataSource;
+
+		private final SlowQueryLog log;
+
+		private ConnectionHandler(Connection target, DataSource dataSource, SlowQueryLog log) {
+			this.target = target;
+			this.dataSource = dataSource;
+			this.log = log;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = SlowQueryDataSource.invoke(target, proxy, method, args);
+			if (result instanceof Statement) {
+				// prepareStatement/prepareCall 的第一个参数是 SQL, createStatement 执行时才有 SQL
+				String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+				return Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(),
+						new Class<?>[]{method.getReturnType()},
+						new StatementHandler((Statement) result, sql, dataSource, log));
+			}
+			return result;
+		}
+	}
+
+	private static class StatementHandler implements InvocationHandler {
+
+		private final Statement target;
+
+		private final String sql;
+
+		private final DataSource dataSource;
+
+		private final SlowQueryLog log;
+
+		private final List<Object> parameters = new ArrayList<>();
+
+		private String batchSql;
+
+		private StatementHandler(Statement target, String sql, DataSource dataSource, SlowQueryLog log) {
+			this.target = target;
+			this.sql = sql;
+			this.dataSource = dataSource;
+			this.log = log;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.startsWith("execute")) {
+				return execute(proxy, method, args);
+			}
+			if (target instanceof PreparedStatement && name.startsWith("set") && args != null && args.length >= 2
+					&& args[0] instanceof Integer) {
+				setParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+			} else if ("clearParameters".equals(name)) {
+				parameters.clear();
+			} else if ("addBatch".equals(name) && args != null && args.length == 1 && batchSql == null) {
+				batchSql = (String) args[0];
+			}
+			return SlowQueryDataSource.invoke(target, proxy, method, args);
+		}
+
+		private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+			boolean batch = method.getName().endsWith("Batch");
+			boolean literal = args != null && args.length > 0 && args[0] instanceof String;
+			String executed = literal ? (String) args[0] : sql != null ? sql : batchSql;
+			long start = System.nanoTime();
+			try {
+				return SlowQueryDataSource.invoke(target, proxy, method, args);
+			} finally {
+				long nanos = System.nanoTime() - start;
+				if (executed != null) {
+					// 批量执行不记录参数; 未预编译的语句常量在 SQL 中, 没有绑定参数
+					log.record(dataSource, executed, batch ? null : literal ? Collections.<Object>emptyList() : parameters,
+							nanos);
+				}
+				if (batch) {
+					batchSql = null;
+				}
+			}
+		}
+
+		private void setParameter(int index, Object value) {
+			while (parameters.size() < index) {
+				parameters.add(null);
+			}
+			parameters.set(index - 1, value);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+
+/**
+ * 用 {@link SlowQueryDataSource} 包装容器中的数据源
+ *
+ * @author pangcaijie
+ * @since 2019/5/17.
+ */
+public class SlowQueryDataSourcePostProcessor implements BeanPostProcessor {
+
+	private final ObjectProvider<SlowQueryLog> slowQueryLog;
+
+	public SlowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+		this.slowQueryLog = slowQueryLog;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof DataSource) {
+			return SlowQueryDataSource.wrap((DataSource) bean, slowQueryLog.getObject());
+		}
+		return bean;
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 慢查询日志
+ *
+ * 每条语句按 {@link SqlFingerprint} 归类, 以 {@code wakanda.slowquery.latency} 记录各指纹的延迟分位数;
+ * 超过阈值的语句以 WARN 输出指纹、耗时、来源服务方法与脱敏后的参数类型, 并按采样率在后台线程执行 EXPLAIN,
+ * 同一指纹在 explainInterval 内最多 EXPLAIN 一次
+ *
+ * @author pangcaijie
+ * @since 2019/5/17.
+ */
+public class SlowQueryLog {
+
+	static final String OTHER = "other";
+
+	private static final int MAX_FINGERPRINTS = 1000;
+
+	private static final int MAX_CACHED_SQL = 10000;
+
+	private final Logger logger = LoggerFactory.getLogger("wakanda.slowquery");
+
+	private final long thresholdNanos;
+
+	private final double sampleRate;
+
+	private final long explainIntervalNanos;
+
+	private final ConcurrentMap<String, Statistics> bySql = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Statistics> byFingerprint = new ConcurrentHashMap<>();
+
+	private final ThreadPoolExecutor explainer;
+
+	/**
+	 * @param thresholdMillis 超过该耗时的语句写入日志
+	 * @param sampleRate 慢查询执行 EXPLAIN 的比例, 0~1
+	 * @param explainIntervalMillis 同一指纹两次 EXPLAIN 的最小间隔
+	 */
+	public SlowQueryLog(long thresholdMillis, double sampleRate, long explainIntervalMillis) {
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.sampleRate = sampleRate;
+		this.explainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(explainIntervalMillis);
+		// 队列满时丢弃, EXPLAIN 不能反过来拖慢数据库
+		this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+				runnable -> {
+					Thread thread = new Thread(runnable, "wakanda-slow-query-explain");
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.DiscardPolicy());
+	}
+
+	/**
+	 * 记录一次语句执行
+	 * @param dataSource 未经拦截的数据源, 用于 EXPLAIN
+	 * @param sql 语句
+	 * @param parameters 绑定的参数, 批量执行时为 null
+	 * @param nanos 耗时
+	 */
+	void record(DataSource dataSource, String sql, List<Object> parameters, long nanos) {
+		Statistics statistics = statistics(sql);
+		statistics.timer.record(nanos, TimeUnit.NANOSECONDS);
+		if (nanos < thresholdNanos) {
+			return;
+		}
+		String origin = QueryOriginInterceptor.currentOrigin();
+		logger.warn("Slow query [{}] {} ms from {}: {} {}", statistics.id, TimeUnit.NANOSECONDS.toMillis(nanos),
+				origin != null ? origin : "-", statistics.fingerprint, redact(parameters));
+		if (parameters != null && shouldExplain(statistics, sql)) {
+			// 语句对象会被复用, 参数需要复制
+			List<Object> values = new ArrayList<>(parameters);
+			explainer.execute(() -> explain(dataSource, sql, values, statistics, origin));
+		}
+	}
+
+	/**
+	 * @return 各指纹标识对应的指纹
+	 */
+	public Map<String, String> getFingerprints() {
+		Map<String, String> fingerprints = new TreeMap<>();
+		for (Statistics statistics : byFingerprint.values()) {
+			fingerprints.put(statistics.id, statistics.fingerprint);
+		}
+		return fingerprints;
+	}
+
+	public void close() {
+		explainer.shutdownNow();
+	}
+
+	private Statistics statistics(String sql) {
+		Statistics statistics = bySql.get(sql);
+		if (statistics != null) {
+			return statistics;
+		}
+		String fingerprint = SqlFingerprint.of(sql);
+		statistics = byFingerprint.get(fingerprint);
+		if (statistics == null) {
+			// 指纹数量有上限, 避免拼接常量的 SQL 使指标无限增长
+			String key = byFingerprint.size() < MAX_FINGERPRINTS ? fingerprint : OTHER;
+			statistics = byFingerprint.computeIfAbsent(key, Statistics::new);
+		}
+		if (bySql.size() < MAX_CACHED_SQL) {
+			bySql.putIfAbsent(sql, statistics);
+		}
+		return statistics;
+	}
+
+	private boolean shouldExplain(Statistics statistics, String sql) {
+		if (sampleRate <= 0 || statistics.id.equals(OTHER) || !ExplainPlan.isExplainable(sql)
+				|| ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			return false;
+		}
+		long now = System.nanoTime();
+		long last = statistics.lastExplain.get();
+		return (last == 0 || now - last >= explainIntervalNanos) && statistics.lastExplain.compareAndSet(last, now);
+	}
+
+	private void explain(DataSource dataSource, String sql, List<Object> parameters, Statistics statistics,
+						 String origin) {
+		try {
+			List<String> plan = ExplainPlan.explain(dataSource, sql, parameters);
+			logger.warn("Slow query [{}] from {} plan:\n{}", statistics.id, origin != null ? origin : "-",
+					String.join("\n", plan));
+		} catch (Exception e) {
+			logger.debug("Could not explain slow query [{}]", statistics.id, e);
+		}
+	}
+
+	/**
+	 * 只输出参数类型, 不输出参数值
+	 */
+	static String redact(List<Object> parameters) {
+		if (parameters == null) {
+			return "[batch]";
+		}
+		StringJoiner joiner = new StringJoiner(", ", "[", "]");
+		for (Object parameter : parameters) {
+			joiner.add(parameter == null ? "null" : parameter.getClass().getSimpleName());
+		}
+		return joiner.toString();
+	}
+
+	/**
+	 * 单个指纹的统计
+	 */
+	private static class Statistics {
+
+		private final String id;
+
+		private final String fingerprint;
+
+		private final Timer timer;
+
+		private final AtomicLong lastExplain = new AtomicLong();
+
+		private Statistics(String fingerprint) {
+			this.id = OTHER.equals(fingerprint) ? OTHER : SqlFingerprint.id(fingerprint);
+			this.fingerprint = fingerprint;
+			this.timer = Timer.builder("wakanda.slowquery.latency")
+					.tag("statement", id)
+					.publishPercentiles(0.5, 0.95, 0.99)
+					.register(Metrics.globalRegistry);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import java.util.regex.Pattern;
+
+/**
+ * SQL 指纹: 字符串与数字常量替换为 ?, IN 列表合并为 (...), 空白合并并转为小写;
+ * 参数个数不同但结构相同的语句得到相同指纹, 常量值不会出现在指纹中
+ *
+ * @author pangcaijie
+ * @since 2019/5/17.
+ */
+public final class SqlFingerprint {
+
+	private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+	private SqlFingerprint() {
+	}
+
+	/**
+	 * @param sql 原始 SQL
+	 * @return 指纹
+	 */
+	public static String of(String sql) {
+		StringBuilder out = new StringBuilder(sql.length());
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (c == '\'') {
+				i = skipQuoted(sql, i);
+				out.append('?');
+			} else if (Character.isDigit(c) && !isIdentifierPart(out)) {
+				while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+					i++;
+				}
+				out.append('?');
+			} else if (Character.isWhitespace(c)) {
+				while (i < length && Character.isWhitespace(sql.charAt(i))) {
+					i++;
+				}
+				if (out.length() > 0) {
+					out.append(' ');
+				}
+			} else {
+				out.append(Character.toLowerCase(c));
+				i++;
+			}
+		}
+		int end = out.length();
+		while (end > 0 && (out.charAt(end - 1) == ' ' || out.charAt(end - 1) == ';')) {
+			end--;
+		}
+		out.setLength(end);
+		return IN_LIST.matcher(out).replaceAll("(...)");
+	}
+
+	/**
+	 * @param fingerprint 指纹
+	 * @return 用于日志与指标标签的短标识
+	 */
+	public static String id(String fingerprint) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < fingerprint.length(); i++) {
+			hash ^= fingerprint.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return String.format("%016x", hash).substring(0, 12);
+	}
+
+	private static boolean isIdentifierPart(StringBuilder out) {
+		if (out.length() == 0) {
+			return false;
+		}
+		char last = out.charAt(out.length() - 1);
+		return Character.isLetterOrDigit(last) || last == '_' || last == '$' || last == '`';
+	}
+
+	private static int skipQuoted(String sql, int start) {
+		int i = start + 1;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (c == '\\') {
+				i += 2;
+			} else if (c == '\'') {
+				if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+					i += 2;
+				} else {
+					return i + 1;
+				}
+			} else {
+				i++;
+			}
+		}
+		return i;
+	}
+}
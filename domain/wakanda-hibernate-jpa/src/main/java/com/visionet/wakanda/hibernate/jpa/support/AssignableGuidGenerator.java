@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.core.GenericTypeResolver;
+
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link BaseEntity} 主键生成器: 已指定主键时沿用, 否则在应用内生成 36 位 UUID, 格式与 MySQL {@code uuid()} 相同
+ *
+ * 分片路由与 upsert 都依赖在写入前就确定的主键, 不访问数据库也使 H2 等不支持 GUID 的方言可用
+ *
+ * @author pangcaijie
+ * @since 2019/5/6.
+ */
+public class AssignableGuidGenerator implements IdentifierGenerator {
+
+	private static final ConcurrentMap<Class<?>, Boolean> STRING_IDS = new ConcurrentHashMap<>();
+
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object obj) throws HibernateException {
+		if (obj instanceof BaseEntity && !((BaseEntity) obj).isNew()) {
+			return (Serializable) ((BaseEntity) obj).getId();
+		}
+		return UUID.randomUUID().toString();
+	}
+
+	/**
+	 * 写入前为字符串主键的新实体分配主键
+	 * @return 实体的主键, 非字符串主键且未指定时为 null
+	 */
+	@SuppressWarnings("unchecked")
+	public static Object assign(BaseEntity<?> entity) {
+		if (entity.isNew() && hasStringId(entity.getClass())) {
+			((BaseEntity<Object>) entity).setId(UUID.randomUUID().toString());
+		}
+		return entity.getId();
+	}
+
+	/**
+	 * 主键字段声明为泛型 T, 只能从实体类的类型参数判断
+	 */
+	public static boolean hasStringId(Class<?> entityClass) {
+		return STRING_IDS.computeIfAbsent(entityClass,
+				type -> String.class.equals(GenericTypeResolver.resolveTypeArgument(type, BaseEntity.class)));
+	}
+}
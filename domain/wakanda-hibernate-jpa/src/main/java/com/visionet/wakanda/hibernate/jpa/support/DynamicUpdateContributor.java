@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.boot.spi.InFlightMetadataCollector;
+import org.hibernate.boot.spi.MetadataContributor;
+import org.hibernate.mapping.PersistentClass;
+import org.jboss.jandex.IndexView;
+
+/**
+ * {@link BaseEntity} 子类默认只 UPDATE 修改过的列
+ *
+ * {@link DynamicUpdate} 标注在 {@code @MappedSuperclass} 上不生效, 因此在实体绑定完成后统一设置;
+ * 实体自身标注了 {@link DynamicUpdate} 时(包括 {@code @DynamicUpdate(false)})以实体为准
+ *
+ * 通过 {@code META-INF/services/org.hibernate.boot.spi.MetadataContributor} 注册
+ *
+ * @author pangcaijie
+ * @since 2019/5/18.
+ */
+public class DynamicUpdateContributor implements MetadataContributor {
+
+	@Override
+	public void contribute(InFlightMetadataCollector metadataCollector, IndexView jandexIndex) {
+		for (PersistentClass persistentClass : metadataCollector.getEntityBindings()) {
+			Class<?> mappedClass = persistentClass.getMappedClass();
+			if (mappedClass != null && BaseEntity.class.isAssignableFrom(mappedClass)
+					&& !mappedClass.isAnnotationPresent(DynamicUpdate.class)) {
+				persistentClass.setDynamicUpdate(true);
+			}
+		}
+	}
+}
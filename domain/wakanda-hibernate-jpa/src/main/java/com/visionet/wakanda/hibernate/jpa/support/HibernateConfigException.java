@@ -10,4 +10,10 @@ package com.visionet.wakanda.hibernate.jpa.support;
  */
 public class HibernateConfigException extends RuntimeException {
 
+	public HibernateConfigException() {
+	}
+
+	public HibernateConfigException(String message, Throwable cause) {
+		super(message, cause);
+	}
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import com.visionet.wakanda.core.utils.StringInterner;
+import io.micrometer.core.instrument.Metrics;
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.StringTypeDescriptor;
+import org.hibernate.type.descriptor.sql.VarcharTypeDescriptor;
+
+/**
+ * 读取时驻留的 varchar 类型, 适用于取值很少的字符串列(创建人、状态码等), 大量加载的实体共享同一字符串实例
+ *
+ * 在字段上标注 {@code @Type(type = InternedStringType.NAME)} 使用, 写入与比较和 {@code string} 类型相同;
+ * 驻留效果见指标 {@code wakanda.intern.hit.ratio} 与 {@code wakanda.intern.saved.bytes}
+ *
+ * @author pangcaijie
+ * @since 2019/5/27.
+ */
+public class InternedStringType extends AbstractSingleColumnStandardBasicType<String> {
+
+	public static final String NAME = "interned_string";
+
+	private static final StringInterner INTERNER = new StringInterner(64);
+
+	static {
+		Metrics.gauge("wakanda.intern.hit.ratio", INTERNER, StringInterner::getHitRate);
+		Metrics.gauge("wakanda.intern.saved.bytes", INTERNER, StringInterner::getSavedBytes);
+		Metrics.gauge("wakanda.intern.size", INTERNER, StringInterner::size);
+	}
+
+	public static final InternedStringType INSTANCE = new InternedStringType();
+
+	public InternedStringType() {
+		super(VarcharTypeDescriptor.INSTANCE, new InternedStringTypeDescriptor());
+	}
+
+	/**
+	 * @return 所有驻留列共享的驻留池
+	 */
+	public static StringInterner getInterner() {
+		return INTERNER;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	private static class InternedStringTypeDescriptor extends StringTypeDescriptor {
+
+		@Override
+		public <X> String wrap(X value, WrapperOptions options) {
+			return INTERNER.intern(super.wrap(value, options));
+		}
+	}
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import org.hibernate.boot.model.TypeContributions;
+import org.hibernate.boot.model.TypeContributor;
+import org.hibernate.service.ServiceRegistry;
+
+/**
+ * 注册 {@link InternedStringType}
+ *
+ * 通过 {@code META-INF/services/org.hibernate.boot.model.TypeContributor} 注册
+ *
+ * @author pangcaijie
+ * @since 2019/5/27.
+ */
+public class InternedStringTypeContributor implements TypeContributor {
+
+	@Override
+	public void contribute(TypeContributions typeContributions, ServiceRegistry serviceRegistry) {
+		typeContributions.contributeType(InternedStringType.INSTANCE, InternedStringType.NAME);
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * JPA 启动方式与持久化就绪状态
+ *
+ * 通过 {@code wakanda.jpa.bootstrapMode} 配置:
+ * <ul>
+ *     <li>default: 主线程构建 EntityManagerFactory, 启动时创建全部仓库(原有行为)</li>
+ *     <li>deferred: 后台线程构建 EntityManagerFactory(包括命名策略), 仓库在容器刷新完成后统一创建</li>
+ *     <li>lazy: 后台线程构建 EntityManagerFactory, 仓库在首次使用时创建</li>
+ * </ul>
+ * 后台构建时, 其它 bean 的初始化与 EntityManagerFactory 构建并行; 存在多个 EntityManagerFactory 时分别记录就绪状态,
+ * 全部构建完成前 {@link PersistenceHealthIndicator} 报告 {@code OUT_OF_SERVICE}
+ *
+ * @author pangcaijie
+ * @since 2019/4/30.
+ */
+public class PersistenceBootstrap implements BeanPostProcessor {
+
+	public static final String BOOTSTRAP_MODE_PROPERTY = "wakanda.jpa.bootstrapMode";
+
+	private static final Logger logger = LoggerFactory.getLogger(PersistenceBootstrap.class);
+
+	private final BootstrapMode bootstrapMode;
+
+	private final Map<String, CompletableFuture<Void>> factories = new ConcurrentHashMap<>();
+
+	public PersistenceBootstrap(BootstrapMode bootstrapMode) {
+		this.bootstrapMode = bootstrapMode;
+	}
+
+	/**
+	 * @param environment 环境配置
+	 * @return 配置的启动方式, 未配置时为 {@link BootstrapMode#DEFAULT}
+	 */
+	public static BootstrapMode resolveBootstrapMode(Environment environment) {
+		String mode = environment.getProperty(BOOTSTRAP_MODE_PROPERTY);
+		if (mode == null || mode.trim().length() <= 0) {
+			return BootstrapMode.DEFAULT;
+		}
+		try {
+			return BootstrapMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new HibernateConfigException("Unknown " + BOOTSTRAP_MODE_PROPERTY + ": " + mode, e);
+		}
+	}
+
+	public BootstrapMode getBootstrapMode() {
+		return bootstrapMode;
+	}
+
+	/**
+	 * @return 所有 EntityManagerFactory 是否都已构建完成, 尚未创建任何 EntityManagerFactory 时为 {@code false}
+	 */
+	public boolean isReady() {
+		if (factories.isEmpty()) {
+			return false;
+		}
+		for (CompletableFuture<Void> ready : factories.values()) {
+			if (!isReady(ready)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param beanName EntityManagerFactory 的 bean 名称
+	 * @return 该 EntityManagerFactory 是否已经构建完成
+	 */
+	public boolean isReady(String beanName) {
+		CompletableFuture<Void> ready = factories.get(beanName);
+		return ready != null && isReady(ready);
+	}
+
+	/**
+	 * 等待所有 EntityManagerFactory 构建完成
+	 * @param timeout 最长等待时间
+	 * @param unit 时间单位
+	 * @return 在超时前构建完成返回 {@code true}, 尚未创建任何 EntityManagerFactory 时返回 {@code false}
+	 * @throws HibernateConfigException EntityManagerFactory 构建失败
+	 */
+	public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+		return !factories.isEmpty() && await(CompletableFuture.allOf(factories.values().toArray(new CompletableFuture[0])), timeout, unit);
+	}
+
+	/**
+	 * 等待指定的 EntityManagerFactory 构建完成
+	 * @param beanName EntityManagerFactory 的 bean 名称
+	 * @return 在超时前构建完成返回 {@code true}, 不存在该 EntityManagerFactory 时返回 {@code false}
+	 * @throws HibernateConfigException EntityManagerFactory 构建失败
+	 */
+	public boolean awaitReady(String beanName, long timeout, TimeUnit unit) throws InterruptedException {
+		CompletableFuture<Void> ready = factories.get(beanName);
+		return ready != null && await(ready, timeout, unit);
+	}
+
+	/**
+	 * @return 各 EntityManagerFactory 的 bean 名称与构建结果
+	 */
+	Map<String, CompletableFuture<Void>> getFactories() {
+		return Collections.unmodifiableMap(factories);
+	}
+
+	private static boolean isReady(CompletableFuture<Void> ready) {
+		return ready.isDone() && !ready.isCompletedExceptionally();
+	}
+
+	private static boolean await(CompletableFuture<Void> ready, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		try {
+			ready.get(timeout, unit);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		} catch (ExecutionException e) {
+			throw new HibernateConfigException("EntityManagerFactory bootstrap failed", e.getCause());
+		}
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		if (!(bean instanceof LocalContainerEntityManagerFactoryBean)) {
+			return bean;
+		}
+		CompletableFuture<Void> ready = new CompletableFuture<>();
+		factories.put(beanName, ready);
+		if (bootstrapMode != BootstrapMode.DEFAULT) {
+			SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("wakanda-jpa-bootstrap-");
+			((LocalContainerEntityManagerFactoryBean) bean).setBootstrapExecutor(
+					new BootstrapExecutor(executor, beanName, ready));
+		}
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof LocalContainerEntityManagerFactoryBean && bootstrapMode == BootstrapMode.DEFAULT) {
+			factories.get(beanName).complete(null);
+		}
+		return bean;
+	}
+
+	/**
+	 * 记录后台构建结果的执行器
+	 */
+	private static class BootstrapExecutor implements AsyncTaskExecutor {
+
+		private final AsyncTaskExecutor delegate;
+
+		private final String beanName;
+
+		private final CompletableFuture<Void> ready;
+
+		private BootstrapExecutor(AsyncTaskExecutor delegate, String beanName, CompletableFuture<Void> ready) {
+			this.delegate = delegate;
+			this.beanName = beanName;
+			this.ready = ready;
+		}
+
+		@Override
+		public void execute(Runnable task, long startTimeout) {
+			delegate.execute(task, startTimeout);
+		}
+
+		@Override
+		public void execute(Runnable task) {
+			delegate.execute(task);
+		}
+
+		@Override
+		public Future<?> submit(Runnable task) {
+			return submit(Executors.callable(task));
+		}
+
+		@Override
+		public <T> Future<T> submit(Callable<T> task) {
+			final long start = System.currentTimeMillis();
+			return delegate.submit(() -> {
+				try {
+					T result = task.call();
+					logger.info("EntityManagerFactory '{}' built in background in {} ms",
+							beanName, System.currentTimeMillis() - start);
+					ready.complete(null);
+					return result;
+				} catch (Throwable ex) {
+					ready.completeExceptionally(ex);
+					throw ex;
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 持久化就绪检查, 用作健康检查与就绪探针
+ *
+ * 各 EntityManagerFactory 均构建完成时为 {@code UP}, 仍在后台构建时为 {@code OUT_OF_SERVICE}, 构建失败时为 {@code DOWN};
+ * 详情中列出每个 EntityManagerFactory 的状态
+ *
+ * @author pangcaijie
+ * @since 2019/4/30.
+ */
+public class PersistenceHealthIndicator extends AbstractHealthIndicator {
+
+	private final PersistenceBootstrap bootstrap;
+
+	public PersistenceHealthIndicator(PersistenceBootstrap bootstrap) {
+		super("Persistence health check failed");
+		this.bootstrap = bootstrap;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) throws Exception {
+		Map<String, CompletableFuture<Void>> factories = bootstrap.getFactories();
+		if (factories.isEmpty()) {
+			builder.outOfService();
+			return;
+		}
+		Status status = Status.UP;
+		for (Map.Entry<String, CompletableFuture<Void>> factory : factories.entrySet()) {
+			CompletableFuture<Void> ready = factory.getValue();
+			if (!ready.isDone()) {
+				builder.withDetail(factory.getKey(), "building");
+				if (status == Status.UP) {
+					status = Status.OUT_OF_SERVICE;
+				}
+			} else if (ready.isCompletedExceptionally()) {
+				builder.withDetail(factory.getKey(), "failed: " + cause(ready));
+				status = Status.DOWN;
+			} else {
+				builder.withDetail(factory.getKey(), "ready");
+			}
+		}
+		builder.withDetail("bootstrapMode", bootstrap.getBootstrapMode().name().toLowerCase(Locale.ROOT)).status(status);
+	}
+
+	private static Throwable cause(CompletableFuture<Void> ready) {
+		try {
+			ready.get();
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return e;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import java.util.Date;
+
+/**
+ * 按数值或日期属性的取值范围等分分区
+ *
+ * 分区 i 的范围为 [low + i * step, low + (i + 1) * step), 最后一个分区不设上限; 空值不属于任何分区
+ *
+ * @author pangcaijie
+ * @since 2019/5/29.
+ */
+public final class RangePartitioner {
+
+	private final Class<?> type;
+
+	private final long low;
+
+	private final long step;
+
+	private final int count;
+
+	/**
+	 * @param type 属性类型, 决定边界值的类型
+	 * @param low 下界
+	 * @param step 步长
+	 * @param count 分区数
+	 */
+	public RangePartitioner(Class<?> type, long low, long step, int count) {
+		this.type = type;
+		this.low = low;
+		this.step = step;
+		this.count = count;
+	}
+
+	/**
+	 * @param type 属性类型
+	 * @param min 属性的最小值, 为 null(表中没有非空值)时没有分区
+	 * @param max 属性的最大值
+	 * @param partitions 期望的分区数, 取值范围较小时实际分区数可能更少
+	 */
+	public static RangePartitioner split(Class<?> type, Object min, Object max, int partitions) {
+		if (min == null) {
+			return new RangePartitioner(type, 0, 1, 0);
+		}
+		long low = toLong(min);
+		long high = toLong(max);
+		long step = Math.max(1, (high - low) / partitions + 1);
+		return new RangePartitioner(type, low, step, (int) ((high - low) / step + 1));
+	}
+
+	public long getLow() {
+		return low;
+	}
+
+	public long getStep() {
+		return step;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return 分区的下界(含)
+	 */
+	public Object from(int partition) {
+		return fromLong(low + partition * step);
+	}
+
+	/**
+	 * @return 分区的上界(不含), 最后一个分区为 null
+	 */
+	public Object to(int partition) {
+		return partition < count - 1 ? fromLong(low + (partition + 1) * step) : null;
+	}
+
+	private static long toLong(Object value) {
+		if (value instanceof Date) {
+			return ((Date) value).getTime();
+		}
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		throw new IllegalArgumentException("Partition property must be numeric or a date, got " + value.getClass());
+	}
+
+	private Object fromLong(long value) {
+		if (java.sql.Timestamp.class.isAssignableFrom(type)) {
+			return new java.sql.Timestamp(value);
+		}
+		if (java.sql.Date.class.isAssignableFrom(type)) {
+			return new java.sql.Date(value);
+		}
+		if (Date.class.isAssignableFrom(type)) {
+			return new Date(value);
+		}
+		if (type == Integer.class || type == int.class) {
+			return (int) value;
+		}
+		if (type == Short.class || type == short.class) {
+			return (short) value;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.upsert;
+
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 按实体映射生成并执行单语句 upsert
+ *
+ * 新行的版本号取初始值, 已存在的行版本号加一, 不做乐观锁校验(以最后一次写入为准);
+ * {@code updatable = false} 的列(创建人、创建时间)只在插入时写入. 执行后实体不会进入持久化上下文,
+ * 同主键的托管实例与二级缓存会被清除, 实体对象上的 version 不再与数据库一致
+ *
+ * 仅支持单表且没有继承关系的实体, 其余情况 {@link #isSupported()} 返回 {@code false}
+ *
+ * @author pangcaijie
+ * @since 2019/5/10.
+ */
+public class EntityUpserter {
+
+	private static final int DEFAULT_BATCH_SIZE = 500;
+
+	private final AbstractEntityPersister persister;
+
+	private final UpsertStatement statement;
+
+	private EntityUpserter(AbstractEntityPersister persister, UpsertStatement statement) {
+		this.persister = persister;
+		this.statement = statement;
+	}
+
+	/**
+	 * @param sessionFactory Hibernate SessionFactory
+	 * @param entityClass 实体类型
+	 * @return 实体的 upserter
+	 */
+	public static EntityUpserter forEntity(SessionFactoryImplementor sessionFactory, Class<?> entityClass) {
+		EntityPersister entityPersister = sessionFactory.getMetamodel().entityPersister(entityClass);
+		UpsertDialect dialect = UpsertDialect.of(sessionFactory.getJdbcServices().getDialect());
+		if (dialect == null || !(entityPersister instanceof AbstractEntityPersister)) {
+			return new EntityUpserter(null, null);
+		}
+		AbstractEntityPersister persister = (AbstractEntityPersister) entityPersister;
+		if (persister.isMultiTable() || persister.isInherited() || persister.getEntityMetamodel().hasSubclasses()) {
+			return new EntityUpserter(null, null);
+		}
+
+		List<UpsertColumn> columns = new ArrayList<>();
+		columns.add(new UpsertColumn(UpsertColumn.IDENTIFIER, persister.getIdentifierColumnNames(),
+				persister.getIdentifierType(), false, false));
+		Type[] types = persister.getPropertyTypes();
+		boolean[] insertable = persister.getPropertyInsertability();
+		boolean[] updatable = persister.getPropertyUpdateability();
+		for (int i = 0; i < types.length; i++) {
+			String[] names = persister.getPropertyColumnNames(i);
+			if (!insertable[i] || names == null || names.length == 0 || containsFormula(names)) {
+				continue;
+			}
+			boolean version = persister.isVersioned() && i == persister.getVersionProperty();
+			columns.add(new UpsertColumn(i, names, types[i], updatable[i] && !version, version));
+		}
+		return new EntityUpserter(persister, dialect.statement(persister.getTableName(), columns));
+	}
+
+	/**
+	 * @return 当前数据库与实体映射是否支持单语句 upsert
+	 */
+	public boolean isSupported() {
+		return statement != null;
+	}
+
+	/**
+	 * 批量执行 upsert, 每 {@code hibernate.jdbc.batch_size}(未配置时 500)条提交一次 JDBC batch
+	 * @param session 当前事务的 Session
+	 * @param entities 已分配主键的实体
+	 */
+	public void upsert(SessionImplementor session, Collection<?> entities) {
+		Assert.state(isSupported(), "Upsert is not supported by this dialect or entity mapping");
+		if (entities.isEmpty()) {
+			return;
+		}
+		// 先写出待提交的修改, 避免与本次写入的行冲突
+		session.flush();
+		Integer configured = session.getJdbcBatchSize();
+		if (configured == null) {
+			configured = session.getFactory().getSessionFactoryOptions().getJdbcBatchSize();
+		}
+		int batchSize = configured > 0 ? configured : DEFAULT_BATCH_SIZE;
+		session.doWork(connection -> {
+			try (PreparedStatement ps = connection.prepareStatement(statement.getSql())) {
+				int pending = 0;
+				for (Object entity : entities) {
+					bind(ps, entity, session);
+					ps.addBatch();
+					if (++pending >= batchSize) {
+						ps.executeBatch();
+						pending = 0;
+					}
+				}
+				if (pending > 0) {
+					ps.executeBatch();
+				}
+			}
+		});
+		for (Object entity : entities) {
+			evict(session, entity);
+		}
+	}
+
+	private void bind(PreparedStatement ps, Object entity, SessionImplementor session) throws SQLException {
+		Serializable id = persister.getIdentifier(entity, session);
+		Assert.notNull(id, "Upsert requires an assigned id");
+		Object[] values = persister.getPropertyValues(entity);
+		int index = 1;
+		for (UpsertColumn column : statement.getBindings()) {
+			Object value;
+			if (column.getProperty() == UpsertColumn.IDENTIFIER) {
+				value = id;
+			} else if (column.isVersion()) {
+				value = persister.getVersionType().seed(session);
+			} else {
+				value = values[column.getProperty()];
+			}
+			column.getType().nullSafeSet(ps, value, index, session);
+			index += column.getNames().length;
+		}
+	}
+
+	private void evict(SessionImplementor session, Object entity) {
+		Serializable id = persister.getIdentifier(entity, session);
+		EntityKey key = session.generateEntityKey(id, persister);
+		Object managed = session.getPersistenceContext().getEntity(key);
+		if (managed != null) {
+			session.evict(managed);
+		}
+		session.getFactory().getCache().evictEntityData(persister.getEntityName(), id);
+	}
+
+	private static boolean containsFormula(String[] names) {
+		for (String name : names) {
+			if (name == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.upsert;
+
+import org.hibernate.type.Type;
+
+/**
+ * 实体的一个属性及其对应的列
+ *
+ * @author pangcaijie
+ * @since 2019/5/10.
+ */
+class UpsertColumn {
+
+	/**
+	 * 主键使用的属性序号
+	 */
+	static final int IDENTIFIER = -1;
+
+	private final int property;
+
+	private final String[] names;
+
+	private final Type type;
+
+	private final boolean updatable;
+
+	private final boolean version;
+
+	UpsertColumn(int property, String[] names, Type type, boolean updatable, boolean version) {
+		this.property = property;
+		this.names = names;
+		this.type = type;
+		this.updatable = updatable;
+		this.version = version;
+	}
+
+	int getProperty() {
+		return property;
+	}
+
+	String[] getNames() {
+		return names;
+	}
+
+	Type getType() {
+		return type;
+	}
+
+	boolean isUpdatable() {
+		return updatable;
+	}
+
+	boolean isVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.upsert;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 各数据库的单语句 upsert 写法
+ *
+ * @author pangcaijie
+ * @since 2019/5/10.
+ */
+public enum UpsertDialect {
+
+	/**
+	 * {@code INSERT ... ON DUPLICATE KEY UPDATE}, 批量执行时建议连接串开启 {@code rewriteBatchedStatements=true}
+	 */
+	MYSQL {
+		@Override
+		UpsertStatement statement(String table, List<UpsertColumn> columns) {
+			StringBuilder sql = new StringBuilder("insert into ").append(table).append(" (");
+			StringBuilder values = new StringBuilder();
+			List<UpsertColumn> bindings = new ArrayList<>(columns);
+			for (UpsertColumn column : columns) {
+				for (String name : column.getNames()) {
+					if (values.length() > 0) {
+						sql.append(", ");
+						values.append(", ");
+					}
+					sql.append(name);
+					values.append('?');
+				}
+			}
+			sql.append(") values (").append(values).append(") on duplicate key update ");
+			sql.append(assignments(columns, name -> "values(" + name + ")"));
+			return new UpsertStatement(sql.toString(), bindings);
+		}
+	},
+
+	/**
+	 * H2 的 {@code MERGE INTO ... KEY (...) VALUES (...)}, 主要用于测试
+	 *
+	 * 1.4.197 的 {@code MERGE ... USING} 来源列数必须与目标表一致且不接受未声明类型的参数,
+	 * 因此改用按主键覆盖整行的写法, 版本号与 {@code updatable = false} 的列由子查询取回原值
+	 */
+	H2 {
+		@Override
+		UpsertStatement statement(String table, List<UpsertColumn> columns) {
+			UpsertColumn id = columns.get(0);
+			StringBuilder key = new StringBuilder();
+			StringBuilder where = new StringBuilder();
+			for (String name : id.getNames()) {
+				key.append(key.length() > 0 ? ", " : "").append(name);
+				where.append(where.length() > 0 ? " and " : " where ").append(name).append(" = ?");
+			}
+			List<UpsertColumn> bindings = new ArrayList<>();
+			StringBuilder names = new StringBuilder();
+			StringBuilder values = new StringBuilder();
+			for (UpsertColumn column : columns) {
+				boolean kept = column != id && (column.isVersion() || !column.isUpdatable());
+				if (kept && column.getNames().length > 1) {
+					// 子查询与新值的参数交错, 多列属性无法整体绑定
+					throw new IllegalArgumentException("H2 upsert does not support multi-column version or non-updatable properties");
+				}
+				for (String name : column.getNames()) {
+					if (values.length() > 0) {
+						names.append(", ");
+						values.append(", ");
+					}
+					names.append(name);
+					if (column.isVersion()) {
+						values.append("coalesce((select ").append(name).append(" + 1 from ").append(table).append(where)
+								.append("), ?)");
+						bindings.add(id);
+					} else if (kept) {
+						values.append("case when exists (select 1 from ").append(table).append(where).append(") then (select ")
+								.append(name).append(" from ").append(table).append(where).append(") else ? end");
+						bindings.add(id);
+						bindings.add(id);
+					} else {
+						values.append('?');
+					}
+				}
+				bindings.add(column);
+			}
+			String sql = "merge into " + table + " (" + names + ") key (" + key + ") values (" + values + ")";
+			return new UpsertStatement(sql, bindings);
+		}
+	};
+
+	/**
+	 * @param dialect Hibernate 方言
+	 * @return 对应的写法, 不支持时返回 null
+	 */
+	public static UpsertDialect of(Dialect dialect) {
+		if (dialect instanceof MySQLDialect) {
+			return MYSQL;
+		}
+		if (dialect instanceof H2Dialect) {
+			return H2;
+		}
+		return null;
+	}
+
+	/**
+	 * @param table 表名
+	 * @param columns 列, 第一个为主键
+	 * @return upsert 语句
+	 */
+	abstract UpsertStatement statement(String table, List<UpsertColumn> columns);
+
+	/**
+	 * 更新部分: 可更新列取新值, 版本号加一, 不更新创建人等 {@code updatable = false} 的列
+	 */
+	private static String assignments(List<UpsertColumn> columns, Function<String, String> value) {
+		StringBuilder sql = new StringBuilder();
+		for (UpsertColumn column : columns) {
+			if (!column.isUpdatable() && !column.isVersion()) {
+				continue;
+			}
+			for (String name : column.getNames()) {
+				if (sql.length() > 0) {
+					sql.append(", ");
+				}
+				sql.append(name).append(" = ").append(column.isVersion() ? name + " + 1" : value.apply(name));
+			}
+		}
+		if (sql.length() <= 0) {
+			// 只有主键时也需要一个合法的更新子句
+			String name = columns.get(0).getNames()[0];
+			sql.append(name).append(" = ").append(name);
+		}
+		return sql.toString();
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.upsert;
+
+import java.util.List;
+
+/**
+ * upsert 语句及参数绑定顺序
+ *
+ * @author pangcaijie
+ * @since 2019/5/10.
+ */
+class UpsertStatement {
+
+	private final String sql;
+
+	private final List<UpsertColumn> bindings;
+
+	UpsertStatement(String sql, List<UpsertColumn> bindings) {
+		this.sql = sql;
+		this.bindings = bindings;
+	}
+
+	String getSql() {
+		return sql;
+	}
+
+	List<UpsertColumn> getBindings() {
+		return bindings;
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.writebehind;
+
+import java.lang.annotation.*;
+
+/**
+ * 标注在仓库接口上, 开启异步批量写入(write-behind)
+ *
+ * {@code save} 只把实体放入有界缓冲区即返回, 由后台线程在攒够 {@link #batchSize()} 条或距首条入队超过
+ * {@link #flushInterval()} 毫秒时批量写入; 应用停止时会写完缓冲区中剩余的实体.
+ * 写入前调用方读不到缓冲中的实体, 进程异常退出时最多丢失一个缓冲区的数据, 仅适用于日志、事件等追加型数据.
+ * 写入失败的实体不会丢弃, 见 {@link WriteBehindFailureHandler}
+ *
+ * @author pangcaijie
+ * @since 2019/5/9.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface WriteBehind {
+
+	/**
+	 * @return 缓冲区容量
+	 */
+	int capacity() default 10000;
+
+	/**
+	 * @return 每批写入的最大数量, 同时作为 JDBC batch size
+	 */
+	int batchSize() default 500;
+
+	/**
+	 * @return 最长攒批时间, 毫秒
+	 */
+	long flushInterval() default 1000;
+
+	/**
+	 * @return 缓冲区满时 {@code save} 最长等待时间, 毫秒; 超时抛出 {@link WriteBehindRejectedException}
+	 */
+	long offerTimeout() default 5000;
+
+	/**
+	 * @return 数据库暂时不可用时每批的重试次数, 间隔从 {@link #flushInterval()} 起逐次加倍;
+	 * 仍然失败的实体交给 {@link WriteBehindFailureHandler}
+	 */
+	int retries() default 3;
+}
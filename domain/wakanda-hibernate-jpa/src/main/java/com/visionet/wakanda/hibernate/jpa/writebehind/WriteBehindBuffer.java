@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.writebehind;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Session;
+import org.hibernate.exception.JDBCConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WriteBehind} 的缓冲区与后台写入线程
+ *
+ * 每批在一个事务中 persist 后 flush/clear, 借助 Hibernate JDBC batch 合并 INSERT. 连接失败、锁超时等暂时性错误
+ * 按 {@link WriteBehind#retries()} 退避重试整批; 其它错误逐条重试以隔离错误数据. 仍然失败的实体交给
+ * {@link WriteBehindFailureHandler}, 未配置时放入容量与缓冲区相同的死信队列, 由 {@link #drainFailed()} 取出.
+ * 指标通过 micrometer 输出: {@code wakanda.writebehind.enqueued|flushed|failed|rejected},
+ * {@code wakanda.writebehind.flush}(每批耗时)、{@code wakanda.writebehind.queue.size}
+ * 与 {@code wakanda.writebehind.deadletter.size}
+ *
+ * @author pangcaijie
+ * @since 2019/5/9.
+ */
+public class WriteBehindBuffer<M extends BaseEntity> {
+
+	private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+	private final String name;
+
+	private final WriteBehind config;
+
+	private final EntityManager em;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final BlockingQueue<M> queue;
+
+	private final BlockingQueue<M> deadLetters;
+
+	private final Thread flusher;
+
+	private final Counter enqueued;
+
+	private final Counter flushed;
+
+	private final Counter failed;
+
+	private final Counter rejected;
+
+	private final Timer flushTimer;
+
+	private final Object monitor = new Object();
+
+	/**
+	 * 后台线程已取出、尚未写完的批次数, 由 monitor 保护
+	 */
+	private int writing;
+
+	private volatile WriteBehindFailureHandler failureHandler;
+
+	private volatile boolean running = true;
+
+	public WriteBehindBuffer(String name, WriteBehind config, EntityManager em,
+			PlatformTransactionManager transactionManager) {
+		this.name = name;
+		this.config = config;
+		this.em = em;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		// flush 可能在调用者的事务中执行, 批次使用独立的事务与 EntityManager, clear 不会分离调用者的实体
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.queue = new ArrayBlockingQueue<>(config.capacity());
+		this.deadLetters = new ArrayBlockingQueue<>(config.capacity());
+
+		Tags tags = Tags.of("repository", name);
+		this.enqueued = Metrics.counter("wakanda.writebehind.enqueued", tags);
+		this.flushed = Metrics.counter("wakanda.writebehind.flushed", tags);
+		this.failed = Metrics.counter("wakanda.writebehind.failed", tags);
+		this.rejected = Metrics.counter("wakanda.writebehind.rejected", tags);
+		this.flushTimer = Metrics.timer("wakanda.writebehind.flush", tags);
+		Metrics.gauge("wakanda.writebehind.queue.size", tags, queue, BlockingQueue::size);
+		Metrics.gauge("wakanda.writebehind.deadletter.size", tags, deadLetters, BlockingQueue::size);
+
+		this.flusher = new Thread(this::run, "wakanda-write-behind-" + name);
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * @param failureHandler 接收写入失败的实体, 代替死信队列
+	 */
+	public void setFailureHandler(WriteBehindFailureHandler failureHandler) {
+		this.failureHandler = failureHandler;
+	}
+
+	/**
+	 * 放入缓冲区, 缓冲区满时最多等待 {@link WriteBehind#offerTimeout()} 毫秒
+	 * @param entity 实体
+	 * @throws WriteBehindRejectedException 缓冲区已满或已关闭
+	 */
+	public void add(M entity) {
+		if (!running) {
+			rejected.increment();
+			throw new WriteBehindRejectedException("Write-behind buffer " + name + " is closed");
+		}
+		boolean accepted;
+		try {
+			accepted = queue.offer(entity, config.offerTimeout(), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			accepted = false;
+		}
+		if (!accepted) {
+			rejected.increment();
+			throw new WriteBehindRejectedException("Write-behind buffer " + name + " is full");
+		}
+		enqueued.increment();
+		synchronized (monitor) {
+			monitor.notifyAll();
+		}
+	}
+
+	/**
+	 * 在调用线程中立即写出缓冲区中的全部实体, 并等待后台线程写完已取出的批次
+	 *
+	 * 批次在独立的事务中提交, 不随调用者的事务回滚
+	 */
+	public void flush() {
+		List<M> batch = new ArrayList<>(config.batchSize());
+		while (queue.drainTo(batch, config.batchSize()) > 0) {
+			write(batch);
+			batch.clear();
+		}
+		synchronized (monitor) {
+			while (writing > 0) {
+				try {
+					monitor.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 取出死信队列中的实体, 修正后可重新 save
+	 */
+	public List<M> drainFailed() {
+		List<M> failedEntities = new ArrayList<>();
+		deadLetters.drainTo(failedEntities);
+		return failedEntities;
+	}
+
+	/**
+	 * 停止接收新实体, 等待后台线程写完剩余实体
+	 */
+	public void close() {
+		running = false;
+		synchronized (monitor) {
+			monitor.notifyAll();
+		}
+		flusher.interrupt();
+		try {
+			flusher.join(SHUTDOWN_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!queue.isEmpty()) {
+			logger.warn("Write-behind buffer {} closed with {} entities not written", name, queue.size());
+		}
+	}
+
+	private void run() {
+		List<M> batch = new ArrayList<>(config.batchSize());
+		long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.flushInterval());
+		while (true) {
+			try {
+				// 取出首条与登记批次在同一个锁内完成, flush 不会错过已取出未写完的实体
+				synchronized (monitor) {
+					M first = queue.poll();
+					if (first == null) {
+						if (!running) {
+							return;
+						}
+						monitor.wait(config.flushInterval());
+						continue;
+					}
+					batch.add(first);
+					writing++;
+				}
+				long deadline = System.nanoTime() + intervalNanos;
+				while (batch.size() < config.batchSize()) {
+					queue.drainTo(batch, config.batchSize() - batch.size());
+					long remaining = deadline - System.nanoTime();
+					if (batch.size() >= config.batchSize() || remaining <= 0 || !running) {
+						break;
+					}
+					M next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+			} catch (InterruptedException e) {
+				// 关闭时被中断, 继续写完剩余实体
+			}
+			if (!batch.isEmpty()) {
+				try {
+					write(batch);
+				} finally {
+					batch.clear();
+					synchronized (monitor) {
+						writing--;
+						monitor.notifyAll();
+					}
+				}
+			}
+		}
+	}
+
+	private void write(List<M> batch) {
+		long start = System.nanoTime();
+		try {
+			RuntimeException failure = persistWithRetry(batch);
+			if (failure == null) {
+				flushed.increment(batch.size());
+				return;
+			}
+			if (isTransient(failure)) {
+				fail(batch, failure);
+				return;
+			}
+			logger.warn("Write-behind batch of {} failed for {}, retrying one by one", batch.size(), name, failure);
+			List<M> failedEntities = new ArrayList<>();
+			for (M entity : batch) {
+				RuntimeException cause = persistWithRetry(Collections.singletonList(entity));
+				if (cause == null) {
+					flushed.increment();
+				} else {
+					failedEntities.add(entity);
+					failure = cause;
+				}
+			}
+			if (!failedEntities.isEmpty()) {
+				fail(failedEntities, failure);
+			}
+		} finally {
+			flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * @return 重试后仍然失败的原因, 成功时为 null
+	 */
+	private RuntimeException persistWithRetry(List<M> batch) {
+		long backoff = config.flushInterval();
+		for (int attempt = 0; ; attempt++) {
+			try {
+				persist(batch);
+				return null;
+			} catch (RuntimeException e) {
+				if (attempt >= config.retries() || !isTransient(e)) {
+					return e;
+				}
+				logger.warn("Write-behind batch of {} failed for {}, retrying in {} ms", batch.size(), name, backoff, e);
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException ex) {
+					// 关闭时不再等待重试
+					Thread.currentThread().interrupt();
+					return e;
+				}
+				backoff *= 2;
+			}
+		}
+	}
+
+	private void fail(List<M> entities, RuntimeException cause) {
+		failed.increment(entities.size());
+		WriteBehindFailureHandler handler = failureHandler;
+		if (handler != null) {
+			try {
+				handler.failed(name, entities, cause);
+				return;
+			} catch (RuntimeException e) {
+				logger.error("Write-behind failure handler of {} failed", name, e);
+			}
+		}
+		int kept = 0;
+		for (M entity : entities) {
+			if (deadLetters.offer(entity)) {
+				kept++;
+			}
+		}
+		logger.error("Write-behind could not write {} entities for {}, {} kept in the dead-letter queue",
+				entities.size(), name, kept, cause);
+	}
+
+	private static boolean isTransient(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+			if (cause instanceof TransientDataAccessException || cause instanceof RecoverableDataAccessException
+					|| cause instanceof CannotCreateTransactionException || cause instanceof JDBCConnectionException
+					|| cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void persist(List<M> batch) {
+		transactionTemplate.execute(status -> {
+			em.unwrap(Session.class).setJdbcBatchSize(config.batchSize());
+			for (M entity : batch) {
+				// 未写入过的实体 version 为空, 即使已分配主键也直接 persist, 避免 merge 产生的 SELECT
+				if (entity.getVersion() == null) {
+					em.persist(entity);
+				} else {
+					em.merge(entity);
+				}
+			}
+			em.flush();
+			em.clear();
+			return null;
+		});
+	}
+}
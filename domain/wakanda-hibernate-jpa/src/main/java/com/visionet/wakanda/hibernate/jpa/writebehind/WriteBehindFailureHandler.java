@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.writebehind;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import java.util.List;
+
+/**
+ * 接收 {@link WriteBehind} 缓冲区写不进数据库的实体, 如写入死信表或本地文件; 未配置时实体保留在缓冲区的死信队列中
+ *
+ * @author pangcaijie
+ * @since 2019/5/9.
+ */
+@FunctionalInterface
+public interface WriteBehindFailureHandler {
+
+	/**
+	 * @param repository 仓库接口简单类名
+	 * @param entities 重试后仍然失败的实体
+	 * @param cause 最后一次失败的原因
+	 */
+	void failed(String repository, List<? extends BaseEntity> entities, RuntimeException cause);
+}
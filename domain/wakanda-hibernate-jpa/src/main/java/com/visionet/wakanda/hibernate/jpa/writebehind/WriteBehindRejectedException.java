@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.hibernate.jpa.writebehind;
+
+/**
+ * 写入缓冲区已满或已关闭
+ *
+ * @author pangcaijie
+ * @since 2019/5/9.
+ */
+public class WriteBehindRejectedException extends RuntimeException {
+
+	public WriteBehindRejectedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,66 @@
+package com.visionet.wakanda.hibernate.jpa;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.Database;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 基于 H2 内存库构建测试用的 EntityManagerFactory
+ */
+public final class EmbeddedJpa {
+
+	private static final String ENTITY_PACKAGE = "com.visionet.wakanda.hibernate.jpa.entity";
+
+	private EmbeddedJpa() {
+	}
+
+	public static EmbeddedDatabase database(String name) {
+		return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName(name).build();
+	}
+
+	/**
+	 * @param entityClasses 只映射这些实体所在的包, 省略时映射 {@code entity} 包
+	 */
+	public static EntityManagerFactory entityManagerFactory(DataSource database, String name,
+															Class<?>... entityClasses) {
+		return entityManagerFactory(database, name, Collections.emptyMap(), entityClasses);
+	}
+
+	public static EntityManagerFactory entityManagerFactory(DataSource database, String name,
+															Map<String, ?> properties, Class<?>... entityClasses) {
+		return entityManagerFactory(database, name, properties, null, entityClasses);
+	}
+
+	/**
+	 * @param classLoader 加载实体的类加载器, 用于运行时增强的实体
+	 */
+	public static EntityManagerFactory entityManagerFactory(DataSource database, String name, Map<String, ?> properties,
+															ClassLoader classLoader, Class<?>... entityClasses) {
+		HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+		vendorAdapter.setDatabase(Database.H2);
+		vendorAdapter.setGenerateDdl(true);
+
+		LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+		factoryBean.setDataSource(database);
+		factoryBean.setPersistenceUnitName(name);
+		factoryBean.setPackagesToScan(entityClasses.length == 0 ? new String[]{ENTITY_PACKAGE}
+				: Arrays.stream(entityClasses).map(type -> type.getPackage().getName()).distinct().toArray(String[]::new));
+		factoryBean.setJpaVendorAdapter(vendorAdapter);
+		factoryBean.setJpaPropertyMap(properties);
+		if (classLoader != null) {
+			factoryBean.setResourceLoader(new DefaultResourceLoader(classLoader));
+		}
+		factoryBean.afterPropertiesSet();
+		return factoryBean.getObject();
+	}
+}
@@ -0,0 +1,120 @@
+package com.visionet.wakanda.hibernate.jpa.admission;
+
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdmissionControllerTests {
+
+	@Test
+	public void lowPriorityIsRejectedFirst() {
+		AdmissionController controller = new AdmissionController(new AdaptiveLimit(10, 2, 100, 2.0, 0.5), null, 0.9);
+		for (int i = 0; i < 5; i++) {
+			controller.acquire(AdmissionPriority.BATCH);
+		}
+		try {
+			controller.acquire(AdmissionPriority.BATCH);
+			fail();
+		} catch (AdmissionRejectedException e) {
+			assertEquals(5, e.getLimit());
+		}
+		for (int i = 0; i < 5; i++) {
+			controller.acquire(AdmissionPriority.CRITICAL);
+		}
+		assertEquals(10, controller.getInflight());
+	}
+
+	@Test
+	public void limitBacksOffOnSlowCallsAndRecovers() throws InterruptedException {
+		AdaptiveLimit limit = new AdaptiveLimit(20, 2, 40, 2.0, 0.5);
+		limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 20, false);
+		assertEquals(20, limit.getLimit());
+
+		limit.onSample(TimeUnit.MILLISECONDS.toNanos(50), 20, false);
+		assertEquals(10, limit.getLimit());
+		// 同一窗口内只减小一次
+		limit.onSample(TimeUnit.MILLISECONDS.toNanos(50), 20, false);
+		assertEquals(10, limit.getLimit());
+
+		Thread.sleep(20);
+		limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 10, true);
+		assertEquals(5, limit.getLimit());
+
+		for (int i = 0; i < 100; i++) {
+			limit.onSample(TimeUnit.MILLISECONDS.toNanos(1), 5, false);
+		}
+		assertTrue(limit.getLimit() > 5);
+	}
+
+	@Test
+	public void slowCallSiteIsComparedWithItsOwnBaseline() throws InterruptedException {
+		AdaptiveLimit limit = new AdaptiveLimit(20, 2, 40, 2.0, 0.5);
+		AdaptiveLimit.Baseline lookup = new AdaptiveLimit.Baseline();
+		AdaptiveLimit.Baseline report = new AdaptiveLimit.Baseline();
+		for (int i = 0; i < 50; i++) {
+			limit.onSample(lookup, TimeUnit.MILLISECONDS.toNanos(1), 20, false);
+			limit.onSample(report, TimeUnit.MILLISECONDS.toNanos(50), 20, false);
+		}
+		assertTrue(limit.getLimit() >= 20);
+
+		// 调用点自身变慢仍然减小上限
+		Thread.sleep(60);
+		limit.onSample(report, TimeUnit.MILLISECONDS.toNanos(200), 20, false);
+		assertTrue(limit.getLimit() < 20);
+	}
+
+	@Test
+	public void nestedCallsShareOnePermit() {
+		AdmissionController controller = new AdmissionController(new AdaptiveLimit(1, 1, 1, 2.0, 0.5), null, 0.9);
+		AdmissionInterceptor interceptor = new AdmissionInterceptor(controller);
+		ProxyFactory inner = new ProxyFactory(new Worker() {
+			@Override
+			public int work() {
+				return controller.getInflight();
+			}
+		});
+		inner.addAdvice(interceptor);
+		Worker repository = (Worker) inner.getProxy();
+		ProxyFactory outer = new ProxyFactory(new Worker() {
+			@Override
+			public int work() {
+				return repository.work();
+			}
+		});
+		outer.addAdvice(interceptor);
+		Worker service = (Worker) outer.getProxy();
+
+		assertEquals(1, service.work());
+		assertEquals(0, controller.getInflight());
+	}
+
+	@Test
+	public void permitIsReleasedOnFailure() {
+		AdmissionController controller = new AdmissionController(new AdaptiveLimit(4, 1, 4, 2.0, 0.5), null, 0.9);
+		ProxyFactory factory = new ProxyFactory(new Worker() {
+			@Override
+			public int work() {
+				throw new QueryTimeoutException("timeout");
+			}
+		});
+		factory.addAdvice(new AdmissionInterceptor(controller));
+		Worker worker = (Worker) factory.getProxy();
+		try {
+			worker.work();
+			fail();
+		} catch (QueryTimeoutException e) {
+			assertEquals(0, controller.getInflight());
+		}
+	}
+
+	public interface Worker {
+
+		int work();
+	}
+}
@@ -0,0 +1,112 @@
+package com.visionet.wakanda.hibernate.jpa.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class QueryCacheInterceptorTests {
+
+	private final AtomicInteger queries = new AtomicInteger();
+
+	private QueryCacheManager manager;
+
+	private OrderQueries repository;
+
+	@Before
+	public void setUp() {
+		manager = new QueryCacheManager();
+		ProxyFactory factory = new ProxyFactory(new OrderQueries() {
+			@Override
+			public List<String> findByCustomer(String customer, Sort sort) {
+				queries.incrementAndGet();
+				return Collections.singletonList(customer);
+			}
+
+			@Override
+			public long countByCustomer(String customer) {
+				queries.incrementAndGet();
+				return 1;
+			}
+
+			@Override
+			public void save(String customer) {
+			}
+		});
+		factory.addInterface(OrderQueries.class);
+		factory.addAdvice(new QueryCacheInterceptor(manager, OrderQueries.class, Order.class));
+		repository = (OrderQueries) factory.getProxy();
+	}
+
+	@Test
+	public void cachesByArgumentsAndSort() {
+		repository.findByCustomer("alice", Sort.by("amount"));
+		repository.findByCustomer("alice", Sort.by("amount"));
+		assertEquals(1, queries.get());
+
+		repository.findByCustomer("alice", Sort.by("customer"));
+		repository.findByCustomer("bob", Sort.by("amount"));
+		assertEquals(3, queries.get());
+	}
+
+	@Test
+	public void writesThroughTheRepositoryInvalidate() {
+		repository.findByCustomer("alice", Sort.unsorted());
+		repository.save("alice");
+		repository.findByCustomer("alice", Sort.unsorted());
+		assertEquals(2, queries.get());
+
+		manager.invalidate(Order.class);
+		repository.findByCustomer("alice", Sort.unsorted());
+		assertEquals(3, queries.get());
+	}
+
+	@Test
+	public void methodsWithoutAnnotationAreNotCached() {
+		repository.countByCustomer("alice");
+		repository.countByCustomer("alice");
+		assertEquals(2, queries.get());
+	}
+
+	@Test
+	public void writesInATransactionInvalidateOnCompletion() {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			repository.findByCustomer("alice", Sort.unsorted());
+			repository.save("alice");
+			repository.findByCustomer("alice", Sort.unsorted());
+			repository.findByCustomer("alice", Sort.unsorted());
+			assertEquals(3, queries.get());
+
+			TransactionSynchronizationUtils.invokeAfterCompletion(
+					TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		repository.findByCustomer("alice", Sort.unsorted());
+		repository.findByCustomer("alice", Sort.unsorted());
+		assertEquals(4, queries.get());
+	}
+
+	static class Order {
+	}
+
+	interface OrderQueries {
+
+		@QueryCache(ttl = 60000)
+		List<String> findByCustomer(String customer, Sort sort);
+
+		long countByCustomer(String customer);
+
+		void save(String customer);
+	}
+}
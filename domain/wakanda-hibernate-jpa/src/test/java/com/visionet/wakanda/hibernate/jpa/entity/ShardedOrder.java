@@ -0,0 +1,38 @@
+package com.visionet.wakanda.hibernate.jpa.entity;
+
+import com.visionet.wakanda.hibernate.jpa.shard.Sharded;
+
+import javax.persistence.Entity;
+
+@Entity
+@Sharded
+public class ShardedOrder extends BaseEntity<String> {
+
+	private String customer;
+
+	private Integer amount;
+
+	public ShardedOrder() {
+	}
+
+	public ShardedOrder(String customer, Integer amount) {
+		this.customer = customer;
+		this.amount = amount;
+	}
+
+	public String getCustomer() {
+		return customer;
+	}
+
+	public void setCustomer(String customer) {
+		this.customer = customer;
+	}
+
+	public Integer getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Integer amount) {
+		this.amount = amount;
+	}
+}
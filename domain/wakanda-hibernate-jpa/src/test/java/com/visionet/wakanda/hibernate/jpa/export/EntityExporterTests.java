@@ -0,0 +1,112 @@
+package com.visionet.wakanda.hibernate.jpa.export;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class EntityExporterTests {
+
+	private EmbeddedDatabase database;
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private Merchant merchant;
+
+	@Before
+	public void setUp() {
+		database = EmbeddedJpa.database("export");
+		entityManagerFactory = EmbeddedJpa.entityManagerFactory(database, "export",
+				Collections.singletonMap("hibernate.generate_statistics", "true"), Invoice.class);
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.getTransaction().begin();
+		merchant = new Merchant("merchant");
+		entityManager.persist(merchant);
+		for (int i = 0; i < 100; i++) {
+			entityManager.persist(new Invoice(i % 10 == 0 ? "quoted, \"name\"" : "customer" + i, i, merchant));
+		}
+		entityManager.persist(new Invoice("no amount", null, null));
+		entityManager.getTransaction().commit();
+		entityManager.close();
+	}
+
+	@After
+	public void tearDown() {
+		entityManagerFactory.close();
+		database.shutdown();
+	}
+
+	@Test
+	public void exportsPartitionedGzipCsv() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long rows = new EntityExporter<>(Invoice.class, entityManagerFactory)
+				.setGzip(true)
+				.setBufferSize(1024)
+				.setPartitions(3, "amount")
+				.export(out);
+		assertEquals(101, rows);
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8));
+		String header = reader.readLine();
+		assertTrue(header.startsWith("id,"));
+		Set<String> ids = new HashSet<>();
+		int quoted = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			ids.add(line.substring(0, line.indexOf(',')));
+			if (line.contains("\"quoted, \"\"name\"\"\"")) {
+				quoted++;
+			}
+		}
+		assertEquals(101, ids.size());
+		assertEquals(10, quoted);
+	}
+
+	@Test
+	public void exportsJsonArray() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long rows = new EntityExporter<>(Invoice.class, entityManagerFactory)
+				.setFormat(ExportFormat.JSON)
+				.export(out);
+		assertEquals(101, rows);
+
+		String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(json.startsWith("[\n{\"id\":"));
+		assertTrue(json.endsWith("}\n]\n"));
+		assertTrue(json.contains("\"customer\":\"quoted, \\\"name\\\"\""));
+		// 关联只导出主键
+		assertTrue(json.contains("\"merchant\":\"" + merchant.getId() + "\""));
+		assertEquals(100, json.split("\n,\\{").length - 1);
+	}
+
+	@Test
+	public void readsAssociationIdsWithoutExtraStatements() throws IOException {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		long rows = new EntityExporter<>(Invoice.class, entityManagerFactory).export(new ByteArrayOutputStream());
+		assertEquals(101, rows);
+		assertEquals(1, statistics.getPrepareStatementCount());
+
+		statistics.clear();
+		new EntityExporter<>(Invoice.class, entityManagerFactory)
+				.setPartitions(3, "amount")
+				.export(new ByteArrayOutputStream());
+		// min/max 查询, 三个范围与空值分区
+		assertEquals(5, statistics.getPrepareStatementCount());
+	}
+}
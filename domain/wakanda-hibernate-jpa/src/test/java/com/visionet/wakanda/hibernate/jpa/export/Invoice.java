@@ -0,0 +1,50 @@
+package com.visionet.wakanda.hibernate.jpa.export;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import javax.persistence.Entity;
+import javax.persistence.ManyToOne;
+
+@Entity
+public class Invoice extends BaseEntity<String> {
+
+	private String customer;
+
+	private Integer amount;
+
+	@ManyToOne
+	private Merchant merchant;
+
+	public Invoice() {
+	}
+
+	public Invoice(String customer, Integer amount, Merchant merchant) {
+		this.customer = customer;
+		this.amount = amount;
+		this.merchant = merchant;
+	}
+
+	public String getCustomer() {
+		return customer;
+	}
+
+	public void setCustomer(String customer) {
+		this.customer = customer;
+	}
+
+	public Integer getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Integer amount) {
+		this.amount = amount;
+	}
+
+	public Merchant getMerchant() {
+		return merchant;
+	}
+
+	public void setMerchant(Merchant merchant) {
+		this.merchant = merchant;
+	}
+}
@@ -0,0 +1,26 @@
+package com.visionet.wakanda.hibernate.jpa.export;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Merchant extends BaseEntity<String> {
+
+	private String name;
+
+	public Merchant() {
+	}
+
+	public Merchant(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+}
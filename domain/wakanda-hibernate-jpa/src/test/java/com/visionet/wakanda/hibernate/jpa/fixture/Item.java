@@ -0,0 +1,40 @@
+package com.visionet.wakanda.hibernate.jpa.fixture;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import javax.persistence.Entity;
+
+/**
+ * 测试共用的实体, 只有一个字符串列与一个数值列
+ */
+@Entity
+public class Item extends BaseEntity<String> {
+
+	private String name;
+
+	private Integer amount;
+
+	public Item() {
+	}
+
+	public Item(String name, Integer amount) {
+		this.name = name;
+		this.amount = amount;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Integer getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Integer amount) {
+		this.amount = amount;
+	}
+}
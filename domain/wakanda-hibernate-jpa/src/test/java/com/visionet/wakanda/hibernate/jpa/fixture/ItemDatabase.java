@@ -0,0 +1,86 @@
+package com.visionet.wakanda.hibernate.jpa.fixture;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import org.junit.rules.ExternalResource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * 每个测试方法前创建只映射 {@link Item} 的 H2 内存库, 测试后关闭
+ *
+ * <pre>
+ * &#64;Rule
+ * public final ItemDatabase items = new ItemDatabase("replica");
+ * </pre>
+ */
+public class ItemDatabase extends ExternalResource {
+
+	private final String name;
+
+	private final UnaryOperator<DataSource> dataSource;
+
+	private EmbeddedDatabase database;
+
+	private EntityManagerFactory entityManagerFactory;
+
+	public ItemDatabase(String name) {
+		this(name, UnaryOperator.identity());
+	}
+
+	/**
+	 * @param dataSource 包装数据库, EntityManagerFactory 基于包装后的数据源构建
+	 */
+	public ItemDatabase(String name, UnaryOperator<DataSource> dataSource) {
+		this.name = name;
+		this.dataSource = dataSource;
+	}
+
+	@Override
+	protected void before() {
+		database = EmbeddedJpa.database(name);
+		entityManagerFactory = EmbeddedJpa.entityManagerFactory(dataSource.apply(database), name, Item.class);
+	}
+
+	@Override
+	protected void after() {
+		entityManagerFactory.close();
+		database.shutdown();
+	}
+
+	public EmbeddedDatabase getDatabase() {
+		return database;
+	}
+
+	public EntityManagerFactory getEntityManagerFactory() {
+		return entityManagerFactory;
+	}
+
+	/**
+	 * 在一个事务中保存 count 个实体
+	 * @param factory 按序号创建实体
+	 * @return 已保存的实体, 按序号排列
+	 */
+	public List<Item> seed(int count, IntFunction<Item> factory) {
+		List<Item> items = new ArrayList<>(count);
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			entityManager.getTransaction().begin();
+			for (int i = 0; i < count; i++) {
+				Item item = factory.apply(i);
+				entityManager.persist(item);
+				items.add(item);
+			}
+			entityManager.getTransaction().commit();
+		} finally {
+			entityManager.close();
+		}
+		return items;
+	}
+}
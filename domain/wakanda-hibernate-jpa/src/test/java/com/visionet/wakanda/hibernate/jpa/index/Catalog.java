@@ -0,0 +1,19 @@
+package com.visionet.wakanda.hibernate.jpa.index;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Catalog extends BaseEntity<String> {
+
+	private String name;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+}
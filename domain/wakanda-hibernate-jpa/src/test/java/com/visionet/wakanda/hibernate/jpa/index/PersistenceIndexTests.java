@@ -0,0 +1,167 @@
+package com.visionet.wakanda.hibernate.jpa.index;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.RepositoryDefinition;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.Database;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PersistenceIndexTests {
+
+	private static final String BASE_PACKAGE = "com.visionet.wakanda.hibernate.jpa";
+
+	private static final String EXTERNAL_ENTITY = "com.visionet.wakanda.hibernate.jpa.index.Warehouse";
+
+	private Path external;
+
+	private URLClassLoader classLoader;
+
+	@Before
+	public void setUp() throws IOException {
+		external = Files.createTempDirectory("unindexed");
+		classLoader = new URLClassLoader(new URL[]{external.toUri().toURL()}, getClass().getClassLoader());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		classLoader.close();
+		Files.walk(external).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+	}
+
+	@Test
+	public void indexMatchesClasspathScan() {
+		PersistenceIndex index = PersistenceIndex.load(new StandardEnvironment(), getClass().getClassLoader());
+		assertNotNull(index);
+
+		ClassPathScanningCandidateComponentProvider entities = new ClassPathScanningCandidateComponentProvider(false);
+		entities.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+		assertEquals(scan(entities), index.getEntities());
+
+		ClassPathScanningCandidateComponentProvider repositories = new ClassPathScanningCandidateComponentProvider(false) {
+			@Override
+			protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+				return beanDefinition.getMetadata().isInterface() && beanDefinition.getMetadata().isIndependent();
+			}
+		};
+		repositories.addIncludeFilter(new AssignableTypeFilter(Repository.class));
+		repositories.addIncludeFilter(new AnnotationTypeFilter(RepositoryDefinition.class, true, true));
+		repositories.addExcludeFilter(new AnnotationTypeFilter(NoRepositoryBean.class));
+		assertEquals(scan(repositories), index.getRepositories());
+	}
+
+	@Test
+	public void scansOnlyEntriesWithoutIndex() throws IOException {
+		compileWithoutProcessor();
+		PersistenceIndex index = PersistenceIndex.load(new StandardEnvironment(), classLoader);
+		String pattern = "classpath*:com/visionet/wakanda/hibernate/jpa/**/*.class";
+
+		Set<String> scanned = new HashSet<>();
+		for (Resource resource : new UnindexedResourcePatternResolver(
+				new DefaultResourceLoader(classLoader), index, Collections.emptySet()).getResources(pattern)) {
+			scanned.add(resource.getFilename());
+		}
+		assertTrue(scanned.contains("Warehouse.class"));
+		assertTrue(scanned.contains("BaseEntity.class"));
+		assertFalse(scanned.contains("Catalog.class"));
+
+		Set<String> exempt = new HashSet<>();
+		for (Resource resource : new UnindexedResourcePatternResolver(new DefaultResourceLoader(classLoader), index,
+				Collections.singleton("com.visionet.wakanda.hibernate.jpa.index")).getResources(
+				"classpath*:com/visionet/wakanda/hibernate/jpa/index/**/*.class")) {
+			exempt.add(resource.getFilename());
+		}
+		assertTrue(exempt.contains("Catalog.class"));
+	}
+
+	@Test
+	public void mapsIndexedAndUnindexedEntities() throws IOException {
+		compileWithoutProcessor();
+		PersistenceIndex index = PersistenceIndex.load(new StandardEnvironment(), classLoader);
+		EmbeddedDatabase database = EmbeddedJpa.database("index");
+		HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+		vendorAdapter.setDatabase(Database.H2);
+		vendorAdapter.setGenerateDdl(true);
+
+		LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+		factoryBean.setDataSource(database);
+		factoryBean.setPersistenceUnitName("index");
+		factoryBean.setPackagesToScan("com.visionet.wakanda.hibernate.jpa.index");
+		factoryBean.setJpaVendorAdapter(vendorAdapter);
+		factoryBean.setResourceLoader(new DefaultResourceLoader(classLoader));
+		PersistenceIndexEntityPostProcessor postProcessor = new PersistenceIndexEntityPostProcessor(index);
+		postProcessor.setResourceLoader(new DefaultResourceLoader(classLoader));
+		postProcessor.postProcessBeforeInitialization(factoryBean, "entityManagerFactory");
+		factoryBean.afterPropertiesSet();
+		EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+		try {
+			Set<String> mapped = new HashSet<>();
+			for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+				mapped.add(entityType.getJavaType().getName());
+			}
+			assertTrue(mapped.contains(EXTERNAL_ENTITY));
+			assertTrue(mapped.contains(Catalog.class.getName()));
+			assertTrue(mapped.containsAll(index.getEntities()));
+			assertEquals(index.getEntities().size() + 1, mapped.size());
+		} finally {
+			entityManagerFactory.close();
+			database.shutdown();
+		}
+	}
+
+	private Set<String> scan(ClassPathScanningCandidateComponentProvider scanner) {
+		Set<String> names = new TreeSet<>();
+		for (BeanDefinition candidate : scanner.findCandidateComponents(BASE_PACKAGE)) {
+			names.add(candidate.getBeanClassName());
+		}
+		return names;
+	}
+
+	/**
+	 * 模拟未使用 {@link PersistenceIndexProcessor} 编译的 jar
+	 */
+	private void compileWithoutProcessor() throws IOException {
+		Path source = external.resolve("Warehouse.java");
+		Files.write(source, ("package com.visionet.wakanda.hibernate.jpa.index;\n"
+				+ "@javax.persistence.Entity\n"
+				+ "public class Warehouse {\n"
+				+ "\t@javax.persistence.Id\n"
+				+ "\tprivate String id;\n"
+				+ "\tprivate String city;\n"
+				+ "}\n").getBytes(StandardCharsets.UTF_8));
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		String classpath = Entity.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+		// 与模块一致按 Java 8 编译, 否则 JDK 9+ 生成的类文件版本超出 ASM 的读取范围
+		assertEquals(0, compiler.run(null, null, null, "-proc:none", "-source", "1.8", "-target", "1.8",
+				"-classpath", classpath, "-d", external.toString(), source.toString()));
+	}
+}
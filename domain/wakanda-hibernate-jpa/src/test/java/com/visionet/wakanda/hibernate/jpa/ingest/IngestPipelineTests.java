@@ -0,0 +1,85 @@
+package com.visionet.wakanda.hibernate.jpa.ingest;
+
+import com.visionet.wakanda.hibernate.jpa.fixture.Item;
+import com.visionet.wakanda.hibernate.jpa.fixture.ItemDatabase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IngestPipelineTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public final ItemDatabase items = new ItemDatabase("ingest");
+
+	@Test
+	public void ingestsCsvInParallelBatchesAndRecordsBadLines() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("ledger.csv");
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("name,amount\n");
+			for (int i = 0; i < 1000; i++) {
+				writer.write(i == 500 ? "broken,not-a-number\n" : "\"account, " + i + "\"," + i + "\n");
+			}
+		}
+
+		IngestResult result = new IngestPipeline<>(Item.class, items.getEntityManagerFactory())
+				.setWorkers(4)
+				.setBatchSize(64)
+				.setSkipLines(1)
+				.ingest(file, line -> {
+					String[] fields = Csv.split(line, ',');
+					return new Item(fields[0], Integer.valueOf(fields[1]));
+				});
+
+		assertEquals(999, result.getRows());
+		assertEquals(1, result.getFailed());
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(items.getDatabase());
+		assertEquals(999, (int) jdbcTemplate.queryForObject("select count(*) from Item", Integer.class));
+		assertEquals("account, 42", jdbcTemplate.queryForObject(
+				"select name from Item where amount = 42", String.class));
+
+		List<String> errors = Files.readAllLines(file.resolveSibling("ledger.csv.errors"));
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0).startsWith("502\t"));
+		assertFalse(Files.exists(file.resolveSibling("ledger.csv.checkpoint")));
+	}
+
+	@Test(timeout = 30000)
+	public void workerErrorStopsIngestInsteadOfBlockingTheReader() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("ledger.csv");
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < 100; i++) {
+				writer.write("account" + i + "," + i + "\n");
+			}
+		}
+
+		IngestPipeline<Item> pipeline = new IngestPipeline<>(Item.class, items.getEntityManagerFactory())
+				.setWorkers(1)
+				.setBatchSize(1)
+				.setQueueCapacity(1);
+		try {
+			pipeline.ingest(file, line -> {
+				if (line.startsWith("account3,")) {
+					throw new StackOverflowError();
+				}
+				String[] fields = Csv.split(line, ',');
+				return new Item(fields[0], Integer.valueOf(fields[1]));
+			});
+			fail("an Error in a worker should stop the ingest");
+		} catch (IngestException e) {
+			assertTrue(e.getCause() instanceof StackOverflowError);
+		}
+		assertTrue(Files.exists(file.resolveSibling("ledger.csv.checkpoint")));
+	}
+}
@@ -0,0 +1,127 @@
+package com.visionet.wakanda.hibernate.jpa.partition;
+
+import com.visionet.wakanda.hibernate.jpa.fixture.Item;
+import com.visionet.wakanda.hibernate.jpa.fixture.ItemDatabase;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PartitionedProcessorTests {
+
+	@Rule
+	public final ItemDatabase items = new ItemDatabase("partition");
+
+	@Before
+	public void setUp() {
+		// 最后一行没有分区属性, 落在空值分区
+		items.seed(101, i -> new Item(i < 100 ? "pending" + i : "no amount", i < 100 ? i : null));
+	}
+
+	@Test
+	public void processesEveryRowOnce() throws IOException {
+		Set<String> seen = Collections.synchronizedSet(new HashSet<>());
+		PartitionResult result = new PartitionedProcessor<>(Item.class, items.getEntityManagerFactory())
+				.setParallelism(3)
+				.setPartitions(7, "amount")
+				.setChunkSize(4)
+				.setSaturation(() -> 1, 0.5)
+				.process((item, em) -> {
+					assertTrue(seen.add(item.getId()));
+					item.setName(item.getName().toUpperCase());
+				});
+		assertEquals(101, result.getRows());
+		assertEquals(8, result.getPartitions());
+
+		EntityManager entityManager = items.getEntityManagerFactory().createEntityManager();
+		assertEquals(0L, entityManager.createQuery(
+				"select count(i) from Item i where i.name <> upper(i.name)").getSingleResult());
+		entityManager.close();
+	}
+
+	@Test
+	public void resumesFromCheckpoint() throws IOException {
+		Path checkpoint = Files.createTempFile("items", ".checkpoint");
+		Files.delete(checkpoint);
+		AtomicBoolean broken = new AtomicBoolean(true);
+		PartitionedProcessor<Item> processor = new PartitionedProcessor<>(Item.class,
+				items.getEntityManagerFactory())
+				.setParallelism(1)
+				.setPartitions(10, "amount")
+				.setCheckpoint(checkpoint);
+		try {
+			processor.process((item, em) -> {
+				if (broken.get() && item.getAmount() != null && item.getAmount() == 55) {
+					throw new IllegalStateException("broken");
+				}
+				item.setName("done");
+			});
+			fail();
+		} catch (PartitionException e) {
+			assertTrue(Files.exists(checkpoint));
+		}
+
+		broken.set(false);
+		PartitionResult result = processor.process((item, em) -> {
+			assertNotEquals("done", item.getName());
+			item.setName("done");
+		});
+		assertEquals(5, result.getResumed());
+		assertEquals(6, result.getPartitions());
+		assertFalse(Files.exists(checkpoint));
+
+		EntityManager entityManager = items.getEntityManagerFactory().createEntityManager();
+		assertEquals(101L, entityManager.createQuery(
+				"select count(i) from Item i where i.name = 'done'").getSingleResult());
+		entityManager.close();
+	}
+
+	@Test
+	public void resumesWithinPartition() throws IOException {
+		Path checkpoint = Files.createTempFile("items", ".checkpoint");
+		Files.delete(checkpoint);
+		AtomicInteger handled = new AtomicInteger();
+		PartitionedProcessor<Item> processor = new PartitionedProcessor<>(Item.class,
+				items.getEntityManagerFactory())
+				.setParallelism(1)
+				.setPartitions(1, "amount")
+				.setChunkSize(10)
+				.setCheckpoint(checkpoint);
+		try {
+			processor.process((item, em) -> {
+				if (handled.incrementAndGet() == 35) {
+					throw new IllegalStateException("broken");
+				}
+				item.setName("done");
+			});
+			fail();
+		} catch (PartitionException e) {
+			assertTrue(Files.exists(checkpoint));
+		}
+
+		// 前三批已提交, 续传从第四批开始
+		PartitionResult result = processor.process((item, em) -> {
+			assertNotEquals("done", item.getName());
+			item.setName("done");
+		});
+		assertEquals(0, result.getResumed());
+		assertEquals(71, result.getRows());
+		assertFalse(Files.exists(checkpoint));
+
+		EntityManager entityManager = items.getEntityManagerFactory().createEntityManager();
+		assertEquals(101L, entityManager.createQuery(
+				"select count(i) from Item i where i.name = 'done'").getSingleResult());
+		entityManager.close();
+	}
+}
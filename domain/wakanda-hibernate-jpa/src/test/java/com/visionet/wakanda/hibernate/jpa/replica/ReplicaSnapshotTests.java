@@ -0,0 +1,51 @@
+package com.visionet.wakanda.hibernate.jpa.replica;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplicaSnapshotTests {
+
+	private static final String[] PROPERTIES = {"code", "amount", "price", "createdDate", "updatedDate", "day"};
+
+	@Test
+	public void roundTripsValues() throws IOException {
+		Path file = Files.createTempFile("dictionary", ".replica");
+		Timestamp timestamp = new Timestamp(1559100000123L);
+		timestamp.setNanos(123456789);
+		Object[] first = {"id-1", "代码", 42, new BigDecimal("-12.340"), new Date(1559100000000L), timestamp,
+				DayOfWeek.MONDAY};
+		Object[] second = {"id-2", null, Integer.MIN_VALUE, null, null, null, null};
+		ReplicaSnapshot.write(file, "Dictionary", PROPERTIES, 1559100000123L, Arrays.asList(first, second));
+
+		ReplicaSnapshot snapshot = ReplicaSnapshot.read(file, "Dictionary", PROPERTIES);
+		assertEquals(1559100000123L, snapshot.getWatermark());
+		List<Object[]> rows = snapshot.getRows();
+		assertEquals(2, rows.size());
+		assertArrayEquals(first, rows.get(0));
+		assertArrayEquals(second, rows.get(1));
+		assertEquals(123456789, ((Timestamp) rows.get(0)[5]).getNanos());
+		assertSame(DayOfWeek.MONDAY, rows.get(0)[6]);
+		Files.delete(file);
+	}
+
+	@Test
+	public void ignoresIncompatibleSnapshots() throws IOException {
+		Path file = Files.createTempFile("dictionary", ".replica");
+		ReplicaSnapshot.write(file, "Dictionary", PROPERTIES, 0, Arrays.<Object[]>asList(new Object[]{"id", 1}));
+		assertNull(ReplicaSnapshot.read(file, "Other", PROPERTIES));
+		assertNull(ReplicaSnapshot.read(file, "Dictionary", new String[]{"code"}));
+		Files.delete(file);
+		assertNull(ReplicaSnapshot.read(file, "Dictionary", PROPERTIES));
+	}
+}
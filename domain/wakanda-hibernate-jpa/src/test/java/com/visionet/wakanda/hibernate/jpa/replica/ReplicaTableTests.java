@@ -0,0 +1,154 @@
+package com.visionet.wakanda.hibernate.jpa.replica;
+
+import com.visionet.wakanda.hibernate.jpa.fixture.Item;
+import com.visionet.wakanda.hibernate.jpa.fixture.ItemDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+public class ReplicaTableTests {
+
+	private static final String[] INDEXES = {"name"};
+
+	private static final long RECONCILE_INTERVAL = 600000;
+
+	@Rule
+	public final ItemDatabase items = new ItemDatabase("replica");
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private Path snapshot;
+
+	@Before
+	public void setUp() throws IOException {
+		entityManagerFactory = items.getEntityManagerFactory();
+		snapshot = Files.createTempDirectory("replica").resolve("items.replica");
+		items.seed(10, i -> {
+			Item item = new Item(i < 5 ? "shanghai" : "beijing", i);
+			item.setUpdatedDate(new Date(System.currentTimeMillis() - 60000));
+			return item;
+		});
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(snapshot);
+	}
+
+	@Test
+	public void appliesUpdatesAndSoftDeletes() {
+		ReplicaTable<Item> table = new ReplicaTable<>(Item.class, entityManagerFactory, INDEXES,
+				10000, RECONCILE_INTERVAL, snapshot);
+		assertFalse(table.isReady());
+		table.sync();
+		assertEquals(10, table.size());
+		assertEquals(5, table.find("name", "shanghai").size());
+
+		Item first = table.find("name", "shanghai").get(0);
+		Item second = table.find("name", "shanghai").get(1);
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.getTransaction().begin();
+		Item renamed = entityManager.find(Item.class, first.getId());
+		renamed.setName("shenzhen");
+		renamed.setUpdatedDate(new Date());
+		Item deleted = entityManager.find(Item.class, second.getId());
+		deleted.setDeleted(true);
+		deleted.setUpdatedDate(new Date());
+		entityManager.getTransaction().commit();
+		entityManager.close();
+
+		table.sync();
+		assertEquals(9, table.size());
+		assertNull(table.get(second.getId()));
+		assertEquals("shenzhen", table.get(first.getId()).getName());
+		assertEquals("shenzhen", table.findOne("name", "shenzhen").getName());
+		assertEquals(3, table.find("name", "shanghai").size());
+		// 旧状态中的实体不受同步影响
+		assertEquals("shanghai", first.getName());
+	}
+
+	@Test
+	public void reloadsAfterHardDelete() {
+		ReplicaTable<Item> table = new ReplicaTable<>(Item.class, entityManagerFactory, INDEXES,
+				10000, RECONCILE_INTERVAL, null);
+		table.sync();
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.getTransaction().begin();
+		entityManager.createQuery("delete from Item i where i.name = 'beijing'").executeUpdate();
+		entityManager.getTransaction().commit();
+		entityManager.close();
+
+		table.sync();
+		assertEquals(5, table.size());
+		assertTrue(table.find("name", "beijing").isEmpty());
+	}
+
+	@Test
+	public void reconcilesLateCommits() {
+		ReplicaTable<Item> table = new ReplicaTable<>(Item.class, entityManagerFactory, INDEXES,
+				10000, RECONCILE_INTERVAL, null);
+		table.sync();
+		Item first = table.find("name", "beijing").get(0);
+
+		// 修改时间早于水位线减重叠窗口, 模拟长事务在同步之后才提交
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.getTransaction().begin();
+		Item renamed = entityManager.find(Item.class, first.getId());
+		renamed.setName("shenzhen");
+		renamed.setUpdatedDate(new Date(System.currentTimeMillis() - 120000));
+		entityManager.getTransaction().commit();
+		entityManager.close();
+
+		table.sync();
+		assertEquals("shenzhen", table.get(first.getId()).getName());
+		assertEquals(4, table.find("name", "beijing").size());
+	}
+
+	@Test
+	public void reconcilesPeriodically() {
+		ReplicaTable<Item> table = new ReplicaTable<>(Item.class, entityManagerFactory, INDEXES,
+				10000, 0, null);
+		table.sync();
+		Item first = table.find("name", "beijing").get(0);
+		// 不经过实体更新, 版本与修改时间都不变
+		new JdbcTemplate(items.getDatabase()).update("update Item set name = 'shenzhen' where id = ?", first.getId());
+
+		table.sync();
+		assertEquals("shenzhen", table.get(first.getId()).getName());
+	}
+
+	@Test
+	public void warmStartsFromSnapshot() {
+		new ReplicaTable<>(Item.class, entityManagerFactory, INDEXES, 10000, RECONCILE_INTERVAL,
+				snapshot).sync();
+		assertTrue(Files.exists(snapshot));
+
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		try {
+			// 副本在 start 返回前从快照加载, 第一次同步仍在后台执行
+			ReplicaTable<Item> table = new ReplicaTable<>(Item.class, entityManagerFactory, INDEXES,
+					10000, RECONCILE_INTERVAL, snapshot);
+			table.start(scheduler, 60000);
+			assertTrue(table.isReady());
+			assertEquals(10, table.size());
+			Item item = table.find("name", "beijing").get(0);
+			assertNotNull(item.getId());
+			assertNotNull(item.getAmount());
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+}
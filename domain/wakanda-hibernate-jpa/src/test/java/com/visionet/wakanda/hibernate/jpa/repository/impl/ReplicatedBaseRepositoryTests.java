@@ -0,0 +1,126 @@
+package com.visionet.wakanda.hibernate.jpa.repository.impl;
+
+import com.visionet.wakanda.hibernate.jpa.fixture.Item;
+import com.visionet.wakanda.hibernate.jpa.fixture.ItemDatabase;
+import com.visionet.wakanda.hibernate.jpa.replica.ReplicaManager;
+import com.visionet.wakanda.hibernate.jpa.replica.ReplicaTable;
+import com.visionet.wakanda.hibernate.jpa.replica.Replicated;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplicatedBaseRepositoryTests {
+
+	@Rule
+	public final ItemDatabase items = new ItemDatabase("replicated");
+
+	private ReplicaManager replicaManager;
+
+	private ReplicatedBaseRepository<Item, String> repository;
+
+	private TransactionTemplate transactionTemplate;
+
+	private TransactionTemplate readOnlyTemplate;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<String> ids = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		EntityManagerFactory entityManagerFactory = items.getEntityManagerFactory();
+		EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+		JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		readOnlyTemplate = new TransactionTemplate(transactionManager);
+		readOnlyTemplate.setReadOnly(true);
+		jdbcTemplate = new JdbcTemplate(items.getDatabase());
+		items.seed(3, i -> new Item("shanghai", i)).forEach(item -> ids.add(item.getId()));
+
+		JpaEntityInformation<Item, ?> entityInformation =
+				JpaEntityInformationSupport.getEntityInformation(Item.class, entityManager);
+		replicaManager = new ReplicaManager();
+		ReplicaTable<Item> replica = replicaManager.register(Item.class, entityManagerFactory,
+				ItemRepository.class.getAnnotation(Replicated.class));
+		replica.sync();
+		repository = new ReplicatedBaseRepository<>(entityInformation, entityManager, replica);
+	}
+
+	@After
+	public void tearDown() {
+		replicaManager.close();
+	}
+
+	@Test
+	public void readsReplicaOutsideReadWriteTransactions() {
+		String id = ids.get(0);
+		// 绕过副本直接修改, 副本在下次同步前仍是旧值
+		jdbcTemplate.update("update Item set name = 'hangzhou' where id = ?", id);
+
+		assertEquals("shanghai", repository.findById(id).get().getName());
+		assertEquals("shanghai", readOnlyTemplate.execute(status -> repository.findById(id).get().getName()));
+		assertEquals("hangzhou", transactionTemplate.execute(status -> repository.findById(id).get().getName()));
+	}
+
+	@Test
+	public void hidesSoftDeletedRowsOnBothPaths() {
+		String id = ids.get(0);
+		jdbcTemplate.update("update Item set isDeleted = true where id = ?", id);
+		repository.getReplica().sync();
+
+		assertSoftDeleteHidden(id);
+		transactionTemplate.execute(status -> {
+			assertSoftDeleteHidden(id);
+			return null;
+		});
+	}
+
+	@Test
+	public void resyncsReplicaAfterCommit() {
+		String id = ids.get(0);
+		transactionTemplate.execute(status -> {
+			Item item = repository.findById(id).get();
+			item.setName("hangzhou");
+			repository.save(item);
+			// 提交前副本不变
+			assertEquals("shanghai", repository.getReplica().get(id).getName());
+			return null;
+		});
+		assertEquals("hangzhou", repository.getReplica().get(id).getName());
+		assertEquals("hangzhou", repository.findById(id).get().getName());
+
+		transactionTemplate.execute(status -> {
+			repository.delete(repository.findById(ids.get(1)).get());
+			return null;
+		});
+		assertFalse(repository.existsById(ids.get(1)));
+		assertEquals(2, repository.count());
+	}
+
+	private void assertSoftDeleteHidden(String id) {
+		assertFalse(repository.findById(id).isPresent());
+		assertFalse(repository.existsById(id));
+		assertEquals(2, repository.count());
+		assertEquals(2, repository.findAll().size());
+		assertEquals(2, repository.findAllById(ids).size());
+	}
+
+	@Replicated(syncInterval = 3600000)
+	interface ItemRepository extends Repository<Item, String> {
+	}
+}
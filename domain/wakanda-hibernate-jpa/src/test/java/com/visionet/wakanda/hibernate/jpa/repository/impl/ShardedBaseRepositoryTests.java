@@ -0,0 +1,162 @@
+package com.visionet.wakanda.hibernate.jpa.repository.impl;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import com.visionet.wakanda.hibernate.jpa.entity.ShardedOrder;
+import com.visionet.wakanda.hibernate.jpa.repository.BaseRepository;
+import com.visionet.wakanda.hibernate.jpa.repository.SimpleBaseRepositoryFactoryBean;
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeFilters;
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeProvider;
+import com.visionet.wakanda.hibernate.jpa.shard.ShardMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ShardedBaseRepositoryTests {
+
+	private static final int SHARDS = 3;
+
+	private final List<EmbeddedDatabase> databases = new ArrayList<>();
+
+	private final List<EntityManagerFactory> entityManagerFactories = new ArrayList<>();
+
+	private ShardMap shardMap;
+
+	private ShardedBaseRepository<ShardedOrder, String> repository;
+
+	@Before
+	public void setUp() {
+		for (int i = 0; i < SHARDS; i++) {
+			EmbeddedDatabase database = EmbeddedJpa.database("shard" + i);
+			databases.add(database);
+			entityManagerFactories.add(EmbeddedJpa.entityManagerFactory(database, "shard" + i));
+		}
+		shardMap = new ShardMap(entityManagerFactories);
+		JpaEntityInformation<ShardedOrder, ?> entityInformation = JpaEntityInformationSupport
+				.getEntityInformation(ShardedOrder.class, shardMap.getShards().get(0).getEntityManager());
+		repository = new ShardedBaseRepository<>(entityInformation, shardMap);
+	}
+
+	@After
+	public void tearDown() {
+		shardMap.destroy();
+		entityManagerFactories.forEach(EntityManagerFactory::close);
+		databases.forEach(EmbeddedDatabase::shutdown);
+	}
+
+	@Test
+	public void routesByIdAndSpreadsRowsAcrossShards() {
+		List<ShardedOrder> saved = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			saved.add(repository.save(new ShardedOrder("customer" + i, i)));
+		}
+
+		int total = 0;
+		for (int i = 0; i < SHARDS; i++) {
+			int rows = new JdbcTemplate(databases.get(i)).queryForObject("select count(*) from ShardedOrder", Integer.class);
+			assertTrue("shard " + i + " should hold rows", rows > 0);
+			total += rows;
+		}
+		assertEquals(60, total);
+		assertEquals(60, repository.count());
+
+		for (ShardedOrder order : saved) {
+			ShardedOrder found = repository.findById(order.getId()).orElse(null);
+			assertNotNull(found);
+			assertEquals(order.getCustomer(), found.getCustomer());
+			assertSame(shardMap.shardOf(order.getId()), shardMap.shardOf(found.getId()));
+		}
+
+		repository.deleteById(saved.get(0).getId());
+		assertFalse(repository.existsById(saved.get(0).getId()));
+		assertEquals(59, repository.count());
+	}
+
+	@Test
+	public void mergesSortedResultsAndPages() {
+		for (int i = 0; i < 25; i++) {
+			repository.save(new ShardedOrder("customer" + i, (i * 7) % 25));
+		}
+
+		List<ShardedOrder> sorted = repository.findAll(Sort.by(Sort.Direction.DESC, "amount"));
+		assertEquals(25, sorted.size());
+		for (int i = 0; i < sorted.size(); i++) {
+			assertEquals(Integer.valueOf(24 - i), sorted.get(i).getAmount());
+		}
+
+		Page<ShardedOrder> page = repository.findAll(PageRequest.of(1, 10, Sort.by("amount")));
+		assertEquals(25, page.getTotalElements());
+		assertEquals(10, page.getContent().size());
+		assertEquals(Integer.valueOf(10), page.getContent().get(0).getAmount());
+		assertEquals(Integer.valueOf(19), page.getContent().get(9).getAmount());
+	}
+
+	@Test
+	public void rejectsQueryMethodsAtCreation() {
+		assertTrue(createRepository(ShardedOrderRepository.class) instanceof ShardedOrderRepository);
+		try {
+			createRepository(ShardedOrderQueries.class);
+			fail("query methods on a sharded repository should be rejected");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("findByCustomer"));
+		}
+	}
+
+	@Test
+	public void rejectsScopedCalls() {
+		repository.save(new ShardedOrder("alice", 1));
+		ShardedOrderRepository scoped = createRepository(ShardedOrderRepository.class,
+				() -> Collections.singletonMap(DataScopeFilters.OWNER, Collections.singleton("alice")));
+		try {
+			scoped.findAll();
+			fail("data scopes cannot be applied on the shards");
+		} catch (InvalidDataAccessApiUsageException e) {
+			// expected
+		}
+		assertEquals(1, createRepository(ShardedOrderRepository.class, () -> null).findAll().size());
+	}
+
+	private <R extends BaseRepository<ShardedOrder, String>> R createRepository(Class<R> repositoryInterface) {
+		return createRepository(repositoryInterface, null);
+	}
+
+	private <R extends BaseRepository<ShardedOrder, String>> R createRepository(Class<R> repositoryInterface,
+			DataScopeProvider dataScopeProvider) {
+		SimpleBaseRepositoryFactoryBean<R, ShardedOrder, String> factoryBean =
+				new SimpleBaseRepositoryFactoryBean<>(repositoryInterface);
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerSingleton("transactionManager", new JpaTransactionManager(entityManagerFactories.get(0)));
+		factoryBean.setBeanClassLoader(getClass().getClassLoader());
+		factoryBean.setBeanFactory(beanFactory);
+		factoryBean.setDataScopeProvider(dataScopeProvider);
+		factoryBean.setEntityManager(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactories.get(0)));
+		factoryBean.setShardMap(shardMap);
+		factoryBean.afterPropertiesSet();
+		return factoryBean.getObject();
+	}
+
+	interface ShardedOrderRepository extends BaseRepository<ShardedOrder, String> {
+	}
+
+	interface ShardedOrderQueries extends BaseRepository<ShardedOrder, String> {
+
+		List<ShardedOrder> findByCustomer(String customer);
+	}
+}
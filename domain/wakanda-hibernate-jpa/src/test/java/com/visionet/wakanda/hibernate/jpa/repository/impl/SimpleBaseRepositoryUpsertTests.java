@@ -0,0 +1,92 @@
+package com.visionet.wakanda.hibernate.jpa.repository.impl;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import com.visionet.wakanda.hibernate.jpa.upsert.StockLevel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class SimpleBaseRepositoryUpsertTests {
+
+	private EmbeddedDatabase database;
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private TransactionTemplate transactionTemplate;
+
+	private SimpleBaseRepository<StockLevel, String> repository;
+
+	@Before
+	public void setUp() {
+		database = EmbeddedJpa.database("upsert");
+		entityManagerFactory = EmbeddedJpa.entityManagerFactory(database, "upsert", StockLevel.class);
+		EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+		JpaEntityInformation<StockLevel, ?> entityInformation =
+				JpaEntityInformationSupport.getEntityInformation(StockLevel.class, entityManager);
+		repository = new SimpleBaseRepository<>(entityInformation, entityManager);
+		transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+	}
+
+	@After
+	public void tearDown() {
+		entityManagerFactory.close();
+		database.shutdown();
+	}
+
+	@Test
+	public void insertsThenUpdatesInPlace() {
+		StockLevel stock = new StockLevel("sku1", "east", 10);
+		stock.setCreatedBy("creator");
+		transactionTemplate.execute(status -> repository.upsert(stock));
+
+		Map<String, Object> row = row("sku1");
+		assertEquals(10, row.get("quantity"));
+		assertEquals(0, row.get("version"));
+
+		StockLevel changed = new StockLevel("sku1", "east", 20);
+		changed.setCreatedBy("someone else");
+		transactionTemplate.execute(status -> repository.upsert(changed));
+
+		row = row("sku1");
+		assertEquals(20, row.get("quantity"));
+		assertEquals(1, row.get("version"));
+		assertEquals("created columns are insert-only", "creator", row.get("createdBy"));
+	}
+
+	@Test
+	public void upsertAllMixesNewAndExistingRows() {
+		transactionTemplate.execute(status -> repository.upsert(new StockLevel("sku0", "west", 1)));
+
+		List<StockLevel> levels = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			levels.add(new StockLevel("sku" + i, "west", 100 + i));
+		}
+		transactionTemplate.execute(status -> repository.upsertAll(levels));
+
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+		assertEquals(50, (int) jdbcTemplate.queryForObject("select count(*) from StockLevel", Integer.class));
+		assertEquals(100, row("sku0").get("quantity"));
+		assertEquals(1, row("sku0").get("version"));
+		assertEquals(0, row("sku49").get("version"));
+	}
+
+	private Map<String, Object> row(String id) {
+		return new JdbcTemplate(database).queryForMap(
+				"select quantity, version, createdBy from StockLevel where id = ?", id);
+	}
+}
@@ -0,0 +1,138 @@
+package com.visionet.wakanda.hibernate.jpa.repository.impl;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import com.visionet.wakanda.hibernate.jpa.writebehind.AuditEvent;
+import com.visionet.wakanda.hibernate.jpa.writebehind.WriteBehind;
+import com.visionet.wakanda.hibernate.jpa.writebehind.WriteBehindBuffer;
+import com.visionet.wakanda.hibernate.jpa.writebehind.WriteBehindRejectedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindBaseRepositoryTests {
+
+	private EmbeddedDatabase database;
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private EntityManager entityManager;
+
+	private JpaTransactionManager transactionManager;
+
+	private WriteBehindBuffer<AuditEvent> buffer;
+
+	private WriteBehindBaseRepository<AuditEvent, String> repository;
+
+	@Before
+	public void setUp() {
+		database = EmbeddedJpa.database("writeBehind");
+		entityManagerFactory = EmbeddedJpa.entityManagerFactory(database, "writeBehind", AuditEvent.class);
+		entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+		JpaEntityInformation<AuditEvent, ?> entityInformation =
+				JpaEntityInformationSupport.getEntityInformation(AuditEvent.class, entityManager);
+		transactionManager = new JpaTransactionManager(entityManagerFactory);
+		buffer = new WriteBehindBuffer<>("events", EventRepository.class.getAnnotation(WriteBehind.class),
+				entityManager, transactionManager);
+		repository = new WriteBehindBaseRepository<>(entityInformation, entityManager, buffer);
+	}
+
+	@After
+	public void tearDown() {
+		buffer.close();
+		entityManagerFactory.close();
+		database.shutdown();
+	}
+
+	@Test
+	public void savesAreBufferedAndWrittenInBatches() {
+		for (int i = 0; i < 250; i++) {
+			AuditEvent event = repository.save(new AuditEvent("login", "user" + i));
+			assertNotNull("id is assigned on enqueue", event.getId());
+		}
+		repository.flush();
+
+		assertEquals(250, rows());
+		assertEquals(250, repository.count());
+	}
+
+	@Test
+	public void closeDrainsTheBuffer() {
+		for (int i = 0; i < 30; i++) {
+			repository.save(new AuditEvent("login", "user" + i));
+		}
+		buffer.close();
+
+		assertEquals(30, rows());
+		try {
+			repository.save(new AuditEvent("login", "late"));
+			fail("closed buffer should reject");
+		} catch (WriteBehindRejectedException expected) {
+			// ok
+		}
+	}
+
+	@Test
+	public void failedEntitiesAreKeptNotDropped() {
+		AuditEvent invalid = new AuditEvent(null, "broken");
+		for (int i = 0; i < 20; i++) {
+			repository.save(i == 7 ? invalid : new AuditEvent("login", "user" + i));
+		}
+		repository.flush();
+
+		assertEquals(19, rows());
+		List<AuditEvent> failed = buffer.drainFailed();
+		assertEquals(1, failed.size());
+		assertSame(invalid, failed.get(0));
+
+		List<Object> handled = new ArrayList<>();
+		buffer.setFailureHandler((name, entities, cause) -> handled.addAll(entities));
+		repository.save(invalid);
+		repository.flush();
+		assertEquals(1, handled.size());
+		assertTrue(buffer.drainFailed().isEmpty());
+
+		invalid.setAction("logout");
+		repository.save(invalid);
+		repository.flush();
+		assertEquals(20, rows());
+	}
+
+	@Test
+	public void flushInsideTransactionLeavesCallerEntitiesManaged() {
+		new TransactionTemplate(transactionManager).execute(status -> {
+			AuditEvent caller = new AuditEvent("caller", "owner");
+			entityManager.persist(caller);
+			for (int i = 0; i < 10; i++) {
+				repository.save(new AuditEvent("login", "user" + i));
+			}
+			repository.flush();
+
+			assertTrue("caller entity is still managed", entityManager.contains(caller));
+			assertEquals("buffered entities are committed on their own", 10, rows());
+			return null;
+		});
+		assertEquals(11, rows());
+	}
+
+	private int rows() {
+		return new JdbcTemplate(database).queryForObject("select count(*) from AuditEvent", Integer.class);
+	}
+
+	@WriteBehind(capacity = 1000, batchSize = 100, flushInterval = 50)
+	private interface EventRepository {
+	}
+}
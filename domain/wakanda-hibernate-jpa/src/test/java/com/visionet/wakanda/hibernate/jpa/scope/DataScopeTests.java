@@ -0,0 +1,163 @@
+package com.visionet.wakanda.hibernate.jpa.scope;
+
+import com.visionet.wakanda.hibernate.jpa.fixture.Item;
+import com.visionet.wakanda.hibernate.jpa.fixture.ItemDatabase;
+import com.visionet.wakanda.hibernate.jpa.repository.BaseRepository;
+import com.visionet.wakanda.hibernate.jpa.repository.impl.SimpleBaseRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DataScopeTests {
+
+	@Rule
+	public final ItemDatabase items = new ItemDatabase("datascope");
+
+	private TransactionTemplate transactionTemplate;
+
+	private Map<String, Collection<?>> scopes;
+
+	private ExpenseRepository repository;
+
+	private String bobExpense;
+
+	@Before
+	public void setUp() {
+		EntityManagerFactory entityManagerFactory = items.getEntityManagerFactory();
+		EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+		JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+
+		JpaRepositoryFactory factory = new JpaRepositoryFactory(entityManager);
+		factory.setRepositoryBaseClass(SimpleBaseRepository.class);
+		factory.addRepositoryProxyPostProcessor((proxyFactory, information) -> proxyFactory.addAdvice(
+				new DataScopeInterceptor(() -> scopes, entityManagerFactory, () -> transactionManager)));
+		repository = factory.getRepository(ExpenseRepository.class);
+
+		bobExpense = items.seed(3, i -> {
+			Item expense = new Item("travel", i + 1);
+			expense.setCreatedBy(i < 2 ? "alice" : "bob");
+			return expense;
+		}).get(2).getId();
+	}
+
+	@Test
+	public void readsOnlyPermittedRows() {
+		scopes = Collections.singletonMap(DataScopeFilters.OWNER, Collections.singleton("alice"));
+
+		assertEquals(2, repository.findAll().size());
+		assertEquals(2, repository.count());
+		assertFalse(repository.findById(bobExpense).isPresent());
+		assertFalse(repository.existsById(bobExpense));
+
+		scopes = null;
+		assertEquals(3, repository.count());
+		assertTrue(repository.findById(bobExpense).isPresent());
+	}
+
+	@Test
+	public void emptyScopeHidesEverything() {
+		scopes = Collections.singletonMap(DataScopeFilters.OWNER, Collections.emptySet());
+
+		assertEquals(0, repository.count());
+		assertTrue(repository.findAll().isEmpty());
+	}
+
+	@Test
+	public void bulkDeleteIsScoped() {
+		scopes = Collections.singletonMap(DataScopeFilters.OWNER, Collections.singleton("alice"));
+		transactionTemplate.execute(status -> {
+			repository.deleteAllInBatch();
+			return null;
+		});
+
+		scopes = null;
+		assertEquals(1, repository.count());
+		assertTrue(repository.findById(bobExpense).isPresent());
+	}
+
+	@Test
+	public void entityDeletesAreScoped() {
+		List<Item> all = repository.findAll();
+		Item bob = repository.findById(bobExpense).get();
+
+		scopes = Collections.singletonMap(DataScopeFilters.OWNER, Collections.singleton("alice"));
+		inTransaction(() -> repository.delete(bob));
+		inTransaction(() -> repository.deleteAll(Collections.singletonList(bob)));
+		try {
+			inTransaction(() -> repository.deleteById(bobExpense));
+			fail("invisible rows should not be found for deletion");
+		} catch (EmptyResultDataAccessException e) {
+			// expected
+		}
+		scopes = null;
+		assertEquals(3, repository.count());
+
+		scopes = Collections.singletonMap(DataScopeFilters.OWNER, Collections.singleton("alice"));
+		inTransaction(() -> repository.deleteAll(all));
+		scopes = null;
+		assertEquals(1, repository.count());
+
+		scopes = Collections.singletonMap(DataScopeFilters.OWNER, Collections.singleton("bob"));
+		inTransaction(() -> repository.deleteAll());
+		scopes = null;
+		assertEquals(0, repository.count());
+	}
+
+	@Test
+	public void unscopableQueriesAreRejected() {
+		scopes = Collections.singletonMap(DataScopeFilters.OWNER, Collections.singleton("alice"));
+		try {
+			repository.countNative();
+			fail("native queries bypass the filters");
+		} catch (InvalidDataAccessApiUsageException e) {
+			// expected
+		}
+		try {
+			transactionTemplate.execute(status -> repository.resetAmounts());
+			fail("bulk updates bypass the filters");
+		} catch (InvalidDataAccessApiUsageException e) {
+			// expected
+		}
+
+		scopes = null;
+		assertEquals(3, repository.countNative());
+	}
+
+	private void inTransaction(Runnable action) {
+		transactionTemplate.execute(status -> {
+			action.run();
+			return null;
+		});
+	}
+
+	interface ExpenseRepository extends BaseRepository<Item, String> {
+
+		@Query(value = "select count(*) from Item", nativeQuery = true)
+		long countNative();
+
+		@Modifying
+		@Query("update Item e set e.amount = 0")
+		int resetAmounts();
+	}
+}
@@ -0,0 +1,157 @@
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import com.visionet.wakanda.hibernate.jpa.fixture.Item;
+import com.visionet.wakanda.hibernate.jpa.fixture.ItemDatabase;
+import com.visionet.wakanda.hibernate.jpa.repository.BaseRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class QueryPlanAuditTests {
+
+	private QueryPlanAudit audit;
+
+	/**
+	 * 被检查的 EntityManagerFactory 基于记录语句的数据源构建
+	 */
+	@Rule
+	public final ItemDatabase items = new ItemDatabase("planaudit", database -> {
+		audit = new QueryPlanAudit(database).addRepository(ItemRepository.class);
+		return audit.getDataSource();
+	});
+
+	private EntityManagerFactory entityManagerFactory;
+
+	@Before
+	public void setUp() {
+		entityManagerFactory = items.getEntityManagerFactory();
+		items.seed(200, i -> new Item("name" + i % 20, i));
+	}
+
+	@Test
+	public void mysqlPlanIssues() {
+		assertEquals(EnumSet.of(PlanIssue.FULL_SCAN, PlanIssue.FILESORT), PlanIssue.of(Collections.singletonList(
+				"1 | SIMPLE | orders | NULL | ALL | NULL | NULL | NULL | NULL | 100 | 100.0 | Using where; Using filesort")));
+		assertEquals(EnumSet.noneOf(PlanIssue.class), PlanIssue.of(Collections.singletonList(
+				"1 | SIMPLE | orders | NULL | ref | idx | idx | 4 | const | 1 | 100.0 | NULL")));
+		assertEquals(EnumSet.of(PlanIssue.TEMPORARY), PlanIssue.of(Arrays.asList(
+				"1 | SIMPLE | orders | NULL | ref | idx | idx | 4 | const | 1 | 100.0 | Using temporary",
+				"1 | SIMPLE | items | NULL | eq_ref | PRIMARY | PRIMARY | 8 | orders.id | 1 | 100.0 | NULL")));
+	}
+
+	@Test
+	public void allowlistMatchesRepositoryOrWildcard() throws IOException {
+		QueryPlanAllowlist allowlist = QueryPlanAllowlist.parse(new StringReader("# comment\n*.findAll() FULL_SCAN\n"
+				+ "ItemRepository.findByName( String, int )\n\nItemRepository.findByName(CharSequence) SKIP\n"
+				+ "ItemRepository.unused(String) FILESORT\n"));
+		assertEquals(EnumSet.of(PlanIssue.FULL_SCAN),
+				allowlist.allowed("ItemRepository", "findAll()", EnumSet.of(PlanIssue.FULL_SCAN)));
+		assertEquals(EnumSet.allOf(PlanIssue.class),
+				allowlist.allowed("ItemRepository", "findByName(String, int)", EnumSet.of(PlanIssue.FILESORT)));
+		// 重载方法各自独立
+		assertEquals(EnumSet.noneOf(PlanIssue.class),
+				allowlist.allowed("ItemRepository", "findAll(Sort)", EnumSet.of(PlanIssue.FULL_SCAN)));
+		assertEquals(EnumSet.noneOf(PlanIssue.class),
+				allowlist.allowed("ItemRepository", "findByName(String)", EnumSet.of(PlanIssue.FILESORT)));
+		assertTrue(allowlist.skipAllowed("ItemRepository", "findByName(CharSequence)"));
+		assertFalse(allowlist.skipAllowed("ItemRepository", "findByName(String)"));
+		assertEquals(Collections.singleton("ItemRepository.unused(String)"), allowlist.unused());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void allowlistRequiresParameterTypes() throws IOException {
+		QueryPlanAllowlist.parse(new StringReader("ItemRepository.findByName FULL_SCAN\n"));
+	}
+
+	@Test
+	public void reportsFullScansAndSkipsBeyondAllowlist() {
+		QueryPlanReport report = audit.run(entityManagerFactory);
+		assertEquals(Collections.singleton("ItemRepository.findByName(CharSequence)"),
+				report.getUnexpectedSkips().keySet());
+		assertTrue(violations(report).contains("ItemRepository.findByName(String)"));
+		assertFalse(violations(report).contains("ItemRepository.findItem(String)"));
+		assertFalse(violations(report).contains("ItemRepository.findById(Object)"));
+		// H2 直接取行数, count 不产生全表扫描
+		assertFalse(violations(report).contains("ItemRepository.count()"));
+		assertTrue(report.getFindings().stream()
+				.anyMatch(finding -> finding.getMethod().equals("ItemRepository.count()")));
+		assertTrue(report.getFindings().stream().noneMatch(finding -> finding.getMethod().contains("deleteByName")));
+		try {
+			report.assertNoRegressions();
+			fail();
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage().contains("findByName(String)"));
+			assertTrue(e.getMessage().contains("findByName(CharSequence): No sample value"));
+		}
+	}
+
+	@Test
+	public void allowlistedIssuesPass() {
+		QueryPlanReport report = audit.setAllowlist(allowlist()).run(entityManagerFactory);
+		report.assertNoRegressions();
+		assertTrue(report.getUnusedAllowances().isEmpty());
+		assertEquals(1, report.getSkipped().size());
+	}
+
+	@Test
+	public void unusedAllowancesFail() {
+		QueryPlanReport report = audit.setAllowlist(allowlist()
+				.allow("ItemRepository.findItem(String)", EnumSet.allOf(PlanIssue.class))
+				.allowSkip("ItemRepository.count()"))
+				.run(entityManagerFactory);
+		assertTrue(report.getViolations().isEmpty());
+		assertEquals(new LinkedHashSet<>(Arrays.asList("ItemRepository.findItem(String)",
+				"ItemRepository.count() SKIP")), report.getUnusedAllowances());
+		try {
+			report.assertNoRegressions();
+			fail();
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage().startsWith("Unused allowlist entries"));
+		}
+	}
+
+	private static QueryPlanAllowlist allowlist() {
+		return new QueryPlanAllowlist()
+				.allow("*.findAll()", EnumSet.of(PlanIssue.FULL_SCAN))
+				.allow("*.findAll(Sort)", EnumSet.of(PlanIssue.FULL_SCAN))
+				.allow("*.findAll(Pageable)", EnumSet.of(PlanIssue.FULL_SCAN))
+				.allow("ItemRepository.findByName(String)", EnumSet.allOf(PlanIssue.class))
+				.allowSkip("ItemRepository.findByName(CharSequence)");
+	}
+
+	private static List<String> violations(QueryPlanReport report) {
+		return report.getViolations().stream().map(QueryPlanReport.Finding::getMethod)
+				.collect(Collectors.toList());
+	}
+
+	public interface ItemRepository extends BaseRepository<Item, String> {
+
+		List<Item> findByName(String name);
+
+		/**
+		 * 没有样例参数, 无法检查
+		 */
+		List<Item> findByName(CharSequence name);
+
+		@Query("select i from Item i where i.id = ?1")
+		Item findItem(String id);
+
+		@Modifying
+		@Query("delete from Item i where i.name = ?1")
+		int deleteByName(String name);
+	}
+}
@@ -0,0 +1,98 @@
+package com.visionet.wakanda.hibernate.jpa.slowquery;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlowQueryLogTests {
+
+	private EmbeddedDatabase database;
+
+	private final List<String> recorded = new ArrayList<>();
+
+	private final List<List<Object>> parameters = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		database = EmbeddedJpa.database("slowquery");
+		try (Connection connection = database.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("create table orders (id varchar(36) primary key, customer varchar(32), amount int)");
+		}
+	}
+
+	@After
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	public void fingerprintHidesLiterals() {
+		assertEquals("select * from orders where customer = ? and amount in (...)",
+				SqlFingerprint.of("SELECT *  FROM orders\n WHERE customer = 'o''brien' AND amount IN (1, 2.5, 3);"));
+		assertEquals(SqlFingerprint.of("select id from order0_ where id in (?, ?)"),
+				SqlFingerprint.of("select id from order0_ where id in (?)"));
+		assertEquals(SqlFingerprint.id(SqlFingerprint.of("select 1")), SqlFingerprint.id(SqlFingerprint.of("select 2")));
+	}
+
+	@Test
+	public void statementsAreRecordedWithBoundParameters() throws Exception {
+		SlowQueryLog log = new SlowQueryLog(0, 0, 0) {
+			@Override
+			void record(DataSource dataSource, String sql, List<Object> values, long nanos) {
+				recorded.add(sql);
+				parameters.add(values == null ? null : new ArrayList<>(values));
+				super.record(dataSource, sql, values, nanos);
+			}
+		};
+		DataSource dataSource = SlowQueryDataSource.wrap(database, log);
+		try (Connection connection = dataSource.getConnection()) {
+			try (PreparedStatement insert = connection.prepareStatement("insert into orders values (?, ?, ?)")) {
+				for (int i = 0; i < 3; i++) {
+					insert.setString(1, "o" + i);
+					insert.setString(2, "c" + i);
+					insert.setInt(3, i);
+					insert.addBatch();
+				}
+				insert.executeBatch();
+			}
+			try (PreparedStatement select = connection.prepareStatement("select * from orders where customer = ?")) {
+				select.setString(1, "c1");
+				try (ResultSet resultSet = select.executeQuery()) {
+					assertTrue(resultSet.next());
+				}
+			}
+			assertTrue(connection.equals(connection));
+		}
+		log.close();
+
+		assertEquals(Arrays.asList("insert into orders values (?, ?, ?)", "select * from orders where customer = ?"),
+				recorded);
+		assertEquals(null, parameters.get(0));
+		assertEquals(Arrays.<Object>asList("c1"), parameters.get(1));
+		assertEquals(2, log.getFingerprints().size());
+		assertEquals("[String, null]", SlowQueryLog.redact(Arrays.asList("secret", null)));
+	}
+
+	@Test
+	public void explainReturnsPlan() throws Exception {
+		List<String> plan = ExplainPlan.explain(database, "select * from orders where id = ?",
+				Arrays.<Object>asList("o1"));
+		assertFalse(plan.isEmpty());
+		assertTrue(ExplainPlan.explain(database, "delete from orders", null).isEmpty());
+	}
+}
@@ -0,0 +1,47 @@
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import javax.persistence.Basic;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Lob;
+
+@Entity
+public class Article extends BaseEntity<String> {
+
+	private String title;
+
+	private Integer views;
+
+	@Lob
+	@Basic(fetch = FetchType.LAZY)
+	private String body;
+
+	public Article() {
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public Integer getViews() {
+		return views;
+	}
+
+	public void setViews(Integer views) {
+		this.views = views;
+	}
+
+	public String getBody() {
+		return body;
+	}
+
+	public void setBody(String body) {
+		this.body = body;
+	}
+}
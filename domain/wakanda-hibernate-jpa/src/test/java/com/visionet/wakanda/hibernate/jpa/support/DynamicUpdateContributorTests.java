@@ -0,0 +1,119 @@
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import org.hibernate.Hibernate;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.ManagedMappedSuperclass;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DynamicUpdateContributorTests {
+
+	private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+	private EmbeddedDatabase database;
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private Class<?> articleClass;
+
+	@Before
+	public void setUp() throws ClassNotFoundException {
+		ClassLoader classLoader = new EnhancingClassLoader(Article.class);
+		articleClass = classLoader.loadClass(Article.class.getName());
+		database = EmbeddedJpa.database("dynamicupdate");
+		entityManagerFactory = EmbeddedJpa.entityManagerFactory(database, "dynamicupdate",
+				Collections.singletonMap(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+					STATEMENTS.add(sql.toLowerCase());
+					return sql;
+				}), classLoader, Article.class);
+	}
+
+	@After
+	public void tearDown() {
+		// setUp 中增强失败时不掩盖原始异常
+		if (entityManagerFactory != null) {
+			entityManagerFactory.close();
+		}
+		if (database != null) {
+			database.shutdown();
+		}
+	}
+
+	@Test
+	public void buildEnhancesBaseEntity() {
+		assertTrue(ManagedMappedSuperclass.class.isAssignableFrom(BaseEntity.class));
+		assertTrue(SelfDirtinessTracker.class.isAssignableFrom(articleClass));
+	}
+
+	@Test
+	public void updatesOnlyChangedColumns() {
+		BaseEntity<?> article = article("title", "body");
+		inTransaction(entityManager -> entityManager.persist(article));
+		STATEMENTS.clear();
+
+		inTransaction(entityManager -> new BeanWrapperImpl(entityManager.find(articleClass, article.getId()))
+				.setPropertyValue("views", 1));
+
+		List<String> updates = new ArrayList<>();
+		for (String sql : STATEMENTS) {
+			if (sql.startsWith("update")) {
+				updates.add(sql);
+			}
+		}
+		assertEquals(1, updates.size());
+		assertTrue(updates.get(0).contains("views"));
+		assertFalse(updates.get(0).contains("title"));
+		assertFalse(updates.get(0).contains("body"));
+	}
+
+	@Test
+	public void lazyBasicAttributesLoadOnDemand() {
+		BaseEntity<?> article = article("title", "body");
+		inTransaction(entityManager -> entityManager.persist(article));
+
+		inTransaction(entityManager -> {
+			Object found = entityManager.find(articleClass, article.getId());
+			assertFalse(Hibernate.isPropertyInitialized(found, "body"));
+			assertEquals("body", new BeanWrapperImpl(found).getPropertyValue("body"));
+		});
+	}
+
+	private BaseEntity<?> article(String title, String body) {
+		BeanWrapper article = new BeanWrapperImpl(articleClass);
+		article.setPropertyValue("title", title);
+		article.setPropertyValue("body", body);
+		article.setPropertyValue("views", 0);
+		return (BaseEntity<?>) article.getWrappedInstance();
+	}
+
+	private void inTransaction(Consumer<EntityManager> work) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			entityManager.getTransaction().begin();
+			work.accept(entityManager);
+			entityManager.getTransaction().commit();
+		} finally {
+			entityManager.close();
+		}
+	}
+}
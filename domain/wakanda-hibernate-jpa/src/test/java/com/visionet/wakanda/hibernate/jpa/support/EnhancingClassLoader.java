@@ -0,0 +1,67 @@
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import org.hibernate.bytecode.enhance.spi.DefaultEnhancementContext;
+import org.hibernate.bytecode.enhance.spi.Enhancer;
+import org.hibernate.bytecode.enhance.spi.UnloadedField;
+import org.hibernate.bytecode.internal.bytebuddy.BytecodeProviderImpl;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 按 domain/pom.xml 中 hibernate-enhance-maven-plugin 的配置在加载时增强指定实体, 构建插件只增强主代码
+ */
+class EnhancingClassLoader extends ClassLoader {
+
+	private final Set<String> names = new HashSet<>();
+
+	private final Enhancer enhancer;
+
+	EnhancingClassLoader(Class<?>... entityClasses) {
+		super(EnhancingClassLoader.class.getClassLoader());
+		Arrays.stream(entityClasses).map(Class::getName).forEach(names::add);
+		enhancer = new BytecodeProviderImpl().getEnhancer(new DefaultEnhancementContext() {
+			@Override
+			public ClassLoader getLoadingClassLoader() {
+				return getParent();
+			}
+
+			@Override
+			public boolean doBiDirectionalAssociationManagement(UnloadedField field) {
+				return false;
+			}
+		});
+	}
+
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		if (!names.contains(name)) {
+			return super.loadClass(name, resolve);
+		}
+		synchronized (getClassLoadingLock(name)) {
+			Class<?> type = findLoadedClass(name);
+			if (type == null) {
+				byte[] bytes = enhance(name);
+				type = defineClass(name, bytes, 0, bytes.length);
+			}
+			if (resolve) {
+				resolveClass(type);
+			}
+			return type;
+		}
+	}
+
+	private byte[] enhance(String name) throws ClassNotFoundException {
+		try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+			byte[] original = StreamUtils.copyToByteArray(in);
+			byte[] enhanced = enhancer.enhance(name, original);
+			return enhanced != null ? enhanced : original;
+		} catch (IOException e) {
+			throw new ClassNotFoundException(name, e);
+		}
+	}
+}
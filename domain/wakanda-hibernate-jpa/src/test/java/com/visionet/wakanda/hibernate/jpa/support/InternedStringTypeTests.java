@@ -0,0 +1,60 @@
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InternedStringTypeTests {
+
+	private EmbeddedDatabase database;
+
+	private EntityManagerFactory entityManagerFactory;
+
+	@Before
+	public void setUp() {
+		database = EmbeddedJpa.database("interned");
+		entityManagerFactory = EmbeddedJpa.entityManagerFactory(database, "interned", Ticket.class);
+	}
+
+	@After
+	public void tearDown() {
+		entityManagerFactory.close();
+		database.shutdown();
+	}
+
+	@Test
+	public void loadedColumnsShareInstances() {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			entityManager.getTransaction().begin();
+			for (int i = 0; i < 10; i++) {
+				Ticket ticket = new Ticket("ticket" + i, new String("open"));
+				ticket.setCreatedBy(new String("importer"));
+				entityManager.persist(ticket);
+			}
+			entityManager.getTransaction().commit();
+			entityManager.clear();
+
+			long hits = InternedStringType.getInterner().getHits();
+			List<Ticket> tickets = entityManager.createQuery("select t from Ticket t", Ticket.class).getResultList();
+			assertEquals(10, tickets.size());
+			for (Ticket ticket : tickets) {
+				assertSame(tickets.get(0).getCreatedBy(), ticket.getCreatedBy());
+				assertSame(tickets.get(0).getStatus(), ticket.getStatus());
+			}
+			assertTrue(InternedStringType.getInterner().getHits() - hits >= 18);
+		} finally {
+			entityManager.close();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import com.visionet.wakanda.hibernate.jpa.EmbeddedJpa;
+import com.visionet.wakanda.hibernate.jpa.index.Catalog;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.Database;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PersistenceBootstrapTests {
+
+	private EmbeddedDatabase database;
+
+	private final List<LocalContainerEntityManagerFactoryBean> factoryBeans = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		database = EmbeddedJpa.database("bootstrap");
+	}
+
+	@After
+	public void tearDown() {
+		for (LocalContainerEntityManagerFactoryBean factoryBean : factoryBeans) {
+			factoryBean.destroy();
+		}
+		database.shutdown();
+	}
+
+	@Test
+	public void defaultModeIsReadyOnceEveryFactoryIsInitialized() throws InterruptedException {
+		PersistenceBootstrap bootstrap = new PersistenceBootstrap(BootstrapMode.DEFAULT);
+		PersistenceHealthIndicator health = new PersistenceHealthIndicator(bootstrap);
+		assertFalse(bootstrap.isReady());
+		assertEquals(Status.OUT_OF_SERVICE, health.health().getStatus());
+
+		LocalContainerEntityManagerFactoryBean first = start(bootstrap, "first", database, Collections.emptyMap());
+		LocalContainerEntityManagerFactoryBean second = start(bootstrap, "second", database, Collections.emptyMap());
+		bootstrap.postProcessAfterInitialization(first, "first");
+		assertTrue(bootstrap.isReady("first"));
+		assertFalse(bootstrap.isReady("second"));
+		assertFalse(bootstrap.isReady());
+		assertEquals(Status.OUT_OF_SERVICE, health.health().getStatus());
+
+		bootstrap.postProcessAfterInitialization(second, "second");
+		assertTrue(bootstrap.isReady());
+		assertTrue(bootstrap.awaitReady(0, TimeUnit.MILLISECONDS));
+		assertEquals(Status.UP, health.health().getStatus());
+	}
+
+	@Test
+	public void deferredModeTracksEachFactory() throws InterruptedException {
+		PersistenceBootstrap bootstrap = new PersistenceBootstrap(BootstrapMode.DEFERRED);
+		PersistenceHealthIndicator health = new PersistenceHealthIndicator(bootstrap);
+		CountDownLatch release = new CountDownLatch(1);
+		DataSource blocked = new DelegatingDataSource(database) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.getConnection();
+			}
+		};
+		start(bootstrap, "slow", blocked, Collections.emptyMap());
+		start(bootstrap, "fast", database, Collections.emptyMap());
+
+		assertTrue(bootstrap.awaitReady("fast", 30, TimeUnit.SECONDS));
+		assertFalse(bootstrap.isReady("slow"));
+		assertFalse(bootstrap.isReady());
+		Health building = health.health();
+		assertEquals(Status.OUT_OF_SERVICE, building.getStatus());
+		assertEquals("building", building.getDetails().get("slow"));
+		assertEquals("ready", building.getDetails().get("fast"));
+
+		release.countDown();
+		assertTrue(bootstrap.awaitReady(30, TimeUnit.SECONDS));
+		assertTrue(bootstrap.isReady());
+		assertEquals(Status.UP, health.health().getStatus());
+	}
+
+	@Test
+	public void failedFactoryReportsDown() throws InterruptedException {
+		PersistenceBootstrap bootstrap = new PersistenceBootstrap(BootstrapMode.LAZY);
+		start(bootstrap, "broken", database,
+				Collections.singletonMap(AvailableSettings.PHYSICAL_NAMING_STRATEGY, "no.such.NamingStrategy"));
+		factoryBeans.clear();
+		try {
+			bootstrap.awaitReady("broken", 30, TimeUnit.SECONDS);
+			fail();
+		} catch (HibernateConfigException e) {
+			assertNotNull(e.getCause());
+		}
+		assertFalse(bootstrap.isReady());
+		assertEquals(Status.DOWN, new PersistenceHealthIndicator(bootstrap).health().getStatus());
+	}
+
+	private LocalContainerEntityManagerFactoryBean start(PersistenceBootstrap bootstrap, String name,
+														 DataSource dataSource, Map<String, ?> properties) {
+		HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+		vendorAdapter.setDatabase(Database.H2);
+		vendorAdapter.setGenerateDdl(true);
+
+		LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+		factoryBean.setDataSource(dataSource);
+		factoryBean.setPersistenceUnitName(name);
+		factoryBean.setPackagesToScan(Catalog.class.getPackage().getName());
+		factoryBean.setJpaVendorAdapter(vendorAdapter);
+		factoryBean.setJpaPropertyMap(properties);
+		bootstrap.postProcessBeforeInitialization(factoryBean, name);
+		factoryBean.afterPropertiesSet();
+		factoryBeans.add(factoryBean);
+		return factoryBean;
+	}
+}
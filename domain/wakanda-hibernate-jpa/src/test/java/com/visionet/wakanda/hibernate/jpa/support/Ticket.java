@@ -0,0 +1,39 @@
+package com.visionet.wakanda.hibernate.jpa.support;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Ticket extends BaseEntity<String> {
+
+	private String title;
+
+	@Type(type = InternedStringType.NAME)
+	private String status;
+
+	public Ticket() {
+	}
+
+	public Ticket(String title, String status) {
+		this.title = title;
+		this.status = status;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+}
@@ -0,0 +1,38 @@
+package com.visionet.wakanda.hibernate.jpa.upsert;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import javax.persistence.Entity;
+
+@Entity
+public class StockLevel extends BaseEntity<String> {
+
+	private String warehouse;
+
+	private Integer quantity;
+
+	public StockLevel() {
+	}
+
+	public StockLevel(String sku, String warehouse, Integer quantity) {
+		setId(sku);
+		this.warehouse = warehouse;
+		this.quantity = quantity;
+	}
+
+	public String getWarehouse() {
+		return warehouse;
+	}
+
+	public void setWarehouse(String warehouse) {
+		this.warehouse = warehouse;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(Integer quantity) {
+		this.quantity = quantity;
+	}
+}
@@ -0,0 +1,39 @@
+package com.visionet.wakanda.hibernate.jpa.writebehind;
+
+import com.visionet.wakanda.hibernate.jpa.entity.BaseEntity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+
+@Entity
+public class AuditEvent extends BaseEntity<String> {
+
+	@Column(nullable = false, length = 32)
+	private String action;
+
+	private String actor;
+
+	public AuditEvent() {
+	}
+
+	public AuditEvent(String action, String actor) {
+		this.action = action;
+		this.actor = actor;
+	}
+
+	public String getAction() {
+		return action;
+	}
+
+	public void setAction(String action) {
+		this.action = action;
+	}
+
+	public String getActor() {
+		return actor;
+	}
+
+	public void setActor(String actor) {
+		this.actor = actor;
+	}
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.exception;
+
+/**
+ * 带错误码与参数的异常, 供统一的异常处理取出结构化信息
+ *
+ * @author pangcaijie
+ * @since 2019/5/25.
+ */
+public interface CodedException {
+
+	/**
+	 * @return 错误码, 未指定时为 null
+	 */
+	ErrorCode getErrorCode();
+
+	/**
+	 * @return 消息参数, 不要修改
+	 */
+	Object[] getParameters();
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.exception;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * {@link CodedException} 的公共实现: 错误码、参数与延迟格式化的消息
+ *
+ * 受检与非受检异常没有共同的父类, 由各异常持有本类并委托
+ *
+ * @author pangcaijie
+ * @since 2019/5/25.
+ */
+public final class CodedExceptionSupport {
+
+	private final ErrorCode errorCode;
+
+	private final Object[] parameters;
+
+	private volatile String message;
+
+	/**
+	 * @param errorCode 错误码, 可为 null
+	 * @param parameters 消息参数
+	 * @param message 固定的消息, 为 null 时按错误码模板格式化
+	 */
+	public CodedExceptionSupport(ErrorCode errorCode, Object[] parameters, String message) {
+		this.errorCode = errorCode;
+		this.parameters = ErrorMessages.parameters(parameters);
+		this.message = message;
+	}
+
+	public ErrorCode getErrorCode() {
+		return errorCode;
+	}
+
+	public Object[] getParameters() {
+		return parameters;
+	}
+
+	public String getMessage() {
+		String message = this.message;
+		if (message == null && errorCode != null) {
+			message = ErrorMessages.format(errorCode, parameters);
+			this.message = message;
+		}
+		return message;
+	}
+
+	/**
+	 * 只复用枚举错误码的实例, 其它错误码可能按需创建, 缓存会无限增长
+	 * @param cache 异常类型的实例缓存
+	 * @param errorCode 无参数的错误码
+	 * @param factory 创建不带异常栈的实例
+	 * @return 共享或新建的异常实例
+	 */
+	public static <E extends Throwable> E shared(ConcurrentMap<ErrorCode, E> cache, ErrorCode errorCode,
+			Function<ErrorCode, E> factory) {
+		if (ErrorMessages.isStackTraceForced() || !(errorCode instanceof Enum)) {
+			return factory.apply(errorCode);
+		}
+		E exception = cache.get(errorCode);
+		if (exception == null) {
+			exception = cache.computeIfAbsent(errorCode, factory);
+		}
+		return exception;
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.exception;
+
+/**
+ * 错误码, 通常由各模块的枚举实现
+ *
+ * 消息模板中的 {@code {}} 按顺序替换为异常参数, 只在读取消息时格式化
+ *
+ * @author pangcaijie
+ * @since 2019/5/25.
+ */
+public interface ErrorCode {
+
+	/**
+	 * @return 错误码, 如 {@code USER_NOT_FOUND}
+	 */
+	String getCode();
+
+	/**
+	 * @return 消息模板
+	 */
+	String getMessage();
+
+	/**
+	 * 错误码与消息模板都相同的实例相等
+	 * @param code 错误码
+	 * @param message 消息模板
+	 */
+	static ErrorCode of(String code, String message) {
+		return new SimpleErrorCode(code, message);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.exception;
+
+/**
+ * 错误消息格式化与异常栈开关
+ *
+ * 预期内的失败(如输入校验)默认不填充异常栈; 排查问题时以 {@code -Dwakanda.exception.stackTrace=true}
+ * 启动可使所有异常都带异常栈, 此时也不再复用缓存的异常实例
+ *
+ * @author pangcaijie
+ * @since 2019/5/25.
+ */
+public final class ErrorMessages {
+
+	private static final Object[] NO_PARAMETERS = new Object[0];
+
+	private static final boolean STACK_TRACE = Boolean.getBoolean("wakanda.exception.stackTrace");
+
+	private ErrorMessages() {
+	}
+
+	/**
+	 * @return 是否强制填充异常栈
+	 */
+	public static boolean isStackTraceForced() {
+		return STACK_TRACE;
+	}
+
+	/**
+	 * @param errorCode 错误码
+	 * @param parameters 参数, 依次替换模板中的 {@code {}}, 多余的参数追加在末尾
+	 * @return 消息, 格式为 {@code [code] message}
+	 */
+	public static String format(ErrorCode errorCode, Object[] parameters) {
+		if (errorCode == null) {
+			return null;
+		}
+		String template = errorCode.getMessage();
+		StringBuilder builder = new StringBuilder(template != null ? template.length() + 32 : 32);
+		builder.append('[').append(errorCode.getCode()).append("] ");
+		int index = 0;
+		if (template != null) {
+			int start = 0;
+			int placeholder;
+			while (index < parameters.length && (placeholder = template.indexOf("{}", start)) >= 0) {
+				builder.append(template, start, placeholder).append(parameters[index++]);
+				start = placeholder + 2;
+			}
+			builder.append(template, start, template.length());
+		}
+		if (index < parameters.length) {
+			builder.append(' ');
+			for (int i = index; i < parameters.length; i++) {
+				builder.append(i > index ? ", " : "").append(parameters[i]);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * @return 非 null 的参数数组
+	 */
+	public static Object[] parameters(Object[] parameters) {
+		return parameters == null || parameters.length == 0 ? NO_PARAMETERS : parameters;
+	}
+}
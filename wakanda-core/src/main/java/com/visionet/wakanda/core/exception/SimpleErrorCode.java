@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.exception;
+
+import java.util.Objects;
+
+/**
+ * {@link ErrorCode#of(String, String)} 创建的错误码
+ *
+ * @author pangcaijie
+ * @since 2019/5/25.
+ */
+final class SimpleErrorCode implements ErrorCode {
+
+	private final String code;
+
+	private final String message;
+
+	SimpleErrorCode(String code, String message) {
+		this.code = code;
+		this.message = message;
+	}
+
+	@Override
+	public String getCode() {
+		return code;
+	}
+
+	@Override
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof SimpleErrorCode)) {
+			return false;
+		}
+		SimpleErrorCode that = (SimpleErrorCode) o;
+		return Objects.equals(code, that.code) && Objects.equals(message, that.message);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(code, message);
+	}
+
+	@Override
+	public String toString() {
+		return code;
+	}
+}
@@ -4,10 +4,86 @@
  */
 package com.visionet.wakanda.core.exception.check;
 
+import com.visionet.wakanda.core.exception.CodedException;
+import com.visionet.wakanda.core.exception.CodedExceptionSupport;
+import com.visionet.wakanda.core.exception.ErrorCode;
+import com.visionet.wakanda.core.exception.ErrorMessages;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
+ * 业务异常, 调用方需要处理
+ *
+ * 以错误码创建的异常不填充异常栈, 用于预期内的失败; 包装其它异常时保留异常栈.
+ * 消息在 {@link #getMessage()} 时才按错误码模板格式化, 无参数的枚举错误码可用 {@link #of(ErrorCode)} 复用同一实例
+ *
  * @author pangcaijie
  * @since 2019/3/15.
  */
-public class BusinessException extends Exception {
+public class BusinessException extends Exception implements CodedException {
+
+	private static final ConcurrentMap<ErrorCode, BusinessException> CACHE = new ConcurrentHashMap<>();
+
+	private final CodedExceptionSupport support;
+
+	public BusinessException() {
+		this((String) null);
+	}
+
+	/**
+	 * 不带错误码, 填充异常栈
+	 */
+	public BusinessException(String message) {
+		super(message);
+		this.support = new CodedExceptionSupport(null, null, message);
+	}
+
+	/**
+	 * 预期内的失败, 不填充异常栈
+	 * @param errorCode 错误码
+	 * @param parameters 消息参数
+	 */
+	public BusinessException(ErrorCode errorCode, Object... parameters) {
+		this(errorCode, parameters, null, ErrorMessages.isStackTraceForced());
+	}
+
+	/**
+	 * 包装其它异常, 填充异常栈
+	 * @param errorCode 错误码
+	 * @param cause 原因
+	 * @param parameters 消息参数
+	 */
+	public BusinessException(ErrorCode errorCode, Throwable cause, Object... parameters) {
+		this(errorCode, parameters, cause, true);
+	}
+
+	protected BusinessException(ErrorCode errorCode, Object[] parameters, Throwable cause, boolean writableStackTrace) {
+		// 不记录 suppressed 异常, 缓存的实例可以安全共享
+		super(null, cause, false, writableStackTrace);
+		this.support = new CodedExceptionSupport(errorCode, parameters, null);
+	}
+
+	/**
+	 * @param errorCode 无参数的错误码
+	 * @return 枚举错误码共享的异常实例, 其它错误码每次新建; 均不带异常栈
+	 */
+	public static BusinessException of(ErrorCode errorCode) {
+		return CodedExceptionSupport.shared(CACHE, errorCode, BusinessException::new);
+	}
+
+	@Override
+	public ErrorCode getErrorCode() {
+		return support.getErrorCode();
+	}
+
+	@Override
+	public Object[] getParameters() {
+		return support.getParameters();
+	}
 
+	@Override
+	public String getMessage() {
+		return support.getMessage();
+	}
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.utils;
+
+/**
+ * 公历日期与 1970-01-01 起的天数互相换算, 不创建 java.time 对象
+ *
+ * @author pangcaijie
+ * @since 2019/5/28.
+ */
+final class CivilDates {
+
+	static final int SECONDS_PER_DAY = 86400;
+
+	private CivilDates() {
+	}
+
+	static long toEpochDay(long year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * @return 年份, 月与日见 {@link #monthOf(long)} 与 {@link #dayOf(long)}
+	 */
+	static long yearOf(long epochDay) {
+		long shifted = epochDay + 719468;
+		long era = Math.floorDiv(shifted, 146097);
+		long dayOfEra = shifted - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthPart = (5 * dayOfYear + 2) / 153;
+		return yearOfEra + era * 400 + (monthPart >= 10 ? 1 : 0);
+	}
+
+	static int monthOf(long epochDay) {
+		long monthPart = (5 * dayOfYear(epochDay) + 2) / 153;
+		return (int) (monthPart < 10 ? monthPart + 3 : monthPart - 9);
+	}
+
+	static int dayOf(long epochDay) {
+		long dayOfYear = dayOfYear(epochDay);
+		long monthPart = (5 * dayOfYear + 2) / 153;
+		return (int) (dayOfYear - (153 * monthPart + 2) / 5 + 1);
+	}
+
+	static int lengthOfMonth(long year, int month) {
+		switch (month) {
+			case 2:
+				return isLeapYear(year) ? 29 : 28;
+			case 4:
+			case 6:
+			case 9:
+			case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+
+	private static boolean isLeapYear(long year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	/**
+	 * @return 以 3 月 1 日为起点的年内天数
+	 */
+	private static long dayOfYear(long epochDay) {
+		long shifted = epochDay + 719468;
+		long era = Math.floorDiv(shifted, 146097);
+		long dayOfEra = shifted - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		return dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+	}
+}
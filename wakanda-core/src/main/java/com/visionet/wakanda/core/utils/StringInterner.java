@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 弱引用字符串驻留池, 用于取值很少但出现次数很多的字符串(用户名、状态码等)
+ *
+ * 相同内容的字符串返回同一实例, 重复的副本随即可以回收; 不再被引用的值会从池中移除, 池不会无限增长.
+ * 按哈希分段加锁, 与 {@link String#intern()} 不同, 不占用 JVM 字符串表
+ *
+ * @author pangcaijie
+ * @since 2019/5/27.
+ */
+public class StringInterner {
+
+	private final Segment[] segments;
+
+	private final int mask;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder savedBytes = new LongAdder();
+
+	public StringInterner() {
+		this(16);
+	}
+
+	/**
+	 * @param concurrencyLevel 分段数, 向上取整为 2 的幂
+	 */
+	public StringInterner(int concurrencyLevel) {
+		int size = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1)) << 1;
+		this.segments = new Segment[size];
+		for (int i = 0; i < size; i++) {
+			segments[i] = new Segment();
+		}
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @param value 字符串, 可以为 null
+	 * @return 与 value 内容相同的规范实例
+	 */
+	public String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		int hash = value.hashCode();
+		Segment segment = segments[(hash ^ (hash >>> 16)) & mask];
+		String canonical;
+		synchronized (segment) {
+			WeakReference<String> reference = segment.values.get(value);
+			canonical = reference != null ? reference.get() : null;
+			if (canonical == null) {
+				segment.values.put(value, new WeakReference<>(value));
+			}
+		}
+		if (canonical == null) {
+			misses.increment();
+			return value;
+		}
+		hits.increment();
+		if (canonical != value) {
+			savedBytes.add(sizeOf(value));
+		}
+		return canonical;
+	}
+
+	/**
+	 * @return 返回已有实例的次数
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return 加入新值的次数
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return 命中率, 没有调用时为 0
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * @return 被替换的副本累计占用的字节数(估算值), 即可回收的内存
+	 */
+	public long getSavedBytes() {
+		return savedBytes.sum();
+	}
+
+	/**
+	 * @return 池中的值数量, 包括尚未清理的已回收值
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.values.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * 按 64 位 JVM 开启压缩指针估算: String 对象 24 字节, char[] 16 字节头加每字符 2 字节, 按 8 字节对齐
+	 */
+	private static long sizeOf(String value) {
+		return 24 + ((16 + 2L * value.length() + 7) & ~7L);
+	}
+
+	private static final class Segment {
+
+		private final Map<String, WeakReference<String>> values = new WeakHashMap<>();
+	}
+}
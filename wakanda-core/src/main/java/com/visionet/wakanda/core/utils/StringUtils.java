@@ -4,6 +4,8 @@
  */
 package com.visionet.wakanda.core.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -880,4 +882,502 @@ public class StringUtils {
 		}
 		return builder.toString();
 	}
+
+	// CharSequence ranges
+	//-----------------------------------------------------------------------
+
+	/**
+	 * <p>Checks if a CharSequence is empty ("") or null.</p>
+	 *
+	 * @param cs the CharSequence to check, may be null
+	 * @return {@code true} if the CharSequence is empty or null
+	 */
+	public static boolean isEmpty(final CharSequence cs) {
+		return cs == null || cs.length() == 0;
+	}
+
+	/**
+	 * <p>Checks if a CharSequence is whitespace, empty ("") or null.</p>
+	 *
+	 * @param cs the CharSequence to check, may be null
+	 * @return {@code true} if the CharSequence is null, empty or whitespace
+	 */
+	public static boolean isBlank(final CharSequence cs) {
+		return cs == null || isBlank(cs, 0, cs.length());
+	}
+
+	/**
+	 * <p>Checks if a range of a CharSequence is empty or whitespace only.</p>
+	 *
+	 * <pre>
+	 * StringUtils.isBlank("a  b", 1, 2) = true
+	 * StringUtils.isBlank("a  b", 1, 3) = false
+	 * StringUtils.isBlank("abc", 1, 0)  = true
+	 * </pre>
+	 *
+	 * @param cs the CharSequence to check, not null
+	 * @param offset the first index of the range
+	 * @param length the length of the range
+	 * @return {@code true} if the range contains only whitespace
+	 */
+	public static boolean isBlank(final CharSequence cs, final int offset, final int length) {
+		checkRange(cs.length(), offset, length);
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (!Character.isWhitespace(cs.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Finds the first index of a range that is not a control character (char &lt;= 32),
+	 * the counterpart of {@link #trim(String)} that does not create a String.</p>
+	 *
+	 * <pre>
+	 * StringUtils.trimStart("  abc  ", 0, 7) = 2
+	 * StringUtils.trimStart("       ", 0, 7) = 7
+	 * </pre>
+	 *
+	 * @param cs the CharSequence, not null
+	 * @param offset the first index of the range
+	 * @param length the length of the range
+	 * @return the start index of the trimmed range, {@code offset + length} if the range is blank
+	 */
+	public static int trimStart(final CharSequence cs, final int offset, final int length) {
+		checkRange(cs.length(), offset, length);
+		int start = offset;
+		final int end = offset + length;
+		while (start < end && cs.charAt(start) <= CHAR_SPACE) {
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * <pre>
+	 * StringUtils.trimEnd("  abc  ", 0, 7) = 5
+	 * StringUtils.trimEnd("       ", 0, 7) = 0
+	 * </pre>
+	 *
+	 * @param cs the CharSequence, not null
+	 * @param offset the first index of the range
+	 * @param length the length of the range
+	 * @return the end index (exclusive) of the trimmed range, {@code offset} if the range is blank
+	 */
+	public static int trimEnd(final CharSequence cs, final int offset, final int length) {
+		checkRange(cs.length(), offset, length);
+		int end = offset + length;
+		while (end > offset && cs.charAt(end - 1) <= CHAR_SPACE) {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * <p>Finds the first index of a character within a range of a CharSequence.</p>
+	 *
+	 * <pre>
+	 * StringUtils.indexOf("aabaabaa", 'b', 3, 5) = 5
+	 * StringUtils.indexOf("aabaabaa", 'b', 3, 2) = -1
+	 * </pre>
+	 *
+	 * @param cs the CharSequence to check, not null
+	 * @param searchChar the character to find
+	 * @param offset the first index of the range
+	 * @param length the length of the range
+	 * @return the index within {@code cs} of the search character, -1 if not found in the range
+	 */
+	public static int indexOf(final CharSequence cs, final int searchChar, final int offset, final int length) {
+		checkRange(cs.length(), offset, length);
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (cs.charAt(i) == searchChar) {
+				return i;
+			}
+		}
+		return INDEX_NOT_FOUND;
+	}
+
+	/**
+	 * <p>Finds the first index of a search sequence that lies entirely within a range of a CharSequence.
+	 * An empty search sequence matches at {@code offset}.</p>
+	 *
+	 * @param cs the CharSequence to check, not null
+	 * @param searchSeq the CharSequence to find, not null
+	 * @param offset the first index of the range
+	 * @param length the length of the range
+	 * @return the index within {@code cs} of the search sequence, -1 if not found in the range
+	 */
+	public static int indexOf(final CharSequence cs, final CharSequence searchSeq, final int offset,
+			final int length) {
+		checkRange(cs.length(), offset, length);
+		final int searchLength = searchSeq.length();
+		if (searchLength == 0) {
+			return offset;
+		}
+		final char first = searchSeq.charAt(0);
+		for (int i = offset, max = offset + length - searchLength; i <= max; i++) {
+			if (cs.charAt(i) == first && regionMatches(cs, i, searchSeq, searchLength)) {
+				return i;
+			}
+		}
+		return INDEX_NOT_FOUND;
+	}
+
+	/**
+	 * <p>Checks if CharSequence contains a search CharSequence, handling {@code null}.</p>
+	 *
+	 * @param cs the CharSequence to check, may be null
+	 * @param searchSeq the CharSequence to find, may be null
+	 * @return true if the CharSequence contains the search CharSequence, false if not or {@code null} input
+	 */
+	public static boolean contains(final CharSequence cs, final CharSequence searchSeq) {
+		return cs != null && searchSeq != null && indexOf(cs, searchSeq, 0, cs.length()) > INDEX_NOT_FOUND;
+	}
+
+	/**
+	 * <p>Checks if a range of a CharSequence has the same characters as another CharSequence.</p>
+	 *
+	 * @param cs the CharSequence to check, not null
+	 * @param offset the first index of the range
+	 * @param length the length of the range
+	 * @param other the expected characters, not null
+	 * @return {@code true} if the range equals {@code other}
+	 */
+	public static boolean regionEquals(final CharSequence cs, final int offset, final int length,
+			final CharSequence other) {
+		checkRange(cs.length(), offset, length);
+		return length == other.length() && regionMatches(cs, offset, other, length);
+	}
+
+	/**
+	 * <p>Splits a range of a CharSequence by a separator character without creating Strings.
+	 * The start and end index (exclusive) of token {@code i} are written to {@code bounds[2i]} and
+	 * {@code bounds[2i + 1]}. Adjacent separators produce empty tokens. When {@code bounds} is full,
+	 * the last token extends to the end of the range.</p>
+	 *
+	 * <pre>
+	 * StringUtils.split("a,b,,c", 0, 6, ',', bounds) = 4, bounds = [0, 1, 2, 3, 4, 4, 5, 6]
+	 * StringUtils.split("a,b,,c", 0, 6, ',', new int[4]) = 2, bounds = [0, 1, 2, 6]
+	 * </pre>
+	 *
+	 * @param cs the CharSequence to split, not null
+	 * @param offset the first index of the range
+	 * @param length the length of the range
+	 * @param separator the separator character
+	 * @param bounds receives the token boundaries, length at least 2
+	 * @return the number of tokens
+	 */
+	public static int split(final CharSequence cs, final int offset, final int length, final char separator,
+			final int[] bounds) {
+		checkRange(cs.length(), offset, length);
+		final int end = offset + length;
+		final int max = bounds.length / 2;
+		int count = 0;
+		int start = offset;
+		for (int i = offset; i < end && count < max - 1; i++) {
+			if (cs.charAt(i) == separator) {
+				bounds[2 * count] = start;
+				bounds[2 * count + 1] = i;
+				count++;
+				start = i + 1;
+			}
+		}
+		bounds[2 * count] = start;
+		bounds[2 * count + 1] = end;
+		return count + 1;
+	}
+
+	/**
+	 * <p>Returns a read-only view of a range of a CharSequence, the characters are not copied.</p>
+	 *
+	 * @param cs the CharSequence, not null
+	 * @param offset the first index of the range
+	 * @param length the length of the range
+	 * @return a CharSequence backed by {@code cs}
+	 */
+	public static CharSequence subSequence(final CharSequence cs, final int offset, final int length) {
+		checkRange(cs.length(), offset, length);
+		return CharBuffer.wrap(cs, offset, offset + length);
+	}
+
+	// char[] ranges
+	//-----------------------------------------------------------------------
+
+	/**
+	 * @see #isBlank(CharSequence, int, int)
+	 */
+	public static boolean isBlank(final char[] chars, final int offset, final int length) {
+		return isBlank(CharBuffer.wrap(chars), offset, length);
+	}
+
+	/**
+	 * @see #trimStart(CharSequence, int, int)
+	 */
+	public static int trimStart(final char[] chars, final int offset, final int length) {
+		return trimStart(CharBuffer.wrap(chars), offset, length);
+	}
+
+	/**
+	 * @see #trimEnd(CharSequence, int, int)
+	 */
+	public static int trimEnd(final char[] chars, final int offset, final int length) {
+		return trimEnd(CharBuffer.wrap(chars), offset, length);
+	}
+
+	/**
+	 * @see #indexOf(CharSequence, int, int, int)
+	 */
+	public static int indexOf(final char[] chars, final int searchChar, final int offset, final int length) {
+		return indexOf(CharBuffer.wrap(chars), searchChar, offset, length);
+	}
+
+	/**
+	 * @see #indexOf(CharSequence, CharSequence, int, int)
+	 */
+	public static int indexOf(final char[] chars, final CharSequence searchSeq, final int offset, final int length) {
+		return indexOf(CharBuffer.wrap(chars), searchSeq, offset, length);
+	}
+
+	/**
+	 * @see #split(CharSequence, int, int, char, int[])
+	 */
+	public static int split(final char[] chars, final int offset, final int length, final char separator,
+			final int[] bounds) {
+		return split(CharBuffer.wrap(chars), offset, length, separator, bounds);
+	}
+
+	// ByteBuffer (ASCII / UTF-8)
+	//-----------------------------------------------------------------------
+	// 按绝对下标读取, 不改变 position/limit, 堆内与直接缓冲区均可. UTF-8 多字节字符的各字节都不小于 0x80,
+	// 因此按 ASCII 字符查找、切分与去空白对 UTF-8 内容同样正确
+
+	/**
+	 * <p>Checks if a range of a ByteBuffer contains only ASCII whitespace.</p>
+	 *
+	 * @param buffer the buffer, not null
+	 * @param offset the absolute index of the range
+	 * @param length the length of the range
+	 * @return {@code true} if the range is empty or whitespace only
+	 */
+	public static boolean isBlank(final ByteBuffer buffer, final int offset, final int length) {
+		checkRange(buffer.limit(), offset, length);
+		for (int i = offset, end = offset + length; i < end; i++) {
+			final byte b = buffer.get(i);
+			if (b < 0 || !Character.isWhitespace(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the start index of the range without leading control characters (byte &lt;= 32)
+	 * @see #trimStart(CharSequence, int, int)
+	 */
+	public static int trimStart(final ByteBuffer buffer, final int offset, final int length) {
+		checkRange(buffer.limit(), offset, length);
+		int start = offset;
+		final int end = offset + length;
+		while (start < end && isControl(buffer.get(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * @return the end index (exclusive) of the range without trailing control characters (byte &lt;= 32)
+	 * @see #trimEnd(CharSequence, int, int)
+	 */
+	public static int trimEnd(final ByteBuffer buffer, final int offset, final int length) {
+		checkRange(buffer.limit(), offset, length);
+		int end = offset + length;
+		while (end > offset && isControl(buffer.get(end - 1))) {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * <p>Finds the first index of an ASCII character within a range of a ByteBuffer.</p>
+	 *
+	 * @param buffer the buffer, not null
+	 * @param searchChar the ASCII character to find
+	 * @param offset the absolute index of the range
+	 * @param length the length of the range
+	 * @return the absolute index of the character, -1 if not found in the range
+	 */
+	public static int indexOf(final ByteBuffer buffer, final int searchChar, final int offset, final int length) {
+		checkRange(buffer.limit(), offset, length);
+		checkAscii(searchChar);
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (buffer.get(i) == searchChar) {
+				return i;
+			}
+		}
+		return INDEX_NOT_FOUND;
+	}
+
+	/**
+	 * <p>Finds the first index of a byte sequence (e.g. an UTF-8 encoded word) within a range of a ByteBuffer.
+	 * An empty search sequence matches at {@code offset}.</p>
+	 *
+	 * @param buffer the buffer, not null
+	 * @param search the bytes to find, not null
+	 * @param offset the absolute index of the range
+	 * @param length the length of the range
+	 * @return the absolute index of the sequence, -1 if not found in the range
+	 */
+	public static int indexOf(final ByteBuffer buffer, final byte[] search, final int offset, final int length) {
+		checkRange(buffer.limit(), offset, length);
+		if (search.length == 0) {
+			return offset;
+		}
+		outer:
+		for (int i = offset, max = offset + length - search.length; i <= max; i++) {
+			for (int j = 0; j < search.length; j++) {
+				if (buffer.get(i + j) != search[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return INDEX_NOT_FOUND;
+	}
+
+	/**
+	 * <p>Checks if a range of a ByteBuffer holds exactly the given ASCII characters.</p>
+	 *
+	 * @param buffer the buffer, not null
+	 * @param offset the absolute index of the range
+	 * @param length the length of the range
+	 * @param ascii the expected ASCII characters, not null
+	 * @return {@code true} if the range equals {@code ascii}
+	 */
+	public static boolean regionEquals(final ByteBuffer buffer, final int offset, final int length,
+			final CharSequence ascii) {
+		checkRange(buffer.limit(), offset, length);
+		if (length != ascii.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(offset + i) != ascii.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Splits a range of a ByteBuffer by an ASCII separator, writing absolute token boundaries.</p>
+	 *
+	 * @see #split(CharSequence, int, int, char, int[])
+	 */
+	public static int split(final ByteBuffer buffer, final int offset, final int length, final char separator,
+			final int[] bounds) {
+		checkRange(buffer.limit(), offset, length);
+		checkAscii(separator);
+		final int end = offset + length;
+		final int max = bounds.length / 2;
+		int count = 0;
+		int start = offset;
+		for (int i = offset; i < end && count < max - 1; i++) {
+			if (buffer.get(i) == separator) {
+				bounds[2 * count] = start;
+				bounds[2 * count + 1] = i;
+				count++;
+				start = i + 1;
+			}
+		}
+		bounds[2 * count] = start;
+		bounds[2 * count + 1] = end;
+		return count + 1;
+	}
+
+	/**
+	 * <p>Returns a CharSequence view of an ASCII range of a ByteBuffer, the bytes are not copied.
+	 * Each byte is read as one character, so non-ASCII content must be decoded with
+	 * {@link java.nio.charset.StandardCharsets#UTF_8} instead.</p>
+	 *
+	 * @param buffer the buffer, not null
+	 * @param offset the absolute index of the range
+	 * @param length the length of the range
+	 * @return a CharSequence backed by {@code buffer}
+	 */
+	public static CharSequence asciiSequence(final ByteBuffer buffer, final int offset, final int length) {
+		checkRange(buffer.limit(), offset, length);
+		return new AsciiSequence(buffer, offset, length);
+	}
+
+	private static boolean regionMatches(final CharSequence cs, final int offset, final CharSequence other,
+			final int length) {
+		for (int i = 0; i < length; i++) {
+			if (cs.charAt(offset + i) != other.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isControl(final byte b) {
+		return b >= 0 && b <= CHAR_SPACE;
+	}
+
+	private static void checkRange(final int size, final int offset, final int length) {
+		if (offset < 0 || length < 0 || offset > size - length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + size);
+		}
+	}
+
+	private static void checkAscii(final int c) {
+		if (c < 0 || c > 127) {
+			throw new IllegalArgumentException("Not an ASCII character: " + c);
+		}
+	}
+
+	/**
+	 * ByteBuffer 中 ASCII 内容的只读视图
+	 */
+	private static final class AsciiSequence implements CharSequence {
+
+		private final ByteBuffer buffer;
+
+		private final int offset;
+
+		private final int length;
+
+		private AsciiSequence(ByteBuffer buffer, int offset, int length) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+			}
+			return (char) (buffer.get(offset + index) & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			checkRange(length, start, end - start);
+			return new AsciiSequence(buffer, offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			char[] chars = new char[length];
+			for (int i = 0; i < length; i++) {
+				chars[i] = charAt(i);
+			}
+			return new String(chars);
+		}
+	}
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.utils;
+
+import java.nio.ByteBuffer;
+import java.time.ZoneOffset;
+
+/**
+ * 把整数、定点小数与 ISO-8601 时间直接写入 byte[]、{@link ByteBuffer} 或 {@link StringBuilder}, 与
+ * {@link TextParser} 对应, 不创建中间字符串
+ *
+ * 整数写入 StringBuilder 直接使用 {@link StringBuilder#append(long)}, 本身不分配对象
+ *
+ * @author pangcaijie
+ * @since 2019/5/28.
+ */
+public final class TextFormatter {
+
+	/**
+	 * 单个值的最大长度: 带符号与 18 位小数的 long, 或带时区的时间
+	 */
+	private static final int MAX_LENGTH = 48;
+
+	private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[MAX_LENGTH]);
+
+	private TextFormatter() {
+	}
+
+	// byte[]
+	//-------------------------------------------------------------------
+
+	/**
+	 * @param target 目标数组
+	 * @param offset 写入位置
+	 * @param value 整数
+	 * @return 写入后的位置
+	 */
+	public static int writeLong(byte[] target, int offset, long value) {
+		int position = offset;
+		if (value < 0) {
+			target[position++] = '-';
+		} else {
+			// 统一按负数处理, Long.MIN_VALUE 不会溢出
+			value = -value;
+		}
+		int start = position;
+		do {
+			target[position++] = (byte) ('0' - value % 10);
+			value /= 10;
+		} while (value != 0);
+		reverse(target, start, position);
+		return position;
+	}
+
+	/**
+	 * @param unscaled 乘以 10^scale 后的整数, 如 scale 为 2 时 1230 写为 "12.30"
+	 * @param scale 小数位数, 0~18
+	 * @return 写入后的位置
+	 */
+	public static int writeDecimal(byte[] target, int offset, long unscaled, int scale) {
+		if (scale < 0 || scale > 18) {
+			throw new IllegalArgumentException("Scale must be between 0 and 18: " + scale);
+		}
+		if (scale == 0) {
+			return writeLong(target, offset, unscaled);
+		}
+		int position = offset;
+		if (unscaled < 0) {
+			target[position++] = '-';
+		} else {
+			unscaled = -unscaled;
+		}
+		int start = position;
+		int digits = 0;
+		do {
+			if (digits == scale) {
+				target[position++] = '.';
+			}
+			target[position++] = (byte) ('0' - unscaled % 10);
+			unscaled /= 10;
+			digits++;
+		} while (unscaled != 0 || digits <= scale);
+		reverse(target, start, position);
+		return position;
+	}
+
+	/**
+	 * 写入 {@code yyyy-MM-dd}
+	 * @param epochMillis 1970-01-01T00:00Z 起的毫秒数
+	 * @param offset 时区偏移
+	 */
+	public static int writeIsoDate(byte[] target, int position, long epochMillis, ZoneOffset offset) {
+		long epochDay = Math.floorDiv(epochMillis + offset.getTotalSeconds() * 1000L, 86400000L);
+		position = writeYear(target, position, CivilDates.yearOf(epochDay));
+		target[position++] = '-';
+		position = writeTwoDigits(target, position, CivilDates.monthOf(epochDay));
+		target[position++] = '-';
+		return writeTwoDigits(target, position, CivilDates.dayOf(epochDay));
+	}
+
+	/**
+	 * 写入 {@code yyyy-MM-dd'T'HH:mm:ss.SSS} 加时区, UTC 写为 {@code Z}, 其它为 {@code ±HH:mm}
+	 * @param epochMillis 1970-01-01T00:00Z 起的毫秒数
+	 * @param offset 时区偏移
+	 */
+	public static int writeIsoTimestamp(byte[] target, int position, long epochMillis, ZoneOffset offset) {
+		int offsetSeconds = offset.getTotalSeconds();
+		long local = epochMillis + offsetSeconds * 1000L;
+		position = writeIsoDate(target, position, epochMillis, offset);
+		int millisOfDay = (int) Math.floorMod(local, 86400000L);
+		target[position++] = 'T';
+		position = writeTwoDigits(target, position, millisOfDay / 3600000);
+		target[position++] = ':';
+		position = writeTwoDigits(target, position, millisOfDay / 60000 % 60);
+		target[position++] = ':';
+		position = writeTwoDigits(target, position, millisOfDay / 1000 % 60);
+		target[position++] = '.';
+		int millis = millisOfDay % 1000;
+		target[position++] = (byte) ('0' + millis / 100);
+		position = writeTwoDigits(target, position, millis % 100);
+		if (offsetSeconds == 0) {
+			target[position++] = 'Z';
+			return position;
+		}
+		target[position++] = (byte) (offsetSeconds < 0 ? '-' : '+');
+		int absolute = Math.abs(offsetSeconds);
+		position = writeTwoDigits(target, position, absolute / 3600);
+		target[position++] = ':';
+		return writeTwoDigits(target, position, absolute / 60 % 60);
+	}
+
+	// ByteBuffer
+	//-------------------------------------------------------------------
+
+	/**
+	 * 从当前 position 写入并前移 position
+	 */
+	public static void putLong(ByteBuffer buffer, long value) {
+		byte[] scratch = SCRATCH.get();
+		buffer.put(scratch, 0, writeLong(scratch, 0, value));
+	}
+
+	public static void putDecimal(ByteBuffer buffer, long unscaled, int scale) {
+		byte[] scratch = SCRATCH.get();
+		buffer.put(scratch, 0, writeDecimal(scratch, 0, unscaled, scale));
+	}
+
+	public static void putIsoDate(ByteBuffer buffer, long epochMillis, ZoneOffset offset) {
+		byte[] scratch = SCRATCH.get();
+		buffer.put(scratch, 0, writeIsoDate(scratch, 0, epochMillis, offset));
+	}
+
+	public static void putIsoTimestamp(ByteBuffer buffer, long epochMillis, ZoneOffset offset) {
+		byte[] scratch = SCRATCH.get();
+		buffer.put(scratch, 0, writeIsoTimestamp(scratch, 0, epochMillis, offset));
+	}
+
+	// StringBuilder
+	//-------------------------------------------------------------------
+
+	public static StringBuilder appendDecimal(StringBuilder builder, long unscaled, int scale) {
+		byte[] scratch = SCRATCH.get();
+		return append(builder, scratch, writeDecimal(scratch, 0, unscaled, scale));
+	}
+
+	public static StringBuilder appendIsoDate(StringBuilder builder, long epochMillis, ZoneOffset offset) {
+		byte[] scratch = SCRATCH.get();
+		return append(builder, scratch, writeIsoDate(scratch, 0, epochMillis, offset));
+	}
+
+	public static StringBuilder appendIsoTimestamp(StringBuilder builder, long epochMillis, ZoneOffset offset) {
+		byte[] scratch = SCRATCH.get();
+		return append(builder, scratch, writeIsoTimestamp(scratch, 0, epochMillis, offset));
+	}
+
+	private static StringBuilder append(StringBuilder builder, byte[] scratch, int length) {
+		for (int i = 0; i < length; i++) {
+			builder.append((char) scratch[i]);
+		}
+		return builder;
+	}
+
+	private static int writeYear(byte[] target, int position, long year) {
+		if (year < 0 || year > 9999) {
+			// 超出 4 位的年份按 ISO-8601 扩展格式写出符号
+			if (year > 9999) {
+				target[position++] = '+';
+			}
+			return writeLong(target, position, year);
+		}
+		int value = (int) year;
+		position = writeTwoDigits(target, position, value / 100);
+		return writeTwoDigits(target, position, value % 100);
+	}
+
+	private static int writeTwoDigits(byte[] target, int position, int value) {
+		target[position++] = (byte) ('0' + value / 10);
+		target[position++] = (byte) ('0' + value % 10);
+		return position;
+	}
+
+	private static void reverse(byte[] target, int start, int end) {
+		for (int i = start, j = end - 1; i < j; i++, j--) {
+			byte b = target[i];
+			target[i] = target[j];
+			target[j] = b;
+		}
+	}
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.utils;
+
+import java.time.ZoneOffset;
+
+/**
+ * 直接从字符区间解析整数、定点小数、浮点数与 ISO-8601 时间, 不截取子串、不装箱
+ *
+ * 解析失败不抛出异常: 返回 0, {@link #isValid()} 为 false, {@link #getErrorIndex()} 指向第一个无法解析的字符.
+ * 每次解析前重置错误状态. 实例持有可复用的缓冲区包装, 非线程安全, 应按线程或按任务创建
+ *
+ * <pre>
+ * TextParser parser = new TextParser();
+ * long amount = parser.parseDecimal(line, start, length, 2);
+ * if (!parser.isValid()) {
+ *     // 第 parser.getErrorIndex() 个字符无效
+ * }
+ * </pre>
+ *
+ * @author pangcaijie
+ * @since 2019/5/28.
+ */
+public final class TextParser {
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	private static final double[] DOUBLE_POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+		DOUBLE_POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < DOUBLE_POWERS_OF_TEN.length; i++) {
+			DOUBLE_POWERS_OF_TEN[i] = DOUBLE_POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final CharArraySequence charArray = new CharArraySequence();
+
+	private final ByteArraySequence byteArray = new ByteArraySequence();
+
+	private int defaultOffsetSeconds;
+
+	private int errorIndex = -1;
+
+	/**
+	 * @param defaultOffset 未带时区的时间按此偏移解析, 默认 UTC
+	 */
+	public void setDefaultOffset(ZoneOffset defaultOffset) {
+		this.defaultOffsetSeconds = defaultOffset.getTotalSeconds();
+	}
+
+	/**
+	 * @return 上一次解析是否成功
+	 */
+	public boolean isValid() {
+		return errorIndex < 0;
+	}
+
+	/**
+	 * @return 上一次解析失败的位置, 成功时为 -1
+	 */
+	public int getErrorIndex() {
+		return errorIndex;
+	}
+
+	// 整数
+	//-------------------------------------------------------------------
+
+	/**
+	 * @param cs 文本
+	 * @param offset 起始下标
+	 * @param length 长度
+	 * @return 可带正负号的十进制整数, 超出 int 范围时失败
+	 */
+	public int parseInt(CharSequence cs, int offset, int length) {
+		long value = parseLong(cs, offset, length);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			return (int) fail(offset);
+		}
+		return (int) value;
+	}
+
+	public int parseInt(char[] chars, int offset, int length) {
+		return parseInt(charArray.wrap(chars), offset, length);
+	}
+
+	/**
+	 * @param bytes ASCII 或 UTF-8 文本
+	 */
+	public int parseInt(byte[] bytes, int offset, int length) {
+		return parseInt(byteArray.wrap(bytes), offset, length);
+	}
+
+	/**
+	 * @return 可带正负号的十进制整数, 超出 long 范围时失败
+	 */
+	public long parseLong(CharSequence cs, int offset, int length) {
+		errorIndex = -1;
+		checkRange(cs, offset, length);
+		int end = offset + length;
+		int i = offset;
+		boolean negative = i < end && cs.charAt(i) == '-';
+		if (i < end && (negative || cs.charAt(i) == '+')) {
+			i++;
+		}
+		if (i == end) {
+			return fail(i);
+		}
+		// 按负数累加, Long.MIN_VALUE 不会溢出
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long result = 0;
+		for (; i < end; i++) {
+			int digit = cs.charAt(i) - '0';
+			if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit) {
+				return fail(i);
+			}
+			result = result * 10 - digit;
+		}
+		return negative ? result : -result;
+	}
+
+	public long parseLong(char[] chars, int offset, int length) {
+		return parseLong(charArray.wrap(chars), offset, length);
+	}
+
+	public long parseLong(byte[] bytes, int offset, int length) {
+		return parseLong(byteArray.wrap(bytes), offset, length);
+	}
+
+	// 小数
+	//-------------------------------------------------------------------
+
+	/**
+	 * 按固定小数位解析, 如 scale 为 2 时 "12.3" 返回 1230; 超过 scale 的小数位必须为 0
+	 * @param scale 小数位数, 0~18
+	 * @return 乘以 10^scale 后的整数
+	 */
+	public long parseDecimal(CharSequence cs, int offset, int length, int scale) {
+		errorIndex = -1;
+		checkRange(cs, offset, length);
+		if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+			throw new IllegalArgumentException("Scale must be between 0 and 18: " + scale);
+		}
+		int end = offset + length;
+		int i = offset;
+		boolean negative = i < end && cs.charAt(i) == '-';
+		if (i < end && (negative || cs.charAt(i) == '+')) {
+			i++;
+		}
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long result = 0;
+		int digits = 0;
+		int fraction = -1;
+		for (; i < end; i++) {
+			char c = cs.charAt(i);
+			if (c == '.' && fraction < 0) {
+				fraction = 0;
+				continue;
+			}
+			int digit = c - '0';
+			if (digit < 0 || digit > 9) {
+				return fail(i);
+			}
+			digits++;
+			if (fraction >= 0 && ++fraction > scale) {
+				if (digit != 0) {
+					return fail(i);
+				}
+				continue;
+			}
+			if (result < limit / 10 || result * 10 < limit + digit) {
+				return fail(i);
+			}
+			result = result * 10 - digit;
+		}
+		if (digits == 0) {
+			return fail(end);
+		}
+		for (int pad = scale - Math.max(fraction, 0); pad > 0; pad--) {
+			if (result < limit / 10) {
+				return fail(end);
+			}
+			result *= 10;
+		}
+		return negative ? result : -result;
+	}
+
+	public long parseDecimal(char[] chars, int offset, int length, int scale) {
+		return parseDecimal(charArray.wrap(chars), offset, length, scale);
+	}
+
+	public long parseDecimal(byte[] bytes, int offset, int length, int scale) {
+		return parseDecimal(byteArray.wrap(bytes), offset, length, scale);
+	}
+
+	/**
+	 * 十进制浮点数, 可带指数; 有效数字不超过 15 位且指数较小时直接计算(结果与 {@link Double#parseDouble(String)}
+	 * 一致), 其它情况交给 {@link Double#parseDouble(String)}
+	 */
+	public double parseDouble(CharSequence cs, int offset, int length) {
+		errorIndex = -1;
+		checkRange(cs, offset, length);
+		int end = offset + length;
+		int i = offset;
+		boolean negative = i < end && cs.charAt(i) == '-';
+		if (i < end && (negative || cs.charAt(i) == '+')) {
+			i++;
+		}
+		long mantissa = 0;
+		int significant = 0;
+		int exponent = 0;
+		int digits = 0;
+		boolean fraction = false;
+		for (; i < end; i++) {
+			char c = cs.charAt(i);
+			if (c == '.' && !fraction) {
+				fraction = true;
+				continue;
+			}
+			if (c == 'e' || c == 'E') {
+				break;
+			}
+			int digit = c - '0';
+			if (digit < 0 || digit > 9) {
+				return fail(i);
+			}
+			digits++;
+			if (significant < 18) {
+				if (mantissa != 0 || digit != 0) {
+					significant++;
+				}
+				mantissa = mantissa * 10 + digit;
+				if (fraction) {
+					exponent--;
+				}
+			} else if (!fraction) {
+				exponent++;
+			}
+		}
+		if (digits == 0) {
+			return fail(i);
+		}
+		if (i < end) {
+			i++;
+			boolean negativeExponent = i < end && cs.charAt(i) == '-';
+			if (i < end && (negativeExponent || cs.charAt(i) == '+')) {
+				i++;
+			}
+			if (i == end) {
+				return fail(i);
+			}
+			int value = 0;
+			for (; i < end; i++) {
+				int digit = cs.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					return fail(i);
+				}
+				value = Math.min(value * 10 + digit, 100000);
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+		double result;
+		if (significant <= 15 && Math.abs(exponent) < DOUBLE_POWERS_OF_TEN.length) {
+			// 尾数与 10 的幂都能精确表示为 double, 一次乘除即为正确舍入的结果
+			result = exponent < 0 ? mantissa / DOUBLE_POWERS_OF_TEN[-exponent]
+					: mantissa * DOUBLE_POWERS_OF_TEN[exponent];
+			return negative ? -result : result;
+		}
+		return Double.parseDouble(cs.subSequence(offset, end).toString());
+	}
+
+	public double parseDouble(char[] chars, int offset, int length) {
+		return parseDouble(charArray.wrap(chars), offset, length);
+	}
+
+	public double parseDouble(byte[] bytes, int offset, int length) {
+		return parseDouble(byteArray.wrap(bytes), offset, length);
+	}
+
+	// 时间
+	//-------------------------------------------------------------------
+
+	/**
+	 * 解析 ISO-8601 日期或时间: {@code yyyy-MM-dd}, {@code yyyy-MM-dd'T'HH:mm[:ss[.SSS]][Z|±HH:mm]},
+	 * 日期与时间之间也可以是空格; 秒的小数部分最多 9 位, 只保留到毫秒
+	 * @return 1970-01-01T00:00Z 起的毫秒数
+	 */
+	public long parseTimestamp(CharSequence cs, int offset, int length) {
+		errorIndex = -1;
+		checkRange(cs, offset, length);
+		int end = offset + length;
+		int i = offset;
+		long year = digits(cs, i, 4, end);
+		if (!isValid() || !expect(cs, i + 4, '-', end)) {
+			return 0;
+		}
+		int month = (int) digits(cs, i + 5, 2, end);
+		if (!isValid() || !expect(cs, i + 7, '-', end)) {
+			return 0;
+		}
+		int day = (int) digits(cs, i + 8, 2, end);
+		if (!isValid()) {
+			return 0;
+		}
+		if (month < 1 || month > 12) {
+			return fail(i + 5);
+		}
+		if (day < 1 || day > CivilDates.lengthOfMonth(year, month)) {
+			return fail(i + 8);
+		}
+		long seconds = CivilDates.toEpochDay(year, month, day) * CivilDates.SECONDS_PER_DAY;
+		i += 10;
+		if (i == end) {
+			return (seconds - defaultOffsetSeconds) * 1000;
+		}
+		char separator = cs.charAt(i);
+		if (separator != 'T' && separator != ' ') {
+			return fail(i);
+		}
+		int hour = (int) digits(cs, i + 1, 2, end);
+		if (!isValid() || !expect(cs, i + 3, ':', end)) {
+			return 0;
+		}
+		int minute = (int) digits(cs, i + 4, 2, end);
+		if (!isValid()) {
+			return 0;
+		}
+		if (hour > 23) {
+			return fail(i + 1);
+		}
+		if (minute > 59) {
+			return fail(i + 4);
+		}
+		i += 6;
+		int second = 0;
+		int millis = 0;
+		if (i < end && cs.charAt(i) == ':') {
+			second = (int) digits(cs, i + 1, 2, end);
+			if (!isValid()) {
+				return 0;
+			}
+			if (second > 59) {
+				return fail(i + 1);
+			}
+			i += 3;
+			if (i < end && cs.charAt(i) == '.') {
+				int start = ++i;
+				while (i < end && i - start < 9 && cs.charAt(i) >= '0' && cs.charAt(i) <= '9') {
+					if (i - start < 3) {
+						millis = millis * 10 + cs.charAt(i) - '0';
+					}
+					i++;
+				}
+				if (i == start) {
+					return fail(i);
+				}
+				for (int scale = i - start; scale < 3; scale++) {
+					millis *= 10;
+				}
+			}
+		}
+		seconds += hour * 3600 + minute * 60 + second;
+		int offsetSeconds = defaultOffsetSeconds;
+		if (i < end) {
+			char zone = cs.charAt(i);
+			if (zone == 'Z' && i + 1 == end) {
+				offsetSeconds = 0;
+			} else if (zone == '+' || zone == '-') {
+				int offsetHours = (int) digits(cs, i + 1, 2, end);
+				if (!isValid()) {
+					return 0;
+				}
+				int next = i + 3;
+				if (next < end && cs.charAt(next) == ':') {
+					next++;
+				}
+				int offsetMinutes = (int) digits(cs, next, 2, end);
+				if (!isValid()) {
+					return 0;
+				}
+				if (next + 2 != end || offsetHours > 18 || offsetMinutes > 59) {
+					return fail(i);
+				}
+				offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (zone == '-' ? -1 : 1);
+			} else {
+				return fail(i);
+			}
+		}
+		return (seconds - offsetSeconds) * 1000 + millis;
+	}
+
+	public long parseTimestamp(char[] chars, int offset, int length) {
+		return parseTimestamp(charArray.wrap(chars), offset, length);
+	}
+
+	public long parseTimestamp(byte[] bytes, int offset, int length) {
+		return parseTimestamp(byteArray.wrap(bytes), offset, length);
+	}
+
+	private long digits(CharSequence cs, int offset, int count, int end) {
+		if (offset + count > end) {
+			return fail(Math.min(offset, end));
+		}
+		long value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			int digit = cs.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return fail(i);
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private boolean expect(CharSequence cs, int index, char c, int end) {
+		if (index >= end || cs.charAt(index) != c) {
+			fail(Math.min(index, end));
+			return false;
+		}
+		return true;
+	}
+
+	private long fail(int index) {
+		errorIndex = index;
+		return 0;
+	}
+
+	private static void checkRange(CharSequence cs, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > cs.length() - length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + cs.length());
+		}
+	}
+
+	/**
+	 * char[] 的可复用包装, 下标与数组一致
+	 */
+	private static final class CharArraySequence implements CharSequence {
+
+		private char[] chars;
+
+		private CharSequence wrap(char[] chars) {
+			this.chars = chars;
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return chars.length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return chars[index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(chars, start, end - start);
+		}
+	}
+
+	/**
+	 * ASCII byte[] 的可复用包装, 非 ASCII 字节按 ISO-8859-1 读取, 不会被识别为数字或分隔符
+	 */
+	private static final class ByteArraySequence implements CharSequence {
+
+		private byte[] bytes;
+
+		private CharSequence wrap(byte[] bytes) {
+			this.bytes = bytes;
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return bytes.length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (bytes[index] & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			char[] chars = new char[end - start];
+			for (int i = start; i < end; i++) {
+				chars[i - start] = charAt(i);
+			}
+			return new String(chars);
+		}
+	}
+}
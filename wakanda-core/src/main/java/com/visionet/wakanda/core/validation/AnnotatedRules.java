@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 把字段上的校验注解转换为 {@link Validator} 规则, 字段值通过 MethodHandle 读取
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+final class AnnotatedRules {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private AnnotatedRules() {
+	}
+
+	static <T> Validator<T> compile(Class<T> type) {
+		Validator.Builder<T> builder = Validator.builder();
+		Class<? super T> superclass = type.getSuperclass();
+		if (superclass != null && superclass != Object.class) {
+			builder.include(Validator.of(superclass));
+		}
+		for (Field field : type.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				compile(builder, field);
+			}
+		}
+		return builder.build();
+	}
+
+	private static <T> void compile(Validator.Builder<T> builder, Field field) {
+		String name = field.getName();
+		Required required = field.getAnnotation(Required.class);
+		if (required != null) {
+			builder.required(name, getter(field, Object.class));
+		}
+		NotBlank notBlank = field.getAnnotation(NotBlank.class);
+		if (notBlank != null) {
+			builder.notBlank(name, getter(field, String.class));
+		}
+		Length length = field.getAnnotation(Length.class);
+		if (length != null) {
+			builder.length(name, getter(field, CharSequence.class), length.min(), length.max());
+		}
+		Range range = field.getAnnotation(Range.class);
+		if (range != null) {
+			range(builder, field, range);
+		}
+		Matches matches = field.getAnnotation(Matches.class);
+		if (matches != null) {
+			builder.matches(name, getter(field, CharSequence.class), matches.value());
+		}
+	}
+
+	private static <T> void range(Validator.Builder<T> builder, Field field, Range range) {
+		Class<?> type = field.getType();
+		String name = field.getName();
+		// 注解代理的方法每次调用都会分配, 边界在编译规则时读出
+		long min = range.min();
+		long max = range.max();
+		if (type == long.class || type == int.class || type == short.class || type == byte.class) {
+			MethodHandle handle = handle(field, long.class);
+			builder.range(name, (ToLongFunction<T>) target -> {
+				try {
+					return (long) handle.invokeExact(target);
+				} catch (Throwable e) {
+					throw rethrow(e);
+				}
+			}, min, max);
+		} else if (type == double.class || type == float.class) {
+			MethodHandle handle = handle(field, double.class);
+			builder.range(name, (ToDoubleFunction<T>) target -> {
+				try {
+					return (double) handle.invokeExact(target);
+				} catch (Throwable e) {
+					throw rethrow(e);
+				}
+			}, min, max);
+		} else if (Number.class.isAssignableFrom(type)) {
+			// 包装类型已经装箱, 读取时不再分配; null 视为通过
+			Function<T, Number> getter = getter(field, Number.class);
+			boolean integral = type == Long.class || type == Integer.class || type == Short.class
+					|| type == Byte.class;
+			builder.rule(name, target -> {
+				Number value = getter.apply(target);
+				if (value == null) {
+					return true;
+				}
+				return integral ? value.longValue() >= min && value.longValue() <= max
+						: value.doubleValue() >= min && value.doubleValue() <= max;
+			}, ValidationError.RANGE, name, min, max);
+		} else {
+			throw new IllegalArgumentException("@Range is not supported on " + field);
+		}
+	}
+
+	private static <T, V> Function<T, V> getter(Field field, Class<V> valueType) {
+		if (valueType != Object.class && !valueType.isAssignableFrom(field.getType())) {
+			throw new IllegalArgumentException(field + " must be of type " + valueType.getSimpleName());
+		}
+		MethodHandle handle = handle(field, Object.class);
+		return target -> {
+			try {
+				return valueType.cast(handle.invokeExact(target));
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * @return 签名为 (Object) returnType 的字段读取句柄
+	 */
+	private static MethodHandle handle(Field field, Class<?> returnType) {
+		try {
+			field.setAccessible(true);
+			return LOOKUP.unreflectGetter(field).asType(MethodType.methodType(returnType, Object.class));
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Could not access " + field, e);
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return new IllegalStateException(e);
+	}
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import java.lang.annotation.*;
+
+/**
+ * 字符串长度范围, null 视为通过
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Length {
+
+	int min() default 0;
+
+	int max() default Integer.MAX_VALUE;
+}
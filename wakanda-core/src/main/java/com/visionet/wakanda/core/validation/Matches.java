@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import java.lang.annotation.*;
+
+/**
+ * 字符串必须完整匹配正则表达式, null 视为通过
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Matches {
+
+	String value();
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import java.lang.annotation.*;
+
+/**
+ * 字符串不能为 null 或只包含空白
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface NotBlank {
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import java.lang.annotation.*;
+
+/**
+ * 数值范围(整数与浮点数), null 视为通过
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Range {
+
+	long min() default Long.MIN_VALUE;
+
+	long max() default Long.MAX_VALUE;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import com.visionet.wakanda.core.exception.ErrorCode;
+
+/**
+ * 单条校验规则, 失败时的错误码与参数在构建时确定, 校验过程不分配对象
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+abstract class Rule<T> {
+
+	final String field;
+
+	final ErrorCode errorCode;
+
+	final Object[] parameters;
+
+	Rule(String field, ErrorCode errorCode, Object... parameters) {
+		this.field = field;
+		this.errorCode = errorCode;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * @return 是否通过
+	 */
+	abstract boolean test(T target);
+}
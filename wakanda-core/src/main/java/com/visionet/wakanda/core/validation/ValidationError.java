@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import com.visionet.wakanda.core.exception.ErrorCode;
+
+/**
+ * 内置校验规则的错误码, 第一个参数为字段名
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+public enum ValidationError implements ErrorCode {
+
+	REQUIRED("{} is required"),
+
+	BLANK("{} must not be blank"),
+
+	LENGTH("{} length must be between {} and {}"),
+
+	RANGE("{} must be between {} and {}"),
+
+	PATTERN("{} does not match {}"),
+
+	INVALID("{} is invalid");
+
+	private final String message;
+
+	ValidationError(String message) {
+		this.message = message;
+	}
+
+	@Override
+	public String getCode() {
+		return name();
+	}
+
+	@Override
+	public String getMessage() {
+		return message;
+	}
+}
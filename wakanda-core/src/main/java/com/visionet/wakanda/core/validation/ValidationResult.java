@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import com.visionet.wakanda.core.exception.ErrorCode;
+import com.visionet.wakanda.core.exception.ErrorMessages;
+import com.visionet.wakanda.core.exception.runtime.ValidateException;
+
+import java.util.Arrays;
+
+/**
+ * 收集一次校验的全部错误, 调用 {@link #clear()} 后可重复使用; 非线程安全
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+public final class ValidationResult {
+
+	private String[] fields = new String[4];
+
+	private ErrorCode[] errorCodes = new ErrorCode[4];
+
+	private Object[][] parameters = new Object[4][];
+
+	private int size;
+
+	public boolean isValid() {
+		return size == 0;
+	}
+
+	/**
+	 * @return 错误数
+	 */
+	public int size() {
+		return size;
+	}
+
+	public String getField(int index) {
+		checkIndex(index);
+		return fields[index];
+	}
+
+	public ErrorCode getErrorCode(int index) {
+		checkIndex(index);
+		return errorCodes[index];
+	}
+
+	public Object[] getParameters(int index) {
+		checkIndex(index);
+		return parameters[index];
+	}
+
+	public String getMessage(int index) {
+		checkIndex(index);
+		return ErrorMessages.format(errorCodes[index], parameters[index]);
+	}
+
+	/**
+	 * @throws ValidateException 第一个错误
+	 */
+	public void throwIfInvalid() {
+		if (size > 0) {
+			throw new ValidateException(errorCodes[0], parameters[0]);
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(fields, 0, size, null);
+		Arrays.fill(errorCodes, 0, size, null);
+		Arrays.fill(parameters, 0, size, null);
+		size = 0;
+	}
+
+	void add(String field, ErrorCode errorCode, Object[] parameters) {
+		if (size == fields.length) {
+			int capacity = size * 2;
+			fields = Arrays.copyOf(fields, capacity);
+			errorCodes = Arrays.copyOf(errorCodes, capacity);
+			this.parameters = Arrays.copyOf(this.parameters, capacity);
+		}
+		fields[size] = field;
+		errorCodes[size] = errorCode;
+		this.parameters[size] = parameters;
+		size++;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("ValidationResult[");
+		for (int i = 0; i < size; i++) {
+			builder.append(i > 0 ? "; " : "").append(getMessage(i));
+		}
+		return builder.append(']').toString();
+	}
+}
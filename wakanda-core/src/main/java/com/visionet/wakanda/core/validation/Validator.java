@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.core.validation;
+
+import com.visionet.wakanda.core.exception.ErrorCode;
+import com.visionet.wakanda.core.exception.runtime.ValidateException;
+import com.visionet.wakanda.core.utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预先构建的校验器, 规则直接调用取值函数, 不在校验时反射
+ *
+ * 用 {@link #builder()} 以 getter 方法引用声明规则, 或用 {@link #of(Class)} 按字段上的
+ * {@link Required}/{@link NotBlank}/{@link Length}/{@link Range}/{@link Matches} 生成, 每个类只生成一次.
+ * {@link #validate(Object)} 遇到第一个错误即抛出 {@link ValidateException};
+ * {@link #validate(Object, ValidationResult)} 收集全部错误. 校验通过时不分配对象
+ *
+ * 校验器线程安全
+ *
+ * @author pangcaijie
+ * @since 2019/5/26.
+ */
+public final class Validator<T> {
+
+	private static final ClassValue<Validator<?>> ANNOTATED = new ClassValue<Validator<?>>() {
+		@Override
+		protected Validator<?> computeValue(Class<?> type) {
+			return AnnotatedRules.compile(type);
+		}
+	};
+
+	private final Rule<? super T>[] rules;
+
+	private Validator(Rule<? super T>[] rules) {
+		this.rules = rules;
+	}
+
+	public static <T> Builder<T> builder() {
+		return new Builder<>();
+	}
+
+	/**
+	 * @param type 字段上标注了校验注解的类
+	 * @return 该类的校验器
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Validator<T> of(Class<T> type) {
+		return (Validator<T>) ANNOTATED.get(type);
+	}
+
+	/**
+	 * @throws ValidateException 第一个不通过的规则
+	 */
+	public void validate(T target) {
+		for (Rule<? super T> rule : rules) {
+			if (!rule.test(target)) {
+				throw new ValidateException(rule.errorCode, rule.parameters);
+			}
+		}
+	}
+
+	/**
+	 * @param result 追加不通过的规则
+	 * @return 本次是否全部通过
+	 */
+	public boolean validate(T target, ValidationResult result) {
+		boolean valid = true;
+		for (Rule<? super T> rule : rules) {
+			if (!rule.test(target)) {
+				result.add(rule.field, rule.errorCode, rule.parameters);
+				valid = false;
+			}
+		}
+		return valid;
+	}
+
+	/**
+	 * 按声明顺序执行规则. 除 {@link #required} 与 {@link #notBlank} 外, 值为 null 时视为通过
+	 */
+	public static final class Builder<T> {
+
+		private final List<Rule<? super T>> rules = new ArrayList<>();
+
+		private Builder() {
+		}
+
+		public Builder<T> required(String field, Function<? super T, ?> getter) {
+			return add(new Rule<T>(field, ValidationError.REQUIRED, field) {
+				@Override
+				boolean test(T target) {
+					return getter.apply(target) != null;
+				}
+			});
+		}
+
+		public Builder<T> notBlank(String field, Function<? super T, String> getter) {
+			return add(new Rule<T>(field, ValidationError.BLANK, field) {
+				@Override
+				boolean test(T target) {
+					return !StringUtils.isBlank(getter.apply(target));
+				}
+			});
+		}
+
+		public Builder<T> length(String field, Function<? super T, ? extends CharSequence> getter, int min, int max) {
+			return add(new Rule<T>(field, ValidationError.LENGTH, field, min, max) {
+				@Override
+				boolean test(T target) {
+					CharSequence value = getter.apply(target);
+					return value == null || value.length() >= min && value.length() <= max;
+				}
+			});
+		}
+
+		/**
+		 * @param getter 返回基本类型的取值函数, 包装类型的值为 null 时抛出 NullPointerException
+		 */
+		public Builder<T> range(String field, ToLongFunction<? super T> getter, long min, long max) {
+			return add(new Rule<T>(field, ValidationError.RANGE, field, min, max) {
+				@Override
+				boolean test(T target) {
+					long value = getter.applyAsLong(target);
+					return value >= min && value <= max;
+				}
+			});
+		}
+
+		public Builder<T> range(String field, ToDoubleFunction<? super T> getter, double min, double max) {
+			return add(new Rule<T>(field, ValidationError.RANGE, field, min, max) {
+				@Override
+				boolean test(T target) {
+					double value = getter.applyAsDouble(target);
+					return value >= min && value <= max;
+				}
+			});
+		}
+
+		public Builder<T> matches(String field, Function<? super T, ? extends CharSequence> getter, String regexp) {
+			Pattern pattern = Pattern.compile(regexp);
+			// Matcher 按线程复用, 匹配时不再创建
+			ThreadLocal<Matcher> matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+			return add(new Rule<T>(field, ValidationError.PATTERN, field, regexp) {
+				@Override
+				boolean test(T target) {
+					CharSequence value = getter.apply(target);
+					return value == null || matchers.get().reset(value).matches();
+				}
+			});
+		}
+
+		/**
+		 * 跨字段等自定义规则
+		 * @param field 报告错误的字段
+		 * @param predicate 返回 true 表示通过
+		 * @param errorCode 错误码
+		 * @param parameters 消息参数
+		 */
+		public Builder<T> rule(String field, Predicate<? super T> predicate, ErrorCode errorCode,
+				Object... parameters) {
+			return add(new Rule<T>(field, errorCode, parameters) {
+				@Override
+				boolean test(T target) {
+					return predicate.test(target);
+				}
+			});
+		}
+
+		public Builder<T> rule(String field, Predicate<? super T> predicate) {
+			return rule(field, predicate, ValidationError.INVALID, field);
+		}
+
+		/**
+		 * 合并其它校验器的规则, 如父类的校验器
+		 */
+		public Builder<T> include(Validator<? super T> validator) {
+			for (Rule<? super T> rule : validator.rules) {
+				rules.add(rule);
+			}
+			return this;
+		}
+
+		@SuppressWarnings("unchecked")
+		public Validator<T> build() {
+			return new Validator<>(rules.toArray(new Rule[0]));
+		}
+
+		private Builder<T> add(Rule<? super T> rule) {
+			rules.add(rule);
+			return this;
+		}
+	}
+}
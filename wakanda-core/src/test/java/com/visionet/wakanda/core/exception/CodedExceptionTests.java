@@ -0,0 +1,78 @@
+package com.visionet.wakanda.core.exception;
+
+import com.visionet.wakanda.core.exception.check.BusinessException;
+import com.visionet.wakanda.core.exception.runtime.ValidateException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CodedExceptionTests {
+
+	private static final ErrorCode REQUIRED = ErrorCode.of("REQUIRED", "{} is required");
+
+	private static final ErrorCode OUT_OF_RANGE = ErrorCode.of("OUT_OF_RANGE", "{} must be between {} and {}");
+
+	@Test
+	public void formatsMessageFromCode() {
+		ValidateException exception = new ValidateException(OUT_OF_RANGE, "age", 0, 150);
+		assertEquals("[OUT_OF_RANGE] age must be between 0 and 150", exception.getMessage());
+		assertSame(OUT_OF_RANGE, exception.getErrorCode());
+		assertEquals("[REQUIRED] name is required extra", new ValidateException(REQUIRED, "name", "extra").getMessage());
+	}
+
+	@Test
+	public void expectedFailuresAreStackless() {
+		assertEquals(0, new ValidateException(REQUIRED, "name").getStackTrace().length);
+		assertSame(BusinessException.of(Codes.LOCKED), BusinessException.of(Codes.LOCKED));
+		assertSame(ValidateException.of(Codes.LOCKED), ValidateException.of(Codes.LOCKED));
+		BusinessException cached = BusinessException.of(Codes.LOCKED);
+		cached.addSuppressed(new IllegalStateException());
+		assertEquals(0, cached.getSuppressed().length);
+		assertEquals("[LOCKED] account is locked", cached.getMessage());
+	}
+
+	@Test
+	public void onlyEnumCodesAreShared() {
+		assertEquals(REQUIRED, ErrorCode.of("REQUIRED", "{} is required"));
+		assertEquals(REQUIRED.hashCode(), ErrorCode.of("REQUIRED", "{} is required").hashCode());
+		assertNotEquals(REQUIRED, ErrorCode.of("REQUIRED", "{} must be set"));
+
+		BusinessException exception = BusinessException.of(REQUIRED);
+		assertNotSame(exception, BusinessException.of(REQUIRED));
+		assertEquals(0, exception.getStackTrace().length);
+	}
+
+	@Test
+	public void wrappedFailuresKeepStackTrace() {
+		IllegalStateException cause = new IllegalStateException("boom");
+		BusinessException exception = new BusinessException(REQUIRED, cause, "name");
+		assertTrue(exception.getStackTrace().length > 0);
+		assertSame(cause, exception.getCause());
+		assertTrue(new ValidateException("legacy").getStackTrace().length > 0);
+	}
+
+	enum Codes implements ErrorCode {
+
+		LOCKED("account is locked");
+
+		private final String message;
+
+		Codes(String message) {
+			this.message = message;
+		}
+
+		@Override
+		public String getCode() {
+			return name();
+		}
+
+		@Override
+		public String getMessage() {
+			return message;
+		}
+	}
+}
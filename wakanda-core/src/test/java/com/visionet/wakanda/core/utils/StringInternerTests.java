@@ -0,0 +1,43 @@
+package com.visionet.wakanda.core.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StringInternerTests {
+
+	@Test
+	public void returnsCanonicalInstance() {
+		StringInterner interner = new StringInterner(4);
+		String first = new String("system");
+		String second = new String("system");
+		assertNotSame(first, second);
+
+		assertSame(first, interner.intern(first));
+		assertSame(first, interner.intern(second));
+		assertSame(first, interner.intern(first));
+		assertNull(interner.intern(null));
+
+		assertEquals(2, interner.getHits());
+		assertEquals(1, interner.getMisses());
+		assertEquals(2.0 / 3, interner.getHitRate(), 1e-9);
+		assertEquals("only the replaced copy counts", 56, interner.getSavedBytes());
+	}
+
+	@Test
+	public void releasesUnreferencedValues() throws InterruptedException {
+		StringInterner interner = new StringInterner();
+		for (int i = 0; i < 10000; i++) {
+			interner.intern(new String("value-" + i));
+		}
+		for (int i = 0; i < 20 && interner.size() > 1000; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assertTrue(interner.size() < 10000);
+	}
+}
@@ -0,0 +1,75 @@
+package com.visionet.wakanda.core.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StringUtilsTests {
+
+	@Test
+	public void charSequenceRanges() {
+		StringBuilder builder = new StringBuilder("GET  /index.html  HTTP/1.1");
+		assertTrue(StringUtils.isBlank(builder, 3, 2));
+		assertFalse(StringUtils.isBlank(builder, 3, 3));
+		assertEquals(5, StringUtils.trimStart(builder, 3, 14));
+		assertEquals(16, StringUtils.trimEnd(builder, 3, 14));
+		assertEquals(11, StringUtils.indexOf(builder, '.', 0, builder.length()));
+		assertEquals(-1, StringUtils.indexOf(builder, '.', 0, 11));
+		assertEquals(18, StringUtils.indexOf(builder, "HTTP", 0, builder.length()));
+		assertTrue(StringUtils.contains(builder, "index"));
+		assertTrue(StringUtils.regionEquals(builder, 0, 3, "GET"));
+		assertEquals("index", StringUtils.subSequence(builder, 6, 5).toString());
+
+		int[] bounds = new int[8];
+		assertEquals(4, StringUtils.split("a,b,,c", 0, 6, ',', bounds));
+		assertArrayEquals(new int[]{0, 1, 2, 3, 4, 4, 5, 6}, bounds);
+		int[] two = new int[4];
+		assertEquals(2, StringUtils.split("a,b,,c", 0, 6, ',', two));
+		assertArrayEquals(new int[]{0, 1, 2, 6}, two);
+	}
+
+	@Test
+	public void charArrayRanges() {
+		char[] chars = "xx  key=value  xx".toCharArray();
+		int start = StringUtils.trimStart(chars, 2, 13);
+		int end = StringUtils.trimEnd(chars, 2, 13);
+		assertEquals(4, start);
+		assertEquals(13, end);
+		assertEquals(7, StringUtils.indexOf(chars, '=', start, end - start));
+		assertEquals(8, StringUtils.indexOf(chars, "value", start, end - start));
+	}
+
+	@Test
+	public void byteBufferRanges() {
+		byte[] bytes = "Host: 例子.com\r\nAccept: */*\r\n".getBytes(StandardCharsets.UTF_8);
+		for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.wrap(bytes), direct(bytes)}) {
+			int lineEnd = StringUtils.indexOf(buffer, "\r\n".getBytes(StandardCharsets.US_ASCII), 0, bytes.length);
+			int colon = StringUtils.indexOf(buffer, ':', 0, lineEnd);
+			assertEquals(4, colon);
+			assertTrue(StringUtils.regionEquals(buffer, 0, colon, "Host"));
+			int valueStart = StringUtils.trimStart(buffer, colon + 1, lineEnd - colon - 1);
+			ByteBuffer value = buffer.duplicate();
+			value.position(valueStart).limit(lineEnd);
+			assertEquals("例子.com", StandardCharsets.UTF_8.decode(value).toString());
+			assertEquals("Host", StringUtils.asciiSequence(buffer, 0, colon).toString());
+			assertEquals(0, buffer.position());
+
+			int[] bounds = new int[6];
+			assertEquals(3, StringUtils.split(buffer, 0, bytes.length, '\n', bounds));
+			assertTrue(StringUtils.isBlank(buffer, bounds[4], bounds[5] - bounds[4]));
+			assertFalse(StringUtils.isBlank(buffer, bounds[2], bounds[3] - bounds[2]));
+		}
+	}
+
+	private static ByteBuffer direct(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		return buffer;
+	}
+}
@@ -0,0 +1,140 @@
+package com.visionet.wakanda.core.utils;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TextParserTests {
+
+	private final TextParser parser = new TextParser();
+
+	@Test
+	public void parsesIntegers() {
+		String line = "id=-9223372036854775808;n=42;x=12a";
+		assertEquals(Long.MIN_VALUE, parser.parseLong(line, 3, 20));
+		assertTrue(parser.isValid());
+		assertEquals(42, parser.parseInt(line.toCharArray(), 26, 2));
+		assertEquals(42, parser.parseInt(line.getBytes(StandardCharsets.US_ASCII), 26, 2));
+
+		assertEquals(0, parser.parseInt(line, 31, 3));
+		assertFalse(parser.isValid());
+		assertEquals(33, parser.getErrorIndex());
+		parser.parseLong("9223372036854775808", 0, 19);
+		assertFalse(parser.isValid());
+		parser.parseInt("2147483648", 0, 10);
+		assertFalse(parser.isValid());
+		parser.parseLong("-", 0, 1);
+		assertFalse(parser.isValid());
+	}
+
+	@Test
+	public void parsesDecimals() {
+		assertEquals(1230, parser.parseDecimal("12.3", 0, 4, 2));
+		assertEquals(-5, parser.parseDecimal("-0.050", 0, 6, 2));
+		assertEquals(700, parser.parseDecimal("7", 0, 1, 2));
+		parser.parseDecimal("1.234", 0, 5, 2);
+		assertFalse(parser.isValid());
+		assertEquals(4, parser.getErrorIndex());
+
+		Random random = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			double value = random.nextDouble() * Math.pow(10, random.nextInt(20) - 10);
+			String text = Double.toString(value);
+			assertEquals(text, Double.parseDouble(text), parser.parseDouble(text, 0, text.length()), 0);
+		}
+		assertEquals(-1.5e-7, parser.parseDouble("-1.5E-7", 0, 7), 0);
+	}
+
+	@Test
+	public void parsesTimestamps() {
+		assertTimestamp("2019-05-28T10:15:30.123+08:00");
+		assertTimestamp("2019-05-28T10:15:30Z");
+		assertTimestamp("1969-12-31T23:59:59.999-05:30");
+		assertEquals(OffsetDateTime.parse("2020-02-29T00:00Z").toInstant().toEpochMilli(),
+				parser.parseTimestamp("2020-02-29", 0, 10));
+		parser.setDefaultOffset(ZoneOffset.ofHours(8));
+		assertEquals(OffsetDateTime.parse("2019-05-28T10:15+08:00").toInstant().toEpochMilli(),
+				parser.parseTimestamp("2019-05-28 10:15".getBytes(StandardCharsets.US_ASCII), 0, 16));
+
+		parser.parseTimestamp("2019-02-29", 0, 10);
+		assertFalse(parser.isValid());
+		assertEquals(8, parser.getErrorIndex());
+		parser.parseTimestamp("2019-05-28T24:00", 0, 16);
+		assertFalse(parser.isValid());
+	}
+
+	@Test
+	public void formatsWithoutStrings() {
+		byte[] target = new byte[64];
+		assertEquals("-9223372036854775808",
+				new String(target, 0, TextFormatter.writeLong(target, 0, Long.MIN_VALUE), StandardCharsets.US_ASCII));
+		assertEquals("-0.05", TextFormatter.appendDecimal(new StringBuilder(), -5, 2).toString());
+		assertEquals("12.30", TextFormatter.appendDecimal(new StringBuilder(), 1230, 2).toString());
+
+		Random random = new Random(11);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			long millis = (long) (random.nextDouble() * 8_000_000_000_000L) - 2_000_000_000_000L;
+			ZoneOffset offset = ZoneOffset.ofTotalSeconds((random.nextInt(48) - 24) * 1800);
+			builder.setLength(0);
+			TextFormatter.appendIsoTimestamp(builder, millis, offset);
+			assertEquals(builder.toString(), millis, parser.parseTimestamp(builder, 0, builder.length()));
+			assertEquals(OffsetDateTime.parse(builder).toInstant().toEpochMilli(), millis);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+		TextFormatter.putIsoDate(buffer, 0, ZoneOffset.UTC);
+		TextFormatter.putLong(buffer, 42);
+		buffer.flip();
+		assertEquals("1970-01-0142", StandardCharsets.US_ASCII.decode(buffer).toString());
+	}
+
+	@Test
+	public void parsingAndFormattingDoNotAllocate() {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		String line = "12345,-9876543210,12.34,2019-05-28T10:15:30.123+08:00";
+		char[] chars = line.toCharArray();
+		byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+		byte[] target = new byte[64];
+		StringBuilder builder = new StringBuilder(64);
+		for (int i = 0; i < 20000; i++) {
+			parseAndFormat(line, chars, bytes, target, builder);
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		long checksum = 0;
+		for (int i = 0; i < 100000; i++) {
+			checksum += parseAndFormat(line, chars, bytes, target, builder);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		assertTrue("allocated " + allocated + " bytes", allocated < 64 * 1024);
+		assertTrue(parser.isValid());
+		assertTrue(checksum != 0);
+	}
+
+	private long parseAndFormat(String line, char[] chars, byte[] bytes, byte[] target, StringBuilder builder) {
+		long value = parser.parseInt(line, 0, 5) + parser.parseLong(chars, 6, 11)
+				+ parser.parseDecimal(bytes, 18, 5, 2) + parser.parseTimestamp(bytes, 24, 29);
+		int length = TextFormatter.writeLong(target, 0, value) + TextFormatter.writeIsoTimestamp(target, 0, value,
+				ZoneOffset.UTC);
+		builder.setLength(0);
+		TextFormatter.appendDecimal(builder, value, 2);
+		return value + length + builder.length();
+	}
+
+	private void assertTimestamp(String text) {
+		assertEquals(text, OffsetDateTime.parse(text).toInstant().toEpochMilli(),
+				parser.parseTimestamp(text, 0, text.length()));
+		assertTrue(parser.isValid());
+	}
+}
@@ -0,0 +1,87 @@
+package com.visionet.wakanda.core.validation;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 同一组约束分别由编译后的规则与 Hibernate Validator 校验, 结果应一致
+ */
+public class HibernateValidatorComparisonTests {
+
+	private static final ValidatorFactory FACTORY = Validation.buildDefaultValidatorFactory();
+
+	private static final Validator<Order> VALIDATOR = Validator.of(Order.class);
+
+	@AfterClass
+	public static void close() {
+		FACTORY.close();
+	}
+
+	@Test
+	public void reportsTheSameErrorsAsHibernateValidator() {
+		Order[] orders = {
+				new Order("alice", "A1", 30, 5L),
+				new Order(" ", "A1", 30, 5L),
+				new Order("alice", null, 30, 5L),
+				new Order("alice", "a1", 30, 5L),
+				new Order("alice", "A1", 200, 5L),
+				new Order("alice", "A1", null, -1L),
+				new Order("a very long customer name exceeding the limit", "x", 151, 0L),
+				new Order(null, null, null, 101L)
+		};
+		javax.validation.Validator hibernateValidator = FACTORY.getValidator();
+		ValidationResult result = new ValidationResult();
+		for (Order order : orders) {
+			result.clear();
+			VALIDATOR.validate(order, result);
+			assertEquals(order.toString(), hibernateValidator.validate(order).size(), result.size());
+		}
+	}
+
+	static class Order {
+
+		@NotBlank
+		@Length(max = 32)
+		@javax.validation.constraints.NotBlank
+		@Size(max = 32)
+		private final String customer;
+
+		@Required
+		@Matches("[A-Z][0-9]")
+		@NotNull
+		@Pattern(regexp = "[A-Z][0-9]")
+		private final String code;
+
+		@Range(min = 0, max = 150)
+		@Min(0)
+		@Max(150)
+		private final Integer quantity;
+
+		@Range(min = 0, max = 100)
+		@Min(0)
+		@Max(100)
+		private final long discount;
+
+		Order(String customer, String code, Integer quantity, long discount) {
+			this.customer = customer;
+			this.code = code;
+			this.quantity = quantity;
+			this.discount = discount;
+		}
+
+		@Override
+		public String toString() {
+			return customer + "/" + code + "/" + quantity + "/" + discount;
+		}
+	}
+}
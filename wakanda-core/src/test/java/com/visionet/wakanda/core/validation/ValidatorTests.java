@@ -0,0 +1,91 @@
+package com.visionet.wakanda.core.validation;
+
+import com.visionet.wakanda.core.exception.runtime.ValidateException;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ValidatorTests {
+
+	private static final Validator<Account> VALIDATOR = Validator.<Account>builder()
+			.include(Validator.of(Account.class))
+			.rule("confirm", account -> account.password == null || account.password.equals(account.confirm))
+			.build();
+
+	@Test
+	public void failsFastOnFirstError() {
+		try {
+			VALIDATOR.validate(new Account(" ", "x", 200, "secret", "other"));
+			fail();
+		} catch (ValidateException e) {
+			assertEquals(ValidationError.BLANK, e.getErrorCode());
+			assertEquals("[BLANK] name must not be blank", e.getMessage());
+		}
+	}
+
+	@Test
+	public void collectsAllErrors() {
+		ValidationResult result = new ValidationResult();
+		assertFalse(VALIDATOR.validate(new Account(" ", "x", 200, "secret", "other"), result));
+		assertEquals(4, result.size());
+		assertEquals("code", result.getField(1));
+		assertEquals(ValidationError.PATTERN, result.getErrorCode(1));
+		assertEquals("[RANGE] age must be between 0 and 150", result.getMessage(2));
+		assertEquals("confirm", result.getField(3));
+
+		result.clear();
+		assertTrue(VALIDATOR.validate(new Account("alice", "A1", null, null, null), result));
+		assertTrue(result.isValid());
+	}
+
+	@Test
+	public void validInputDoesNotAllocate() {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Account account = new Account("alice", "A1", 30, "secret", "secret");
+		ValidationResult result = new ValidationResult();
+		for (int i = 0; i < 20000; i++) {
+			VALIDATOR.validate(account, result);
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 100000; i++) {
+			VALIDATOR.validate(account);
+			VALIDATOR.validate(account, result);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		assertTrue("allocated " + allocated + " bytes", allocated < 64 * 1024);
+		assertTrue(result.isValid());
+	}
+
+	static class Account {
+
+		@NotBlank
+		@Length(max = 32)
+		private final String name;
+
+		@Required
+		@Matches("[A-Z][0-9]")
+		private final String code;
+
+		@Range(min = 0, max = 150)
+		private final Integer age;
+
+		private final String password;
+
+		private final String confirm;
+
+		Account(String name, String code, Integer age, String password, String confirm) {
+			this.name = name;
+			this.code = code;
+			this.age = age;
+			this.password = password;
+			this.confirm = confirm;
+		}
+	}
+}
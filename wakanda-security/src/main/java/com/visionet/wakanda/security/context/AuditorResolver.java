@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.context;
+
+/**
+ * 由调用者得到写入 {@code createdBy}/{@code updatedBy} 的用户名
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+@FunctionalInterface
+public interface AuditorResolver {
+
+	/**
+	 * @param context 当前上下文
+	 * @return 审计用户名, 为 null 时记为 system
+	 */
+	String resolve(SecurityContext context);
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.context;
+
+import com.visionet.wakanda.security.token.VerifiedToken;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 一次请求或任务的调用者信息
+ *
+ * 由调用者派生的值(如审计用户名、所属组织)通过 {@link #getAttribute(Object, Function)} 在首次使用时计算一次,
+ * 之后同一上下文内直接复用, 上下文传递到异步线程后缓存仍然共享
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public final class SecurityContext {
+
+	private final String principal;
+
+	private final VerifiedToken token;
+
+	private final ConcurrentMap<Object, Object> attributes = new ConcurrentHashMap<>(4);
+
+	/**
+	 * @param principal 调用者标识
+	 * @param token 调用者的令牌, 内部任务可为 null
+	 */
+	public SecurityContext(String principal, VerifiedToken token) {
+		this.principal = principal;
+		this.token = token;
+	}
+
+	public static SecurityContext of(VerifiedToken token) {
+		return new SecurityContext(token.getSubject(), token);
+	}
+
+	public static SecurityContext of(String principal) {
+		return new SecurityContext(principal, null);
+	}
+
+	public String getPrincipal() {
+		return principal;
+	}
+
+	public VerifiedToken getToken() {
+		return token;
+	}
+
+	/**
+	 * @param key 属性键, 通常是计算该属性的组件本身
+	 * @param resolver 首次访问时计算属性, 返回 null 时下次重新计算
+	 * @return 属性值
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getAttribute(Object key, Function<SecurityContext, T> resolver) {
+		Object value = attributes.get(key);
+		if (value == null) {
+			// 不在 computeIfAbsent 中计算, resolver 可能查询数据库或读取其它属性
+			value = resolver.apply(this);
+			if (value != null) {
+				Object existing = attributes.putIfAbsent(key, value);
+				value = existing != null ? existing : value;
+			}
+		}
+		return (T) value;
+	}
+}
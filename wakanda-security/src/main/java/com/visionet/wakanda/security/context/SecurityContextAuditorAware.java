@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.context;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.AuditorAware;
+
+import java.util.Optional;
+
+/**
+ * 从 {@link SecurityContextHolder} 取审计用户, 每个上下文只解析一次
+ *
+ * 配置 {@code wakanda.jpa.auditorAware=com.visionet.wakanda.security.context.SecurityContextAuditorAware} 启用;
+ * 需要查询用户信息时注册 {@link AuditorResolver}, 解析结果缓存在上下文中, 批量保存不会重复查询.
+ * 没有上下文的后台任务记为 {@code system}
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public class SecurityContextAuditorAware implements AuditorAware<String> {
+
+	private static final String SYSTEM = "system";
+
+	private AuditorResolver resolver = SecurityContext::getPrincipal;
+
+	/**
+	 * @param resolver 由上下文得到审计用户名, 默认取 {@link SecurityContext#getPrincipal()}
+	 */
+	@Autowired(required = false)
+	public void setResolver(AuditorResolver resolver) {
+		this.resolver = resolver;
+	}
+
+	@Override
+	public Optional<String> getCurrentAuditor() {
+		SecurityContext context = SecurityContextHolder.getContext();
+		if (context == null) {
+			return Optional.of(SYSTEM);
+		}
+		String auditor = context.getAttribute(this, resolver::resolve);
+		return Optional.of(auditor != null ? auditor : SYSTEM);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * 当前线程的 {@link SecurityContext}
+ *
+ * 请求入口在认证后用 {@link #call(SecurityContext, Callable)} 或 {@link #run(SecurityContext, Runnable)}
+ * 执行后续处理; 提交到线程池的任务用 {@link #wrap(Runnable)} 或 {@link SecurityContextTaskDecorator}
+ * 带上提交时的上下文
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public final class SecurityContextHolder {
+
+	private static final ThreadLocal<SecurityContext> CONTEXT = new ThreadLocal<>();
+
+	private SecurityContextHolder() {
+	}
+
+	/**
+	 * @return 当前上下文, 不在请求或任务中时为 null
+	 */
+	public static SecurityContext getContext() {
+		return CONTEXT.get();
+	}
+
+	/**
+	 * 在指定上下文中执行, 结束后恢复原来的上下文
+	 */
+	public static <T> T call(SecurityContext context, Callable<T> action) throws Exception {
+		SecurityContext previous = CONTEXT.get();
+		set(context);
+		try {
+			return action.call();
+		} finally {
+			set(previous);
+		}
+	}
+
+	public static void run(SecurityContext context, Runnable action) {
+		SecurityContext previous = CONTEXT.get();
+		set(context);
+		try {
+			action.run();
+		} finally {
+			set(previous);
+		}
+	}
+
+	/**
+	 * @return 在当前上下文中执行 action 的任务
+	 */
+	public static Runnable wrap(Runnable action) {
+		SecurityContext context = CONTEXT.get();
+		return context == null ? action : () -> run(context, action);
+	}
+
+	public static <T> Callable<T> wrap(Callable<T> action) {
+		SecurityContext context = CONTEXT.get();
+		return context == null ? action : () -> call(context, action);
+	}
+
+	/**
+	 * @return 任务在提交线程的上下文中执行的 Executor
+	 */
+	public static Executor wrap(Executor executor) {
+		return command -> executor.execute(wrap(command));
+	}
+
+	private static void set(SecurityContext context) {
+		if (context == null) {
+			CONTEXT.remove();
+		} else {
+			CONTEXT.set(context);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.context;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 设置到 {@code ThreadPoolTaskExecutor} 后, {@code @Async} 方法在调用者的 {@link SecurityContext} 中执行
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public class SecurityContextTaskDecorator implements TaskDecorator {
+
+	@Override
+	public Runnable decorate(Runnable runnable) {
+		return SecurityContextHolder.wrap(runnable);
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.credential;
+
+/**
+ * 口令校验未执行
+ *
+ * @author pangcaijie
+ * @since 2019/5/23.
+ */
+public class CredentialException extends RuntimeException {
+
+	/**
+	 * 未执行的原因
+	 */
+	public enum Reason {
+
+		/**
+		 * 该账号尝试过于频繁
+		 */
+		THROTTLED,
+
+		/**
+		 * 哈希线程池队列已满
+		 */
+		OVERLOADED,
+
+		/**
+		 * 排队超时
+		 */
+		TIMEOUT
+	}
+
+	private final Reason reason;
+
+	public CredentialException(Reason reason, String message) {
+		super(message);
+		this.reason = reason;
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+}
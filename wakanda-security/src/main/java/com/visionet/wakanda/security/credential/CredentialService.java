@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.credential;
+
+import com.visionet.wakanda.security.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在独立的有界线程池中计算口令哈希, 登录高峰不会占满请求线程和全部 CPU
+ *
+ * 提交前按账号限流, 队列满时立即失败, 排队超过 queueTimeout 的任务不再计算; 结果以 {@link CompletableFuture}
+ * 返回, 失败原因见 {@link CredentialException.Reason}. 新哈希的代价按最近的实测耗时调整, 使单次哈希接近
+ * targetLatency, 旧哈希可用 {@link #needsRehash(String)} 判断是否需要在登录成功后重新计算
+ *
+ * future 在哈希线程上完成, 耗时的后续处理应使用 {@code *Async} 方法切换到其它线程
+ *
+ * @author pangcaijie
+ * @since 2019/5/23.
+ */
+public class CredentialService {
+
+	private static final int CALIBRATION_COST = 10000;
+
+	private static final double SMOOTHING = 0.2;
+
+	private final PasswordHasher hasher;
+
+	private final ThreadPoolExecutor executor;
+
+	private final Timer hashTimer = Metrics.timer("wakanda.credential.hash");
+
+	private final Map<CredentialException.Reason, Counter> rejected = new EnumMap<>(CredentialException.Reason.class);
+
+	private RateLimiter accountLimiter;
+
+	private long queueTimeout = TimeUnit.SECONDS.toNanos(5);
+
+	private long targetLatency = TimeUnit.MILLISECONDS.toNanos(250);
+
+	private int minCost = 10000;
+
+	private int maxCost = 10000000;
+
+	private volatile double nanosPerCost;
+
+	/**
+	 * @param hasher 口令哈希实现
+	 * @param threads 哈希线程数, 应明显小于 CPU 核数
+	 * @param queueCapacity 最多排队的任务数
+	 */
+	public CredentialService(PasswordHasher hasher, int threads, int queueCapacity) {
+		this.hasher = hasher;
+		AtomicInteger sequence = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity, true), runnable -> {
+			Thread thread = new Thread(runnable, "wakanda-credential-" + sequence.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.AbortPolicy());
+		for (CredentialException.Reason reason : CredentialException.Reason.values()) {
+			rejected.put(reason, Metrics.counter("wakanda.credential.rejected", "reason", reason.name()));
+		}
+		Metrics.gauge("wakanda.credential.queue", executor.getQueue(), BlockingQueue::size);
+		Metrics.gauge("wakanda.credential.cost", this, CredentialService::getCost);
+		calibrate();
+	}
+
+	/**
+	 * @param accountLimiter 按账号限流, 超过限制的尝试不计算哈希
+	 */
+	public void setAccountLimiter(RateLimiter accountLimiter) {
+		this.accountLimiter = accountLimiter;
+	}
+
+	/**
+	 * @param queueTimeout 最长排队时间(毫秒), 默认 5 秒
+	 */
+	public void setQueueTimeout(long queueTimeout) {
+		this.queueTimeout = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+	}
+
+	/**
+	 * @param targetLatency 单次哈希的目标耗时(毫秒), 默认 250 毫秒
+	 */
+	public void setTargetLatency(long targetLatency) {
+		this.targetLatency = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+	}
+
+	/**
+	 * @param minCost 代价下限
+	 * @param maxCost 代价上限
+	 */
+	public void setCostRange(int minCost, int maxCost) {
+		this.minCost = minCost;
+		this.maxCost = maxCost;
+	}
+
+	/**
+	 * 校验口令, 口令数组由本服务在计算后清零
+	 * @param account 账号, 用于限流
+	 * @param password 口令
+	 * @param encoded 保存的哈希
+	 * @return 是否匹配
+	 */
+	public CompletableFuture<Boolean> verify(String account, char[] password, String encoded) {
+		if (accountLimiter != null && !accountLimiter.tryAcquire(account)) {
+			Arrays.fill(password, '\0');
+			return failed(CredentialException.Reason.THROTTLED, "Too many attempts for " + account);
+		}
+		int cost = Math.max(1, hasher.cost(encoded));
+		return submit(password, cost, () -> hasher.verify(password, encoded));
+	}
+
+	/**
+	 * 以当前代价计算新哈希, 口令数组由本服务在计算后清零
+	 */
+	public CompletableFuture<String> hash(char[] password) {
+		int cost = getCost();
+		return submit(password, cost, () -> hasher.hash(password, cost));
+	}
+
+	/**
+	 * @return 保存的哈希代价明显低于当前代价, 应在登录成功后重新计算
+	 */
+	public boolean needsRehash(String encoded) {
+		return hasher.cost(encoded) < getCost() * 3L / 4;
+	}
+
+	/**
+	 * @return 新哈希使用的代价
+	 */
+	public int getCost() {
+		long cost = Math.round(targetLatency / nanosPerCost);
+		return (int) Math.max(minCost, Math.min(maxCost, cost));
+	}
+
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private <T> CompletableFuture<T> submit(char[] password, int cost, Callable<T> work) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		long enqueued = System.nanoTime();
+		try {
+			executor.execute(() -> {
+				try {
+					if (System.nanoTime() - enqueued > queueTimeout) {
+						rejected.get(CredentialException.Reason.TIMEOUT).increment();
+						future.completeExceptionally(new CredentialException(CredentialException.Reason.TIMEOUT,
+								"Credential check timed out in queue"));
+						return;
+					}
+					long start = System.nanoTime();
+					T result = work.call();
+					record(System.nanoTime() - start, cost);
+					future.complete(result);
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				} finally {
+					Arrays.fill(password, '\0');
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			Arrays.fill(password, '\0');
+			return failed(CredentialException.Reason.OVERLOADED, "Credential check queue is full");
+		}
+		return future;
+	}
+
+	private <T> CompletableFuture<T> failed(CredentialException.Reason reason, String message) {
+		rejected.get(reason).increment();
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(new CredentialException(reason, message));
+		return future;
+	}
+
+	private void record(long nanos, int cost) {
+		hashTimer.record(nanos, TimeUnit.NANOSECONDS);
+		// 指数平滑, 单次抖动不会使代价大幅变化
+		nanosPerCost = nanosPerCost * (1 - SMOOTHING) + (double) nanos / cost * SMOOTHING;
+	}
+
+	private void calibrate() {
+		char[] probe = "calibration".toCharArray();
+		long start = System.nanoTime();
+		hasher.hash(probe, CALIBRATION_COST);
+		nanosPerCost = Math.max(1, (double) (System.nanoTime() - start) / CALIBRATION_COST);
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.credential;
+
+/**
+ * 慢速口令哈希; 实现必须是线程安全的
+ *
+ * @author pangcaijie
+ * @since 2019/5/23.
+ */
+public interface PasswordHasher {
+
+	/**
+	 * @param password 口令
+	 * @param cost 代价参数, 含义由实现决定(如迭代次数), 耗时应与之成正比
+	 * @return 包含算法、代价与盐的编码结果
+	 */
+	String hash(char[] password, int cost);
+
+	/**
+	 * @param password 口令
+	 * @param encoded {@link #hash} 的结果
+	 * @return 是否匹配
+	 */
+	boolean verify(char[] password, String encoded);
+
+	/**
+	 * @return 编码结果使用的代价参数, 无法识别时为 -1
+	 */
+	int cost(String encoded);
+}
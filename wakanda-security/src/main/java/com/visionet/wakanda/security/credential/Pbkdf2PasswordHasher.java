@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.credential;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2-HMAC-SHA256, 代价为迭代次数; 编码格式 {@code pbkdf2-sha256$迭代次数$盐$哈希}
+ *
+ * @author pangcaijie
+ * @since 2019/5/23.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+	private static final String PREFIX = "pbkdf2-sha256";
+
+	private static final int SALT_BYTES = 16;
+
+	private static final int HASH_BITS = 256;
+
+	private final SecureRandom random = new SecureRandom();
+
+	@Override
+	public String hash(char[] password, int cost) {
+		byte[] salt = new byte[SALT_BYTES];
+		random.nextBytes(salt);
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		return PREFIX + "$" + cost + "$" + encoder.encodeToString(salt) + "$"
+				+ encoder.encodeToString(derive(password, salt, cost));
+	}
+
+	@Override
+	public boolean verify(char[] password, String encoded) {
+		String[] parts = encoded.split("\\$");
+		if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+			return false;
+		}
+		try {
+			Base64.Decoder decoder = Base64.getDecoder();
+			byte[] expected = decoder.decode(parts[3]);
+			return MessageDigest.isEqual(expected, derive(password, decoder.decode(parts[2]),
+					Integer.parseInt(parts[1])));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public int cost(String encoded) {
+		String[] parts = encoded.split("\\$");
+		if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(parts[1]);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static byte[] derive(char[] password, byte[] salt, int iterations) {
+		PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+		try {
+			return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("PBKDF2WithHmacSHA256 not available", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
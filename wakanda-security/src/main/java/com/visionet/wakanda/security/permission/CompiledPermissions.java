@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.permission;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 编译后的权限快照, 不可修改: 权限名到编号、角色到权限位图
+ *
+ * @author pangcaijie
+ * @since 2019/5/21.
+ */
+public final class CompiledPermissions {
+
+	private final Map<String, Integer> ids;
+
+	private final Map<String, long[]> roles;
+
+	private final int words;
+
+	CompiledPermissions(Map<String, Integer> ids, Map<String, long[]> roles, int words) {
+		this.ids = ids;
+		this.roles = roles;
+		this.words = words;
+	}
+
+	/**
+	 * @return 权限编号, 未声明的权限为 -1
+	 */
+	public int id(String permission) {
+		Integer id = ids.get(permission);
+		return id != null ? id : -1;
+	}
+
+	/**
+	 * @return 已声明的权限数
+	 */
+	public int size() {
+		return ids.size();
+	}
+
+	/**
+	 * 合并多个角色的权限位图, 未定义的角色忽略
+	 */
+	long[] bits(Collection<String> roleNames) {
+		long[] bits = new long[words];
+		for (String role : roleNames) {
+			long[] granted = roles.get(role);
+			if (granted != null) {
+				for (int i = 0; i < words; i++) {
+					bits[i] |= granted[i];
+				}
+			}
+		}
+		return bits;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.permission;
+
+/**
+ * 被检查的权限, 通常定义为常量; 编号在每个权限快照中解析一次后缓存
+ *
+ * @author pangcaijie
+ * @since 2019/5/21.
+ */
+public final class Permission {
+
+	private final String name;
+
+	private volatile Resolved resolved;
+
+	private Permission(String name) {
+		this.name = name;
+	}
+
+	public static Permission of(String name) {
+		return new Permission(name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	int id(CompiledPermissions permissions) {
+		Resolved current = resolved;
+		if (current == null || current.source != permissions) {
+			current = new Resolved(permissions, permissions.id(name));
+			resolved = current;
+		}
+		return current.id;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	private static final class Resolved {
+
+		private final CompiledPermissions source;
+
+		private final int id;
+
+		private Resolved(CompiledPermissions source, int id) {
+			this.source = source;
+			this.id = id;
+		}
+	}
+}
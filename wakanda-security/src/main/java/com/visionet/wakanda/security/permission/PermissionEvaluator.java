@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.permission;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基于位图的权限检查
+ *
+ * 角色与权限在 {@link #update(PermissionModel)} 时编译, 检查只是一次数组下标与位运算;
+ * 更新时整体替换快照, 检查线程不加锁
+ *
+ * @author pangcaijie
+ * @since 2019/5/21.
+ */
+public class PermissionEvaluator {
+
+	private final AtomicReference<CompiledPermissions> current;
+
+	public PermissionEvaluator(PermissionModel model) {
+		this.current = new AtomicReference<>(model.compile());
+	}
+
+	/**
+	 * 编译新的定义并替换当前快照, 已创建的 {@link PermissionGrant} 随之生效
+	 */
+	public void update(PermissionModel model) {
+		current.set(model.compile());
+	}
+
+	/**
+	 * @param roles 主体拥有的角色
+	 * @return 主体的有效权限
+	 */
+	public PermissionGrant grant(Collection<String> roles) {
+		return new PermissionGrant(roles, current.get());
+	}
+
+	/**
+	 * @return 是否拥有该权限; 未声明的权限一律拒绝
+	 */
+	public boolean hasPermission(PermissionGrant grant, Permission permission) {
+		CompiledPermissions permissions = current.get();
+		return test(grant.bits(permissions), permission.id(permissions));
+	}
+
+	/**
+	 * 按名称检查, 多一次哈希查找; 高频检查应使用 {@link Permission} 常量
+	 */
+	public boolean hasPermission(PermissionGrant grant, String permission) {
+		CompiledPermissions permissions = current.get();
+		return test(grant.bits(permissions), permissions.id(permission));
+	}
+
+	private static boolean test(long[] bits, int id) {
+		return id >= 0 && (bits[id >>> 6] & 1L << id) != 0;
+	}
+}
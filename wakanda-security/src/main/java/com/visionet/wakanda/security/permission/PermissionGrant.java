@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.permission;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 一个主体(用户、API Key)的有效权限, 登录时创建并随主体保存
+ *
+ * 权限位图属于某个权限快照, 快照替换后第一次检查时重新计算, 其余检查不分配对象
+ *
+ * @author pangcaijie
+ * @since 2019/5/21.
+ */
+public final class PermissionGrant {
+
+	private final Set<String> roles;
+
+	private volatile Bits bits;
+
+	PermissionGrant(Collection<String> roles, CompiledPermissions permissions) {
+		this.roles = Collections.unmodifiableSet(new LinkedHashSet<>(roles));
+		this.bits = new Bits(permissions, permissions.bits(this.roles));
+	}
+
+	public Set<String> getRoles() {
+		return roles;
+	}
+
+	long[] bits(CompiledPermissions permissions) {
+		Bits current = bits;
+		if (current.source != permissions) {
+			current = new Bits(permissions, permissions.bits(roles));
+			bits = current;
+		}
+		return current.words;
+	}
+
+	private static final class Bits {
+
+		private final CompiledPermissions source;
+
+		private final long[] words;
+
+		private Bits(CompiledPermissions source, long[] words) {
+			this.source = source;
+			this.words = words;
+		}
+	}
+}
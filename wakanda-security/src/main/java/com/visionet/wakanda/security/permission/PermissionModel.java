@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.permission;
+
+import java.util.*;
+
+/**
+ * 角色与权限定义, 由 {@link #compile()} 编译为 {@link CompiledPermissions}
+ *
+ * 权限以 ":" 分段, 如 {@code order:read}; 授权时可以使用通配段 {@code *}, 最后一段为 {@code *} 时匹配其后任意段,
+ * 如 {@code order:*}. 通配符只在编译时按已声明的权限展开; 角色直接授予的具体权限自动声明
+ *
+ * @author pangcaijie
+ * @since 2019/5/21.
+ */
+public class PermissionModel {
+
+	private final Set<String> permissions = new LinkedHashSet<>();
+
+	private final Map<String, Set<String>> grants = new LinkedHashMap<>();
+
+	private final Map<String, Set<String>> parents = new LinkedHashMap<>();
+
+	/**
+	 * 声明权限
+	 */
+	public PermissionModel permissions(String... names) {
+		permissions.addAll(Arrays.asList(names));
+		return this;
+	}
+
+	/**
+	 * 为角色授予权限, 可以使用通配符
+	 */
+	public PermissionModel grant(String role, String... names) {
+		Set<String> granted = grants.computeIfAbsent(role, key -> new LinkedHashSet<>());
+		for (String name : names) {
+			granted.add(name);
+			if (name.indexOf('*') < 0) {
+				permissions.add(name);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * 角色继承其它角色的全部权限
+	 */
+	public PermissionModel inherit(String role, String... inheritedRoles) {
+		grants.computeIfAbsent(role, key -> new LinkedHashSet<>());
+		parents.computeIfAbsent(role, key -> new LinkedHashSet<>()).addAll(Arrays.asList(inheritedRoles));
+		return this;
+	}
+
+	/**
+	 * 为每个权限分配连续的编号, 展开通配符与继承关系, 得到每个角色的权限位图
+	 * @throws IllegalArgumentException 角色继承存在环或继承了未定义的角色
+	 */
+	public CompiledPermissions compile() {
+		Map<String, Integer> ids = new HashMap<>();
+		String[] names = permissions.toArray(new String[0]);
+		for (int i = 0; i < names.length; i++) {
+			ids.put(names[i], i);
+		}
+		int words = (names.length + 63) >>> 6;
+
+		Map<String, long[]> direct = new HashMap<>();
+		for (Map.Entry<String, Set<String>> entry : grants.entrySet()) {
+			long[] bits = new long[words];
+			for (String granted : entry.getValue()) {
+				for (int i = 0; i < names.length; i++) {
+					if (matches(granted, names[i])) {
+						bits[i >>> 6] |= 1L << i;
+					}
+				}
+			}
+			direct.put(entry.getKey(), bits);
+		}
+
+		Map<String, long[]> roles = new HashMap<>();
+		for (String role : grants.keySet()) {
+			expand(role, direct, roles, new LinkedHashSet<>());
+		}
+		return new CompiledPermissions(ids, roles, words);
+	}
+
+	private long[] expand(String role, Map<String, long[]> direct, Map<String, long[]> roles, Set<String> path) {
+		long[] expanded = roles.get(role);
+		if (expanded != null) {
+			return expanded;
+		}
+		if (!direct.containsKey(role)) {
+			throw new IllegalArgumentException("Undefined role " + role);
+		}
+		if (!path.add(role)) {
+			throw new IllegalArgumentException("Cyclic role inheritance " + path + " -> " + role);
+		}
+		expanded = direct.get(role).clone();
+		for (String parent : parents.getOrDefault(role, Collections.emptySet())) {
+			long[] inherited = expand(parent, direct, roles, path);
+			for (int i = 0; i < expanded.length; i++) {
+				expanded[i] |= inherited[i];
+			}
+		}
+		path.remove(role);
+		roles.put(role, expanded);
+		return expanded;
+	}
+
+	/**
+	 * @param pattern 授权, 可含通配段
+	 * @param permission 具体权限
+	 */
+	static boolean matches(String pattern, String permission) {
+		if (pattern.equals(permission) || "*".equals(pattern)) {
+			return true;
+		}
+		String[] expected = pattern.split(":");
+		String[] actual = permission.split(":");
+		for (int i = 0; i < expected.length; i++) {
+			boolean last = i == expected.length - 1;
+			if (last && "*".equals(expected[i]) && actual.length > i) {
+				return true;
+			}
+			if (i >= actual.length || !"*".equals(expected[i]) && !expected[i].equals(actual[i])) {
+				return false;
+			}
+		}
+		return expected.length == actual.length;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 空闲键的时间轮
+ *
+ * 键创建时放入 (创建时间 + idleTimeout) 对应的槽; 指针走到该槽时检查最后访问时间, 已空闲的键移除,
+ * 仍在使用的键按最后访问时间重新放入. 访问键只写 lastAccess, 不移动槽位, 每个键每个空闲周期最多重排一次.
+ * 指针由请求线程顺带推进, 同一时刻只有一个线程推进
+ *
+ * @author pangcaijie
+ * @since 2019/5/22.
+ */
+class IdleKeyWheel {
+
+	private static final int SLOTS = 64;
+
+	private final ConcurrentHashMap<String, RateLimiter.KeyState> states;
+
+	private final ConcurrentLinkedQueue<RateLimiter.KeyState>[] slots;
+
+	private final long idleTimeout;
+
+	private final long tick;
+
+	private final AtomicBoolean advancing = new AtomicBoolean();
+
+	private volatile long nextTick;
+
+	private long cursor;
+
+	@SuppressWarnings("unchecked")
+	IdleKeyWheel(ConcurrentHashMap<String, RateLimiter.KeyState> states, long idleTimeout, long now) {
+		this.states = states;
+		this.idleTimeout = idleTimeout;
+		this.tick = Math.max(1, idleTimeout / (SLOTS / 2));
+		this.slots = new ConcurrentLinkedQueue[SLOTS];
+		for (int i = 0; i < SLOTS; i++) {
+			slots[i] = new ConcurrentLinkedQueue<>();
+		}
+		this.cursor = Math.floorDiv(now, tick);
+		this.nextTick = (cursor + 1) * tick;
+	}
+
+	void schedule(RateLimiter.KeyState state, long now) {
+		// 到期时间最多比当前指针晚 SLOTS / 2 格, 不会绕过当前槽
+		slots[slot(Math.floorDiv(now + idleTimeout, tick) + 1)].add(state);
+	}
+
+	void advance(long now) {
+		if (now < nextTick || !advancing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			long target = Math.floorDiv(now, tick);
+			// 长时间没有请求时最多转一圈
+			long from = Math.max(cursor + 1, target - SLOTS + 1);
+			for (long position = from; position <= target; position++) {
+				expire(slots[slot(position)], now);
+			}
+			cursor = target;
+			nextTick = (target + 1) * tick;
+		} finally {
+			advancing.set(false);
+		}
+	}
+
+	private static int slot(long position) {
+		return (int) Math.floorMod(position, (long) SLOTS);
+	}
+
+	private void expire(ConcurrentLinkedQueue<RateLimiter.KeyState> slot, long now) {
+		int size = slot.size();
+		for (int i = 0; i < size; i++) {
+			RateLimiter.KeyState state = slot.poll();
+			if (state == null) {
+				return;
+			}
+			if (now - state.lastAccess >= idleTimeout) {
+				states.remove(state.key, state);
+			} else {
+				schedule(state, state.lastAccess);
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.ratelimit;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 按键(用户、API Key)限流
+ *
+ * 每个键的状态是一个 {@link AtomicLong}, 只用 CAS 更新; 键已存在时一次判断不分配对象.
+ * 空闲超过 idleTimeout 的键由 {@link IdleKeyWheel} 移除, 键数量达到 maxKeys 后新键直接被拒绝
+ *
+ * @author pangcaijie
+ * @since 2019/5/22.
+ */
+public abstract class RateLimiter {
+
+	private final ConcurrentHashMap<String, KeyState> states = new ConcurrentHashMap<>();
+
+	private final IdleKeyWheel wheel;
+
+	private final int maxKeys;
+
+	private final LongSupplier clock;
+
+	/**
+	 * 全局注册表的 Counter 每次递增都会分配, 热路径只累加 LongAdder, 由 FunctionCounter 读取
+	 */
+	private final LongAdder rejected = new LongAdder();
+
+	private final LongAdder overflow = new LongAdder();
+
+	protected RateLimiter(String name, int maxKeys, long idleTimeout, TimeUnit unit, LongSupplier clock) {
+		this.maxKeys = maxKeys;
+		this.clock = clock;
+		this.wheel = new IdleKeyWheel(states, unit.toNanos(idleTimeout), clock.getAsLong());
+		Tags tags = Tags.of("limiter", name);
+		Metrics.more().counter("wakanda.ratelimit.rejected", tags, rejected, LongAdder::doubleValue);
+		Metrics.more().counter("wakanda.ratelimit.overflow", tags, overflow, LongAdder::doubleValue);
+		Metrics.gauge("wakanda.ratelimit.keys", tags, states, ConcurrentHashMap::size);
+	}
+
+	/**
+	 * @param key 限流键
+	 * @return 是否允许本次请求
+	 */
+	public boolean tryAcquire(String key) {
+		return tryAcquire(key, 1);
+	}
+
+	/**
+	 * @param key 限流键
+	 * @param permits 本次请求消耗的许可数
+	 * @return 是否允许本次请求; 不允许时不消耗许可
+	 */
+	public boolean tryAcquire(String key, int permits) {
+		long now = clock.getAsLong();
+		wheel.advance(now);
+		KeyState state = states.get(key);
+		if (state == null) {
+			if (states.size() >= maxKeys) {
+				overflow.increment();
+				rejected.increment();
+				return false;
+			}
+			KeyState created = new KeyState(key, initialState(now), now);
+			state = states.putIfAbsent(key, created);
+			if (state == null) {
+				state = created;
+				wheel.schedule(created, now);
+			}
+		}
+		state.lastAccess = now;
+		if (tryAcquire(state.value, permits, now)) {
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * @return 当前跟踪的键数量
+	 */
+	public int size() {
+		return states.size();
+	}
+
+	/**
+	 * @return 新键的初始状态
+	 */
+	protected abstract long initialState(long now);
+
+	/**
+	 * 以 CAS 更新状态, 不允许时不修改
+	 */
+	protected abstract boolean tryAcquire(AtomicLong state, int permits, long now);
+
+	static long systemClock() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * 单个键的状态
+	 */
+	static final class KeyState {
+
+		final String key;
+
+		final AtomicLong value;
+
+		volatile long lastAccess;
+
+		KeyState(String key, long initial, long now) {
+			this.key = key;
+			this.value = new AtomicLong(initial);
+			this.lastAccess = now;
+		}
+	}
+}
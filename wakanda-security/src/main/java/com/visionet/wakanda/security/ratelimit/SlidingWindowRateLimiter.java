@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 滑动窗口计数限流: 上一窗口计数按剩余比例加权, 加上当前窗口计数作为最近一个窗口长度内的请求数
+ *
+ * 状态打包在一个 long 中: 窗口序号低 24 位、上一窗口计数 20 位、当前窗口计数 20 位, 因此 limit 不能超过 2^20 - 1
+ *
+ * @author pangcaijie
+ * @since 2019/5/22.
+ */
+public class SlidingWindowRateLimiter extends RateLimiter {
+
+	private static final int COUNT_BITS = 20;
+
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+	private static final long WINDOW_MASK = (1L << 24) - 1;
+
+	private final int limit;
+
+	private final long window;
+
+	/**
+	 * @param name 名称, 用于指标
+	 * @param limit 每个窗口允许的请求数
+	 * @param window 窗口长度(毫秒)
+	 * @param maxKeys 最多跟踪的键数
+	 * @param idleTimeout 键空闲多久后移除(毫秒), 应不小于窗口长度的两倍
+	 */
+	public SlidingWindowRateLimiter(String name, int limit, long window, int maxKeys, long idleTimeout) {
+		this(name, limit, window, maxKeys, idleTimeout, RateLimiter::systemClock);
+	}
+
+	SlidingWindowRateLimiter(String name, int limit, long window, int maxKeys, long idleTimeout,
+							 LongSupplier clock) {
+		super(name, maxKeys, idleTimeout, TimeUnit.MILLISECONDS, clock);
+		if (limit <= 0 || limit > COUNT_MASK) {
+			throw new IllegalArgumentException("limit must be between 1 and " + COUNT_MASK);
+		}
+		this.limit = limit;
+		this.window = TimeUnit.MILLISECONDS.toNanos(window);
+	}
+
+	@Override
+	protected long initialState(long now) {
+		return pack(Math.floorDiv(now, window), 0, 0);
+	}
+
+	@Override
+	protected boolean tryAcquire(AtomicLong state, int permits, long now) {
+		long index = Math.floorDiv(now, window);
+		double elapsed = (double) Math.floorMod(now, window) / window;
+		while (true) {
+			long packed = state.get();
+			long stateIndex = packed >>> (2 * COUNT_BITS);
+			long previous = packed >>> COUNT_BITS & COUNT_MASK;
+			long current = packed & COUNT_MASK;
+			if (stateIndex != (index & WINDOW_MASK)) {
+				previous = stateIndex == (index - 1 & WINDOW_MASK) ? current : 0;
+				current = 0;
+			}
+			if (previous * (1 - elapsed) + current + permits > limit) {
+				return false;
+			}
+			if (state.compareAndSet(packed, pack(index, previous, current + permits))) {
+				return true;
+			}
+		}
+	}
+
+	private static long pack(long index, long previous, long current) {
+		return (index & WINDOW_MASK) << (2 * COUNT_BITS) | previous << COUNT_BITS | current;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 令牌桶限流, 以 GCRA(理论到达时间)实现: 每个键只保存一个时间戳, 与令牌桶等价
+ *
+ * 每 interval 补充一个许可, 最多积累 burst 个
+ *
+ * @author pangcaijie
+ * @since 2019/5/22.
+ */
+public class TokenBucketRateLimiter extends RateLimiter {
+
+	private final long interval;
+
+	private final long tolerance;
+
+	/**
+	 * @param name 名称, 用于指标
+	 * @param permitsPerSecond 平均速率
+	 * @param burst 最多积累的许可数
+	 * @param maxKeys 最多跟踪的键数
+	 * @param idleTimeout 键空闲多久后移除(毫秒)
+	 */
+	public TokenBucketRateLimiter(String name, double permitsPerSecond, int burst, int maxKeys, long idleTimeout) {
+		this(name, permitsPerSecond, burst, maxKeys, idleTimeout, RateLimiter::systemClock);
+	}
+
+	TokenBucketRateLimiter(String name, double permitsPerSecond, int burst, int maxKeys, long idleTimeout,
+						   LongSupplier clock) {
+		super(name, maxKeys, idleTimeout, TimeUnit.MILLISECONDS, clock);
+		this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+		this.tolerance = interval * burst;
+	}
+
+	@Override
+	protected long initialState(long now) {
+		return now;
+	}
+
+	@Override
+	protected boolean tryAcquire(AtomicLong state, int permits, long now) {
+		long cost = interval * permits;
+		while (true) {
+			long arrival = state.get();
+			long next = Math.max(arrival, now) + cost;
+			if (next - now > tolerance) {
+				return false;
+			}
+			if (state.compareAndSet(arrival, next)) {
+				return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.scope;
+
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeProvider;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 组合多个 {@link DataScopePolicy}, 作为仓库层的 {@link DataScopeProvider}
+ *
+ * 同一维度有多个策略时取交集. 后台任务等需要访问全部数据时, 在 {@link #unrestricted(Supplier)} 中执行
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public class DataScopePolicies implements DataScopeProvider {
+
+	private static final ThreadLocal<Boolean> UNRESTRICTED = new ThreadLocal<>();
+
+	private final List<DataScopePolicy> policies;
+
+	public DataScopePolicies(Collection<? extends DataScopePolicy> policies) {
+		this.policies = new ArrayList<>(policies);
+	}
+
+	public DataScopePolicies(DataScopePolicy... policies) {
+		this(Arrays.asList(policies));
+	}
+
+	@Override
+	public Map<String, Collection<?>> currentScopes() {
+		if (UNRESTRICTED.get() != null) {
+			return null;
+		}
+		Map<String, Collection<?>> scopes = new HashMap<>();
+		for (DataScopePolicy policy : policies) {
+			Collection<?> values = policy.resolve();
+			if (values == null) {
+				continue;
+			}
+			Collection<?> current = scopes.get(policy.getDimension());
+			if (current != null) {
+				Set<Object> intersection = new LinkedHashSet<>(current);
+				intersection.retainAll(values);
+				values = intersection;
+			}
+			scopes.put(policy.getDimension(), values);
+		}
+		return scopes;
+	}
+
+	/**
+	 * 不受数据范围限制地执行
+	 * @param action 访问数据的操作
+	 * @return 操作的结果
+	 */
+	public static <T> T unrestricted(Supplier<T> action) {
+		Boolean previous = UNRESTRICTED.get();
+		UNRESTRICTED.set(Boolean.TRUE);
+		try {
+			return action.get();
+		} finally {
+			if (previous == null) {
+				UNRESTRICTED.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.scope;
+
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeFilters;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+/**
+ * 单个维度的数据范围策略, 维度名与实体上 {@code @ScopeColumn} 的值对应
+ *
+ * @author pangcaijie
+ * @since 2019/5/24.
+ */
+public interface DataScopePolicy {
+
+	/**
+	 * @return 维度名称
+	 */
+	String getDimension();
+
+	/**
+	 * 在每次仓库调用时执行, 应只读取已加载的上下文(如当前用户), 不访问数据库
+	 * @return 当前调用者允许的值; null 表示不限制, 空集合表示没有可见数据
+	 */
+	Collection<?> resolve();
+
+	/**
+	 * @param dimension 维度名称
+	 * @param values 允许的值
+	 */
+	static DataScopePolicy of(String dimension, Supplier<? extends Collection<?>> values) {
+		return new DataScopePolicy() {
+			@Override
+			public String getDimension() {
+				return dimension;
+			}
+
+			@Override
+			public Collection<?> resolve() {
+				return values.get();
+			}
+		};
+	}
+
+	/**
+	 * 只能看到自己创建的数据
+	 * @param currentUser 当前用户, 与 {@code createdBy} 的取值一致; 返回 null 时看不到任何数据,
+	 *                    后台任务需要访问全部数据时在 {@link DataScopePolicies#unrestricted(Supplier)} 中执行
+	 */
+	static DataScopePolicy owner(Supplier<String> currentUser) {
+		return of(DataScopeFilters.OWNER, () -> {
+			String user = currentUser.get();
+			return user != null ? Collections.singleton(user) : Collections.emptySet();
+		});
+	}
+}
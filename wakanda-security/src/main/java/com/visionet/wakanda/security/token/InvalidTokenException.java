@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.token;
+
+/**
+ * 令牌格式错误、签名不正确、密钥未知或已过期
+ *
+ * @author pangcaijie
+ * @since 2019/5/20.
+ */
+public class InvalidTokenException extends RuntimeException {
+
+	public InvalidTokenException(String message) {
+		super(message);
+	}
+
+	public InvalidTokenException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.token;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 当前有效的签名密钥集合
+ *
+ * 密钥集合本身不可变, 轮换时整体替换 {@link AtomicReference} 中的引用, 验证线程读取时不加锁;
+ * 从集合中移除的密钥签发的令牌(包括已缓存的)立即失效
+ *
+ * @author pangcaijie
+ * @since 2019/5/20.
+ */
+public class KeySet {
+
+	private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(Collections.emptyList()));
+
+	public KeySet(SigningKey... keys) {
+		rotate(Arrays.asList(keys));
+	}
+
+	/**
+	 * 替换全部密钥, 轮换期间新旧密钥应同时存在一段时间
+	 * @param keys 新的密钥集合
+	 */
+	public void rotate(Collection<SigningKey> keys) {
+		current.set(new Snapshot(keys));
+	}
+
+	/**
+	 * 增加一个密钥, 同 kid 的旧密钥被替换
+	 */
+	public void add(SigningKey key) {
+		current.updateAndGet(snapshot -> {
+			Map<String, SigningKey> keys = new LinkedHashMap<>(snapshot.keys);
+			keys.put(key.getKeyId(), key);
+			return new Snapshot(keys.values());
+		});
+	}
+
+	/**
+	 * 撤销一个密钥
+	 */
+	public void remove(String keyId) {
+		current.updateAndGet(snapshot -> {
+			Map<String, SigningKey> keys = new LinkedHashMap<>(snapshot.keys);
+			keys.remove(keyId);
+			return new Snapshot(keys.values());
+		});
+	}
+
+	Snapshot snapshot() {
+		return current.get();
+	}
+
+	/**
+	 * 某一时刻的密钥集合
+	 */
+	static final class Snapshot {
+
+		private final Map<String, SigningKey> keys;
+
+		private Snapshot(Collection<SigningKey> keys) {
+			Map<String, SigningKey> map = new LinkedHashMap<>();
+			for (SigningKey key : keys) {
+				map.put(key.getKeyId(), key);
+			}
+			this.keys = Collections.unmodifiableMap(map);
+		}
+
+		/**
+		 * @param keyId 令牌头中的 kid, 可为 null
+		 * @return 对应的密钥; 未指定 kid 且只有一个密钥时返回该密钥
+		 */
+		SigningKey get(String keyId) {
+			if (keyId == null) {
+				return keys.size() == 1 ? keys.values().iterator().next() : null;
+			}
+			return keys.get(keyId);
+		}
+
+		/**
+		 * @return 该密钥是否仍在集合中
+		 */
+		boolean contains(SigningKey key) {
+			return keys.get(key.getKeyId()) == key;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.token;
+
+import java.security.Key;
+
+/**
+ * 验证签名用的密钥: HMAC 算法为共享密钥, RSA 算法为公钥
+ *
+ * @author pangcaijie
+ * @since 2019/5/20.
+ */
+public final class SigningKey {
+
+	private final String keyId;
+
+	private final TokenAlgorithm algorithm;
+
+	private final Key key;
+
+	/**
+	 * @param keyId 令牌头中的 kid
+	 * @param algorithm 签名算法, 令牌头中的 alg 必须与之一致
+	 * @param key 密钥
+	 */
+	public SigningKey(String keyId, TokenAlgorithm algorithm, Key key) {
+		this.keyId = keyId;
+		this.algorithm = algorithm;
+		this.key = key;
+	}
+
+	public String getKeyId() {
+		return keyId;
+	}
+
+	public TokenAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public Key getKey() {
+		return key;
+	}
+}
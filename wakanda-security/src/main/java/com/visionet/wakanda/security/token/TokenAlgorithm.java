@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.token;
+
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+
+/**
+ * 支持的 JWS 签名算法
+ *
+ * @author pangcaijie
+ * @since 2019/5/20.
+ */
+public enum TokenAlgorithm {
+
+	HS256("HmacSHA256", true),
+
+	HS384("HmacSHA384", true),
+
+	HS512("HmacSHA512", true),
+
+	RS256("SHA256withRSA", false),
+
+	RS384("SHA384withRSA", false),
+
+	RS512("SHA512withRSA", false);
+
+	private final String jcaName;
+
+	private final boolean hmac;
+
+	TokenAlgorithm(String jcaName, boolean hmac) {
+		this.jcaName = jcaName;
+		this.hmac = hmac;
+	}
+
+	public String getJcaName() {
+		return jcaName;
+	}
+
+	/**
+	 * @return 大小写敏感的 JWS 名称对应的算法, 不支持时为 null
+	 */
+	public static TokenAlgorithm of(String name) {
+		for (TokenAlgorithm algorithm : values()) {
+			if (algorithm.name().equals(name)) {
+				return algorithm;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 创建已用 key 初始化的验证器; 验证器不是线程安全的, 由调用方按线程复用
+	 */
+	Object newVerifier(Key key) throws GeneralSecurityException {
+		if (hmac) {
+			Mac mac = Mac.getInstance(jcaName);
+			mac.init(key);
+			return mac;
+		}
+		Signature signature = Signature.getInstance(jcaName);
+		signature.initVerify((PublicKey) key);
+		return signature;
+	}
+
+	/**
+	 * 验证结束后验证器回到初始状态, 可以直接用于下一次验证
+	 */
+	boolean verify(Object verifier, byte[] content, int length, byte[] signature) throws GeneralSecurityException {
+		if (hmac) {
+			Mac mac = (Mac) verifier;
+			mac.update(content, 0, length);
+			return MessageDigest.isEqual(mac.doFinal(), signature);
+		}
+		Signature engine = (Signature) verifier;
+		engine.update(content, 0, length);
+		return engine.verify(signature);
+	}
+}
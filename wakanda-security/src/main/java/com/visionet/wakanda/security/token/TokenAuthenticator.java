@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.token;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 验证 JWS 紧凑格式的 Bearer 令牌
+ *
+ * 验证通过的令牌按摘要缓存到过期为止, 再次出现时只计算一次 SHA-256; 签名密钥被撤销后缓存项随之失效.
+ * 每个线程为每个密钥保留一个已初始化的 {@code Mac}/{@code Signature}, 密钥轮换后自动重建
+ *
+ * @author pangcaijie
+ * @since 2019/5/20.
+ */
+public class TokenAuthenticator {
+
+	private static final TypeReference<Map<String, Object>> MAP = new TypeReference<Map<String, Object>>() {
+	};
+
+	private static final Base64.Decoder BASE64 = Base64.getUrlDecoder();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final KeySet keySet;
+
+	private final TokenCache cache;
+
+	private final ThreadLocal<Verifiers> verifiers = ThreadLocal.withInitial(Verifiers::new);
+
+	private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(TokenAuthenticator::sha256);
+
+	private final Counter hits = Metrics.counter("wakanda.token.cache.hits");
+
+	private final Counter misses = Metrics.counter("wakanda.token.cache.misses");
+
+	private final Counter rejected = Metrics.counter("wakanda.token.rejected");
+
+	private long clockSkew = TimeUnit.SECONDS.toMillis(60);
+
+	private long maxCacheTime = TimeUnit.MINUTES.toMillis(5);
+
+	/**
+	 * @param keySet 签名密钥
+	 * @param maxCacheEntries 最多缓存的令牌数
+	 */
+	public TokenAuthenticator(KeySet keySet, int maxCacheEntries) {
+		this.keySet = keySet;
+		this.cache = new TokenCache(maxCacheEntries);
+	}
+
+	public TokenAuthenticator(KeySet keySet) {
+		this(keySet, 100000);
+	}
+
+	/**
+	 * @param clockSkew 校验 exp/nbf 时允许的时钟偏差(毫秒), 默认 60 秒
+	 */
+	public void setClockSkew(long clockSkew) {
+		this.clockSkew = clockSkew;
+	}
+
+	/**
+	 * @param maxCacheTime 令牌最长缓存时间(毫秒), 未声明 exp 的令牌也按此过期重验, 默认 5 分钟
+	 */
+	public void setMaxCacheTime(long maxCacheTime) {
+		this.maxCacheTime = maxCacheTime;
+	}
+
+	/**
+	 * @param token 不含 "Bearer " 前缀的令牌
+	 * @return 验证通过的令牌
+	 * @throws InvalidTokenException 令牌无效
+	 */
+	public VerifiedToken authenticate(String token) {
+		long now = System.currentTimeMillis();
+		KeySet.Snapshot keys = keySet.snapshot();
+		TokenCache.Digest digest = new TokenCache.Digest(
+				digests.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+		VerifiedToken cached = cache.get(digest, now);
+		if (cached != null) {
+			if (keys.contains(cached.getSigningKey())) {
+				hits.increment();
+				return cached;
+			}
+			cache.remove(digest);
+		}
+		misses.increment();
+		try {
+			VerifiedToken verified = verify(token, keys, now);
+			cache.put(digest, verified, Math.min(verified.getExpiresAt(), now + maxCacheTime), now);
+			return verified;
+		} catch (InvalidTokenException e) {
+			rejected.increment();
+			throw e;
+		}
+	}
+
+	private VerifiedToken verify(String token, KeySet.Snapshot keys, long now) {
+		int first = token.indexOf('.');
+		int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+		if (first <= 0 || second < 0 || token.indexOf('.', second + 1) >= 0) {
+			throw new InvalidTokenException("Malformed token");
+		}
+		Map<String, Object> header = decode(token.substring(0, first));
+		TokenAlgorithm algorithm = TokenAlgorithm.of(String.valueOf(header.get("alg")));
+		Object keyId = header.get("kid");
+		SigningKey key = keys.get(keyId != null ? keyId.toString() : null);
+		if (key == null) {
+			throw new InvalidTokenException("Unknown signing key " + keyId);
+		}
+		// 只接受密钥登记的算法, 防止把公钥当作 HMAC 密钥使用
+		if (algorithm != key.getAlgorithm()) {
+			throw new InvalidTokenException("Algorithm " + header.get("alg") + " not allowed for key "
+					+ key.getKeyId());
+		}
+
+		byte[] content = token.getBytes(StandardCharsets.US_ASCII);
+		byte[] signature;
+		try {
+			signature = BASE64.decode(token.substring(second + 1));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidTokenException("Malformed signature", e);
+		}
+		try {
+			if (!algorithm.verify(verifiers.get().get(keys, key), content, second, signature)) {
+				throw new InvalidTokenException("Invalid signature");
+			}
+		} catch (GeneralSecurityException e) {
+			throw new InvalidTokenException("Could not verify signature", e);
+		}
+
+		Map<String, Object> claims = decode(token.substring(first + 1, second));
+		long expiresAt = claims.containsKey("exp") ? seconds(claims.get("exp")) + clockSkew : Long.MAX_VALUE;
+		if (now >= expiresAt) {
+			throw new InvalidTokenException("Token expired");
+		}
+		if (claims.containsKey("nbf") && now + clockSkew < seconds(claims.get("nbf"))) {
+			throw new InvalidTokenException("Token not yet valid");
+		}
+		Object subject = claims.get("sub");
+		return new VerifiedToken(subject != null ? subject.toString() : null, Collections.unmodifiableMap(claims),
+				expiresAt, key);
+	}
+
+	private Map<String, Object> decode(String part) {
+		try {
+			return objectMapper.readValue(BASE64.decode(part), MAP);
+		} catch (IOException | IllegalArgumentException e) {
+			throw new InvalidTokenException("Malformed token", e);
+		}
+	}
+
+	private static long seconds(Object value) {
+		if (!(value instanceof Number)) {
+			throw new InvalidTokenException("Malformed time claim " + value);
+		}
+		return TimeUnit.SECONDS.toMillis(((Number) value).longValue());
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 单个线程持有的验证器, 只对应一个密钥集合快照
+	 */
+	private static final class Verifiers {
+
+		private KeySet.Snapshot snapshot;
+
+		private final Map<SigningKey, Object> engines = new IdentityHashMap<>();
+
+		private Object get(KeySet.Snapshot keys, SigningKey key) throws GeneralSecurityException {
+			if (snapshot != keys) {
+				engines.clear();
+				snapshot = keys;
+			}
+			Object engine = engines.get(key);
+			if (engine == null) {
+				engine = key.getAlgorithm().newVerifier(key.getKey());
+				engines.put(key, engine);
+			}
+			return engine;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.token;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 已验证令牌的有界缓存, 以令牌的 SHA-256 摘要为键, 不保存令牌原文
+ *
+ * 超过容量时由一个线程清理: 先移除过期项, 仍然超过 90% 容量时按迭代顺序移除, 其它线程不等待
+ *
+ * @author pangcaijie
+ * @since 2019/5/20.
+ */
+class TokenCache {
+
+	private final ConcurrentHashMap<Digest, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	private final int maxEntries;
+
+	TokenCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	VerifiedToken get(Digest digest, long now) {
+		Entry entry = entries.get(digest);
+		if (entry == null) {
+			return null;
+		}
+		if (now >= entry.expiresAt) {
+			entries.remove(digest, entry);
+			return null;
+		}
+		return entry.token;
+	}
+
+	void put(Digest digest, VerifiedToken token, long expiresAt, long now) {
+		if (entries.size() >= maxEntries) {
+			evict(now);
+		}
+		entries.put(digest, new Entry(token, expiresAt));
+	}
+
+	void remove(Digest digest) {
+		entries.remove(digest);
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private void evict(long now) {
+		if (!evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			entries.values().removeIf(entry -> now >= entry.expiresAt);
+			int target = maxEntries - maxEntries / 10;
+			Iterator<Map.Entry<Digest, Entry>> iterator = entries.entrySet().iterator();
+			while (entries.size() > target && iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	private static final class Entry {
+
+		private final VerifiedToken token;
+
+		private final long expiresAt;
+
+		private Entry(VerifiedToken token, long expiresAt) {
+			this.token = token;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * 令牌摘要的前 128 位
+	 */
+	static final class Digest {
+
+		private final long high;
+
+		private final long low;
+
+		Digest(byte[] sha256) {
+			long h = 0;
+			long l = 0;
+			for (int i = 0; i < 8; i++) {
+				h = h << 8 | sha256[i] & 0xff;
+				l = l << 8 | sha256[i + 8] & 0xff;
+			}
+			this.high = h;
+			this.low = l;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Digest)) {
+				return false;
+			}
+			Digest digest = (Digest) o;
+			return high == digest.high && low == digest.low;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (high ^ high >>> 32);
+		}
+	}
+}
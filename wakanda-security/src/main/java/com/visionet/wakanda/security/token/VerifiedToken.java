@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019. Visionet and/or its affiliates. All right reserved.
+ * VISIONET PROPRIETARY/CONFIDENTIAL.
+ */
+package com.visionet.wakanda.security.token;
+
+import java.util.Map;
+
+/**
+ * 签名验证通过的令牌, 缓存命中时多个请求共享同一实例, 内容不可修改
+ *
+ * @author pangcaijie
+ * @since 2019/5/20.
+ */
+public final class VerifiedToken {
+
+	private final String subject;
+
+	private final Map<String, Object> claims;
+
+	private final long expiresAt;
+
+	private final SigningKey signingKey;
+
+	VerifiedToken(String subject, Map<String, Object> claims, long expiresAt, SigningKey signingKey) {
+		this.subject = subject;
+		this.claims = claims;
+		this.expiresAt = expiresAt;
+		this.signingKey = signingKey;
+	}
+
+	/**
+	 * @return sub
+	 */
+	public String getSubject() {
+		return subject;
+	}
+
+	/**
+	 * @return 全部声明, 不可修改
+	 */
+	public Map<String, Object> getClaims() {
+		return claims;
+	}
+
+	public Object getClaim(String name) {
+		return claims.get(name);
+	}
+
+	/**
+	 * @return 过期时间(毫秒, 已计入允许的时钟偏差), 未声明 exp 时为 {@link Long#MAX_VALUE}
+	 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	public String getKeyId() {
+		return signingKey.getKeyId();
+	}
+
+	SigningKey getSigningKey() {
+		return signingKey;
+	}
+}
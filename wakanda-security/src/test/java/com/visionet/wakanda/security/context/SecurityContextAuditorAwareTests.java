@@ -0,0 +1,48 @@
+package com.visionet.wakanda.security.context;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SecurityContextAuditorAwareTests {
+
+	@Test
+	public void resolvesOncePerContext() throws Exception {
+		AtomicInteger lookups = new AtomicInteger();
+		SecurityContextAuditorAware auditorAware = new SecurityContextAuditorAware();
+		auditorAware.setResolver(context -> {
+			lookups.incrementAndGet();
+			return "user:" + context.getPrincipal();
+		});
+
+		SecurityContextHolder.call(SecurityContext.of("alice"), () -> {
+			for (int i = 0; i < 100; i++) {
+				assertEquals("user:alice", auditorAware.getCurrentAuditor().get());
+			}
+			return null;
+		});
+		assertEquals(1, lookups.get());
+		assertNull(SecurityContextHolder.getContext());
+		assertEquals("system", auditorAware.getCurrentAuditor().get());
+	}
+
+	@Test
+	public void propagatesToExecutor() throws Exception {
+		SecurityContextAuditorAware auditorAware = new SecurityContextAuditorAware();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> auditor = SecurityContextHolder.call(SecurityContext.of("bob"),
+					() -> executor.submit(SecurityContextHolder.wrap(() -> auditorAware.getCurrentAuditor().get())));
+			assertEquals("bob", auditor.get());
+			assertEquals("system", executor.submit(() -> auditorAware.getCurrentAuditor().get()).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
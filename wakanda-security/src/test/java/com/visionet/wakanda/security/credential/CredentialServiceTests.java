@@ -0,0 +1,115 @@
+package com.visionet.wakanda.security.credential;
+
+import com.visionet.wakanda.security.ratelimit.TokenBucketRateLimiter;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CredentialServiceTests {
+
+	@Test
+	public void hashesAndVerifiesOnPool() throws Exception {
+		CredentialService service = new CredentialService(new Pbkdf2PasswordHasher(), 1, 10);
+		service.setCostRange(1000, 20000);
+		service.setTargetLatency(5);
+		try {
+			String encoded = service.hash("secret".toCharArray()).get(10, TimeUnit.SECONDS);
+			assertTrue(service.verify("alice", "secret".toCharArray(), encoded).get(10, TimeUnit.SECONDS));
+			assertFalse(service.verify("alice", "wrong".toCharArray(), encoded).get(10, TimeUnit.SECONDS));
+			assertTrue(service.needsRehash(new Pbkdf2PasswordHasher().hash("secret".toCharArray(), 1)));
+			assertTrue(service.getCost() >= 1000 && service.getCost() <= 20000);
+		} finally {
+			service.close();
+		}
+	}
+
+	@Test
+	public void throttlesAccountsBeforeHashing() throws Exception {
+		CredentialService service = new CredentialService(new Pbkdf2PasswordHasher(), 1, 10);
+		service.setAccountLimiter(new TokenBucketRateLimiter("login", 0.001, 2, 100, 60000));
+		try {
+			String encoded = new Pbkdf2PasswordHasher().hash("secret".toCharArray(), 1000);
+			char[] password = "wrong".toCharArray();
+			service.verify("alice", "wrong".toCharArray(), encoded).get();
+			service.verify("alice", "wrong".toCharArray(), encoded).get();
+			assertReason(CredentialException.Reason.THROTTLED, service.verify("alice", password, encoded));
+			assertEquals('\0', password[0]);
+			assertFalse(service.verify("bob", "wrong".toCharArray(), encoded).get());
+		} finally {
+			service.close();
+		}
+	}
+
+	@Test
+	public void failsFastWhenQueueIsFullAndDropsStaleTasks() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingHasher hasher = new BlockingHasher(release);
+		CredentialService service = new CredentialService(hasher, 1, 1);
+		service.setQueueTimeout(50);
+		try {
+			hasher.block = true;
+			CompletableFuture<Boolean> running = service.verify("a", "x".toCharArray(), "1");
+			Thread.sleep(20);
+			CompletableFuture<Boolean> queued = service.verify("b", "x".toCharArray(), "1");
+			assertReason(CredentialException.Reason.OVERLOADED, service.verify("c", "x".toCharArray(), "1"));
+
+			Thread.sleep(100);
+			release.countDown();
+			assertTrue(running.get());
+			assertReason(CredentialException.Reason.TIMEOUT, queued);
+		} finally {
+			service.close();
+		}
+	}
+
+	private static void assertReason(CredentialException.Reason reason, CompletableFuture<?> future)
+			throws InterruptedException {
+		try {
+			future.get();
+			fail();
+		} catch (ExecutionException e) {
+			assertEquals(reason, ((CredentialException) e.getCause()).getReason());
+		}
+	}
+
+	private static class BlockingHasher implements PasswordHasher {
+
+		private final CountDownLatch release;
+
+		private volatile boolean block;
+
+		private BlockingHasher(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public String hash(char[] password, int cost) {
+			return "1";
+		}
+
+		@Override
+		public boolean verify(char[] password, String encoded) {
+			if (block) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int cost(String encoded) {
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.visionet.wakanda.security.permission;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PermissionEvaluatorTests {
+
+	private static final Permission ORDER_READ = Permission.of("order:read");
+
+	private static final Permission ORDER_DELETE = Permission.of("order:delete");
+
+	private static final Permission USER_READ = Permission.of("user:read");
+
+	private PermissionModel model() {
+		return new PermissionModel()
+				.permissions("order:read", "order:write", "order:delete", "user:read", "user:write")
+				.grant("viewer", "*:read")
+				.grant("clerk", "order:write")
+				.inherit("clerk", "viewer")
+				.grant("admin", "*");
+	}
+
+	@Test
+	public void expandsWildcardsAndInheritance() {
+		PermissionEvaluator evaluator = new PermissionEvaluator(model());
+		PermissionGrant clerk = evaluator.grant(Collections.singleton("clerk"));
+		assertTrue(evaluator.hasPermission(clerk, ORDER_READ));
+		assertTrue(evaluator.hasPermission(clerk, USER_READ));
+		assertTrue(evaluator.hasPermission(clerk, "order:write"));
+		assertFalse(evaluator.hasPermission(clerk, ORDER_DELETE));
+		assertFalse(evaluator.hasPermission(clerk, "report:read"));
+
+		PermissionGrant admin = evaluator.grant(Arrays.asList("admin", "unknown"));
+		assertTrue(evaluator.hasPermission(admin, ORDER_DELETE));
+	}
+
+	@Test
+	public void updateAppliesToExistingGrants() {
+		PermissionEvaluator evaluator = new PermissionEvaluator(model());
+		PermissionGrant clerk = evaluator.grant(Collections.singleton("clerk"));
+		assertFalse(evaluator.hasPermission(clerk, ORDER_DELETE));
+
+		evaluator.update(model().permissions("audit:read").grant("clerk", "order:*"));
+		assertTrue(evaluator.hasPermission(clerk, ORDER_DELETE));
+		assertTrue(evaluator.hasPermission(clerk, "audit:read"));
+	}
+
+	@Test
+	public void rejectsCyclicInheritance() {
+		try {
+			new PermissionModel().grant("a", "x:read").inherit("a", "b").inherit("b", "a").compile();
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertTrue(PermissionModel.matches("order:*", "order:item:read"));
+		assertFalse(PermissionModel.matches("order:*", "order"));
+		assertFalse(PermissionModel.matches("*:read", "order:item:read"));
+	}
+}
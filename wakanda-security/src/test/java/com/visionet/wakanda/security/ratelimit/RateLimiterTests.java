@@ -0,0 +1,112 @@
+package com.visionet.wakanda.security.ratelimit;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTests {
+
+	private final AtomicLong clock = new AtomicLong(-TimeUnit.SECONDS.toNanos(100));
+
+	@Test
+	public void tokenBucketAllowsBurstThenRate() {
+		RateLimiter limiter = new TokenBucketRateLimiter("test", 10, 5, 100, 60000, clock::get);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limiter.tryAcquire("alice"));
+		}
+		assertFalse(limiter.tryAcquire("alice"));
+		assertTrue(limiter.tryAcquire("bob"));
+
+		advance(100);
+		assertTrue(limiter.tryAcquire("alice"));
+		assertFalse(limiter.tryAcquire("alice"));
+	}
+
+	@Test
+	public void slidingWindowWeighsPreviousWindow() {
+		RateLimiter limiter = new SlidingWindowRateLimiter("test", 10, 1000, 100, 60000, clock::get);
+		advance(900);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(limiter.tryAcquire("alice"));
+		}
+		assertFalse(limiter.tryAcquire("alice"));
+
+		// 下一窗口过半时上一窗口按一半计算
+		advance(600);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limiter.tryAcquire("alice"));
+		}
+		assertFalse(limiter.tryAcquire("alice"));
+	}
+
+	@Test
+	public void idleKeysExpireAndKeyCountIsBounded() {
+		RateLimiter limiter = new TokenBucketRateLimiter("test", 10, 5, 2, 1000, clock::get);
+		assertTrue(limiter.tryAcquire("alice"));
+		assertTrue(limiter.tryAcquire("bob"));
+		assertFalse(limiter.tryAcquire("carol"));
+
+		for (int i = 0; i < 20; i++) {
+			advance(100);
+			limiter.tryAcquire("bob");
+		}
+		assertEquals(1, limiter.size());
+		assertTrue(limiter.tryAcquire("carol"));
+	}
+
+	@Test
+	public void concurrentCallersNeverExceedBurst() throws InterruptedException {
+		RateLimiter limiter = new TokenBucketRateLimiter("test", 1, 1000, 100, 60000, clock::get);
+		AtomicInteger acquired = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(8);
+		for (int t = 0; t < 8; t++) {
+			new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					if (limiter.tryAcquire("hot")) {
+						acquired.incrementAndGet();
+					}
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		assertEquals(1000, acquired.get());
+	}
+
+	@Test
+	public void existingKeysDoNotAllocate() {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		RateLimiter[] limiters = {
+				new TokenBucketRateLimiter("test", 1000, 10, 100, 60000, clock::get),
+				new SlidingWindowRateLimiter("test", 10, 1000, 100, 60000, clock::get)};
+		for (int i = 0; i < 20000; i++) {
+			for (RateLimiter limiter : limiters) {
+				limiter.tryAcquire("alice");
+			}
+			advance(1);
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 100000; i++) {
+			for (RateLimiter limiter : limiters) {
+				limiter.tryAcquire("alice");
+			}
+			advance(1);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		assertTrue("allocated " + allocated + " bytes", allocated < 64 * 1024);
+	}
+
+	private void advance(long millis) {
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+}
@@ -0,0 +1,46 @@
+package com.visionet.wakanda.security.scope;
+
+import com.visionet.wakanda.hibernate.jpa.scope.DataScopeFilters;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DataScopePoliciesTests {
+
+	private String user;
+
+	@Test
+	public void ownerDeniesWithoutUser() {
+		DataScopePolicies policies = new DataScopePolicies(DataScopePolicy.owner(() -> user));
+
+		user = "alice";
+		assertEquals(Collections.singleton("alice"), policies.currentScopes().get(DataScopeFilters.OWNER));
+
+		user = null;
+		Map<String, Collection<?>> scopes = policies.currentScopes();
+		assertTrue(scopes.containsKey(DataScopeFilters.OWNER));
+		assertTrue(scopes.get(DataScopeFilters.OWNER).isEmpty());
+
+		assertNull(DataScopePolicies.unrestricted(policies::currentScopes));
+	}
+
+	@Test
+	public void intersectsPoliciesOfTheSameDimension() {
+		DataScopePolicies policies = new DataScopePolicies(
+				DataScopePolicy.of("region", () -> Arrays.asList("east", "west")),
+				DataScopePolicy.of("region", () -> Arrays.asList("west", "north")),
+				DataScopePolicy.of("team", () -> null));
+
+		Map<String, Collection<?>> scopes = policies.currentScopes();
+		assertEquals(Collections.singleton("region"), scopes.keySet());
+		assertEquals(new HashSet<>(Collections.singleton("west")), new HashSet<>(scopes.get("region")));
+	}
+}
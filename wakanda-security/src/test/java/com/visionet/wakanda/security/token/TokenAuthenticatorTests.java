@@ -0,0 +1,114 @@
+package com.visionet.wakanda.security.token;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TokenAuthenticatorTests {
+
+	private SecretKeySpec secret;
+
+	private KeyPair rsa;
+
+	private KeySet keySet;
+
+	private TokenAuthenticator authenticator;
+
+	@Before
+	public void setUp() throws Exception {
+		secret = new SecretKeySpec("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII),
+				"HmacSHA256");
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		rsa = generator.generateKeyPair();
+		keySet = new KeySet(new SigningKey("h1", TokenAlgorithm.HS256, secret),
+				new SigningKey("r1", TokenAlgorithm.RS256, rsa.getPublic()));
+		authenticator = new TokenAuthenticator(keySet, 16);
+	}
+
+	@Test
+	public void verifiesAndCachesTokens() throws Exception {
+		long exp = System.currentTimeMillis() / 1000 + 600;
+		String hmacToken = hmac("h1", "{\"sub\":\"alice\",\"exp\":" + exp + "}");
+		String rsaToken = rsa("r1", "{\"sub\":\"bob\",\"exp\":" + exp + "}");
+
+		VerifiedToken first = authenticator.authenticate(hmacToken);
+		assertEquals("alice", first.getSubject());
+		assertSame(first, authenticator.authenticate(hmacToken));
+		assertEquals("bob", authenticator.authenticate(rsaToken).getSubject());
+	}
+
+	@Test
+	public void rejectsTamperedExpiredAndUnknownTokens() throws Exception {
+		long exp = System.currentTimeMillis() / 1000 + 600;
+		String token = hmac("h1", "{\"sub\":\"alice\",\"exp\":" + exp + "}");
+		String payload = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(("{\"sub\":\"mallory\",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8));
+		String[] parts = token.split("\\.");
+		assertRejected(parts[0] + "." + payload + "." + parts[2]);
+		assertRejected(hmac("h1", "{\"sub\":\"alice\",\"exp\":1}"));
+		assertRejected(hmac("h2", "{\"sub\":\"alice\"}"));
+		// 用 RSA 公钥声明 HMAC 算法
+		assertRejected(sign("r1", "HS256", "{\"sub\":\"alice\"}", null));
+		assertRejected("not-a-token");
+	}
+
+	@Test
+	public void revokedKeyInvalidatesCachedTokens() throws Exception {
+		String token = hmac("h1", "{\"sub\":\"alice\"}");
+		authenticator.authenticate(token);
+
+		keySet.rotate(Collections.singletonList(new SigningKey("r1", TokenAlgorithm.RS256, rsa.getPublic())));
+		assertRejected(token);
+
+		keySet.add(new SigningKey("h1", TokenAlgorithm.HS256, secret));
+		assertEquals("alice", authenticator.authenticate(token).getSubject());
+	}
+
+	private void assertRejected(String token) {
+		try {
+			authenticator.authenticate(token);
+			fail();
+		} catch (InvalidTokenException e) {
+			// expected
+		}
+	}
+
+	private String hmac(String kid, String claims) throws Exception {
+		return sign(kid, "HS256", claims, null);
+	}
+
+	private String rsa(String kid, String claims) throws Exception {
+		return sign(kid, "RS256", claims, rsa);
+	}
+
+	private String sign(String kid, String alg, String claims, KeyPair keyPair) throws Exception {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String content = encoder.encodeToString(("{\"alg\":\"" + alg + "\",\"kid\":\"" + kid + "\"}")
+				.getBytes(StandardCharsets.UTF_8)) + "." + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+		byte[] signature;
+		if (keyPair != null) {
+			Signature signer = Signature.getInstance("SHA256withRSA");
+			signer.initSign(keyPair.getPrivate());
+			signer.update(content.getBytes(StandardCharsets.US_ASCII));
+			signature = signer.sign();
+		} else {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(secret);
+			signature = mac.doFinal(content.getBytes(StandardCharsets.US_ASCII));
+		}
+		return content + "." + encoder.encodeToString(signature);
+	}
+}